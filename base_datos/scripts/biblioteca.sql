@@ -69,17 +69,10 @@ INSERT INTO `devoluciones` (`id`, `id_prestamo`, `fecha_devolucion`, `mora_pagad
 
 --
 -- Disparadores `devoluciones`
+-- Ya no hay: el ejemplar queda 'Disponible' con el procedimiento sp_registrar_devolucion
+-- (o con el UPDATE que hace la aplicacion al insertar devoluciones en lote).
 --
-DELIMITER $$
-CREATE TRIGGER `tg_update_ejemplar_estado_disponible` AFTER INSERT ON `devoluciones` FOR EACH ROW begin 
-declare id_ultimo_prestamo int;
-set id_ultimo_prestamo = (select id_prestamo from devoluciones 
-where id = (select max(id) from devoluciones));
-update ejemplares set estado = "Disponible"
-where id = (select id_ejemplar from prestamos where id = id_ultimo_prestamo);
-end
-$$
-DELIMITER ;
+DROP TRIGGER IF EXISTS tg_update_ejemplar_estado_disponible;
 
 -- --------------------------------------------------------
 
@@ -138,57 +131,6 @@ INSERT INTO `ejemplares` (`id`, `id_documento`, `ubicacion`, `estado`) VALUES
 (7, 5, 'Estante E1 - Cajón Multimedia', 'Disponible'),
 (8, 6, 'Estante F1 - Diarios', 'Disponible');
 
--- --------------------------------------------------------
-
---
--- Estructura de tabla para la tabla `prestamos`
-CREATE TABLE IF NOT EXISTS prestamos (
-    id              INT AUTO_INCREMENT PRIMARY KEY,
-    id_usuario      INT NOT NULL,
-    id_ejemplar     INT NOT NULL,
-    fecha_prestamo  DATE NOT NULL,
-    fecha_devolucion DATE DEFAULT NULL,
-    fecha_limite    DATE NOT NULL,
-    mora            DECIMAL(10,2) DEFAULT 0.00,
-    
-  -- ...constraints y indexes
-    CONSTRAINT fk_pres_usuario
-        FOREIGN KEY (id_usuario)  REFERENCES usuarios(id)
-        ON DELETE RESTRICT
-        ON UPDATE CASCADE,
-
-    CONSTRAINT fk_pres_ejemplar
-        FOREIGN KEY (id_ejemplar) REFERENCES ejemplares(id)
-        ON DELETE RESTRICT
-        ON UPDATE CASCADE,
-
-    INDEX idx_pres_user_estado (id_usuario, fecha_devolucion)
-) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;
-
---
--- Volcado de datos para la tabla `prestamos`
---
-
-INSERT INTO `prestamos` (`id`, `id_usuario`, `id_ejemplar`, `fecha_prestamo`, `fecha_devolucion`, `fecha_limite`, `mora`) VALUES
-(1, 3, 1, '2025-04-20', NULL, '2025-04-27', 0.00),
-(2, 3, 4, '2025-04-25', NULL, '2025-05-02', 0.00);
-
---
--- Disparadores `prestamos`
---
-DROP TRIGGER IF EXISTS tg_update_ejemplar_estado_prestado;
-DELIMITER $$
-CREATE TRIGGER tg_update_ejemplar_estado_prestado
-AFTER INSERT ON prestamos
-FOR EACH ROW
-BEGIN
-    UPDATE ejemplares
-    SET    estado = 'Prestado'
-    WHERE  id = NEW.id_ejemplar;
-END $$
-DELIMITER ;
-
-
 -- --------------------------------------------------------
 
 --
@@ -201,9 +143,6 @@ CREATE TABLE `tipo_documento` (
   PRIMARY KEY (`id`),
   UNIQUE KEY `unq_tipo_documento` (`tipo`)
 );
--- evitar duplicados en tipo_documento
-ALTER TABLE tipo_documento
-  ADD CONSTRAINT unq_tipo_documento UNIQUE (tipo);
 --
 -- Volcado de datos para la tabla `tipo_documento`
 --
@@ -223,8 +162,9 @@ INSERT INTO `tipo_documento` (`id`, `tipo`) VALUES
 --
 
 CREATE TABLE `tipo_usuario` (
-  `id` int(11) NOT NULL,
-  `tipo` varchar(100) NOT NULL
+  `id` int(11) NOT NULL AUTO_INCREMENT,
+  `tipo` varchar(100) NOT NULL,
+  PRIMARY KEY (`id`)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_general_ci;
 
 --
@@ -243,12 +183,13 @@ INSERT INTO `tipo_usuario` (`id`, `tipo`) VALUES
 --
 
 CREATE TABLE `usuarios` (
-  `id` int(11) NOT NULL,
+  `id` int(11) NOT NULL AUTO_INCREMENT,
   `nombre` varchar(100) NOT NULL,
   `correo` varchar(100) NOT NULL,
   `contrasena` varchar(255) NOT NULL,
   `id_tipo_usuario` int(11) NOT NULL,
-  `estado` tinyint(1) DEFAULT 1
+  `estado` tinyint(1) DEFAULT 1,
+  PRIMARY KEY (`id`)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_general_ci;
 
 --
@@ -260,6 +201,92 @@ INSERT INTO `usuarios` (`id`, `nombre`, `correo`, `contrasena`, `id_tipo_usuario
 (2, 'Profesor1', 'profesor1@udb.com', 'ProfesorUDB2025.', 2, 1),
 (3, 'Alumno1', 'alumno1@udb.com', 'AlumnoUDB2025.', 3, 1);
 
+-- --------------------------------------------------------
+
+--
+-- Estructura de tabla para la tabla `prestamos`
+-- (despues de usuarios y ejemplares, porque sus llaves foraneas los necesitan)
+--
+CREATE TABLE IF NOT EXISTS prestamos (
+    id              INT AUTO_INCREMENT PRIMARY KEY,
+    id_usuario      INT NOT NULL,
+    id_ejemplar     INT NOT NULL,
+    fecha_prestamo  DATE NOT NULL,
+    fecha_devolucion DATE DEFAULT NULL,
+    fecha_limite    DATE NOT NULL,
+    mora            DECIMAL(10,2) DEFAULT 0.00,
+    
+  -- ...constraints y indexes
+    CONSTRAINT fk_pres_usuario
+        FOREIGN KEY (id_usuario)  REFERENCES usuarios(id)
+        ON DELETE RESTRICT
+        ON UPDATE CASCADE,
+
+    CONSTRAINT fk_pres_ejemplar
+        FOREIGN KEY (id_ejemplar) REFERENCES ejemplares(id)
+        ON DELETE RESTRICT
+        ON UPDATE CASCADE,
+
+    INDEX idx_pres_user_estado (id_usuario, fecha_devolucion),
+    -- Para recorrer los prestamos vencidos (acumulacion nocturna de mora y resumen de usuarios con mora);
+    -- incluye id_usuario y mora para que esas consultas se respondan solo con el indice
+    INDEX idx_pres_vencidos (fecha_devolucion, fecha_limite, id_usuario, mora)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;
+
+--
+-- Volcado de datos para la tabla `prestamos`
+--
+
+INSERT INTO `prestamos` (`id`, `id_usuario`, `id_ejemplar`, `fecha_prestamo`, `fecha_devolucion`, `fecha_limite`, `mora`) VALUES
+(1, 3, 1, '2025-04-20', NULL, '2025-04-27', 0.00),
+(2, 3, 4, '2025-04-25', NULL, '2025-05-02', 0.00);
+
+--
+-- Disparadores `prestamos`
+--
+DROP TRIGGER IF EXISTS tg_update_ejemplar_estado_prestado;
+DELIMITER $$
+CREATE TRIGGER tg_update_ejemplar_estado_prestado
+AFTER INSERT ON prestamos
+FOR EACH ROW
+BEGIN
+    UPDATE ejemplares
+    SET    estado = 'Prestado'
+    WHERE  id = NEW.id_ejemplar;
+END $$
+DELIMITER ;
+
+--
+-- Procedimiento `sp_registrar_devolucion`
+-- Registra una devolucion en un solo viaje a la BD: marca el prestamo como devuelto (solo si
+-- seguia sin devolver), inserta la devolucion y deja 'Disponible' el ejemplar de ese prestamo.
+-- p_id_devolucion devuelve el ID de la devolucion, o 0 si el prestamo no existe o ya estaba devuelto.
+--
+DROP PROCEDURE IF EXISTS sp_registrar_devolucion;
+DELIMITER $$
+CREATE PROCEDURE sp_registrar_devolucion(
+    IN  p_id_prestamo     INT,
+    IN  p_fecha           DATE,
+    IN  p_mora            DECIMAL(10,2),
+    OUT p_id_devolucion   INT
+)
+BEGIN
+    SET p_id_devolucion = 0;
+    UPDATE prestamos
+    SET    fecha_devolucion = p_fecha, mora = COALESCE(p_mora, 0.00)
+    WHERE  id = p_id_prestamo AND fecha_devolucion IS NULL;
+    IF ROW_COUNT() = 1 THEN
+        INSERT INTO devoluciones (id_prestamo, fecha_devolucion, mora_pagada)
+        VALUES (p_id_prestamo, p_fecha, p_mora);
+        SET p_id_devolucion = LAST_INSERT_ID();
+        UPDATE ejemplares e
+        INNER JOIN prestamos p ON p.id_ejemplar = e.id
+        SET    e.estado = 'Disponible'
+        WHERE  p.id = p_id_prestamo;
+    END IF;
+END $$
+DELIMITER ;
+
 -- --------------------------------------------------------
 -- Estructura de tabla para la tabla `politicas_prestamo`
 -- --------------------------------------------------------
@@ -294,115 +321,54 @@ INSERT IGNORE INTO mora_anual (anio, mora_diaria) VALUES (2025, 0.15);
 
 --
 -- Índices para tablas volcadas
+-- Las llaves primarias ya vienen en el CREATE TABLE de cada tabla (las llaves foraneas
+-- de prestamos y politicas_prestamo las necesitan); aqui solo se agregan las demas llaves.
 --
 
---
--- Indices de la tabla `configuracion_sistema`
---
-ALTER TABLE `configuracion_sistema`
-  ADD PRIMARY KEY (`id`);
-
 --
 -- Indices de la tabla `devoluciones`
 --
 ALTER TABLE `devoluciones`
-  ADD PRIMARY KEY (`id`),
-  ADD KEY `id_prestamo` (`id_prestamo`);
+  ADD KEY `id_prestamo` (`id_prestamo`),
+  -- Listado paginado por clave (fecha_devolucion, id)
+  ADD KEY `idx_dev_fecha` (`fecha_devolucion`, `id`);
 
 --
 -- Indices de la tabla `documentos`
 --
 ALTER TABLE `documentos`
-  ADD PRIMARY KEY (`id`),
-  ADD KEY `id_tipo_documento` (`id_tipo_documento`);
+  ADD KEY `id_tipo_documento` (`id_tipo_documento`),
+  -- Listado paginado por clave (titulo, id)
+  ADD KEY `idx_doc_titulo` (`titulo`, `id`),
+  -- Filtro por anio como rango (en lugar de CAST(anio_publicacion AS CHAR) LIKE)
+  ADD KEY `idx_doc_anio` (`anio_publicacion`),
+  -- Busqueda de texto completo (busqueda.motor=texto_completo)
+  ADD FULLTEXT KEY `ft_documentos` (`titulo`, `autor`, `editorial`);
 
 --
 -- Indices de la tabla `ejemplares`
 --
 ALTER TABLE `ejemplares`
-  ADD PRIMARY KEY (`id`),
   ADD KEY `id_documento` (`id_documento`) USING BTREE;
 
 --
 -- Indices de la tabla `prestamos`
 --
 ALTER TABLE `prestamos`
-  ADD PRIMARY KEY (`id`),
   ADD KEY `id_usuario` (`id_usuario`),
-  ADD KEY `id_ejemplar` (`id_ejemplar`);
-
---
--- Indices de la tabla `tipo_documento`
---
-ALTER TABLE `tipo_documento`
-  ADD PRIMARY KEY (`id`);
-
---
--- Indices de la tabla `tipo_usuario`
---
-ALTER TABLE `tipo_usuario`
-  ADD PRIMARY KEY (`id`);
+  ADD KEY `id_ejemplar` (`id_ejemplar`),
+  -- Listado paginado por clave (fecha_prestamo, id)
+  ADD KEY `idx_pres_fecha` (`fecha_prestamo`, `id`);
 
 --
 -- Indices de la tabla `usuarios`
 --
 ALTER TABLE `usuarios`
-  ADD PRIMARY KEY (`id`),
   ADD UNIQUE KEY `correo` (`correo`),
+  -- Listado paginado por clave (nombre, id)
+  ADD KEY `idx_usu_nombre` (`nombre`, `id`),
   ADD KEY `id_tipo_usuario` (`id_tipo_usuario`) USING BTREE;
 
---
--- AUTO_INCREMENT de las tablas volcadas
---
-
---
--- AUTO_INCREMENT de la tabla `configuracion_sistema`
---
-ALTER TABLE `configuracion_sistema`
-  MODIFY `id` int(11) NOT NULL AUTO_INCREMENT, AUTO_INCREMENT=2;
-
---
--- AUTO_INCREMENT de la tabla `devoluciones`
---
-ALTER TABLE `devoluciones`
-  MODIFY `id` int(11) NOT NULL AUTO_INCREMENT, AUTO_INCREMENT=3;
-
---
--- AUTO_INCREMENT de la tabla `documentos`
---
-ALTER TABLE `documentos`
-  MODIFY `id` int(11) NOT NULL AUTO_INCREMENT, AUTO_INCREMENT=7;
-
---
--- AUTO_INCREMENT de la tabla `ejemplares`
---
-ALTER TABLE `ejemplares`
-  MODIFY `id` int(11) NOT NULL AUTO_INCREMENT, AUTO_INCREMENT=9;
-
---
--- AUTO_INCREMENT de la tabla `prestamos`
---
-ALTER TABLE `prestamos`
-  MODIFY `id` int(11) NOT NULL AUTO_INCREMENT, AUTO_INCREMENT=3;
-
---
--- AUTO_INCREMENT de la tabla `tipo_documento`
---
-ALTER TABLE `tipo_documento`
-  MODIFY `id` int(11) NOT NULL AUTO_INCREMENT, AUTO_INCREMENT=7;
-
---
--- AUTO_INCREMENT de la tabla `tipo_usuario`
---
-ALTER TABLE `tipo_usuario`
-  MODIFY `id` int(11) NOT NULL AUTO_INCREMENT, AUTO_INCREMENT=4;
-
---
--- AUTO_INCREMENT de la tabla `usuarios`
---
-ALTER TABLE `usuarios`
-  MODIFY `id` int(11) NOT NULL AUTO_INCREMENT, AUTO_INCREMENT=4;
-
 --
 -- Restricciones para tablas volcadas
 --
@@ -437,6 +403,32 @@ ALTER TABLE `prestamos`
 --
 ALTER TABLE `usuarios`
   ADD CONSTRAINT `usuarios_ibfk_1` FOREIGN KEY (`id_tipo_usuario`) REFERENCES `tipo_usuario` (`id`);
+
+--
+-- Estructura de tabla para la tabla `resumen_usuario`
+-- Resumen de circulacion por usuario: la aplicacion lo actualiza en la misma transaccion
+-- que cada prestamo y devolucion, y lo recalcula completo con la acumulacion nocturna de mora.
+-- Un usuario sin fila aqui no tiene prestamos activos.
+--
+CREATE TABLE IF NOT EXISTS resumen_usuario (
+    id_usuario          INT NOT NULL PRIMARY KEY,
+    prestamos_activos   INT NOT NULL DEFAULT 0,
+    prestamos_vencidos  INT NOT NULL DEFAULT 0,
+    mora_acumulada      DECIMAL(10,2) NOT NULL DEFAULT 0.00,
+    proximo_vencimiento DATE DEFAULT NULL, -- La fecha limite mas cercana de sus prestamos activos
+
+    CONSTRAINT fk_resumen_usuario
+        FOREIGN KEY (id_usuario) REFERENCES usuarios(id)
+        ON DELETE CASCADE
+        ON UPDATE CASCADE
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;
+
+-- Carga inicial desde los prestamos existentes (sirve tambien para una base que ya tenia datos)
+INSERT INTO resumen_usuario (id_usuario, prestamos_activos, prestamos_vencidos, mora_acumulada, proximo_vencimiento)
+SELECT id_usuario, COUNT(*), SUM(fecha_limite < CURDATE()), COALESCE(SUM(mora), 0), MIN(fecha_limite)
+FROM prestamos WHERE fecha_devolucion IS NULL GROUP BY id_usuario
+ON DUPLICATE KEY UPDATE prestamos_activos = VALUES(prestamos_activos), prestamos_vencidos = VALUES(prestamos_vencidos),
+    mora_acumulada = VALUES(mora_acumulada), proximo_vencimiento = VALUES(proximo_vencimiento);
 COMMIT;
 
 /*!40101 SET CHARACTER_SET_CLIENT=@OLD_CHARACTER_SET_CLIENT */;
@@ -4,6 +4,15 @@
  */
 package bibliotecaudb;
 
+import bibliotecaudb.conexion.LogsError;
+import bibliotecaudb.dao.biblioteca.impl.ConfiguracionSistemaDAOImpl;
+import bibliotecaudb.dao.biblioteca.impl.PoliticasPrestamosDAOImpl;
+import bibliotecaudb.dao.biblioteca.impl.TipoDocumentoDAOImpl;
+import bibliotecaudb.dao.usuario.impl.TipoUsuarioDAOImpl;
+import bibliotecaudb.servicios.impl.TareaMoraNocturna;
+
+import java.sql.SQLException;
+
 /**
  *
  * @author jerson_ramos
@@ -15,7 +24,16 @@ public class BibliotecaUDB {
      */
     public static void main(String[] args) {
         // TODO code application logic here
-        
+        try { // Tablas de referencia en memoria desde el arranque, para que el primer prestamo no tenga que leerlas
+            TipoUsuarioDAOImpl.getCache().precargar();
+            TipoDocumentoDAOImpl.getCache().precargar();
+            PoliticasPrestamosDAOImpl.getCache().precargar();
+            ConfiguracionSistemaDAOImpl.getCache().precargar();
+        } catch (SQLException e) {
+            LogsError.warn(BibliotecaUDB.class, "No se pudieron precargar las tablas de referencia; se cargaran en la primera lectura.", e);
+        }
+        TareaMoraNocturna.iniciar(); // Acumulacion de mora de cada noche (mora.acumulacion.hora en config.properties)
+        Runtime.getRuntime().addShutdownHook(new Thread(TareaMoraNocturna::detener, "detener-acumulacion-mora"));
     }
     
 }
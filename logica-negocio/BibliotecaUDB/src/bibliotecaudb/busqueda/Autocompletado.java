@@ -0,0 +1,121 @@
+package bibliotecaudb.busqueda;
+
+import bibliotecaudb.conexion.ConexionBD;
+import bibliotecaudb.conexion.LogsError;
+import bibliotecaudb.dao.biblioteca.DocumentoDAO;
+import bibliotecaudb.dao.biblioteca.PrestamoDAO;
+import bibliotecaudb.modelo.biblioteca.SugerenciaBusqueda;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Autocompletado del buscador compartido por toda la aplicacion (una consulta por tecla).
+ * Las sugerencias son los titulos y autores del catalogo, pesados por cuantas veces se han prestado.
+ *
+ * El indice (IndiceAutocompletado) es inmutable: se arma en segundo plano y se reemplaza completo
+ * cada autocompletado.recarga.minutos (por defecto 15), asi las consultas nunca esperan un candado.
+ * Un titulo nuevo o un prestamo reciente aparecen en la siguiente recarga.
+ * Mientras no haya indice, sugerir() devuelve una lista vacia.
+ */
+public final class Autocompletado {
+
+    private static final long MINUTOS_RECARGA_POR_DEFECTO = 15;
+
+    private static volatile IndiceAutocompletado indice; // null mientras no este listo
+    private static ScheduledExecutorService planificador; // null si no se ha iniciado
+
+    private Autocompletado() {
+    }
+
+    /**
+     * Arma el indice en un hilo aparte y programa las recargas. Si ya estaba iniciado no hace nada.
+     * @param documentoDAO DAO con el que se leen los titulos y autores.
+     * @param prestamoDAO DAO con el que se cuentan los prestamos de cada documento.
+     */
+    public static synchronized void iniciar(DocumentoDAO documentoDAO, PrestamoDAO prestamoDAO) {
+        if (planificador != null) {
+            return;
+        }
+        long minutos = leerMinutosRecarga();
+        planificador = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread hilo = new Thread(r, "autocompletado");
+            hilo.setDaemon(true);
+            return hilo;
+        });
+        planificador.scheduleWithFixedDelay(() -> cargar(documentoDAO, prestamoDAO), 0, minutos, TimeUnit.MINUTES);
+    }
+
+    /**
+     * Detiene las recargas (el indice actual se sigue usando).
+     */
+    public static synchronized void detener() {
+        if (planificador != null) {
+            planificador.shutdown();
+            planificador = null;
+        }
+    }
+
+    /**
+     * @param texto Lo que lleva escrito el usuario.
+     * @param limite Cuantas sugerencias devolver como maximo.
+     * @return Titulos y autores que empiezan con el texto (o con alguna palabra que empiece con el), los mas prestados primero.
+     */
+    public static List<SugerenciaBusqueda> sugerir(String texto, int limite) {
+        IndiceAutocompletado actual = indice;
+        return actual != null ? actual.sugerir(texto, limite) : Collections.emptyList();
+    }
+
+    // Lee el catalogo y los prestamos y reemplaza el indice; si falla se queda el anterior
+    private static void cargar(DocumentoDAO documentoDAO, PrestamoDAO prestamoDAO) {
+        long inicio = System.currentTimeMillis();
+        try {
+            Map<Integer, Integer> prestamosPorDocumento = prestamoDAO.contarPrestamosPorDocumento();
+            List<SugerenciaBusqueda> sugerencias = new ArrayList<>();
+            Map<String, String> autores = new HashMap<>();          // Autor normalizado -> como se muestra
+            Map<String, Integer> prestamosPorAutor = new HashMap<>(); // Autor normalizado -> suma de prestamos
+            documentoDAO.recorrerTodos(doc -> {
+                int prestamos = prestamosPorDocumento.getOrDefault(doc.getId(), 0);
+                if (doc.getTitulo() != null && !doc.getTitulo().isBlank()) {
+                    sugerencias.add(new SugerenciaBusqueda(doc.getTitulo().trim(), SugerenciaBusqueda.TIPO_TITULO, doc.getId(), prestamos));
+                }
+                String clave = Tokenizador.normalizarFrase(doc.getAutor());
+                if (!clave.isEmpty()) { // "Pérez, Juan" y "perez juan" cuentan como el mismo autor
+                    autores.putIfAbsent(clave, doc.getAutor().trim());
+                    prestamosPorAutor.merge(clave, prestamos, Integer::sum);
+                }
+            });
+            for (Map.Entry<String, String> autor : autores.entrySet()) {
+                sugerencias.add(new SugerenciaBusqueda(autor.getValue(), SugerenciaBusqueda.TIPO_AUTOR, 0, prestamosPorAutor.get(autor.getKey())));
+            }
+            IndiceAutocompletado nuevo = new IndiceAutocompletado(sugerencias);
+            indice = nuevo;
+            LogsError.info(Autocompletado.class, "Autocompletado listo: " + nuevo.getCantidadSugerencias()
+                    + " sugerencias en " + (System.currentTimeMillis() - inicio) + " ms.");
+        } catch (SQLException | RuntimeException ex) {
+            // No se relanza: cancelaria las recargas siguientes
+            LogsError.error(Autocompletado.class, "No se pudo construir el indice de autocompletado.", ex);
+        }
+    }
+
+    private static long leerMinutosRecarga() {
+        String valor = ConexionBD.getPropiedad("autocompletado.recarga.minutos", String.valueOf(MINUTOS_RECARGA_POR_DEFECTO));
+        try {
+            long minutos = Long.parseLong(valor.trim());
+            if (minutos > 0) {
+                return minutos;
+            }
+        } catch (NumberFormatException ex) {
+            // Se usa el valor por defecto
+        }
+        LogsError.warn(Autocompletado.class, "autocompletado.recarga.minutos invalido ('" + valor + "'), se usan " + MINUTOS_RECARGA_POR_DEFECTO + ".");
+        return MINUTOS_RECARGA_POR_DEFECTO;
+    }
+}
@@ -0,0 +1,271 @@
+package bibliotecaudb.busqueda;
+
+import bibliotecaudb.modelo.biblioteca.SugerenciaBusqueda;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Estructura inmutable para autocompletar titulos y autores por prefijo.
+ *
+ * Cada sugerencia se guarda una vez con su texto normalizado (Tokenizador.normalizarFrase). Las
+ * entradas del indice son posiciones dentro de esos textos: el inicio y el inicio de cada palabra
+ * de 3 letras o mas, asi "progra" sugiere "Fundamentos de Programación". Las entradas estan
+ * ordenadas alfabeticamente (dos arreglos de int, sin Strings extra), y las que empiezan con un
+ * prefijo forman un rango contiguo que se encuentra con busqueda binaria.
+ *
+ * Para sacar las k mas prestadas de ese rango sin recorrerlo, un arbol de segmentos guarda en cada
+ * nodo la entrada de mayor peso de su tramo. Se toma la maxima del rango, se parte el rango en
+ * dos alrededor de ella y se repite: O(k log n) por consulta, sin importar cuantas entradas coincidan.
+ */
+public class IndiceAutocompletado {
+
+    public static final int LARGO_MINIMO_PALABRA = 3; // "de", "la", "y" no generan entrada propia
+    public static final int LIMITE_MAXIMO = 50; // Sugerencias por consulta; un limite mayor se recorta a este
+
+    private final String[] textos;                 // Texto normalizado de cada sugerencia
+    private final SugerenciaBusqueda[] sugerencias; // Misma posicion que textos
+    private final int[] entradaSugerencia;         // Entradas ordenadas: a que sugerencia pertenecen
+    private final int[] entradaInicio;             // y desde que posicion del texto empiezan
+    private final int[] arbol;                     // Arbol de segmentos: entrada de mayor peso de cada tramo
+    private final int tamanoHojas;
+
+    /**
+     * @param sugerencias Las sugerencias a indexar (titulos y autores).
+     */
+    public IndiceAutocompletado(List<SugerenciaBusqueda> sugerencias) {
+        int n = sugerencias.size();
+        this.sugerencias = sugerencias.toArray(new SugerenciaBusqueda[0]);
+        this.textos = new String[n];
+        List<long[]> entradas = new ArrayList<>(); // Solo durante la construccion
+        for (int s = 0; s < n; s++) {
+            String texto = Tokenizador.normalizarFrase(this.sugerencias[s].getTexto());
+            textos[s] = texto;
+            if (texto.isEmpty()) {
+                continue;
+            }
+            entradas.add(new long[]{s, 0});
+            for (int i = 1; i < texto.length(); i++) {
+                if (texto.charAt(i - 1) == ' ' && largoPalabra(texto, i) >= LARGO_MINIMO_PALABRA) {
+                    entradas.add(new long[]{s, i});
+                }
+            }
+        }
+        entradas.sort((a, b) -> compararSufijos(textos[(int) a[0]], (int) a[1], textos[(int) b[0]], (int) b[1]));
+
+        int m = entradas.size();
+        this.entradaSugerencia = new int[m];
+        this.entradaInicio = new int[m];
+        for (int e = 0; e < m; e++) {
+            entradaSugerencia[e] = (int) entradas.get(e)[0];
+            entradaInicio[e] = (int) entradas.get(e)[1];
+        }
+
+        int hojas = 1;
+        while (hojas < Math.max(m, 1)) {
+            hojas <<= 1;
+        }
+        this.tamanoHojas = hojas;
+        this.arbol = new int[2 * hojas];
+        Arrays.fill(arbol, -1);
+        for (int e = 0; e < m; e++) {
+            arbol[hojas + e] = e;
+        }
+        for (int nodo = hojas - 1; nodo >= 1; nodo--) {
+            arbol[nodo] = mejor(arbol[2 * nodo], arbol[2 * nodo + 1]);
+        }
+    }
+
+    /**
+     * @param prefijo Lo que lleva escrito el usuario.
+     * @param limite Cuantas sugerencias devolver como maximo (se recorta a LIMITE_MAXIMO).
+     * @return Las sugerencias que empiezan (o tienen una palabra que empieza) con el prefijo, las mas prestadas primero.
+     */
+    public List<SugerenciaBusqueda> sugerir(String prefijo, int limite) {
+        String p = Tokenizador.normalizarFrase(prefijo);
+        if (p.isEmpty() || limite <= 0 || entradaSugerencia.length == 0) {
+            return Collections.emptyList();
+        }
+        limite = Math.min(limite, Math.min(LIMITE_MAXIMO, sugerencias.length)); // Antes de dimensionar los arreglos
+        int desde = limiteInferior(p, false);
+        int hasta = limiteInferior(p, true);
+        if (desde >= hasta) {
+            return Collections.emptyList();
+        }
+
+        // Monticulo de tramos [ini, fin) ordenado por el peso de su mejor entrada (arreglos, sin objetos)
+        int capacidad = 2 * limite + 1;
+        int[] ini = new int[capacidad];
+        int[] fin = new int[capacidad];
+        int[] top = new int[capacidad];
+        int tamano = 0;
+        List<SugerenciaBusqueda> resultado = new ArrayList<>(limite);
+        int[] elegidas = new int[limite]; // Una sugerencia puede salir por varias de sus palabras; se muestra una vez
+
+        tamano = empujar(ini, fin, top, tamano, desde, hasta);
+        while (tamano > 0 && resultado.size() < limite) {
+            int a = ini[0], b = fin[0], e = top[0];
+            tamano = sacar(ini, fin, top, tamano);
+            int s = entradaSugerencia[e];
+            boolean repetida = false;
+            for (int i = 0; i < resultado.size(); i++) {
+                if (elegidas[i] == s) {
+                    repetida = true;
+                    break;
+                }
+            }
+            if (!repetida) {
+                elegidas[resultado.size()] = s;
+                resultado.add(sugerencias[s]);
+            }
+            if (tamano + 2 > capacidad) { // Solo pasa si hubo muchas repetidas
+                capacidad *= 2;
+                ini = Arrays.copyOf(ini, capacidad);
+                fin = Arrays.copyOf(fin, capacidad);
+                top = Arrays.copyOf(top, capacidad);
+            }
+            tamano = empujar(ini, fin, top, tamano, a, e);
+            tamano = empujar(ini, fin, top, tamano, e + 1, b);
+        }
+        return resultado;
+    }
+
+    /**
+     * @return Cuantas sugerencias tiene el indice.
+     */
+    public int getCantidadSugerencias() {
+        return sugerencias.length;
+    }
+
+    // Agrega al monticulo el tramo [a, b) con su mejor entrada (si no esta vacio)
+    private int empujar(int[] ini, int[] fin, int[] top, int tamano, int a, int b) {
+        if (a >= b) {
+            return tamano;
+        }
+        int e = consultarMejor(a, b);
+        int i = tamano++;
+        while (i > 0) { // Sube mientras sea mejor que su padre
+            int padre = (i - 1) / 2;
+            if (mejor(e, top[padre]) != e || e == top[padre]) {
+                break;
+            }
+            ini[i] = ini[padre];
+            fin[i] = fin[padre];
+            top[i] = top[padre];
+            i = padre;
+        }
+        ini[i] = a;
+        fin[i] = b;
+        top[i] = e;
+        return tamano;
+    }
+
+    // Quita la raiz del monticulo
+    private int sacar(int[] ini, int[] fin, int[] top, int tamano) {
+        tamano--;
+        int a = ini[tamano], b = fin[tamano], e = top[tamano];
+        int i = 0;
+        while (true) { // Baja el ultimo elemento hasta su lugar
+            int hijo = 2 * i + 1;
+            if (hijo >= tamano) {
+                break;
+            }
+            if (hijo + 1 < tamano && mejor(top[hijo + 1], top[hijo]) == top[hijo + 1]) {
+                hijo++;
+            }
+            if (mejor(top[hijo], e) != top[hijo]) {
+                break;
+            }
+            ini[i] = ini[hijo];
+            fin[i] = fin[hijo];
+            top[i] = top[hijo];
+            i = hijo;
+        }
+        if (tamano > 0) {
+            ini[i] = a;
+            fin[i] = b;
+            top[i] = e;
+        }
+        return tamano;
+    }
+
+    // Entrada de mayor peso en [a, b) usando el arbol de segmentos
+    private int consultarMejor(int a, int b) {
+        int res = -1;
+        for (int l = a + tamanoHojas, r = b + tamanoHojas; l < r; l >>= 1, r >>= 1) {
+            if ((l & 1) == 1) {
+                res = mejor(res, arbol[l++]);
+            }
+            if ((r & 1) == 1) {
+                res = mejor(res, arbol[--r]);
+            }
+        }
+        return res;
+    }
+
+    // La entrada con mas prestamos; si empatan, la que va primero alfabeticamente
+    private int mejor(int a, int b) {
+        if (a < 0) {
+            return b;
+        }
+        if (b < 0) {
+            return a;
+        }
+        int pa = sugerencias[entradaSugerencia[a]].getPrestamos();
+        int pb = sugerencias[entradaSugerencia[b]].getPrestamos();
+        if (pa != pb) {
+            return pa > pb ? a : b;
+        }
+        return a < b ? a : b;
+    }
+
+    // Primera entrada que es >= al prefijo (o, con despues = true, la primera que ya no empieza con el)
+    private int limiteInferior(String prefijo, boolean despues) {
+        int lo = 0;
+        int hi = entradaSugerencia.length;
+        while (lo < hi) {
+            int medio = (lo + hi) >>> 1;
+            int cmp = compararConPrefijo(medio, prefijo);
+            if (cmp < 0 || (despues && cmp == 0)) {
+                lo = medio + 1;
+            } else {
+                hi = medio;
+            }
+        }
+        return lo;
+    }
+
+    // Compara la entrada con el prefijo solo hasta el largo del prefijo (0 = la entrada empieza con el prefijo)
+    private int compararConPrefijo(int entrada, String prefijo) {
+        String texto = textos[entradaSugerencia[entrada]];
+        int inicio = entradaInicio[entrada];
+        for (int i = 0; i < prefijo.length(); i++) {
+            if (inicio + i >= texto.length()) {
+                return -1; // La entrada es mas corta que el prefijo
+            }
+            int dif = texto.charAt(inicio + i) - prefijo.charAt(i);
+            if (dif != 0) {
+                return dif;
+            }
+        }
+        return 0;
+    }
+
+    private static int compararSufijos(String a, int ia, String b, int ib) {
+        int largo = Math.min(a.length() - ia, b.length() - ib);
+        for (int i = 0; i < largo; i++) {
+            int dif = a.charAt(ia + i) - b.charAt(ib + i);
+            if (dif != 0) {
+                return dif;
+            }
+        }
+        return (a.length() - ia) - (b.length() - ib);
+    }
+
+    private static int largoPalabra(String texto, int inicio) {
+        int fin = texto.indexOf(' ', inicio);
+        return (fin < 0 ? texto.length() : fin) - inicio;
+    }
+}
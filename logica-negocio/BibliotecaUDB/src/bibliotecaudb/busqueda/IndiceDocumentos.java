@@ -0,0 +1,119 @@
+package bibliotecaudb.busqueda;
+
+import bibliotecaudb.conexion.LogsError;
+import bibliotecaudb.conexion.UnidadTrabajo;
+import bibliotecaudb.dao.biblioteca.DocumentoDAO;
+import bibliotecaudb.modelo.biblioteca.Documento;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Indice de busqueda del catalogo compartido por toda la aplicacion.
+ * Se construye en segundo plano leyendo la tabla documentos una vez (iniciarCarga) y despues
+ * DocumentoDAOImpl le avisa de cada insertar/actualizar/eliminar. Los cambios hechos dentro de
+ * una UnidadTrabajo se aplican solo si se confirma la transaccion.
+ *
+ * Mientras el indice se esta construyendo, buscar() devuelve null y el llamador debe usar la
+ * busqueda por SQL. Los cambios que llegan durante la construccion se guardan y se aplican al final.
+ */
+public final class IndiceDocumentos {
+
+    private static volatile IndiceTexto indice; // null mientras no este listo
+    private static boolean cargando = false;
+    private static List<Consumer<IndiceTexto>> cambiosDuranteCarga;
+
+    private IndiceDocumentos() {
+    }
+
+    /**
+     * Empieza a construir el indice en un hilo aparte. Si ya esta listo o cargandose, no hace nada.
+     * @param documentoDAO DAO con el que se leen los documentos.
+     * @param motor Motor de busqueda configurado; define que tipo de indice se arma.
+     */
+    public static synchronized void iniciarCarga(DocumentoDAO documentoDAO, MotorBusqueda motor) {
+        if (indice != null || cargando || !motor.isEnMemoria()) {
+            return;
+        }
+        cargando = true;
+        cambiosDuranteCarga = new ArrayList<>();
+        Thread hilo = new Thread(() -> cargar(documentoDAO, motor.crearIndice()), "indice-documentos");
+        hilo.setDaemon(true);
+        hilo.start();
+    }
+
+    /**
+     * @return true si el indice ya se puede usar.
+     */
+    public static boolean estaListo() {
+        return indice != null;
+    }
+
+    /**
+     * Busca documentos con el indice (el criterio y el orden dependen del tipo de indice).
+     * @param consulta Texto escrito por el usuario.
+     * @return IDs de los documentos en el orden en que se deben mostrar, o null si el indice todavia no esta listo.
+     */
+    public static int[] buscar(String consulta) {
+        IndiceTexto actual = indice;
+        return actual != null ? actual.buscar(consulta) : null;
+    }
+
+    /**
+     * Avisa que un documento se inserto o actualizo. Los textos se toman en este momento.
+     */
+    public static void documentoGuardado(Documento documento) {
+        int id = documento.getId();
+        String[] textos = textosDe(documento);
+        UnidadTrabajo.alConfirmar(() -> aplicar(i -> i.indexar(id, textos)));
+    }
+
+    /**
+     * Avisa que un documento se elimino.
+     */
+    public static void documentoEliminado(int id) {
+        UnidadTrabajo.alConfirmar(() -> aplicar(i -> i.quitar(id)));
+    }
+
+    /**
+     * @return Los campos del documento que se indexan.
+     */
+    public static String[] textosDe(Documento documento) {
+        return new String[]{documento.getTitulo(), documento.getAutor(), documento.getEditorial(),
+            documento.getAnioPublicacion() != null ? documento.getAnioPublicacion().toString() : null};
+    }
+
+    private static synchronized void aplicar(Consumer<IndiceTexto> cambio) {
+        if (indice != null) {
+            cambio.accept(indice);
+        } else if (cargando) {
+            cambiosDuranteCarga.add(cambio); // Se aplica cuando termine la carga
+        }
+        // Si no esta listo ni cargando, no hay nada que actualizar: la carga futura leera el dato de la BD
+    }
+
+    private static void cargar(DocumentoDAO documentoDAO, IndiceTexto nuevo) {
+        long inicio = System.currentTimeMillis();
+        try {
+            documentoDAO.recorrerTodos(doc -> nuevo.indexar(doc.getId(), textosDe(doc)));
+            synchronized (IndiceDocumentos.class) {
+                for (Consumer<IndiceTexto> cambio : cambiosDuranteCarga) {
+                    cambio.accept(nuevo); // Cambios que llegaron mientras leiamos la tabla
+                }
+                indice = nuevo;
+                cargando = false;
+                cambiosDuranteCarga = null;
+            }
+            LogsError.info(IndiceDocumentos.class, "Indice de documentos (" + nuevo.getClass().getSimpleName() + ") listo: "
+                    + nuevo.getCantidadDocumentos() + " documentos en " + (System.currentTimeMillis() - inicio) + " ms.");
+        } catch (SQLException | RuntimeException ex) {
+            LogsError.error(IndiceDocumentos.class, "No se pudo construir el indice de documentos; se seguira buscando por SQL.", ex);
+            synchronized (IndiceDocumentos.class) {
+                cargando = false;
+                cambiosDuranteCarga = null;
+            }
+        }
+    }
+}
@@ -0,0 +1,179 @@
+package bibliotecaudb.busqueda;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Indice invertido en memoria sobre los textos de los documentos (titulo, autor, editorial, anio).
+ * Para cada token guarda la lista ordenada de IDs de documentos que lo contienen. Los tokens
+ * estan en un TreeMap, asi que todos los que empiezan con un prefijo quedan juntos.
+ *
+ * Una consulta con varios terminos devuelve los documentos que tienen los todos (AND), y cada
+ * termino se compara como prefijo: "prog fund" encuentra "Fundamentos de Programación".
+ * Varios hilos pueden buscar a la vez; los cambios toman el candado de escritura.
+ */
+public class IndiceInvertidoDocumentos implements IndiceTexto {
+
+    private final TreeMap<String, ListaIds> porToken = new TreeMap<>();
+    private final Map<Integer, String[]> tokensPorDocumento = new HashMap<>(); // Para poder quitar un documento
+    private final ReentrantReadWriteLock candado = new ReentrantReadWriteLock();
+
+    /**
+     * Agrega un documento al indice, o reemplaza sus tokens si ya estaba.
+     * @param id ID del documento.
+     * @param textos Los campos de texto del documento (se permiten null).
+     */
+    @Override
+    public void indexar(int id, String... textos) {
+        String[] tokens = Tokenizador.tokens(textos);
+        candado.writeLock().lock();
+        try {
+            quitarSinCandado(id);
+            for (String token : tokens) {
+                porToken.computeIfAbsent(token, t -> new ListaIds()).agregar(id);
+            }
+            tokensPorDocumento.put(id, tokens);
+        } finally {
+            candado.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Quita un documento del indice (si no estaba, no hace nada).
+     */
+    @Override
+    public void quitar(int id) {
+        candado.writeLock().lock();
+        try {
+            quitarSinCandado(id);
+        } finally {
+            candado.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Busca los documentos que contienen todos los terminos de la consulta (cada uno como prefijo de un token).
+     * @param consulta Texto escrito por el usuario.
+     * @return IDs de los documentos encontrados, ordenados de menor a mayor.
+     */
+    @Override
+    public int[] buscar(String consulta) {
+        String[] terminos = Tokenizador.tokensDeConsulta(consulta);
+        if (terminos.length == 0) {
+            return new int[0];
+        }
+        candado.readLock().lock();
+        try {
+            int[] resultado = null;
+            for (String termino : terminos) { // Primero los mas largos, que suelen dejar menos candidatos
+                int[] ids = idsConPrefijo(termino);
+                resultado = resultado == null ? ids : interseccion(resultado, ids);
+                if (resultado.length == 0) {
+                    break; // Ya no puede haber coincidencias
+                }
+            }
+            return resultado;
+        } finally {
+            candado.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return Cuantos documentos hay en el indice.
+     */
+    @Override
+    public int getCantidadDocumentos() {
+        candado.readLock().lock();
+        try {
+            return tokensPorDocumento.size();
+        } finally {
+            candado.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return Cuantos tokens distintos hay en el indice.
+     */
+    public int getCantidadTokens() {
+        candado.readLock().lock();
+        try {
+            return porToken.size();
+        } finally {
+            candado.readLock().unlock();
+        }
+    }
+
+    private void quitarSinCandado(int id) {
+        String[] anteriores = tokensPorDocumento.remove(id);
+        if (anteriores == null) {
+            return;
+        }
+        for (String token : anteriores) {
+            ListaIds lista = porToken.get(token);
+            if (lista != null && lista.quitar(id) && lista.tamano == 0) {
+                porToken.remove(token); // Ningun documento usa ya este token
+            }
+        }
+    }
+
+    // Union (ordenada y sin repetidos) de los IDs de todos los tokens que empiezan con el prefijo
+    private int[] idsConPrefijo(String prefijo) {
+        NavigableMap<String, ListaIds> rango = porToken.subMap(prefijo, true, prefijo + Character.MAX_VALUE, false);
+        if (rango.isEmpty()) {
+            return new int[0];
+        }
+        if (rango.size() == 1) {
+            return rango.firstEntry().getValue().copia();
+        }
+        List<ListaIds> listas = new ArrayList<>(rango.values());
+        int total = 0;
+        for (ListaIds lista : listas) {
+            total += lista.tamano;
+        }
+        int[] todos = new int[total];
+        int pos = 0;
+        for (ListaIds lista : listas) {
+            System.arraycopy(lista.ids, 0, todos, pos, lista.tamano);
+            pos += lista.tamano;
+        }
+        Arrays.sort(todos);
+        int unicos = 0;
+        for (int i = 0; i < todos.length; i++) {
+            if (i == 0 || todos[i] != todos[i - 1]) {
+                todos[unicos++] = todos[i];
+            }
+        }
+        return Arrays.copyOf(todos, unicos);
+    }
+
+    // Interseccion de dos arreglos ordenados; recorre el mas corto y busca en el mas largo
+    private static int[] interseccion(int[] a, int[] b) {
+        if (a.length > b.length) {
+            int[] tmp = a;
+            a = b;
+            b = tmp;
+        }
+        int[] resultado = new int[a.length];
+        int n = 0;
+        int desde = 0;
+        for (int id : a) {
+            int pos = Arrays.binarySearch(b, desde, b.length, id);
+            if (pos >= 0) {
+                resultado[n++] = id;
+                desde = pos + 1;
+            } else {
+                desde = -pos - 1;
+            }
+            if (desde >= b.length) {
+                break;
+            }
+        }
+        return Arrays.copyOf(resultado, n);
+    }
+}
@@ -0,0 +1,31 @@
+package bibliotecaudb.busqueda;
+
+/**
+ * Indice de busqueda en memoria sobre los textos de los documentos.
+ * Las implementaciones deben permitir buscar desde varios hilos mientras otro hilo las actualiza.
+ */
+public interface IndiceTexto {
+
+    /**
+     * Agrega un documento, o reemplaza sus textos si ya estaba.
+     * @param id ID del documento.
+     * @param textos Los campos de texto del documento (se permiten null).
+     */
+    void indexar(int id, String... textos);
+
+    /**
+     * Quita un documento (si no estaba, no hace nada).
+     */
+    void quitar(int id);
+
+    /**
+     * @param consulta Texto escrito por el usuario.
+     * @return IDs de los documentos encontrados, en el orden en que se deben mostrar.
+     */
+    int[] buscar(String consulta);
+
+    /**
+     * @return Cuantos documentos hay en el indice.
+     */
+    int getCantidadDocumentos();
+}
@@ -0,0 +1,243 @@
+package bibliotecaudb.busqueda;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Indice de trigramas (grupos de 3 letras seguidas) sobre los textos normalizados de los documentos:
+ * minusculas, sin tildes y con los separadores reducidos a un espacio. "Programación" se guarda
+ * como "programacion", asi que se encuentra escribiendo sin tilde.
+ *
+ * Una consulta se parte en trigramas y se buscan los documentos que comparten la mayoria de ellos,
+ * no necesariamente todos: "programcion" (falta una letra) todavia encuentra "programacion".
+ * Los resultados se ordenan por la proporcion de trigramas en comun, y los que contienen la
+ * consulta completa como subcadena van primero.
+ *
+ * Los candidatos salen solo de las listas mas cortas: si un documento necesita M de los N trigramas,
+ * tiene que aparecer en alguna de las N - M + 1 listas mas cortas. Las listas largas de trigramas
+ * comunes (" de", "cio") solo completan las cuentas de esos candidatos.
+ */
+public class IndiceTrigramas implements IndiceTexto {
+
+    // Proporcion minima de trigramas de la consulta que debe tener un documento para aparecer
+    public static final double COINCIDENCIA_MINIMA = 0.6;
+    private static final char SEPARADOR_CAMPOS = '\u0001'; // No puede venir en una consulta normalizada
+
+    private final Map<Long, ListaIds> porTrigrama = new HashMap<>();
+    private final Map<Integer, String> textoPorDocumento = new HashMap<>(); // Texto normalizado, para subcadenas y para quitar
+    private final ReentrantReadWriteLock candado = new ReentrantReadWriteLock();
+    private final ThreadLocal<int[]> contadores = new ThreadLocal<>(); // Un arreglo de conteo por hilo que busca
+    private int maxId = 0; // El mayor ID indexado, para el tamano de los contadores
+
+    @Override
+    public void indexar(int id, String... textos) {
+        StringBuilder sb = new StringBuilder();
+        for (String texto : textos) {
+            String normalizado = Tokenizador.normalizarFrase(texto);
+            if (!normalizado.isEmpty()) {
+                if (sb.length() > 0) {
+                    sb.append(SEPARADOR_CAMPOS);
+                }
+                sb.append(normalizado);
+            }
+        }
+        String texto = sb.toString();
+        long[] trigramas = trigramasDeDocumento(texto);
+        candado.writeLock().lock();
+        try {
+            quitarSinCandado(id);
+            for (long trigrama : trigramas) {
+                porTrigrama.computeIfAbsent(trigrama, t -> new ListaIds()).agregar(id);
+            }
+            textoPorDocumento.put(id, texto);
+            maxId = Math.max(maxId, id);
+        } finally {
+            candado.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void quitar(int id) {
+        candado.writeLock().lock();
+        try {
+            quitarSinCandado(id);
+        } finally {
+            candado.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public int[] buscar(String consulta) {
+        String q = Tokenizador.normalizarFrase(consulta);
+        if (q.isEmpty()) {
+            return new int[0];
+        }
+        // Con menos de 3 letras ("IA") se busca la palabra completa: " ia" y "ia "
+        long[] trigramas = q.length() < 3 ? trigramasDe(" " + q + " ") : trigramasDe(q);
+        int n = trigramas.length;
+        int minimo = Math.max(1, (int) Math.ceil(n * COINCIDENCIA_MINIMA));
+
+        candado.readLock().lock();
+        try {
+            ListaIds[] listas = new ListaIds[n];
+            int conDatos = 0;
+            for (long trigrama : trigramas) {
+                ListaIds lista = porTrigrama.get(trigrama);
+                if (lista != null) {
+                    listas[conDatos++] = lista;
+                }
+            }
+            if (conDatos < minimo) {
+                return new int[0]; // Ni sumando todas las listas se llega al minimo
+            }
+            listas = Arrays.copyOf(listas, conDatos);
+            Arrays.sort(listas, (a, b) -> Integer.compare(a.tamano, b.tamano)); // Las mas cortas primero
+
+            // 1) Candidatos: los que aparecen en alguna de las listas mas cortas, contando en cuantas aparecen.
+            //    Se cuenta en un arreglo indexado por ID (uno por hilo, reutilizado) en lugar de ordenar.
+            int listasCandidatas = Math.min(n - minimo + 1, conDatos);
+            int[] cuentas = contadoresDelHilo(maxId);
+            int[] candidatos = new int[Math.min(listas[listasCandidatas - 1].tamano * listasCandidatas, maxId + 1)];
+            int totalCandidatos = 0;
+            for (int l = 0; l < listasCandidatas; l++) {
+                ListaIds lista = listas[l];
+                for (int k = 0; k < lista.tamano; k++) {
+                    int id = lista.ids[k];
+                    if (cuentas[id]++ == 0) {
+                        if (totalCandidatos == candidatos.length) {
+                            candidatos = Arrays.copyOf(candidatos, Math.min(candidatos.length * 2, maxId + 1));
+                        }
+                        candidatos[totalCandidatos++] = id;
+                    }
+                }
+            }
+
+            // 2) Se completan las cuentas de los candidatos con las demas listas. Para cada lista se elige lo
+            //    mas barato: recorrerla entera, o buscar cada candidato en ella con busqueda binaria.
+            for (int l = listasCandidatas; l < conDatos; l++) {
+                ListaIds lista = listas[l];
+                long costoBinaria = (long) totalCandidatos * (32 - Integer.numberOfLeadingZeros(lista.tamano));
+                if (lista.tamano <= costoBinaria) {
+                    for (int k = 0; k < lista.tamano; k++) {
+                        int id = lista.ids[k];
+                        if (cuentas[id] > 0) { // Solo los que ya son candidatos
+                            cuentas[id]++;
+                        }
+                    }
+                } else {
+                    for (int c = 0; c < totalCandidatos; c++) {
+                        int id = candidatos[c];
+                        if (Arrays.binarySearch(lista.ids, 0, lista.tamano, id) >= 0) {
+                            cuentas[id]++;
+                        }
+                    }
+                }
+            }
+
+            // 3) El puntaje es la cantidad de trigramas en comun; si estan todos se revisa si la consulta es subcadena.
+            //    Cada resultado se guarda en un long (puntaje invertido arriba, ID abajo) para ordenar sin objetos.
+            long[] resultados = new long[totalCandidatos];
+            int totalResultados = 0;
+            for (int c = 0; c < totalCandidatos; c++) {
+                int id = candidatos[c];
+                int cuenta = cuentas[id];
+                cuentas[id] = 0; // Dejamos el contador limpio para la siguiente busqueda
+                if (cuenta >= minimo) {
+                    int puntaje = cuenta;
+                    if (cuenta == n && textoPorDocumento.get(id).contains(q)) {
+                        puntaje += n + 1; // Las subcadenas exactas van antes que cualquier coincidencia parcial
+                    }
+                    resultados[totalResultados++] = ((long) (Integer.MAX_VALUE - puntaje) << 32) | id;
+                }
+            }
+            Arrays.sort(resultados, 0, totalResultados);
+            int[] ids = new int[totalResultados];
+            for (int k = 0; k < totalResultados; k++) {
+                ids[k] = (int) resultados[k]; // Los 32 bits de abajo son el ID
+            }
+            return ids;
+        } finally {
+            candado.readLock().unlock();
+        }
+    }
+
+    @Override
+    public int getCantidadDocumentos() {
+        candado.readLock().lock();
+        try {
+            return textoPorDocumento.size();
+        } finally {
+            candado.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return Cuantos trigramas distintos hay en el indice.
+     */
+    public int getCantidadTrigramas() {
+        candado.readLock().lock();
+        try {
+            return porTrigrama.size();
+        } finally {
+            candado.readLock().unlock();
+        }
+    }
+
+    // Arreglo de conteo del hilo actual, con espacio para todos los IDs (siempre en ceros entre busquedas)
+    private int[] contadoresDelHilo(int mayorId) {
+        int[] arreglo = contadores.get();
+        if (arreglo == null || arreglo.length <= mayorId) {
+            arreglo = new int[mayorId + 1 + mayorId / 8]; // Un poco de espacio extra para los documentos nuevos
+            contadores.set(arreglo);
+        }
+        return arreglo;
+    }
+
+    private void quitarSinCandado(int id) {
+        String anterior = textoPorDocumento.remove(id);
+        if (anterior == null) {
+            return;
+        }
+        for (long trigrama : trigramasDeDocumento(anterior)) {
+            ListaIds lista = porTrigrama.get(trigrama);
+            if (lista != null && lista.quitar(id) && lista.tamano == 0) {
+                porTrigrama.remove(trigrama); // Ningun documento usa ya este trigrama
+            }
+        }
+    }
+
+    // Trigramas de cada campo por separado, con un espacio al inicio y al final para marcar los bordes de las palabras
+    private static long[] trigramasDeDocumento(String texto) {
+        Set<Long> unicos = new LinkedHashSet<>();
+        for (String campo : texto.split(String.valueOf(SEPARADOR_CAMPOS))) {
+            agregarTrigramas(" " + campo + " ", unicos);
+        }
+        return aArreglo(unicos);
+    }
+
+    private static long[] trigramasDe(String texto) {
+        Set<Long> unicos = new LinkedHashSet<>();
+        agregarTrigramas(texto, unicos);
+        return aArreglo(unicos);
+    }
+
+    private static void agregarTrigramas(String texto, Set<Long> destino) {
+        for (int i = 0; i + 3 <= texto.length(); i++) {
+            // Los tres caracteres en un long (16 bits cada uno), para no crear Strings
+            destino.add(((long) texto.charAt(i) << 32) | ((long) texto.charAt(i + 1) << 16) | texto.charAt(i + 2));
+        }
+    }
+
+    private static long[] aArreglo(Set<Long> valores) {
+        long[] arreglo = new long[valores.size()];
+        int i = 0;
+        for (Long valor : valores) {
+            arreglo[i++] = valor;
+        }
+        return arreglo;
+    }
+}
@@ -0,0 +1,46 @@
+package bibliotecaudb.busqueda;
+
+import java.util.Arrays;
+
+// Lista ordenada de IDs que crece segun se necesite (sin objetos Integer)
+final class ListaIds {
+    int[] ids = new int[4];
+    int tamano;
+
+    void agregar(int id) {
+        if (tamano > 0 && ids[tamano - 1] < id) { // Caso comun: IDs nuevos, mas grandes que los anteriores
+            asegurarEspacio();
+            ids[tamano++] = id;
+            return;
+        }
+        int pos = Arrays.binarySearch(ids, 0, tamano, id);
+        if (pos >= 0) {
+            return; // Ya estaba
+        }
+        pos = -pos - 1;
+        asegurarEspacio();
+        System.arraycopy(ids, pos, ids, pos + 1, tamano - pos);
+        ids[pos] = id;
+        tamano++;
+    }
+
+    boolean quitar(int id) {
+        int pos = Arrays.binarySearch(ids, 0, tamano, id);
+        if (pos < 0) {
+            return false;
+        }
+        System.arraycopy(ids, pos + 1, ids, pos, tamano - pos - 1);
+        tamano--;
+        return true;
+    }
+
+    int[] copia() {
+        return Arrays.copyOf(ids, tamano);
+    }
+
+    private void asegurarEspacio() {
+        if (tamano == ids.length) {
+            ids = Arrays.copyOf(ids, tamano * 2);
+        }
+    }
+}
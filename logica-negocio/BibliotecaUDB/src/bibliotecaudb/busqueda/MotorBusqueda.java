@@ -0,0 +1,53 @@
+package bibliotecaudb.busqueda;
+
+import bibliotecaudb.conexion.ConexionBD;
+import bibliotecaudb.conexion.LogsError;
+
+/**
+ * Motores con los que se puede buscar en el catalogo. Se elige con la clave
+ * busqueda.motor de config.properties, para poder comparar uno contra otro.
+ */
+public enum MotorBusqueda {
+    /** Indice invertido en memoria (IndiceDocumentos). Es el motor por defecto. */
+    INDICE,
+    /** Indice de trigramas en memoria (IndiceTrigramas): sin tildes, por subcadena y tolerante a errores de escritura. */
+    TRIGRAMAS,
+    /** Indice FULLTEXT de MySQL con MATCH ... AGAINST, ordenado por relevancia. */
+    TEXTO_COMPLETO,
+    /** La consulta original con LIKE '%termino%' (sirve como referencia en las pruebas de rendimiento). */
+    LIKE;
+
+    /**
+     * @return true si el motor usa un indice en memoria (IndiceDocumentos).
+     */
+    public boolean isEnMemoria() {
+        return this == INDICE || this == TRIGRAMAS;
+    }
+
+    /**
+     * @return Un indice vacio para este motor, o null si el motor busca directamente en la BD.
+     */
+    public IndiceTexto crearIndice() {
+        switch (this) {
+            case INDICE:
+                return new IndiceInvertidoDocumentos();
+            case TRIGRAMAS:
+                return new IndiceTrigramas();
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * @return El motor configurado, o INDICE si la clave no existe o no es valida.
+     */
+    public static MotorBusqueda configurado() {
+        String valor = ConexionBD.getPropiedad("busqueda.motor", "indice");
+        try {
+            return MotorBusqueda.valueOf(valor.toUpperCase());
+        } catch (IllegalArgumentException ex) {
+            LogsError.warn(MotorBusqueda.class, "Motor de busqueda desconocido '" + valor + "', se usa INDICE.");
+            return INDICE;
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package bibliotecaudb.busqueda;
+
+import java.text.Normalizer;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.Locale;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * Convierte texto del catalogo en tokens para los indices de busqueda.
+ * Todo se pasa a minusculas y sin tildes ("Programación" -> "programacion"),
+ * y se corta en palabras por cualquier caracter que no sea letra o digito.
+ */
+public final class Tokenizador {
+
+    private static final Pattern MARCAS = Pattern.compile("\\p{M}+"); // Tildes y diéresis que quedan sueltas despues de NFD
+    private static final Pattern SEPARADORES = Pattern.compile("[^\\p{L}\\p{Nd}]+");
+
+    private Tokenizador() {
+    }
+
+    /**
+     * @return El texto en minusculas y sin tildes, o "" si es null.
+     */
+    public static String normalizar(String texto) {
+        if (texto == null || texto.isEmpty()) {
+            return "";
+        }
+        String sinTildes = MARCAS.matcher(Normalizer.normalize(texto, Normalizer.Form.NFD)).replaceAll("");
+        return sinTildes.toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * @return El texto normalizado y con cualquier separador convertido en un solo espacio ("Programación, 2da ed." -> "programacion 2da ed").
+     */
+    public static String normalizarFrase(String texto) {
+        return SEPARADORES.matcher(normalizar(texto)).replaceAll(" ").trim();
+    }
+
+    /**
+     * @return Los tokens distintos de todos los textos, en el orden en que aparecen.
+     */
+    public static String[] tokens(String... textos) {
+        Set<String> unicos = new LinkedHashSet<>();
+        for (String texto : textos) {
+            for (String token : SEPARADORES.split(normalizar(texto))) {
+                if (!token.isEmpty()) {
+                    unicos.add(token);
+                }
+            }
+        }
+        return unicos.toArray(new String[0]);
+    }
+
+    /**
+     * @return Los tokens del texto ordenados del mas largo al mas corto (los largos suelen filtrar mas).
+     */
+    static String[] tokensDeConsulta(String consulta) {
+        String[] tokens = tokens(consulta);
+        Arrays.sort(tokens, (a, b) -> Integer.compare(b.length(), a.length()));
+        return tokens;
+    }
+}
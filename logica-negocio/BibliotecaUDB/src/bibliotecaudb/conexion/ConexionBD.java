@@ -5,7 +5,6 @@ import bibliotecaudb.conexion.LogsError;
 import java.io.IOException;
 import java.io.InputStream;
 import java.sql.Connection;
-import java.sql.DriverManager;
 import java.sql.PreparedStatement; 
 import java.sql.ResultSet; 
 import java.sql.SQLException;
@@ -13,9 +12,8 @@ import java.util.Properties;
 
 
 public class ConexionBD {
-    //variable que guarda el estado de la conexion en la BD
-    private static Connection conexion ;
-    //creamos una variable para crear una sola instancia
+    //pool de conexiones, se crea la primera vez que alguien pide una conexion
+    private static volatile PoolConexiones pool;
     private static final Properties props = new Properties(); // Para leer config.properties
 
     // Bloque estatico para cargar config.properties una sola vez al inicio.
@@ -36,57 +34,72 @@ public class ConexionBD {
     }
 
     /**
-     * Obtiene una conexion a la base de datos.
-     * Si no existe una conexion o esta cerrada, crea una nueva.
-     * Es synchronized para evitar problemas si multiples hilos la llaman.
-     * @return La conexión activa.
-     * @throws SQLException Si no se puede establecer la conexion.
+     * Obtiene una conexion del pool.
+     * Cada hilo recibe su propia conexion; quien la pide debe cerrarla (close)
+     * para devolverla al pool. Si el hilo ya tiene una conexion prestada se
+     * le devuelve la misma, asi los DAOs anidados y los que corren dentro de
+     * una UnidadTrabajo usan la conexion (y la transaccion) de esa unidad.
+     * @return La conexión prestada.
+     * @throws SQLException Si no se puede establecer la conexion o no hay conexiones libres.
      */
-    public static synchronized Connection getConexion() throws SQLException {
-        if (conexion == null || conexion.isClosed()) {
-            try {
-                // Carga explicita del driver 
-                Class.forName("com.mysql.cj.jdbc.Driver"); 
-
-                String url = props.getProperty("db.url");
-                String user = props.getProperty("db.user");
-                String password = props.getProperty("db.password");
+    public static Connection getConexion() throws SQLException {
+        PoolConexiones p = pool;
+        if (p == null) {
+            synchronized (ConexionBD.class) {
+                p = pool;
+                if (p == null) {
+                    LogsError.info(ConexionBD.class, "Creando pool de conexiones para: " + props.getProperty("db.url"));
+                    p = new PoolConexiones(props);
+                    pool = p;
+                }
+            }
+        }
+        return p.obtener();
+    }
 
-                LogsError.info(ConexionBD.class, "Intentando conectar a BD: " + url);
-                conexion = DriverManager.getConnection(url, user, password);
-                LogsError.info(ConexionBD.class, "Conexion establecida exitosamente.");
+    /**
+     * Lee una clave de config.properties.
+     * @param clave La clave a leer.
+     * @param porDefecto Valor si la clave no esta o esta vacia.
+     * @return El valor configurado (sin espacios alrededor) o el valor por defecto.
+     */
+    public static String getPropiedad(String clave, String porDefecto) {
+        String valor = props.getProperty(clave);
+        return (valor == null || valor.trim().isEmpty()) ? porDefecto : valor.trim();
+    }
 
-            } catch (ClassNotFoundException ex) {
-                LogsError.error(ConexionBD.class, "Driver MySQL no encontrado.", ex);
-                throw new SQLException("Driver MySQL no encontrado.", ex);
-            } catch (SQLException ex) {
-                LogsError.error(ConexionBD.class, "Error SQL al conectar a la BD.", ex);
-                throw ex; // Relanza para que la capa que llama se entere.
+    /**
+     * Lee una clave numerica de config.properties.
+     * @param clave La clave a leer.
+     * @param porDefecto Valor si la clave no esta, o si no es un entero mayor que cero (se avisa en el log).
+     * @return El valor configurado o el valor por defecto.
+     */
+    public static int getPropiedadEntera(String clave, int porDefecto) {
+        String valor = getPropiedad(clave, String.valueOf(porDefecto));
+        try {
+            int numero = Integer.parseInt(valor);
+            if (numero > 0) {
+                return numero;
             }
+        } catch (NumberFormatException ex) {
+            // Se usa el valor por defecto
         }
-        return conexion;
+        LogsError.warn(ConexionBD.class, clave + " invalido ('" + valor + "'), se usa " + porDefecto + ".");
+        return porDefecto;
     }
 
     /**
-     * Cierra la conexiion a la BD si esta abierta.
+     * Cierra el pool de conexiones.
      * Llamar al finalizar la aplicación.
      */
     public static synchronized void cerrarConexion() {
-        if (conexion != null) {
-            try {
-                if (!conexion.isClosed()) {
-                    LogsError.info(ConexionBD.class, "Cerrando conexion a la BD...");
-                    conexion.close();
-                    LogsError.info(ConexionBD.class, "Conexion cerrada.");
-                }
-            } catch (SQLException ex) {
-                LogsError.error(ConexionBD.class, "Error al cerrar la conexion.", ex);
-            } finally {
-                conexion = null; // Asegura que se cree una nueva la proxima vez.
-            }
+        if (pool != null) {
+            LogsError.info(ConexionBD.class, "Cerrando pool de conexiones a la BD... " + pool.getEstadisticas());
+            pool.cerrar();
+            pool = null; // Asegura que se cree uno nuevo la proxima vez.
         }
     }
-    
+
     /** Cierra un ResultSet de forma segura
         @param rs es el resultSet a cerrar
     */
@@ -0,0 +1,312 @@
+package bibliotecaudb.conexion;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.util.Iterator;
+import java.util.Properties;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Pool acotado de conexiones JDBC.
+ * Cada hilo recibe su propia conexion fisica; si el mismo hilo vuelve a pedir una
+ * conexion mientras ya tiene una prestada (por ejemplo un DAO que llama a otro DAO),
+ * se le devuelve la misma y solo se regresa al pool cuando se cierra la ultima vez.
+ * Los parametros se leen de config.properties (claves pool.*).
+ */
+public class PoolConexiones {
+
+    private final String url;
+    private final String usuario;
+    private final String contrasena;
+    private final Properties propiedadesConexion; // Usuario, contrasena y opciones del driver
+
+    private final int minimo; // Conexiones que se mantienen abiertas aunque no se usen
+    private final int maximo; // Conexiones prestadas al mismo tiempo como maximo
+    private final long tiempoEsperaMs; // Cuanto espera un hilo por una conexion libre
+    private final long inactividadMaximaMs; // Tiempo libre tras el cual se cierra una conexion sobrante
+    private final long vidaMaximaMs; // Edad maxima de una conexion fisica
+    private final int validacionSeg; // Timeout de Connection.isValid al prestar
+
+    private final Semaphore permisos; // Cola de espera justa (FIFO) limitada a 'maximo'
+    private final LinkedBlockingDeque<ConexionFisica> libres = new LinkedBlockingDeque<>();
+    private final AtomicInteger abiertas = new AtomicInteger(); // Conexiones fisicas abiertas (libres + prestadas)
+    private final ThreadLocal<Arriendo> arriendoActual = new ThreadLocal<>();
+    private final ScheduledExecutorService mantenimiento;
+    private volatile boolean cerrado = false;
+
+    public PoolConexiones(Properties props) throws SQLException {
+        this.url = props.getProperty("db.url");
+        this.usuario = props.getProperty("db.user");
+        this.contrasena = props.getProperty("db.password");
+        this.propiedadesConexion = new Properties();
+        propiedadesConexion.setProperty("user", usuario);
+        propiedadesConexion.setProperty("password", contrasena != null ? contrasena : "");
+        // El driver junta los executeBatch de INSERT en un solo INSERT de varias filas (un viaje a la BD por lote);
+        // se puede desactivar con rewriteBatchedStatements=false en db.url
+        propiedadesConexion.setProperty("rewriteBatchedStatements", "true");
+        this.minimo = leerEntero(props, "pool.minimo", 2);
+        this.maximo = Math.max(1, leerEntero(props, "pool.maximo", 10));
+        this.tiempoEsperaMs = leerEntero(props, "pool.tiempoEsperaMs", 5000);
+        this.inactividadMaximaMs = leerEntero(props, "pool.inactividadMaximaMs", 300000);
+        this.vidaMaximaMs = leerEntero(props, "pool.vidaMaximaMs", 1800000);
+        this.validacionSeg = leerEntero(props, "pool.validacionSeg", 2);
+        this.permisos = new Semaphore(maximo, true);
+
+        try {
+            Class.forName("com.mysql.cj.jdbc.Driver"); // Carga explicita del driver
+        } catch (ClassNotFoundException ex) {
+            LogsError.error(PoolConexiones.class, "Driver MySQL no encontrado.", ex);
+            throw new SQLException("Driver MySQL no encontrado.", ex);
+        }
+
+        // Hilo de mantenimiento: cierra conexiones viejas o inactivas y rellena hasta el minimo
+        long periodo = Math.max(1000, Math.min(30000, inactividadMaximaMs / 2));
+        this.mantenimiento = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "pool-conexiones-mantenimiento");
+            t.setDaemon(true);
+            return t;
+        });
+        this.mantenimiento.scheduleWithFixedDelay(this::mantener, periodo, periodo, TimeUnit.MILLISECONDS);
+
+        rellenarHastaMinimo();
+        LogsError.info(PoolConexiones.class, "Pool de conexiones iniciado (min=" + minimo + ", max=" + maximo + ") para " + url);
+    }
+
+    /**
+     * Presta una conexion del pool. Hay que cerrarla (close) para devolverla.
+     * @return La conexion prestada.
+     * @throws SQLException Si el pool esta cerrado, si se agota el tiempo de espera o si no se puede conectar.
+     */
+    public Connection obtener() throws SQLException {
+        Arriendo actual = arriendoActual.get();
+        if (actual != null) { // El hilo ya tiene una conexion prestada, la reutilizamos
+            actual.usos++;
+            return actual.proxy;
+        }
+        if (cerrado) {
+            throw new SQLException("El pool de conexiones esta cerrado.");
+        }
+
+        boolean concedido;
+        try {
+            concedido = permisos.tryAcquire(tiempoEsperaMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrumpido mientras se esperaba una conexion del pool.", ex);
+        }
+        if (!concedido) {
+            LogsError.warn(PoolConexiones.class, "Tiempo de espera agotado por una conexion. " + getEstadisticas());
+            throw new SQLTimeoutException("No hay conexiones libres despues de " + tiempoEsperaMs + " ms (maximo " + maximo + ").");
+        }
+
+        try {
+            ConexionFisica fisica = tomarConexionValida();
+            Arriendo arriendo = new Arriendo(fisica);
+            arriendoActual.set(arriendo);
+            return arriendo.proxy;
+        } catch (SQLException | RuntimeException ex) {
+            permisos.release(); // No se llego a prestar, liberamos el permiso
+            throw ex;
+        }
+    }
+
+    /**
+     * Cierra todas las conexiones libres y detiene el mantenimiento.
+     * Las conexiones prestadas se cierran cuando sus duenos las devuelven.
+     */
+    public void cerrar() {
+        cerrado = true;
+        mantenimiento.shutdownNow();
+        ConexionFisica f;
+        while ((f = libres.pollFirst()) != null) {
+            descartar(f);
+        }
+        LogsError.info(PoolConexiones.class, "Pool de conexiones cerrado.");
+    }
+
+    public String getEstadisticas() {
+        return "abiertas=" + abiertas.get() + ", libres=" + libres.size()
+                + ", prestadas=" + (maximo - permisos.availablePermits())
+                + ", hilosEsperando=" + permisos.getQueueLength();
+    }
+
+    // Busca una conexion libre que siga sirviendo; si no hay, abre una nueva
+    private ConexionFisica tomarConexionValida() throws SQLException {
+        ConexionFisica f;
+        while ((f = libres.pollFirst()) != null) { // LIFO: la mas recientemente usada primero
+            if (!expirada(f) && esValida(f)) {
+                return f;
+            }
+            descartar(f);
+        }
+        return abrir();
+    }
+
+    private ConexionFisica abrir() throws SQLException {
+        try {
+            Connection real = DriverManager.getConnection(url, propiedadesConexion);
+            abiertas.incrementAndGet();
+            LogsError.debug(PoolConexiones.class, "Nueva conexion fisica abierta. " + getEstadisticas());
+            return new ConexionFisica(real);
+        } catch (SQLException ex) {
+            LogsError.error(PoolConexiones.class, "Error SQL al conectar a la BD.", ex);
+            throw ex;
+        }
+    }
+
+    private boolean esValida(ConexionFisica f) {
+        try {
+            return f.conexion.isValid(validacionSeg);
+        } catch (SQLException ex) {
+            return false;
+        }
+    }
+
+    private boolean expirada(ConexionFisica f) {
+        return System.currentTimeMillis() - f.creadaEn > vidaMaximaMs;
+    }
+
+    private void descartar(ConexionFisica f) {
+        abiertas.decrementAndGet();
+        try {
+            f.conexion.close();
+        } catch (SQLException ex) {
+            LogsError.warn(PoolConexiones.class, "Error al cerrar conexion descartada: " + ex.getMessage());
+        }
+    }
+
+    // Se llama cuando el ultimo usuario del arriendo cierra la conexion
+    private void devolver(Arriendo arriendo) {
+        if (arriendoActual.get() == arriendo) {
+            arriendoActual.remove();
+        }
+        ConexionFisica f = arriendo.fisica;
+        try {
+            if (!f.conexion.getAutoCommit()) {
+                // Transaccion sin terminar: no se la pasamos asi al siguiente hilo
+                LogsError.warn(PoolConexiones.class, "Conexion devuelta con una transaccion abierta; se hace rollback.");
+                f.conexion.rollback();
+                f.conexion.setAutoCommit(true);
+            }
+            if (cerrado || expirada(f) || f.conexion.isClosed()) {
+                descartar(f);
+            } else {
+                f.ultimoUso = System.currentTimeMillis();
+                libres.offerFirst(f);
+            }
+        } catch (SQLException ex) {
+            LogsError.warn(PoolConexiones.class, "Conexion en mal estado al devolverla, se descarta: " + ex.getMessage());
+            descartar(f);
+        } finally {
+            permisos.release();
+        }
+    }
+
+    private void mantener() {
+        try {
+            long ahora = System.currentTimeMillis();
+            Iterator<ConexionFisica> it = libres.descendingIterator(); // Las menos usadas primero
+            while (it.hasNext()) {
+                ConexionFisica f = it.next();
+                boolean inactiva = ahora - f.ultimoUso > inactividadMaximaMs && abiertas.get() > minimo;
+                if ((expirada(f) || inactiva) && libres.removeFirstOccurrence(f)) {
+                    descartar(f);
+                }
+            }
+            rellenarHastaMinimo();
+        } catch (RuntimeException ex) {
+            LogsError.error(PoolConexiones.class, "Error en el mantenimiento del pool.", ex);
+        }
+    }
+
+    private void rellenarHastaMinimo() {
+        while (!cerrado && abiertas.get() < minimo) {
+            try {
+                libres.offerLast(abrir());
+            } catch (SQLException ex) {
+                LogsError.warn(PoolConexiones.class, "No se pudo rellenar el pool hasta el minimo: " + ex.getMessage());
+                return;
+            }
+        }
+    }
+
+    private static int leerEntero(Properties props, String clave, int porDefecto) {
+        String valor = props.getProperty(clave);
+        if (valor == null || valor.trim().isEmpty()) {
+            return porDefecto;
+        }
+        try {
+            return Integer.parseInt(valor.trim());
+        } catch (NumberFormatException ex) {
+            LogsError.warn(PoolConexiones.class, "Valor invalido para " + clave + ": '" + valor + "'. Se usa " + porDefecto);
+            return porDefecto;
+        }
+    }
+
+    // Conexion real con sus marcas de tiempo
+    private static class ConexionFisica {
+        final Connection conexion;
+        final long creadaEn;
+        volatile long ultimoUso;
+
+        ConexionFisica(Connection conexion) {
+            this.conexion = conexion;
+            this.creadaEn = System.currentTimeMillis();
+            this.ultimoUso = this.creadaEn;
+        }
+    }
+
+    // Prestamo de una conexion fisica a un hilo. close() sobre el proxy la devuelve al pool.
+    private class Arriendo implements InvocationHandler {
+        final ConexionFisica fisica;
+        final Connection proxy;
+        int usos = 1;
+        boolean devuelto = false;
+
+        Arriendo(ConexionFisica fisica) {
+            this.fisica = fisica;
+            this.proxy = (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                    new Class<?>[]{Connection.class}, this);
+        }
+
+        @Override
+        public Object invoke(Object p, Method metodo, Object[] args) throws Throwable {
+            switch (metodo.getName()) {
+                case "close":
+                    if (!devuelto && --usos == 0) {
+                        devuelto = true;
+                        devolver(this);
+                    }
+                    return null;
+                case "isClosed":
+                    return devuelto || fisica.conexion.isClosed();
+                case "equals":
+                    return p == args[0];
+                case "hashCode":
+                    return System.identityHashCode(p);
+                case "toString":
+                    return "ConexionPool[" + fisica.conexion + (devuelto ? ", devuelta" : "") + "]";
+                default:
+                    if (devuelto) {
+                        throw new SQLException("La conexion ya fue devuelta al pool.");
+                    }
+                    try {
+                        return metodo.invoke(fisica.conexion, args);
+                    } catch (InvocationTargetException ex) {
+                        throw ex.getCause();
+                    }
+            }
+        }
+    }
+}
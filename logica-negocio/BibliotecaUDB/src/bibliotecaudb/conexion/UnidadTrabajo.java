@@ -0,0 +1,185 @@
+package bibliotecaudb.conexion;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Contexto de transaccion ligado al hilo actual.
+ * Mientras una unidad de trabajo esta abierta, todos los DAOs que se llamen desde
+ * ese hilo reciben su conexion (ConexionBD.getConexion) y participan en la misma
+ * transaccion. Otros hilos obtienen conexiones distintas del pool, asi que sus
+ * transacciones corren en paralelo sin mezclarse.
+ *
+ * Uso:
+ * <pre>
+ * try (UnidadTrabajo uow = UnidadTrabajo.iniciar()) {
+ *     ... llamadas a DAOs ...
+ *     uow.confirmar();
+ * } // si no se confirmo, close() hace rollback
+ * </pre>
+ * Si ya hay una unidad abierta en el hilo, iniciar() devuelve una unidad interna que
+ * participa en la externa: su confirmar() no hace commit, y si se cierra sin confirmar
+ * la transaccion externa queda marcada para rollback.
+ */
+public class UnidadTrabajo implements AutoCloseable {
+
+    private static final ThreadLocal<UnidadTrabajo> unidadActual = new ThreadLocal<>();
+
+    private final Connection conexion;
+    private final UnidadTrabajo externa; // null si esta es la unidad principal
+    private boolean confirmada = false;
+    private boolean soloRollback = false; // Una unidad interna fallo
+    private boolean cerrada = false;
+    private List<Runnable> pendientesAlTerminar; // Acciones para cuando termine la transaccion (solo en la unidad principal)
+    private List<Runnable> pendientesAlConfirmar; // Acciones que solo corren si se hizo commit (solo en la unidad principal)
+
+    private UnidadTrabajo(Connection conexion, UnidadTrabajo externa) {
+        this.conexion = conexion;
+        this.externa = externa;
+    }
+
+    /**
+     * Abre una unidad de trabajo en el hilo actual (o se une a la que ya esta abierta).
+     * @return La unidad de trabajo.
+     * @throws SQLException Si no se puede obtener la conexion del pool.
+     */
+    public static UnidadTrabajo iniciar() throws SQLException {
+        UnidadTrabajo principal = unidadActual.get();
+        if (principal != null) {
+            return new UnidadTrabajo(principal.conexion, principal);
+        }
+        Connection conn = ConexionBD.getConexion();
+        try {
+            conn.setAutoCommit(false); // Manejamos la transaccion nosotros
+        } catch (SQLException ex) {
+            ConexionBD.close(conn);
+            throw ex;
+        }
+        principal = new UnidadTrabajo(conn, null);
+        unidadActual.set(principal);
+        return principal;
+    }
+
+    /**
+     * @return La unidad de trabajo abierta en este hilo, o null si no hay ninguna.
+     */
+    public static UnidadTrabajo actual() {
+        return unidadActual.get();
+    }
+
+    public Connection getConexion() {
+        return conexion;
+    }
+
+    /**
+     * Programa una accion para cuando termine la transaccion del hilo actual, ya sea con
+     * commit o con rollback (por ejemplo invalidar un cache). Se ejecuta despues de devolver
+     * la conexion, asi que ve los datos ya confirmados. Si no hay transaccion abierta se
+     * ejecuta enseguida.
+     * @param accion La accion a ejecutar.
+     */
+    public static void alTerminar(Runnable accion) {
+        UnidadTrabajo principal = unidadActual.get();
+        if (principal == null) {
+            accion.run();
+            return;
+        }
+        if (principal.pendientesAlTerminar == null) {
+            principal.pendientesAlTerminar = new ArrayList<>();
+        }
+        principal.pendientesAlTerminar.add(accion);
+    }
+
+    /**
+     * Programa una accion para despues del commit de la transaccion del hilo actual (por ejemplo
+     * aplicar un cambio a un indice en memoria). Si la transaccion termina en rollback, la accion
+     * se descarta. Si no hay transaccion abierta se ejecuta enseguida.
+     * @param accion La accion a ejecutar.
+     */
+    public static void alConfirmar(Runnable accion) {
+        UnidadTrabajo principal = unidadActual.get();
+        if (principal == null) {
+            accion.run();
+            return;
+        }
+        if (principal.pendientesAlConfirmar == null) {
+            principal.pendientesAlConfirmar = new ArrayList<>();
+        }
+        principal.pendientesAlConfirmar.add(accion);
+    }
+
+    /**
+     * Confirma la transaccion. En una unidad interna solo marca que su parte termino bien;
+     * el commit lo hace la unidad principal.
+     * @throws SQLException Si el commit falla o si una unidad interna marco la transaccion para rollback.
+     */
+    public void confirmar() throws SQLException {
+        if (cerrada) {
+            throw new IllegalStateException("La unidad de trabajo ya esta cerrada.");
+        }
+        if (externa != null) {
+            confirmada = true;
+            return;
+        }
+        if (soloRollback) {
+            throw new SQLException("La transaccion fue marcada para rollback por una operacion interna.");
+        }
+        conexion.commit();
+        confirmada = true;
+    }
+
+    /**
+     * Termina la unidad. Si no se confirmo, se hace rollback (o se marca la externa para rollback).
+     * La unidad principal devuelve la conexion al pool.
+     */
+    @Override
+    public void close() {
+        if (cerrada) {
+            return;
+        }
+        cerrada = true;
+        if (externa != null) {
+            if (!confirmada) {
+                externa.soloRollback = true;
+            }
+            return;
+        }
+        try {
+            if (!confirmada) {
+                conexion.rollback();
+                LogsError.warn(UnidadTrabajo.class, "Unidad de trabajo cerrada sin confirmar: rollback realizado.");
+            }
+        } catch (SQLException ex) {
+            LogsError.error(UnidadTrabajo.class, "Error durante el rollback.", ex);
+        } finally {
+            try {
+                conexion.setAutoCommit(true); // Siempre restauramos el auto-commit
+            } catch (SQLException ex) {
+                LogsError.error(UnidadTrabajo.class, "Error al restaurar auto-commit.", ex);
+            }
+            unidadActual.remove();
+            ConexionBD.close(conexion); // Devolvemos la conexion al pool
+        }
+        if (confirmada) {
+            ejecutar(pendientesAlConfirmar);
+        }
+        pendientesAlConfirmar = null;
+        ejecutar(pendientesAlTerminar);
+        pendientesAlTerminar = null;
+    }
+
+    private static void ejecutar(List<Runnable> acciones) {
+        if (acciones == null) {
+            return;
+        }
+        for (Runnable accion : acciones) {
+            try {
+                accion.run();
+            } catch (RuntimeException ex) {
+                LogsError.error(UnidadTrabajo.class, "Error en una accion al terminar la transaccion.", ex);
+            }
+        }
+    }
+}
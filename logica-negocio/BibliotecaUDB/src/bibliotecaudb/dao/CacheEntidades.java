@@ -0,0 +1,220 @@
+package bibliotecaudb.dao;
+
+import bibliotecaudb.conexion.UnidadTrabajo;
+
+import java.sql.SQLException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.UnaryOperator;
+
+/**
+ * Cache en memoria, de tamano fijo, para filas que se leen mucho por ID (por ejemplo ejemplares).
+ * A diferencia de CacheReferencia no guarda toda la tabla: guarda las ultimas filas usadas y
+ * descarta la menos usada cuando se llena.
+ *
+ * Es de escritura directa: los DAOs que cambian una fila se lo avisan (escribir, modificar, quitar)
+ * y el cambio se aplica al cache cuando la transaccion se confirma; si termina en rollback, la fila
+ * solo se saca del cache. Se guardan y se entregan copias, asi quien modifique un objeto no cambia
+ * el cache.
+ *
+ * Los cambios que hace otra instancia de la aplicacion (o directo en la BD) no llegan aqui, por eso cada
+ * fila vence a los pocos segundos de guardarse y se vuelve a leer. Lo que decide un prestamo se revisa
+ * igual en la BD (por ejemplo EjemplarDAO.reservarSiDisponible); el cache solo sirve para mostrar.
+ *
+ * @param <T> Tipo de las filas.
+ */
+public class CacheEntidades<T> {
+
+    /** Lee una fila desde la BD cuando no esta en el cache. */
+    @FunctionalInterface
+    public interface Cargador<T> {
+        T cargar(int id) throws SQLException;
+    }
+
+    private final String nombre;
+    private final UnaryOperator<T> copiar;
+    private final long vigenciaNanos; // Cuanto dura una fila en el cache
+    private final Map<Integer, Entrada<T>> filas; // En orden de uso; se protege con synchronized(filas)
+    private final AtomicLong version = new AtomicLong(); // Cambia con cada escritura
+    private final LongAdder aciertos = new LongAdder();
+    private final LongAdder fallos = new LongAdder();
+
+    // Una fila guardada y hasta cuando sirve (System.nanoTime)
+    private static class Entrada<T> {
+        final T fila;
+        final long vence;
+
+        Entrada(T fila, long vence) {
+            this.fila = fila;
+            this.vence = vence;
+        }
+    }
+
+    /**
+     * @param nombre Nombre para logs y estadisticas (normalmente la tabla).
+     * @param capacidad Cuantas filas guarda como maximo.
+     * @param segundosVigencia Cuantos segundos se usa una fila antes de volver a leerla de la BD.
+     * @param copiar Copia de una fila (el cache nunca entrega ni guarda el objeto del llamador).
+     */
+    public CacheEntidades(String nombre, int capacidad, int segundosVigencia, UnaryOperator<T> copiar) {
+        this.nombre = nombre;
+        this.copiar = copiar;
+        this.vigenciaNanos = TimeUnit.SECONDS.toNanos(segundosVigencia);
+        this.filas = new LinkedHashMap<Integer, Entrada<T>>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, Entrada<T>> mayor) {
+                return size() > capacidad;
+            }
+        };
+    }
+
+    /**
+     * Busca una fila; si no esta, la lee con el cargador y la guarda.
+     * @return Una copia de la fila, o null si no existe.
+     * @throws SQLException Si hubo que leerla y la consulta fallo.
+     */
+    public T obtener(int id, Cargador<T> cargador) throws SQLException {
+        synchronized (filas) {
+            T fila = vigente(id);
+            if (fila != null) {
+                aciertos.increment();
+                return copiar.apply(fila);
+            }
+        }
+        fallos.increment();
+        long v = version.get();
+        T leida = cargador.cargar(id);
+        // Dentro de una transaccion puede ser un dato sin confirmar; solo se guarda lo leido fuera de ellas
+        if (leida != null && UnidadTrabajo.actual() == null) {
+            T copia = copiar.apply(leida);
+            synchronized (filas) {
+                if (version.get() == v) { // Si alguien escribio mientras leiamos, lo leido puede ser viejo
+                    guardar(id, copia);
+                }
+            }
+        }
+        return leida;
+    }
+
+    /**
+     * Busca una fila solo en memoria, sin ir a la BD.
+     * @return Una copia de la fila, o null si no esta en el cache.
+     */
+    public T buscar(int id) {
+        synchronized (filas) {
+            T fila = vigente(id);
+            if (fila == null) {
+                fallos.increment();
+                return null;
+            }
+            aciertos.increment();
+            return copiar.apply(fila);
+        }
+    }
+
+    /**
+     * Avisa que la fila se guardo con estos valores; el cache la tendra asi cuando se confirme la transaccion.
+     */
+    public void escribir(int id, T valor) {
+        T copia = copiar.apply(valor);
+        alTerminar(id, () -> guardar(id, copia));
+    }
+
+    /**
+     * Avisa que cambio parte de la fila (por ejemplo solo el estado). Si la fila estaba en el cache,
+     * se le aplica el cambio al confirmar; si no estaba, no se hace nada.
+     */
+    public void modificar(int id, Consumer<T> cambio) {
+        T actual;
+        synchronized (filas) {
+            actual = vigente(id);
+        }
+        if (actual == null) {
+            quitar(id);
+            return;
+        }
+        T copia = copiar.apply(actual);
+        cambio.accept(copia);
+        alTerminar(id, () -> guardar(id, copia));
+    }
+
+    /**
+     * Saca la fila del cache (por ejemplo si se elimino o cambio algo que el cache no puede armar).
+     */
+    public void quitar(int id) {
+        alTerminar(id, null);
+    }
+
+    /**
+     * Vacia el cache (para cambios que afectan a muchas filas, como editar el documento de varios ejemplares).
+     */
+    public void vaciar() {
+        version.incrementAndGet();
+        synchronized (filas) {
+            filas.clear();
+        }
+        UnidadTrabajo.alTerminar(() -> {
+            version.incrementAndGet();
+            synchronized (filas) {
+                filas.clear();
+            }
+        });
+    }
+
+    // Saca la fila ya mismo y, al terminar la transaccion, aplica el cambio si hubo commit o la vuelve a sacar si no
+    private void alTerminar(int id, Runnable siConfirma) {
+        version.incrementAndGet();
+        synchronized (filas) {
+            filas.remove(id);
+        }
+        boolean[] confirmada = {false};
+        UnidadTrabajo.alConfirmar(() -> confirmada[0] = true); // Corre antes que las acciones de alTerminar
+        UnidadTrabajo.alTerminar(() -> {
+            version.incrementAndGet();
+            synchronized (filas) {
+                filas.remove(id);
+                if (confirmada[0] && siConfirma != null) {
+                    siConfirma.run();
+                }
+            }
+        });
+    }
+
+    // La fila si esta y no vencio; si vencio, la saca. Se llama dentro de synchronized(filas)
+    private T vigente(int id) {
+        Entrada<T> entrada = filas.get(id);
+        if (entrada == null) {
+            return null;
+        }
+        if (System.nanoTime() - entrada.vence > 0) {
+            filas.remove(id);
+            return null;
+        }
+        return entrada.fila;
+    }
+
+    // Se llama dentro de synchronized(filas)
+    private void guardar(int id, T fila) {
+        filas.put(id, new Entrada<>(fila, System.nanoTime() + vigenciaNanos));
+    }
+
+    public long getAciertos() {
+        return aciertos.sum();
+    }
+
+    public long getFallos() {
+        return fallos.sum();
+    }
+
+    public String getEstadisticas() {
+        int tamano;
+        synchronized (filas) {
+            tamano = filas.size();
+        }
+        return nombre + ": filas=" + tamano + ", aciertos=" + getAciertos() + ", fallos=" + getFallos();
+    }
+}
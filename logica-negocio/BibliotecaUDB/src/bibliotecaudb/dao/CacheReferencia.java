@@ -0,0 +1,211 @@
+package bibliotecaudb.dao;
+
+import bibliotecaudb.conexion.LogsError;
+import bibliotecaudb.conexion.UnidadTrabajo;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Predicate;
+import java.util.function.ToIntFunction;
+import java.util.function.UnaryOperator;
+
+/**
+ * Cache en memoria para tablas de referencia pequenas que casi nunca cambian
+ * (tipo_usuario, tipo_documento, politicas_prestamo, configuracion_sistema).
+ * Toda la tabla se carga de una vez en una instantanea inmutable; las busquedas por
+ * clave son una busqueda binaria sobre un int[] y no tocan la base de datos.
+ * Los metodos que escriben en la tabla llaman a invalidar(): la instantanea se descarta
+ * de forma atomica (despues del commit, si hay transaccion) y la siguiente lectura la vuelve a cargar.
+ * Al arrancar la aplicacion se pueden cargar todas de una vez con precargar().
+ *
+ * @param <T> Tipo de las filas.
+ */
+public class CacheReferencia<T> {
+
+    /** Lee todas las filas de la tabla desde la BD. */
+    @FunctionalInterface
+    public interface Cargador<T> {
+        List<T> cargarTodos() throws SQLException;
+    }
+
+    private static final List<CacheReferencia<?>> registradas = new CopyOnWriteArrayList<>();
+
+    private final String nombre;
+    private final Cargador<T> cargador;
+    private final ToIntFunction<T> clave;
+    private final UnaryOperator<T> copiar; // null si los objetos se pueden compartir tal cual
+
+    private final AtomicReference<Instantanea<T>> actual = new AtomicReference<>();
+    private final AtomicLong version = new AtomicLong(); // Cambia en cada invalidacion
+    private final AtomicInteger escriturasAbiertas = new AtomicInteger(); // Transacciones que cambiaron la tabla y no han terminado
+    private final LongAdder aciertos = new LongAdder();
+    private final LongAdder fallos = new LongAdder();
+    private final LongAdder recargas = new LongAdder();
+
+    /**
+     * @param nombre Nombre para logs y estadisticas (normalmente la tabla).
+     * @param cargador Consulta que trae toda la tabla.
+     * @param clave Clave entera de cada fila.
+     * @param copiar Copia defensiva para objetos que el llamador puede modificar, o null.
+     */
+    public CacheReferencia(String nombre, Cargador<T> cargador, ToIntFunction<T> clave, UnaryOperator<T> copiar) {
+        this.nombre = nombre;
+        this.cargador = cargador;
+        this.clave = clave;
+        this.copiar = copiar;
+        registradas.add(this);
+    }
+
+    /**
+     * Busca una fila por su clave.
+     * @return La fila, o null si no existe.
+     * @throws SQLException Si hubo que cargar la tabla y la consulta fallo.
+     */
+    public T obtener(int id) throws SQLException {
+        Instantanea<T> inst = instantanea();
+        int pos = Arrays.binarySearch(inst.claves, id);
+        if (pos < 0) {
+            fallos.increment();
+            return null;
+        }
+        aciertos.increment();
+        return entregar(inst.porClave.get(pos));
+    }
+
+    /**
+     * Busca la primera fila que cumpla la condicion (para busquedas por otro campo, como el nombre).
+     */
+    public T buscar(Predicate<T> condicion) throws SQLException {
+        for (T fila : instantanea().enOrden) {
+            if (condicion.test(fila)) {
+                aciertos.increment();
+                return entregar(fila);
+            }
+        }
+        fallos.increment();
+        return null;
+    }
+
+    /**
+     * @return Todas las filas en el orden en que las devolvio la consulta.
+     */
+    public List<T> todos() throws SQLException {
+        List<T> filas = instantanea().enOrden;
+        aciertos.increment();
+        if (copiar == null) {
+            return new ArrayList<>(filas);
+        }
+        List<T> copias = new ArrayList<>(filas.size());
+        for (T fila : filas) {
+            copias.add(copiar.apply(fila));
+        }
+        return copias;
+    }
+
+    /**
+     * Carga la tabla si todavia no esta en memoria, para que la primera lectura no vaya a la BD.
+     * @throws SQLException Si la consulta fallo.
+     */
+    public void precargar() throws SQLException {
+        instantanea();
+    }
+
+    /**
+     * Descarta la instantanea actual. Si hay una transaccion abierta en el hilo, se descarta
+     * despues del commit (con rollback no cambio nada), y mientras tanto no se guarda ninguna
+     * carga nueva: podria haber leido el cambio todavia sin confirmar.
+     */
+    public void invalidar() {
+        if (UnidadTrabajo.actual() == null) {
+            descartar(); // Sin transaccion el cambio ya esta confirmado
+            return;
+        }
+        escriturasAbiertas.incrementAndGet();
+        UnidadTrabajo.alConfirmar(this::descartar); // Corre antes que las acciones de alTerminar
+        UnidadTrabajo.alTerminar(escriturasAbiertas::decrementAndGet);
+    }
+
+    public long getAciertos() {
+        return aciertos.sum();
+    }
+
+    public long getFallos() {
+        return fallos.sum();
+    }
+
+    public long getRecargas() {
+        return recargas.sum();
+    }
+
+    public String getEstadisticas() {
+        return nombre + ": aciertos=" + getAciertos() + ", fallos=" + getFallos() + ", recargas=" + getRecargas();
+    }
+
+    /**
+     * @return Las estadisticas de todos los caches de referencia, una linea por cache.
+     */
+    public static String estadisticasGenerales() {
+        StringBuilder sb = new StringBuilder();
+        for (CacheReferencia<?> cache : registradas) {
+            sb.append(cache.getEstadisticas()).append(System.lineSeparator());
+        }
+        return sb.toString();
+    }
+
+    private void descartar() {
+        version.incrementAndGet();
+        actual.set(null);
+    }
+
+    private T entregar(T fila) {
+        return copiar != null ? copiar.apply(fila) : fila;
+    }
+
+    private Instantanea<T> instantanea() throws SQLException {
+        Instantanea<T> inst = actual.get();
+        if (inst != null) {
+            return inst;
+        }
+        synchronized (this) { // Solo un hilo recarga; los demas esperan y usan su resultado
+            inst = actual.get();
+            if (inst != null) {
+                return inst;
+            }
+            long v = version.get();
+            List<T> filas = cargador.cargarTodos();
+            inst = new Instantanea<>(filas, clave);
+            recargas.increment();
+            if (version.get() == v && escriturasAbiertas.get() == 0) { // Si alguien invalido mientras cargabamos, no la guardamos
+                actual.compareAndSet(null, inst);
+            }
+            LogsError.debug(CacheReferencia.class, "Cache de referencia '" + nombre + "' cargado con " + filas.size() + " filas.");
+            return inst;
+        }
+    }
+
+    // Contenido inmutable de la tabla en un momento dado
+    private static class Instantanea<T> {
+        final List<T> enOrden;
+        final int[] claves; // Ordenadas, para busqueda binaria
+        final List<T> porClave; // Misma posicion que en 'claves'
+
+        Instantanea(List<T> filas, ToIntFunction<T> clave) {
+            this.enOrden = Collections.unmodifiableList(new ArrayList<>(filas));
+            List<T> ordenadas = new ArrayList<>(filas);
+            ordenadas.sort((a, b) -> Integer.compare(clave.applyAsInt(a), clave.applyAsInt(b)));
+            this.claves = new int[ordenadas.size()];
+            for (int i = 0; i < claves.length; i++) {
+                claves[i] = clave.applyAsInt(ordenadas.get(i));
+            }
+            this.porClave = ordenadas;
+        }
+    }
+}
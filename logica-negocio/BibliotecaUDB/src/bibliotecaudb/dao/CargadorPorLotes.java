@@ -0,0 +1,138 @@
+package bibliotecaudb.dao;
+
+import bibliotecaudb.conexion.ConexionBD;
+import bibliotecaudb.conexion.LogsError;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.function.ToIntFunction;
+
+/**
+ * Carga por lotes las entidades relacionadas de una lista (al estilo DataLoader).
+ * Mientras se mapea un ResultSet, cada fila pide su entidad relacionada con solicitar(id, destino).
+ * Al final, cargar() junta todos los IDs pedidos, los resuelve con una consulta
+ * "WHERE id IN (...)" por bloque y le entrega a cada fila su entidad.
+ * Asi una lista de N filas cuesta una consulta por tabla relacionada y no N consultas.
+ *
+ * @param <T> Tipo de la entidad relacionada.
+ */
+public class CargadorPorLotes<T> {
+
+    // Maximo de IDs por consulta IN, para no armar sentencias demasiado grandes
+    public static final int TAMANO_BLOQUE = 500;
+
+    /** Resuelve un grupo de IDs de una sola vez (normalmente el obtenerPorIds de un DAO). */
+    @FunctionalInterface
+    public interface FuncionLote<T> {
+        Map<Integer, T> cargar(Collection<Integer> ids) throws SQLException;
+    }
+
+    /** Convierte la fila actual de un ResultSet en un objeto. */
+    @FunctionalInterface
+    public interface MapeadorFila<T> {
+        T mapear(ResultSet rs) throws SQLException;
+    }
+
+    private final FuncionLote<T> funcion;
+    private final Map<Integer, List<Consumer<T>>> pendientes = new LinkedHashMap<>();
+
+    public CargadorPorLotes(FuncionLote<T> funcion) {
+        this.funcion = funcion;
+    }
+
+    /**
+     * Registra que una fila necesita la entidad con este ID. No consulta nada todavia.
+     * @param id ID de la entidad relacionada.
+     * @param destino Quien recibe la entidad (por ejemplo ejemplar::setDocumento).
+     */
+    public void solicitar(int id, Consumer<T> destino) {
+        pendientes.computeIfAbsent(id, k -> new ArrayList<>()).add(destino);
+    }
+
+    /**
+     * Resuelve todos los IDs pendientes y se los entrega a sus destinos.
+     * Si un ID no existe en la BD, su destino recibe null (igual que obtenerPorId).
+     * @throws SQLException Si falla alguna de las consultas.
+     */
+    public void cargar() throws SQLException {
+        if (pendientes.isEmpty()) {
+            return;
+        }
+        List<Integer> ids = new ArrayList<>(pendientes.keySet());
+        for (int i = 0; i < ids.size(); i += TAMANO_BLOQUE) {
+            List<Integer> bloque = ids.subList(i, Math.min(i + TAMANO_BLOQUE, ids.size()));
+            Map<Integer, T> encontrados = funcion.cargar(bloque);
+            for (Integer id : bloque) {
+                T entidad = encontrados.get(id);
+                for (Consumer<T> destino : pendientes.get(id)) {
+                    destino.accept(entidad);
+                }
+            }
+        }
+        pendientes.clear();
+    }
+
+    /**
+     * Ejecuta una consulta "... IN (?, ?, ...)" por cada bloque de IDs y devuelve las filas por ID.
+     * Pensado para implementar obtenerPorIds en los DAOs.
+     * @param origen Clase que hace la consulta (para el log).
+     * @param sqlBase SQL que termina en "WHERE id IN"; aqui se le agregan los parametros.
+     * @param ids IDs a buscar (los repetidos se consultan una sola vez).
+     * @param mapeador Como convertir cada fila.
+     * @param idDe Como obtener el ID del objeto ya mapeado.
+     * @return Mapa ID -> objeto con los que se encontraron.
+     * @throws SQLException Si falla la consulta.
+     */
+    public static <T> Map<Integer, T> consultarPorIds(Class<?> origen, String sqlBase, Collection<Integer> ids,
+            MapeadorFila<T> mapeador, ToIntFunction<T> idDe) throws SQLException {
+        Map<Integer, T> resultado = new HashMap<>();
+        if (ids == null || ids.isEmpty()) {
+            return resultado;
+        }
+        List<Integer> unicos = new ArrayList<>(new LinkedHashSet<>(ids));
+
+        Connection conn = null; // Variable para la conexion
+        PreparedStatement pstmt = null; // Variable para la consulta
+        ResultSet rs = null; // Para los resultados
+        try {
+            conn = ConexionBD.getConexion(); // Obtenemos la conexion
+            for (int i = 0; i < unicos.size(); i += TAMANO_BLOQUE) {
+                List<Integer> bloque = unicos.subList(i, Math.min(i + TAMANO_BLOQUE, unicos.size()));
+                String sql = sqlBase + " (" + String.join(", ", Collections.nCopies(bloque.size(), "?")) + ")";
+                pstmt = conn.prepareStatement(sql);
+                for (int j = 0; j < bloque.size(); j++) {
+                    pstmt.setInt(j + 1, bloque.get(j));
+                }
+                LogsError.info(origen, "Ejecutando consulta por lote: " + sqlBase + " (" + bloque.size() + " IDs)");
+                rs = pstmt.executeQuery(); // Ejecutamos la consulta
+                while (rs.next()) {
+                    T objeto = mapeador.mapear(rs);
+                    resultado.put(idDe.applyAsInt(objeto), objeto);
+                }
+                ConexionBD.close(rs);
+                ConexionBD.close(pstmt);
+                rs = null;
+                pstmt = null;
+            }
+        } catch (SQLException ex) {
+            LogsError.error(origen, "Error en consulta por lote: " + ex.getMessage(), ex);
+            throw ex; // Dejamos que el error suba
+        } finally {
+            ConexionBD.close(rs); // Cerramos el ResultSet
+            ConexionBD.close(pstmt); // Cerramos el PreparedStatement
+            ConexionBD.close(conn); // Devolvemos la conexion al pool
+        }
+        return resultado;
+    }
+}
@@ -0,0 +1,120 @@
+package bibliotecaudb.dao;
+
+import bibliotecaudb.conexion.ConexionBD;
+import bibliotecaudb.conexion.LogsError;
+import bibliotecaudb.conexion.UnidadTrabajo;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.function.ObjIntConsumer;
+
+/**
+ * Inserta una lista de filas con addBatch/executeBatch y recupera los IDs generados (lo usan los insertarLote de los DAOs).
+ * Con rewriteBatchedStatements (ver PoolConexiones) cada bloque de TAMANO_LOTE filas viaja como un solo INSERT de
+ * varias filas. Los IDs se asignan a cada objeto y se devuelven en el mismo orden.
+ * Dentro de una UnidadTrabajo se usa su transaccion; fuera de ella se insertan todas las filas o ninguna.
+ */
+public final class InsertadorPorLotes {
+
+    // Filas por executeBatch (el driver las manda como un solo INSERT)
+    public static final int TAMANO_LOTE = 500;
+
+    /** Pone los parametros del INSERT para una fila. */
+    @FunctionalInterface
+    public interface LlenadorFila<T> {
+        void llenar(PreparedStatement pstmt, T fila) throws SQLException;
+    }
+
+    /** Trabajo extra sobre la misma conexion despues de insertar cada bloque (por ejemplo actualizar otra tabla). */
+    @FunctionalInterface
+    public interface AccionBloque<T> {
+        void ejecutar(Connection conn, List<T> bloque) throws SQLException;
+    }
+
+    private InsertadorPorLotes() {
+    }
+
+    /**
+     * @param origen Clase que hace la insercion (para el log).
+     * @param nombre Que se inserta, en plural (para el log: "ejemplares", "prestamos"...).
+     * @param sqlInsert INSERT con un parametro por columna.
+     * @param filas Los objetos a insertar.
+     * @param llenador Como poner los parametros de cada fila.
+     * @param asignarId Le pone a cada objeto el ID que le genero la BD.
+     * @param despuesDeBloque Se ejecuta despues de cada bloque, dentro de la misma transaccion; puede ser null.
+     * @return Los IDs generados, en el orden de la lista.
+     * @throws SQLException Si falla algun bloque (fuera de una UnidadTrabajo no queda ninguna fila insertada).
+     */
+    public static <T> int[] insertar(Class<?> origen, String nombre, String sqlInsert, List<T> filas,
+            LlenadorFila<T> llenador, ObjIntConsumer<T> asignarId, AccionBloque<T> despuesDeBloque) throws SQLException {
+        int[] ids = new int[filas.size()];
+        if (filas.isEmpty()) {
+            return ids;
+        }
+        Connection conn = null; // Variable para la conexion
+        PreparedStatement pstmt = null; // Variable para la consulta SQL
+        ResultSet generatedKeys = null; // Para obtener los IDs generados
+        boolean transaccionPropia = false; // true si manejamos nosotros la transaccion
+        try {
+            conn = ConexionBD.getConexion(); // Obtenemos la conexion
+            if (UnidadTrabajo.actual() == null && conn.getAutoCommit()) {
+                conn.setAutoCommit(false);
+                transaccionPropia = true;
+            }
+            pstmt = conn.prepareStatement(sqlInsert, Statement.RETURN_GENERATED_KEYS);
+            LogsError.info(origen, "Insertando " + filas.size() + " " + nombre + " en lotes de " + TAMANO_LOTE + ": " + sqlInsert);
+            int siguienteId = 0; // Posicion del proximo ID por leer
+            for (int i = 0; i < filas.size(); i++) {
+                llenador.llenar(pstmt, filas.get(i));
+                pstmt.addBatch();
+                if ((i + 1) % TAMANO_LOTE == 0 || i == filas.size() - 1) {
+                    pstmt.executeBatch();
+                    generatedKeys = pstmt.getGeneratedKeys(); // Un ID por fila del lote, en el orden en que se agregaron
+                    while (generatedKeys.next() && siguienteId <= i) {
+                        ids[siguienteId] = generatedKeys.getInt(1);
+                        asignarId.accept(filas.get(siguienteId), ids[siguienteId]);
+                        siguienteId++;
+                    }
+                    ConexionBD.close(generatedKeys);
+                    generatedKeys = null;
+                    if (despuesDeBloque != null) {
+                        despuesDeBloque.ejecutar(conn, filas.subList(i - i % TAMANO_LOTE, i + 1));
+                    }
+                }
+            }
+            if (siguienteId != filas.size()) {
+                throw new SQLException("Se esperaban " + filas.size() + " IDs generados y se recibieron " + siguienteId + ".");
+            }
+            if (transaccionPropia) {
+                conn.commit();
+            }
+            LogsError.info(origen, filas.size() + " " + nombre + " insertados. IDs " + ids[0] + " a " + ids[ids.length - 1]);
+        } catch (SQLException ex) {
+            LogsError.error(origen, "Error al insertar " + nombre + " en lote: " + ex.getMessage(), ex);
+            if (transaccionPropia) {
+                try {
+                    conn.rollback(); // No queda ninguna fila del lote a medias
+                } catch (SQLException exRollback) {
+                    LogsError.error(origen, "Error durante el rollback del lote de " + nombre + ".", exRollback);
+                }
+            }
+            throw ex; // Dejamos que el error suba
+        } finally {
+            ConexionBD.close(generatedKeys); // Cerramos el ResultSet
+            ConexionBD.close(pstmt); // Cerramos el PreparedStatement
+            if (transaccionPropia) {
+                try {
+                    conn.setAutoCommit(true); // Dejamos la conexion como estaba
+                } catch (SQLException ex) {
+                    LogsError.error(origen, "Error al restaurar auto-commit.", ex);
+                }
+            }
+            ConexionBD.close(conn); // Devolvemos la conexion al pool
+        }
+        return ids;
+    }
+}
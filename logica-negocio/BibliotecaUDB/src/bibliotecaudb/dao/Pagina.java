@@ -0,0 +1,143 @@
+package bibliotecaudb.dao;
+
+import bibliotecaudb.conexion.ConexionBD;
+import bibliotecaudb.conexion.LogsError;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Una pagina de un listado, con el token para pedir la siguiente.
+ *
+ * Los listados se paginan por clave (keyset) y no con OFFSET: el token guarda las columnas del
+ * ORDER BY (mas el id para desempatar) de la ultima fila, y la siguiente pagina empieza con
+ * "WHERE (columna, id) > (?, ?)". Asi cada pagina lee solo sus filas desde el indice, sin importar
+ * cuantas paginas van antes, y no se repiten ni se saltan filas si alguien inserta mientras tanto.
+ *
+ * @param <T> Tipo de los elementos.
+ */
+public class Pagina<T> {
+
+    public static final int TAMANO_MAXIMO = 1000; // Filas por pagina como maximo
+    private static final String SEPARADOR = "\u001F"; // Entre los valores del token (no aparece en los datos)
+
+    /** Convierte los valores del token (como texto) en los parametros de la consulta, con su tipo. */
+    @FunctionalInterface
+    public interface LectorClave {
+        Object[] leer(String[] valores);
+    }
+
+    private final List<T> elementos;
+    private final String tokenSiguiente; // null si es la ultima pagina
+
+    public Pagina(List<T> elementos, String tokenSiguiente) {
+        this.elementos = Collections.unmodifiableList(elementos);
+        this.tokenSiguiente = tokenSiguiente;
+    }
+
+    // Getters
+    public List<T> getElementos() {
+        return elementos;
+    }
+
+    public String getTokenSiguiente() {
+        return tokenSiguiente;
+    }
+
+    /**
+     * @return true si hay otra pagina despues de esta.
+     */
+    public boolean hayMas() {
+        return tokenSiguiente != null;
+    }
+
+    /**
+     * Ejecuta la consulta de una pagina. Se piden tamano + 1 filas: la extra solo dice si hay mas.
+     * Pensado para implementar obtenerPagina en los DAOs.
+     * @param origen Clase que hace la consulta (para el log).
+     * @param sqlPrimera SQL de la primera pagina; su unico parametro es el LIMIT.
+     * @param sqlSiguiente SQL de las demas; primero van los parametros de la clave y al final el LIMIT.
+     * @param token Token de la pagina anterior, o null para la primera.
+     * @param tamano Filas por pagina (1 a TAMANO_MAXIMO).
+     * @param lectorClave Como convertir los valores del token en parametros.
+     * @param mapeador Como convertir cada fila.
+     * @param claveDe Los valores de la clave de un objeto ya mapeado (mismo orden que en sqlSiguiente).
+     * @return La pagina.
+     * @throws SQLException Si falla la consulta.
+     * @throws IllegalArgumentException Si el tamano o el token no son validos.
+     */
+    public static <T> Pagina<T> consultar(Class<?> origen, String sqlPrimera, String sqlSiguiente, String token, int tamano,
+            LectorClave lectorClave, CargadorPorLotes.MapeadorFila<T> mapeador, Function<T, Object[]> claveDe) throws SQLException {
+        if (tamano <= 0 || tamano > TAMANO_MAXIMO) {
+            throw new IllegalArgumentException("El tamano de pagina debe estar entre 1 y " + TAMANO_MAXIMO + ".");
+        }
+        Object[] desde = token != null ? leerToken(token, lectorClave) : null;
+        String sql = desde != null ? sqlSiguiente : sqlPrimera;
+
+        Connection conn = null; // Variable para la conexion
+        PreparedStatement pstmt = null; // Variable para la consulta
+        ResultSet rs = null; // Para los resultados
+        List<T> elementos = new ArrayList<>(tamano + 1);
+        try {
+            conn = ConexionBD.getConexion(); // Obtenemos la conexion
+            pstmt = conn.prepareStatement(sql);
+            int parametro = 1;
+            if (desde != null) {
+                for (Object valor : desde) {
+                    pstmt.setObject(parametro++, valor);
+                }
+            }
+            pstmt.setInt(parametro, tamano + 1);
+            LogsError.info(origen, "Ejecutando consulta de pagina: " + sql + " (" + tamano + " filas)");
+            rs = pstmt.executeQuery(); // Ejecutamos la consulta
+            while (rs.next()) {
+                elementos.add(mapeador.mapear(rs));
+            }
+        } catch (SQLException ex) {
+            LogsError.error(origen, "Error en consulta de pagina: " + ex.getMessage(), ex);
+            throw ex; // Dejamos que el error suba
+        } finally {
+            ConexionBD.close(rs); // Cerramos el ResultSet
+            ConexionBD.close(pstmt); // Cerramos el PreparedStatement
+            ConexionBD.close(conn); // Devolvemos la conexion al pool
+        }
+
+        String siguiente = null;
+        if (elementos.size() > tamano) { // Sobro una fila: hay otra pagina
+            elementos.remove(tamano);
+            siguiente = crearToken(claveDe.apply(elementos.get(tamano - 1)));
+        }
+        return new Pagina<>(elementos, siguiente);
+    }
+
+    /**
+     * @return Un token opaco con los valores de la clave (se guardan como texto).
+     */
+    public static String crearToken(Object... valores) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < valores.length; i++) {
+            if (i > 0) {
+                sb.append(SEPARADOR);
+            }
+            sb.append(valores[i]);
+        }
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(sb.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static Object[] leerToken(String token, LectorClave lectorClave) {
+        try {
+            String texto = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            return lectorClave.leer(texto.split(SEPARADOR, -1));
+        } catch (RuntimeException ex) { // Base64 mal formado, faltan valores o no se pueden convertir
+            throw new IllegalArgumentException("Token de pagina invalido: " + token, ex);
+        }
+    }
+}
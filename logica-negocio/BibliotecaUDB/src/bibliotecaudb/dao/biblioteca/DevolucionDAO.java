@@ -1,12 +1,22 @@
 package bibliotecaudb.dao.biblioteca;
 
+import bibliotecaudb.dao.Pagina;
 import bibliotecaudb.modelo.biblioteca.Devolucion;
+import bibliotecaudb.modelo.biblioteca.FilaHistorialDevolucion;
 import java.sql.SQLException;
 import java.util.List;
+import java.util.function.Consumer;
 
 public interface DevolucionDAO {
     boolean insertar(Devolucion devolucion) throws SQLException;
+    // Marca el prestamo como devuelto, inserta la devolucion y deja el ejemplar 'Disponible' en una sola llamada a la BD;
+    // false (sin cambiar nada) si el prestamo no existe o ya estaba devuelto
+    boolean registrar(Devolucion devolucion) throws SQLException;
+    int[] insertarLote(List<Devolucion> devoluciones) throws SQLException; // Varias en lote; devuelve los IDs generados en el mismo orden
     Devolucion obtenerPorId(int id) throws SQLException;
     List<Devolucion> obtenerPorIdPrestamo(int idPrestamo) throws SQLException; 
     List<Devolucion> obtenerTodas() throws SQLException;
+    // Todas las devoluciones como filas planas (con los datos del prestamo), leidas una por una; para exportar el historial
+    void recorrerHistorial(Consumer<FilaHistorialDevolucion> consumidor) throws SQLException;
+    Pagina<Devolucion> obtenerPagina(String token, int tamano) throws SQLException; // Las mas recientes primero, paginado por clave (token null = primera pagina)
 }
\ No newline at end of file
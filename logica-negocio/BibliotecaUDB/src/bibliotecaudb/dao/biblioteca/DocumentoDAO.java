@@ -1,14 +1,32 @@
 package bibliotecaudb.dao.biblioteca;
 
+import bibliotecaudb.dao.Pagina;
 import bibliotecaudb.modelo.biblioteca.Documento;
 import java.sql.SQLException;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
 
 public interface DocumentoDAO {
+
+    /** Modo de MATCH ... AGAINST para la busqueda de texto completo. */
+    enum ModoTextoCompleto {
+        NATURAL,  // IN NATURAL LANGUAGE MODE: cualquier palabra, ordenado por relevancia
+        BOOLEANO  // IN BOOLEAN MODE: todas las palabras, cada una como prefijo
+    }
+
     boolean insertar(Documento documento) throws SQLException;
+    int[] insertarLote(List<Documento> documentos) throws SQLException; // Varios en lote; devuelve los IDs generados en el mismo orden
     boolean actualizar(Documento documento) throws SQLException;
     boolean eliminar(int id) throws SQLException;
     Documento obtenerPorId(int id) throws SQLException;
+    Map<Integer, Documento> obtenerPorIds(Collection<Integer> ids) throws SQLException; // Varios a la vez con una consulta IN
     List<Documento> obtenerTodos() throws SQLException;
+    Pagina<Documento> obtenerPagina(String token, int tamano) throws SQLException; // Por titulo, paginado por clave (token null = primera pagina)
+    List<Documento> obtenerRango(int desplazamiento, int limite) throws SQLException; // Por titulo, con LIMIT/OFFSET (para buscarDocumentos sin termino)
+    void recorrerTodos(Consumer<Documento> consumidor) throws SQLException; // Todos, uno por uno y sin TipoDocumento (para construir indices)
     List<Documento> buscarPorTerminoGeneral(String termino) throws SQLException; // Busqueda general
+    // Busqueda con el indice FULLTEXT, ordenada por relevancia y paginada; los anios (4 digitos) del termino coinciden con el texto o con anio_publicacion
+    List<Documento> buscarPorTextoCompleto(String termino, ModoTextoCompleto modo, int desplazamiento, int limite) throws SQLException;
 }
\ No newline at end of file
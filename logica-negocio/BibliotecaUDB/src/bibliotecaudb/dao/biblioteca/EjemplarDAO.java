@@ -1,16 +1,25 @@
 package bibliotecaudb.dao.biblioteca;
 
+import bibliotecaudb.dao.Pagina;
 import bibliotecaudb.modelo.biblioteca.Ejemplar;
 import java.sql.SQLException;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 
 public interface EjemplarDAO {
     boolean insertar(Ejemplar ejemplar) throws SQLException;
+    int[] insertarLote(List<Ejemplar> ejemplares) throws SQLException; // Varios en lote; devuelve los IDs generados en el mismo orden
     boolean actualizar(Ejemplar ejemplar) throws SQLException;
     boolean actualizarEstado(int idEjemplar, String nuevoEstado) throws SQLException; // Especifico para cambiar solo estado
+    // Pasa a Prestado solo si estaba Disponible y devuelve el ejemplar (con su documento) como quedo; null si otro lo tomo (o no existe)
+    Ejemplar reservarSiDisponible(int idEjemplar) throws SQLException;
     boolean eliminar(int id) throws SQLException;
     Ejemplar obtenerPorId(int id) throws SQLException;
+    Map<Integer, Ejemplar> obtenerPorIds(Collection<Integer> ids) throws SQLException; // Varios a la vez con una consulta IN
+    Map<Integer, Ejemplar> bloquearPorIds(Collection<Integer> ids) throws SQLException; // Igual, con SELECT ... FOR UPDATE (dentro de una UnidadTrabajo)
     List<Ejemplar> obtenerTodos() throws SQLException;
+    Pagina<Ejemplar> obtenerPagina(String token, int tamano) throws SQLException; // Por documento, paginado por clave (token null = primera pagina)
     List<Ejemplar> obtenerPorIdDocumento(int idDocumento) throws SQLException;
     List<Ejemplar> obtenerDisponiblesPorIdDocumento(int idDocumento) throws SQLException;
     int contarEjemplaresPorDocumento(int idDocumento) throws SQLException;
@@ -1,21 +1,55 @@
 package bibliotecaudb.dao.biblioteca;
 
+import bibliotecaudb.dao.Pagina;
+import bibliotecaudb.modelo.biblioteca.Devolucion;
+import bibliotecaudb.modelo.biblioteca.ElegibilidadPrestamo;
+import bibliotecaudb.modelo.biblioteca.FilaHistorialPrestamo;
 import bibliotecaudb.modelo.biblioteca.Prestamo;
+import bibliotecaudb.modelo.biblioteca.ResumenMoraUsuario;
 import java.sql.SQLException;
 import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
 
 public interface PrestamoDAO {
+
+    /** Recibe los datos minimos de cada prestamo vencido, sin armar objetos Prestamo (para procesos masivos). */
+    @FunctionalInterface
+    interface VisitantePrestamoVencido {
+        void visitar(int idPrestamo, int idUsuario, long fechaLimiteEpochDay, long moraActualCentavos);
+    }
+
     boolean insertar(Prestamo prestamo) throws SQLException;
+    int[] insertarLote(List<Prestamo> prestamos) throws SQLException; // Varios en lote; devuelve los IDs generados en el mismo orden
     boolean actualizar(Prestamo prestamo) throws SQLException; // Ej. para registrar fecha_devolucion y mora
     Prestamo obtenerPorId(int id) throws SQLException;
+    Map<Integer, Prestamo> obtenerPorIds(Collection<Integer> ids) throws SQLException; // Varios a la vez con una consulta IN
+    Map<Integer, Prestamo> bloquearPorIds(Collection<Integer> ids) throws SQLException; // Solo las columnas de prestamos, con SELECT ... FOR UPDATE (dentro de una UnidadTrabajo)
     List<Prestamo> obtenerTodos() throws SQLException;
+    Pagina<Prestamo> obtenerPagina(String token, int tamano) throws SQLException; // Los mas recientes primero, paginado por clave (token null = primera pagina)
     List<Prestamo> obtenerPorIdUsuario(int idUsuario) throws SQLException;
     List<Prestamo> obtenerActivosPorIdUsuario(int idUsuario) throws SQLException; // Prestamos no devueltos
     List<Prestamo> obtenerPrestamosActivos() throws SQLException; // Todos los prestamos no devueltos
     List<Prestamo> obtenerPrestamosConMoraPendiente() throws SQLException; // Activos y fecha_limite < HOY
     List<Prestamo> obtenerPrestamosConMoraPendientePorUsuario(int idUsuario) throws SQLException;
+    // Una fila por usuario con prestamos vencidos (cantidad, fecha limite mas antigua y mora), leidas una por una sin cargar toda la lista
+    void recorrerResumenMoraPorUsuario(Consumer<ResumenMoraUsuario> consumidor) throws SQLException;
+    // Todos los prestamos como filas planas (sin Usuario ni Ejemplar), leidas una por una; para exportar el historial
+    void recorrerHistorial(Consumer<FilaHistorialPrestamo> consumidor) throws SQLException;
     int contarPrestamosActivosPorUsuario(int idUsuario) throws SQLException;
+    Map<Integer, Integer> contarPrestamosPorDocumento() throws SQLException; // Popularidad: ID documento -> cuantas veces se ha prestado
     boolean verificarUsuarioTieneMora(int idUsuario) throws SQLException;
+    // Usuario, politicas de su tipo, prestamos activos y si tiene vencidos. Bloquea la fila del usuario (FOR UPDATE) y cuenta
+    // sus prestamos con lectura bloqueante, asi que debe llamarse dentro de una UnidadTrabajo; null si no existe el usuario
+    ElegibilidadPrestamo obtenerElegibilidad(int idUsuario) throws SQLException;
     boolean registrarDevolucion(int idPrestamo, LocalDate fechaDevolucion, java.math.BigDecimal moraPagada) throws SQLException;
-}
\ No newline at end of file
+    // Lo mismo para varias devoluciones (idPrestamo, fecha y mora de cada una) con sentencias en lote; true en las que se actualizo el prestamo
+    boolean[] registrarDevolucionesEnLote(List<Devolucion> devoluciones) throws SQLException;
+
+    // Para la acumulacion de mora: recorre los prestamos activos con fecha_limite anterior a la fecha de corte
+    void recorrerPrestamosVencidos(LocalDate fechaCorte, VisitantePrestamoVencido visitante) throws SQLException;
+    // Actualiza la mora de muchos prestamos activos con sentencias en lote; devuelve cuantas filas cambiaron
+    int actualizarMoraEnLote(int[] idsPrestamo, long[] moraCentavos, int cantidad) throws SQLException;
+}
@@ -2,13 +2,16 @@ package bibliotecaudb.dao.biblioteca;
 
 import bibliotecaudb.modelo.biblioteca.TipoDocumento;
 import java.sql.SQLException;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 
 public interface TipoDocumentoDAO {
     boolean insertar(TipoDocumento tipoDocumento) throws SQLException;
     boolean actualizar(TipoDocumento tipoDocumento) throws SQLException;
     boolean eliminar(int id) throws SQLException;
     TipoDocumento obtenerPorId(int id) throws SQLException;
+    Map<Integer, TipoDocumento> obtenerPorIds(Collection<Integer> ids) throws SQLException; // Varios a la vez con una consulta IN
     TipoDocumento obtenerPorNombre(String nombreTipo) throws SQLException;
     List<TipoDocumento> obtenerTodos() throws SQLException;
 }
\ No newline at end of file
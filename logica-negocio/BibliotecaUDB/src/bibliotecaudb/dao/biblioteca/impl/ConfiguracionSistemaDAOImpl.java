@@ -4,12 +4,15 @@ import bibliotecaudb.modelo.biblioteca.ConfiguracionSistema;
 import bibliotecaudb.dao.biblioteca.ConfiguracionSistemaDAO;
 import bibliotecaudb.conexion.ConexionBD;
 import bibliotecaudb.conexion.LogsError;
+import bibliotecaudb.dao.CacheReferencia;
 
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Types;
+import java.util.ArrayList;
+import java.util.List;
 
 public class ConfiguracionSistemaDAOImpl implements ConfiguracionSistemaDAO {
 
@@ -17,8 +20,35 @@ public class ConfiguracionSistemaDAOImpl implements ConfiguracionSistemaDAO {
     private static final String SQL_SELECT = "SELECT id, maximo_ejemplares, mora_diaria FROM configuracion_sistema WHERE id = 1";
     private static final String SQL_UPDATE = "UPDATE configuracion_sistema SET maximo_ejemplares = ?, mora_diaria = ? WHERE id = 1";
 
+    // Una sola fila (id = 1) que se lee en cada prestamo y en cada calculo de mora: la tenemos en memoria.
+    // Se entregan copias porque la pantalla de configuracion modifica el objeto antes de guardarlo.
+    private static final CacheReferencia<ConfiguracionSistema> CACHE = new CacheReferencia<>("configuracion_sistema",
+            () -> new ConfiguracionSistemaDAOImpl().consultarConfiguracion(), ConfiguracionSistema::getId,
+            ConfiguracionSistemaDAOImpl::copiar);
+
+    public static CacheReferencia<ConfiguracionSistema> getCache() {
+        return CACHE;
+    }
+
+    private static ConfiguracionSistema copiar(ConfiguracionSistema original) {
+        ConfiguracionSistema config = new ConfiguracionSistema();
+        config.setId(original.getId());
+        config.setMaximoEjemplaresGlobal(original.getMaximoEjemplaresGlobal());
+        config.setMoraDiariaGlobal(original.getMoraDiariaGlobal());
+        return config;
+    }
+
     @Override
     public ConfiguracionSistema obtenerConfiguracion() throws SQLException {
+        ConfiguracionSistema config = CACHE.obtener(1); // Desde el cache
+        if (config == null) {
+            LogsError.warn(this.getClass(), "No se encontro la fila de configuracion del sistema (ID=1).");
+        }
+        return config;
+    }
+
+    // Lee la fila de configuracion de la BD (lo usa el cache para cargarse)
+    private List<ConfiguracionSistema> consultarConfiguracion() throws SQLException {
         Connection conn = null; // Variable para la conexion
         PreparedStatement pstmt = null; // Variable para la consulta
         ResultSet rs = null; // Para los resultados
@@ -34,9 +64,6 @@ public class ConfiguracionSistemaDAOImpl implements ConfiguracionSistemaDAO {
 
                 config.setMaximoEjemplaresGlobal(rs.getObject("maximo_ejemplares", Integer.class)); // Obtenemos el maximo de ejemplares
                 config.setMoraDiariaGlobal(rs.getBigDecimal("mora_diaria")); // Obtenemos la mora diaria
-            } else {
-                LogsError.warn(this.getClass(), "No se encontro la fila de configuracion del sistema (ID=1).");
-                // Si no hay configuracion, podriamos crear una por defecto o lanzar un error
             }
         } catch (SQLException ex) {
             LogsError.error(this.getClass(), "Error al obtener configuracion del sistema: " + ex.getMessage(), ex);
@@ -44,8 +71,13 @@ public class ConfiguracionSistemaDAOImpl implements ConfiguracionSistemaDAO {
         } finally {
             ConexionBD.close(rs); // Cerramos el ResultSet
             ConexionBD.close(pstmt); // Cerramos el PreparedStatement
+            ConexionBD.close(conn); // Devolvemos la conexion al pool
+        }
+        List<ConfiguracionSistema> filas = new ArrayList<>();
+        if (config != null) {
+            filas.add(config);
         }
-        return config; // Devolvemos la configuracion
+        return filas; // Cero o una fila
     }
 
     @Override
@@ -66,12 +98,14 @@ public class ConfiguracionSistemaDAOImpl implements ConfiguracionSistemaDAO {
 
             LogsError.info(this.getClass(), "Ejecutando consulta para actualizar configuracion: " + SQL_UPDATE);
             rowsAffected = pstmt.executeUpdate(); // Ejecutamos la actualizacion
+            CACHE.invalidar(); // La configuracion cambio
             LogsError.info(this.getClass(), "Configuracion del sistema actualizada. Filas afectadas: " + rowsAffected);
         } catch (SQLException ex) {
             LogsError.error(this.getClass(), "Error al actualizar configuracion del sistema: " + ex.getMessage(), ex);
             throw ex; // Dejamos que el error suba
         } finally {
             ConexionBD.close(pstmt); // Cerramos el PreparedStatement
+            ConexionBD.close(conn); // Devolvemos la conexion al pool
         }
         return rowsAffected > 0; // Devolvemos true si se actualizo algo
     }
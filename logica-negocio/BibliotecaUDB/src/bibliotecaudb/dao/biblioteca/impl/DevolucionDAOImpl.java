@@ -1,12 +1,19 @@
 package bibliotecaudb.dao.biblioteca.impl;
 
 import bibliotecaudb.modelo.biblioteca.Devolucion;
+import bibliotecaudb.modelo.biblioteca.Ejemplar;
+import bibliotecaudb.modelo.biblioteca.FilaHistorialDevolucion;
 import bibliotecaudb.modelo.biblioteca.Prestamo;
 import bibliotecaudb.dao.biblioteca.DevolucionDAO;
 import bibliotecaudb.dao.biblioteca.PrestamoDAO;
 import bibliotecaudb.conexion.ConexionBD;
 import bibliotecaudb.conexion.LogsError;
+import bibliotecaudb.conexion.UnidadTrabajo;
+import bibliotecaudb.dao.CargadorPorLotes;
+import bibliotecaudb.dao.InsertadorPorLotes;
+import bibliotecaudb.dao.Pagina;
 
+import java.sql.CallableStatement;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
@@ -14,15 +21,35 @@ import java.sql.SQLException;
 import java.sql.Statement;
 import java.sql.Date; // Para convertir la fecha de Java a fecha de SQL
 import java.sql.Types; // Para poder poner valores nulos en la BD
+import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.function.Consumer;
 
 public class DevolucionDAOImpl implements DevolucionDAO {
 
     private static final String SQL_INSERT = "INSERT INTO devoluciones (id_prestamo, fecha_devolucion, mora_pagada) VALUES (?, ?, ?)";
+    // Deja 'Disponible' el ejemplar de cada prestamo devuelto (antes lo hacia el trigger tg_update_ejemplar_estado_disponible)
+    private static final String SQL_UPDATE_EJEMPLARES_DISPONIBLES = "UPDATE ejemplares e INNER JOIN prestamos p ON p.id_ejemplar = e.id "
+            + "SET e.estado = 'Disponible' WHERE p.id IN (%s)";
+    // UPDATE de prestamos, INSERT de devoluciones y UPDATE de ejemplares en el servidor; el ultimo parametro devuelve el ID (0 si no se hizo nada)
+    private static final String SQL_CALL_REGISTRAR = "{CALL sp_registrar_devolucion(?, ?, ?, ?)}";
     private static final String SQL_SELECT_BY_ID = "SELECT id, id_prestamo, fecha_devolucion, mora_pagada FROM devoluciones WHERE id = ?";
     private static final String SQL_SELECT_BY_ID_PRESTAMO = "SELECT id, id_prestamo, fecha_devolucion, mora_pagada FROM devoluciones WHERE id_prestamo = ?";
     private static final String SQL_SELECT_ALL = "SELECT id, id_prestamo, fecha_devolucion, mora_pagada FROM devoluciones ORDER BY fecha_devolucion DESC";
+    // Paginas por clave (fecha_devolucion, id) de la mas reciente a la mas antigua; usan idx_dev_fecha
+    private static final String SQL_SELECT_PAGINA = "SELECT id, id_prestamo, fecha_devolucion, mora_pagada FROM devoluciones ORDER BY fecha_devolucion DESC, id DESC LIMIT ?";
+    private static final String SQL_SELECT_PAGINA_DESDE = "SELECT id, id_prestamo, fecha_devolucion, mora_pagada FROM devoluciones WHERE (fecha_devolucion, id) < (?, ?) ORDER BY fecha_devolucion DESC, id DESC LIMIT ?";
+    // Historial plano para exportar: cada devolucion con los datos de su prestamo, en el orden de la llave primaria
+    private static final String SQL_SELECT_HISTORIAL = "SELECT dv.id, dv.id_prestamo, p.id_usuario, u.nombre, p.id_ejemplar, d.titulo, "
+            + "p.fecha_prestamo, p.fecha_limite, dv.fecha_devolucion, dv.mora_pagada "
+            + "FROM devoluciones dv "
+            + "INNER JOIN prestamos p ON p.id = dv.id_prestamo "
+            + "INNER JOIN usuarios u ON u.id = p.id_usuario "
+            + "INNER JOIN ejemplares e ON e.id = p.id_ejemplar "
+            + "INNER JOIN documentos d ON d.id = e.id_documento "
+            + "ORDER BY dv.id";
 
     private PrestamoDAO prestamoDAO; // Objeto para acceder a los datos de los prestamos
 
@@ -43,9 +70,8 @@ public class DevolucionDAOImpl implements DevolucionDAO {
         int rowsAffected = 0; // Para saber cuantas filas se afectaron
         try {
             conn = ConexionBD.getConexion(); // Obtenemos la conexion
-            // El trigger en la BD (tg_update_ejemplar_estado_disponible) deberia cambiar el estado del ejemplar.
-            // Y el metodo registrarDevolucion en PrestamoDAO ya actualiza la tabla de prestamos.
-            // Esta clase solo se encarga de la tabla 'devoluciones'.
+            // El metodo registrarDevolucion en PrestamoDAO ya actualiza la tabla de prestamos.
+            // Aqui se inserta en 'devoluciones' y se deja disponible el ejemplar del prestamo.
             pstmt = conn.prepareStatement(SQL_INSERT, Statement.RETURN_GENERATED_KEYS);
             pstmt.setInt(1, devolucion.getIdPrestamo());
             pstmt.setDate(2, Date.valueOf(devolucion.getFechaDevolucion())); // Convertimos la fecha de Java a SQL
@@ -63,6 +89,8 @@ public class DevolucionDAOImpl implements DevolucionDAO {
                     devolucion.setId(generatedKeys.getInt(1)); // Asignamos el ID al objeto devolucion
                 }
                 LogsError.info(this.getClass(), "Devolucion insertada con ID: " + devolucion.getId());
+                marcarEjemplaresDisponibles(conn, Collections.singletonList(devolucion));
+                avisarEjemplarDisponible(devolucion);
             } else {
                 LogsError.warn(this.getClass(), "No se inserto la Devolucion.");
             }
@@ -72,10 +100,75 @@ public class DevolucionDAOImpl implements DevolucionDAO {
         } finally {
             ConexionBD.close(generatedKeys); // Cerramos el ResultSet
             ConexionBD.close(pstmt); // Cerramos el PreparedStatement
+            ConexionBD.close(conn); // Devolvemos la conexion al pool
         }
         return rowsAffected > 0; // Devolvemos true si se inserto algo
     }
 
+    @Override
+    public boolean registrar(Devolucion devolucion) throws SQLException {
+        // Este metodo registra una devolucion completa con el procedimiento sp_registrar_devolucion: en un solo viaje a la BD
+        // actualiza el prestamo (solo si sigue sin devolver), inserta la devolucion y deja disponible el ejemplar de ese prestamo.
+        Connection conn = null; // Variable para la conexion
+        CallableStatement cstmt = null; // Variable para la llamada al procedimiento
+        boolean registrada = false; // true si el procedimiento hizo los cambios
+        try {
+            conn = ConexionBD.getConexion(); // Obtenemos la conexion
+            cstmt = conn.prepareCall(SQL_CALL_REGISTRAR);
+            cstmt.setInt(1, devolucion.getIdPrestamo());
+            cstmt.setDate(2, Date.valueOf(devolucion.getFechaDevolucion())); // Convertimos la fecha de Java a SQL
+            if (devolucion.getMoraPagada() != null) {
+                cstmt.setBigDecimal(3, devolucion.getMoraPagada());
+            } else {
+                cstmt.setNull(3, Types.DECIMAL); // En prestamos.mora el procedimiento guarda 0.00
+            }
+            cstmt.registerOutParameter(4, Types.INTEGER);
+
+            LogsError.info(this.getClass(), "Ejecutando procedimiento para registrar devolucion: " + SQL_CALL_REGISTRAR + " para prestamo ID: " + devolucion.getIdPrestamo());
+            cstmt.execute();
+            int idDevolucion = cstmt.getInt(4);
+            if (idDevolucion > 0) {
+                devolucion.setId(idDevolucion); // Asignamos el ID al objeto devolucion
+                registrada = true;
+                LogsError.info(this.getClass(), "Devolucion registrada con ID: " + idDevolucion);
+                avisarEjemplarDisponible(devolucion);
+            } else {
+                LogsError.warn(this.getClass(), "No se registro la devolucion: el prestamo ID " + devolucion.getIdPrestamo() + " no existe o ya estaba devuelto.");
+            }
+        } catch (SQLException ex) {
+            LogsError.error(this.getClass(), "Error al registrar devolucion: " + ex.getMessage(), ex);
+            throw ex; // Dejamos que el error suba
+        } finally {
+            ConexionBD.close(cstmt); // Cerramos el CallableStatement
+            ConexionBD.close(conn); // Devolvemos la conexion al pool
+        }
+        return registrada;
+    }
+
+    // Deja 'Disponible' el ejemplar de los prestamos de estas devoluciones, con una sola sentencia
+    private void marcarEjemplaresDisponibles(Connection conn, List<Devolucion> devoluciones) throws SQLException {
+        PreparedStatement pstmt = null; // Variable para la consulta
+        try {
+            pstmt = conn.prepareStatement(String.format(SQL_UPDATE_EJEMPLARES_DISPONIBLES, String.join(", ", Collections.nCopies(devoluciones.size(), "?"))));
+            for (int i = 0; i < devoluciones.size(); i++) {
+                pstmt.setInt(i + 1, devoluciones.get(i).getIdPrestamo());
+            }
+            LogsError.info(this.getClass(), "Marcando como disponibles los ejemplares de " + devoluciones.size() + " prestamos devueltos");
+            pstmt.executeUpdate();
+        } finally {
+            ConexionBD.close(pstmt); // Cerramos el PreparedStatement
+        }
+    }
+
+    // La devolucion deja el ejemplar 'Disponible'; el cache de ejemplares tiene que saberlo
+    private static void avisarEjemplarDisponible(Devolucion devolucion) {
+        if (devolucion.getPrestamo() != null) {
+            EjemplarDAOImpl.getCache().modificar(devolucion.getPrestamo().getIdEjemplar(), e -> e.setEstado(Ejemplar.ESTADO_DISPONIBLE));
+        } else {
+            EjemplarDAOImpl.getCache().vaciar(); // Sin el prestamo no sabemos cual ejemplar es
+        }
+    }
+
     // Este metodo convierte los datos de un ResultSet a un objeto Devolucion
     private Devolucion mapearResultSet(ResultSet rs) throws SQLException {
         Devolucion d = new Devolucion(); // Creamos un nuevo objeto Devolucion
@@ -86,12 +179,39 @@ public class DevolucionDAOImpl implements DevolucionDAO {
         if (sqlFechaDevolucion != null) d.setFechaDevolucion(sqlFechaDevolucion.toLocalDate()); // La convertimos a fecha de Java
 
         d.setMoraPagada(rs.getBigDecimal("mora_pagada"));
+        return d; // Devolvemos la devolucion (el prestamo se carga aparte, por lote)
+    }
 
-        if (this.prestamoDAO != null) { // Si tenemos el objeto para manejar prestamos
-            Prestamo p = this.prestamoDAO.obtenerPorId(d.getIdPrestamo()); // Buscamos el prestamo asociado
-            d.setPrestamo(p); // Asignamos el objeto Prestamo completo a la devolucion
+    // Carga el Prestamo de todas las devoluciones de la lista con una sola consulta
+    private void cargarPrestamos(List<Devolucion> devoluciones) throws SQLException {
+        if (this.prestamoDAO == null || devoluciones.isEmpty()) {
+            return;
+        }
+        CargadorPorLotes<Prestamo> cargador = new CargadorPorLotes<>(prestamoDAO::obtenerPorIds);
+        for (Devolucion d : devoluciones) {
+            cargador.solicitar(d.getIdPrestamo(), d::setPrestamo);
         }
-        return d; // Devolvemos la devolucion
+        cargador.cargar();
+    }
+
+    @Override
+    public int[] insertarLote(List<Devolucion> devoluciones) throws SQLException {
+        // Este metodo inserta varias devoluciones en lote (ver InsertadorPorLotes): los IDs generados se asignan a cada
+        // devolucion y se devuelven en orden. Fuera de una UnidadTrabajo se insertan todas o ninguna.
+        // Despues de cada INSERT de varias filas, un UPDATE deja disponibles los ejemplares de esas devoluciones.
+        int[] ids = InsertadorPorLotes.insertar(this.getClass(), "devoluciones", SQL_INSERT, devoluciones, (pstmt, devolucion) -> {
+            pstmt.setInt(1, devolucion.getIdPrestamo());
+            pstmt.setDate(2, Date.valueOf(devolucion.getFechaDevolucion()));
+            if (devolucion.getMoraPagada() != null) {
+                pstmt.setBigDecimal(3, devolucion.getMoraPagada());
+            } else {
+                pstmt.setNull(3, Types.DECIMAL);
+            }
+        }, Devolucion::setId, this::marcarEjemplaresDisponibles);
+        for (Devolucion devolucion : devoluciones) {
+            avisarEjemplarDisponible(devolucion);
+        }
+        return ids;
     }
 
     @Override
@@ -108,6 +228,7 @@ public class DevolucionDAOImpl implements DevolucionDAO {
             rs = pstmt.executeQuery(); // Ejecutamos la consulta
             if (rs.next()) { // Si hay resultado
                 devolucion = mapearResultSet(rs); // Convertimos el resultado a objeto Devolucion
+                cargarPrestamos(Collections.singletonList(devolucion));
             } else {
                 LogsError.warn(this.getClass(), "No se encontro Devolucion con ID: " + id);
             }
@@ -117,6 +238,7 @@ public class DevolucionDAOImpl implements DevolucionDAO {
         } finally {
             ConexionBD.close(rs); // Cerramos el ResultSet
             ConexionBD.close(pstmt); // Cerramos el PreparedStatement
+            ConexionBD.close(conn); // Devolvemos la conexion al pool
         }
         return devolucion; // Devolvemos la devolucion o null si no se encontro
     }
@@ -136,12 +258,14 @@ public class DevolucionDAOImpl implements DevolucionDAO {
             while (rs.next()) { // Mientras haya resultados
                 devoluciones.add(mapearResultSet(rs)); // Agregamos la devolucion a la lista
             }
+            cargarPrestamos(devoluciones);
         } catch (SQLException ex) {
             LogsError.error(this.getClass(), "Error al obtener devoluciones por idPrestamo: " + ex.getMessage(), ex);
             throw ex; // Dejamos que el error suba
         } finally {
             ConexionBD.close(rs); // Cerramos el ResultSet
             ConexionBD.close(pstmt); // Cerramos el PreparedStatement
+            ConexionBD.close(conn); // Devolvemos la conexion al pool
         }
         return devoluciones; // Devolvemos la lista de devoluciones
     }
@@ -160,13 +284,52 @@ public class DevolucionDAOImpl implements DevolucionDAO {
             while (rs.next()) { // Mientras haya resultados
                 devoluciones.add(mapearResultSet(rs)); // Agregamos la devolucion a la lista
             }
+            cargarPrestamos(devoluciones);
         } catch (SQLException ex) {
             LogsError.error(this.getClass(), "Error al obtener todas las devoluciones: " + ex.getMessage(), ex);
             throw ex; // Dejamos que el error suba
         } finally {
             ConexionBD.close(rs); // Cerramos el ResultSet
             ConexionBD.close(pstmt); // Cerramos el PreparedStatement
+            ConexionBD.close(conn); // Devolvemos la conexion al pool
         }
         return devoluciones; // Devolvemos la lista de todas las devoluciones
     }
+
+    @Override
+    public void recorrerHistorial(Consumer<FilaHistorialDevolucion> consumidor) throws SQLException {
+        // Este metodo entrega cada devolucion como una fila plana, leyendo el ResultSet de uno en uno (streaming del driver de MySQL).
+        // Mientras se recorre, el consumidor no debe hacer otras consultas en este hilo.
+        Connection conn = null; // Variable para la conexion
+        PreparedStatement pstmt = null; // Variable para la consulta
+        ResultSet rs = null; // Para los resultados
+        try {
+            conn = ConexionBD.getConexion(); // Obtenemos la conexion
+            pstmt = conn.prepareStatement(SQL_SELECT_HISTORIAL, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            pstmt.setFetchSize(Integer.MIN_VALUE); // Con MySQL, esto hace que las filas lleguen de una en una
+            LogsError.info(this.getClass(), "Ejecutando consulta para recorrer el historial de devoluciones: " + SQL_SELECT_HISTORIAL);
+            rs = pstmt.executeQuery(); // Ejecutamos la consulta
+            while (rs.next()) {
+                consumidor.accept(new FilaHistorialDevolucion(rs.getInt("id"), rs.getInt("id_prestamo"), rs.getInt("id_usuario"), rs.getString("nombre"),
+                        rs.getInt("id_ejemplar"), rs.getString("titulo"), rs.getDate("fecha_prestamo").toLocalDate(),
+                        rs.getDate("fecha_limite").toLocalDate(), rs.getDate("fecha_devolucion").toLocalDate(), rs.getBigDecimal("mora_pagada")));
+            }
+        } catch (SQLException ex) {
+            LogsError.error(this.getClass(), "Error al recorrer el historial de devoluciones: " + ex.getMessage(), ex);
+            throw ex; // Dejamos que el error suba
+        } finally {
+            ConexionBD.close(rs); // Cerramos el ResultSet
+            ConexionBD.close(pstmt); // Cerramos el PreparedStatement
+            ConexionBD.close(conn); // Devolvemos la conexion al pool
+        }
+    }
+
+    @Override
+    public Pagina<Devolucion> obtenerPagina(String token, int tamano) throws SQLException {
+        // Este metodo devuelve una pagina de devoluciones (las mas recientes primero), empezando despues del token.
+        Pagina<Devolucion> pagina = Pagina.consultar(this.getClass(), SQL_SELECT_PAGINA, SQL_SELECT_PAGINA_DESDE, token, tamano,
+                v -> new Object[]{Date.valueOf(LocalDate.parse(v[0])), Integer.parseInt(v[1])}, this::mapearResultSet, d -> new Object[]{d.getFechaDevolucion(), d.getId()});
+        cargarPrestamos(pagina.getElementos());
+        return pagina;
+    }
 }
\ No newline at end of file
@@ -6,6 +6,12 @@ import bibliotecaudb.dao.biblioteca.DocumentoDAO;
 import bibliotecaudb.dao.biblioteca.TipoDocumentoDAO;
 import bibliotecaudb.conexion.ConexionBD;
 import bibliotecaudb.conexion.LogsError;
+import bibliotecaudb.conexion.UnidadTrabajo;
+import bibliotecaudb.dao.CargadorPorLotes;
+import bibliotecaudb.dao.InsertadorPorLotes;
+import bibliotecaudb.dao.Pagina;
+import bibliotecaudb.busqueda.IndiceDocumentos;
+import bibliotecaudb.busqueda.Tokenizador;
 
 import java.sql.Connection;
 import java.sql.PreparedStatement;
@@ -14,7 +20,11 @@ import java.sql.SQLException;
 import java.sql.Statement;
 import java.sql.Types;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
 
 public class DocumentoDAOImpl implements DocumentoDAO {
 
@@ -23,12 +33,24 @@ public class DocumentoDAOImpl implements DocumentoDAO {
     private static final String SQL_DELETE = "DELETE FROM documentos WHERE id = ?";
     private static final String SQL_SELECT_BY_ID = "SELECT id, titulo, autor, editorial, anio_publicacion, id_tipo_documento FROM documentos WHERE id = ?";
     private static final String SQL_SELECT_ALL = "SELECT id, titulo, autor, editorial, anio_publicacion, id_tipo_documento FROM documentos ORDER BY titulo";
+    // Paginas por clave (titulo, id); usan idx_doc_titulo
+    private static final String SQL_SELECT_PAGINA = "SELECT id, titulo, autor, editorial, anio_publicacion, id_tipo_documento FROM documentos ORDER BY titulo, id LIMIT ?";
+    private static final String SQL_SELECT_RANGO = "SELECT id, titulo, autor, editorial, anio_publicacion, id_tipo_documento FROM documentos ORDER BY titulo, id LIMIT ? OFFSET ?";
+    private static final String SQL_SELECT_PAGINA_DESDE = "SELECT id, titulo, autor, editorial, anio_publicacion, id_tipo_documento FROM documentos WHERE (titulo, id) > (?, ?) ORDER BY titulo, id LIMIT ?";
+    private static final String SQL_SELECT_PARA_INDICE = "SELECT id, titulo, autor, editorial, anio_publicacion, id_tipo_documento FROM documentos";
+    private static final String SQL_SELECT_BY_IDS = "SELECT id, titulo, autor, editorial, anio_publicacion, id_tipo_documento FROM documentos WHERE id IN";
     // Consulta para buscar documentos por diferentes terminos
     private static final String SQL_BUSCAR_POR_TERMINO_GENERAL =
         "SELECT d.id, d.titulo, d.autor, d.editorial, d.anio_publicacion, d.id_tipo_documento " +
         "FROM documentos d " +
         "WHERE d.titulo LIKE ? OR d.autor LIKE ? OR d.editorial LIKE ? OR CAST(d.anio_publicacion AS CHAR) LIKE ?";
 
+    // Piezas de la busqueda de texto completo; la consulta se arma segun el termino (con o sin palabras, con o sin anios)
+    private static final String SQL_TEXTO_COMPLETO_COLUMNAS = "SELECT id, titulo, autor, editorial, anio_publicacion, id_tipo_documento";
+    private static final String SQL_MATCH = "MATCH(titulo, autor, editorial) AGAINST (? IN %s)"; // Debe coincidir con el indice ft_documentos
+    private static final String SQL_FILTRO_ANIO = "anio_publicacion IN (%s)"; // Rango sobre idx_doc_anio
+    private static final int LARGO_MINIMO_TOKEN_FULLTEXT = 3; // innodb_ft_min_token_size por defecto
+
 
     private TipoDocumentoDAO tipoDocumentoDAO; // Objeto para acceder a los tipos de documento
 
@@ -68,6 +90,7 @@ public class DocumentoDAOImpl implements DocumentoDAO {
                     documento.setId(generatedKeys.getInt(1)); // Asignamos el nuevo ID al documento
                 }
                 LogsError.info(this.getClass(), "Documento insertado con ID: " + documento.getId()); // Mensaje de exito en el log
+                IndiceDocumentos.documentoGuardado(documento); // Mantenemos al dia el indice de busqueda
             } else {
                  LogsError.warn(this.getClass(), "No se inserto el Documento."); 
             }
@@ -77,11 +100,32 @@ public class DocumentoDAOImpl implements DocumentoDAO {
         } finally {
             ConexionBD.close(generatedKeys); // Cerramos el ResultSet
             ConexionBD.close(pstmt); // Cerramos el PreparedStatement
-            // La conexion la cerramos en otro lado, usualmente al final de la operacion completa
+            ConexionBD.close(conn); // Devolvemos la conexion al pool
         }
         return rowsAffected > 0; // Devolvemos true si se afecto alguna fila, false si no
     }
 
+    @Override
+    public int[] insertarLote(List<Documento> documentos) throws SQLException {
+        // Este metodo inserta varios documentos en lote (ver InsertadorPorLotes): los IDs generados se asignan a cada
+        // documento y se devuelven en orden. Fuera de una UnidadTrabajo se insertan todos o ninguno.
+        int[] ids = InsertadorPorLotes.insertar(this.getClass(), "documentos", SQL_INSERT, documentos, (pstmt, documento) -> {
+            pstmt.setString(1, documento.getTitulo());
+            pstmt.setString(2, documento.getAutor());
+            pstmt.setString(3, documento.getEditorial());
+            if (documento.getAnioPublicacion() != null) {
+                pstmt.setInt(4, documento.getAnioPublicacion());
+            } else {
+                pstmt.setNull(4, Types.INTEGER); // Si no hay anio, guardamos nulo
+            }
+            pstmt.setInt(5, documento.getIdTipoDocumento());
+        }, Documento::setId, null);
+        for (Documento documento : documentos) {
+            IndiceDocumentos.documentoGuardado(documento); // Mantenemos al dia el indice de busqueda (al confirmar)
+        }
+        return ids;
+    }
+
     @Override
     public boolean actualizar(Documento documento) throws SQLException {
         Connection conn = null; // Variable para la conexion
@@ -105,6 +149,8 @@ public class DocumentoDAOImpl implements DocumentoDAO {
             rowsAffected = pstmt.executeUpdate(); // Ejecutamos la actualizacion
              if (rowsAffected > 0) {
                 LogsError.info(this.getClass(), "Documento actualizado. Filas afectadas: " + rowsAffected);
+                IndiceDocumentos.documentoGuardado(documento); // Mantenemos al dia el indice de busqueda
+                EjemplarDAOImpl.getCache().vaciar(); // Los ejemplares en cache llevan una copia del documento
             } else {
                 LogsError.warn(this.getClass(), "No se encontro Documento para actualizar con ID: " + documento.getId() + " o los valores son los mismos.");
             }
@@ -113,6 +159,7 @@ public class DocumentoDAOImpl implements DocumentoDAO {
             throw ex; // Relanzamos la excepcion
         } finally {
             ConexionBD.close(pstmt); // Cerramos el PreparedStatement
+            ConexionBD.close(conn); // Devolvemos la conexion al pool
         }
         return rowsAffected > 0; // Retornamos true si se actualizo algo
     }
@@ -131,6 +178,8 @@ public class DocumentoDAOImpl implements DocumentoDAO {
             rowsAffected = pstmt.executeUpdate(); // Ejecutamos la eliminacion
             if (rowsAffected > 0) {
                 LogsError.info(this.getClass(), "Documento eliminado. Filas afectadas: " + rowsAffected);
+                IndiceDocumentos.documentoEliminado(id); // Mantenemos al dia el indice de busqueda
+                EjemplarDAOImpl.getCache().vaciar(); // Sus ejemplares se borraron en cascada
             } else {
                  LogsError.warn(this.getClass(), "No se encontro Documento para eliminar con ID: " + id);
             }
@@ -140,6 +189,7 @@ public class DocumentoDAOImpl implements DocumentoDAO {
             throw ex; // Relanzamos la excepcion
         } finally {
             ConexionBD.close(pstmt); // Cerramos el PreparedStatement
+            ConexionBD.close(conn); // Devolvemos la conexion al pool
         }
         return rowsAffected > 0; // Retornamos true si se elimino algo
     }
@@ -160,12 +210,19 @@ public class DocumentoDAOImpl implements DocumentoDAO {
         }
 
         doc.setIdTipoDocumento(rs.getInt("id_tipo_documento"));
+        return doc; // Devolvemos el documento con sus datos (el tipo se carga aparte, por lote)
+    }
 
-        if (this.tipoDocumentoDAO != null) { // Si tenemos el objeto para acceder a tipos de documento
-            TipoDocumento tipoDoc = tipoDocumentoDAO.obtenerPorId(doc.getIdTipoDocumento()); // Buscamos el tipo de documento
-            doc.setTipoDocumento(tipoDoc); // Asignamos el objeto TipoDocumento completo
+    // Carga el TipoDocumento de todos los documentos de la lista con una sola consulta
+    private void cargarTiposDocumento(List<Documento> documentos) throws SQLException {
+        if (this.tipoDocumentoDAO == null || documentos.isEmpty()) {
+            return;
         }
-        return doc; // Devolvemos el documento con sus datos
+        CargadorPorLotes<TipoDocumento> cargador = new CargadorPorLotes<>(tipoDocumentoDAO::obtenerPorIds);
+        for (Documento doc : documentos) {
+            cargador.solicitar(doc.getIdTipoDocumento(), doc::setTipoDocumento);
+        }
+        cargador.cargar();
     }
 
     @Override
@@ -182,6 +239,7 @@ public class DocumentoDAOImpl implements DocumentoDAO {
             rs = pstmt.executeQuery(); // Ejecutamos la consulta
             if (rs.next()) { // Si encontramos un resultado
                 documento = mapearResultSet(rs); // Convertimos el resultado a un objeto Documento
+                cargarTiposDocumento(Collections.singletonList(documento));
             } else {
                 LogsError.warn(this.getClass(), "No se encontro Documento con ID: " + id);
             }
@@ -191,10 +249,19 @@ public class DocumentoDAOImpl implements DocumentoDAO {
         } finally {
             ConexionBD.close(rs); // Cerramos el ResultSet
             ConexionBD.close(pstmt); // Cerramos el PreparedStatement
+            ConexionBD.close(conn); // Devolvemos la conexion al pool
         }
         return documento; // Devolvemos el documento encontrado o null si no se encontro
     }
 
+    @Override
+    public Map<Integer, Documento> obtenerPorIds(Collection<Integer> ids) throws SQLException {
+        // Este metodo obtiene varios documentos (con su tipo) usando consultas IN en vez de una por ID.
+        Map<Integer, Documento> documentos = CargadorPorLotes.consultarPorIds(this.getClass(), SQL_SELECT_BY_IDS, ids, this::mapearResultSet, Documento::getId);
+        cargarTiposDocumento(new ArrayList<>(documentos.values()));
+        return documentos;
+    }
+
     @Override
     public List<Documento> obtenerTodos() throws SQLException {
         Connection conn = null; // Variable para la conexion
@@ -209,16 +276,177 @@ public class DocumentoDAOImpl implements DocumentoDAO {
             while (rs.next()) { // Mientras haya resultados
                 documentos.add(mapearResultSet(rs)); // Agregamos el documento a la lista
             }
+            cargarTiposDocumento(documentos);
         } catch (SQLException ex) {
             LogsError.error(this.getClass(), "Error al obtener todos los documentos: " + ex.getMessage(), ex);
             throw ex; // Relanzamos la excepcion
         } finally {
             ConexionBD.close(rs); // Cerramos el ResultSet
             ConexionBD.close(pstmt); // Cerramos el PreparedStatement
+            ConexionBD.close(conn); // Devolvemos la conexion al pool
         }
         return documentos; // Devolvemos la lista de documentos
     }
 
+    @Override
+    public Pagina<Documento> obtenerPagina(String token, int tamano) throws SQLException {
+        // Este metodo devuelve una pagina de documentos ordenados por titulo, empezando despues del token.
+        Pagina<Documento> pagina = Pagina.consultar(this.getClass(), SQL_SELECT_PAGINA, SQL_SELECT_PAGINA_DESDE, token, tamano,
+                v -> new Object[]{v[0], Integer.parseInt(v[1])}, this::mapearResultSet, doc -> new Object[]{doc.getTitulo(), doc.getId()});
+        cargarTiposDocumento(pagina.getElementos());
+        return pagina;
+    }
+
+    @Override
+    public List<Documento> obtenerRango(int desplazamiento, int limite) throws SQLException {
+        // Este metodo devuelve una pagina de documentos ordenados por titulo (para listar el catalogo sin termino de busqueda).
+        Connection conn = null; // Variable para la conexion
+        PreparedStatement pstmt = null; // Variable para la consulta
+        ResultSet rs = null; // Variable para los resultados
+        List<Documento> documentos = new ArrayList<>(); // Lista para la pagina
+        try {
+            conn = ConexionBD.getConexion(); // Obtenemos la conexion
+            pstmt = conn.prepareStatement(SQL_SELECT_RANGO);
+            pstmt.setInt(1, limite);
+            pstmt.setInt(2, desplazamiento);
+            LogsError.info(this.getClass(), "Ejecutando consulta de documentos desde " + desplazamiento + " (hasta " + limite + ")");
+            rs = pstmt.executeQuery(); // Ejecutamos la consulta
+            while (rs.next()) { // Mientras haya resultados
+                documentos.add(mapearResultSet(rs)); // Agregamos el documento a la lista
+            }
+            cargarTiposDocumento(documentos);
+        } catch (SQLException ex) {
+            LogsError.error(this.getClass(), "Error al obtener la pagina de documentos: " + ex.getMessage(), ex);
+            throw ex; // Relanzamos la excepcion
+        } finally {
+            ConexionBD.close(rs); // Cerramos el ResultSet
+            ConexionBD.close(pstmt); // Cerramos el PreparedStatement
+            ConexionBD.close(conn); // Devolvemos la conexion al pool
+        }
+        return documentos; // Devolvemos la pagina
+    }
+
+    @Override
+    public List<Documento> buscarPorTextoCompleto(String termino, ModoTextoCompleto modo, int desplazamiento, int limite) throws SQLException {
+        // Este metodo busca con el indice FULLTEXT de MySQL y devuelve una pagina ordenada por relevancia.
+        // Una palabra de 4 digitos puede ser parte del texto ("1984") o el anio de publicacion, asi que se busca de las dos formas:
+        // todas las palabras en el MATCH, UNION las demas palabras en el MATCH con el anio filtrado sobre idx_doc_anio.
+        // Cada parte usa su indice (un OR en el WHERE haria que MySQL recorra toda la tabla).
+        List<String> todas = new ArrayList<>(); // Van al MATCH principal, anios incluidos
+        List<String> palabras = new ArrayList<>(); // Sin los anios, para la parte filtrada por anio
+        List<Integer> anios = new ArrayList<>();
+        for (String token : Tokenizador.tokens(termino)) {
+            todas.add(token);
+            if (token.length() == 4 && token.chars().allMatch(Character::isDigit)) {
+                anios.add(Integer.parseInt(token));
+            } else {
+                palabras.add(token);
+            }
+        }
+        List<Documento> documentos = new ArrayList<>(); // Lista para los documentos encontrados
+        if (todas.isEmpty()) {
+            return documentos; // No hay nada que buscar
+        }
+
+        // Las dos partes calculan la relevancia con el mismo MATCH, asi un documento que sale en ambas queda igual y UNION lo deja una vez
+        String match = String.format(SQL_MATCH, modo == ModoTextoCompleto.BOOLEANO ? "BOOLEAN MODE" : "NATURAL LANGUAGE MODE");
+        String textoMatch = armarTextoMatch(todas, modo);
+        String textoPalabras = palabras.isEmpty() ? null : armarTextoMatch(palabras, modo);
+        StringBuilder sql = new StringBuilder(SQL_TEXTO_COMPLETO_COLUMNAS);
+        sql.append(", ").append(match).append(" AS relevancia FROM documentos WHERE ").append(match);
+        if (!anios.isEmpty()) {
+            sql.append(" UNION ").append(SQL_TEXTO_COMPLETO_COLUMNAS).append(", ").append(match).append(" AS relevancia FROM documentos WHERE ");
+            if (textoPalabras != null) {
+                sql.append(match).append(" AND ");
+            }
+            sql.append(String.format(SQL_FILTRO_ANIO, String.join(", ", Collections.nCopies(anios.size(), "?"))));
+        }
+        sql.append(" ORDER BY relevancia DESC, id LIMIT ? OFFSET ?");
+
+        Connection conn = null; // Variable para la conexion
+        PreparedStatement pstmt = null; // Variable para la consulta preparada
+        ResultSet rs = null; // Variable para los resultados
+        try {
+            conn = ConexionBD.getConexion(); // Obtenemos la conexion
+            pstmt = conn.prepareStatement(sql.toString());
+            int i = 1;
+            pstmt.setString(i++, textoMatch); // Para la columna de relevancia
+            pstmt.setString(i++, textoMatch); // Para el WHERE
+            if (!anios.isEmpty()) {
+                pstmt.setString(i++, textoMatch); // Relevancia de la parte por anio
+                if (textoPalabras != null) {
+                    pstmt.setString(i++, textoPalabras); // Las demas palabras
+                }
+                for (Integer anio : anios) {
+                    pstmt.setInt(i++, anio);
+                }
+            }
+            pstmt.setInt(i++, limite);
+            pstmt.setInt(i, desplazamiento);
+
+            LogsError.info(this.getClass(), "Ejecutando busqueda de texto completo (" + modo + ") con termino: " + termino);
+            rs = pstmt.executeQuery(); // Ejecutamos la busqueda
+            while (rs.next()) { // Mientras haya resultados
+                documentos.add(mapearResultSet(rs)); // Agregamos el documento a la lista
+            }
+            cargarTiposDocumento(documentos);
+        } catch (SQLException ex) {
+            LogsError.error(this.getClass(), "Error en la busqueda de texto completo: " + ex.getMessage(), ex);
+            throw ex; // Relanzamos la excepcion
+        } finally {
+            ConexionBD.close(rs); // Cerramos el ResultSet
+            ConexionBD.close(pstmt); // Cerramos el PreparedStatement
+            ConexionBD.close(conn); // Devolvemos la conexion al pool
+        }
+        return documentos; // Devolvemos la pagina de documentos
+    }
+
+    // Arma el texto para AGAINST. En modo booleano cada palabra es obligatoria (+) y se busca como prefijo (*),
+    // salvo las muy cortas, que MySQL no indexa y dejarian la busqueda sin resultados.
+    private static String armarTextoMatch(List<String> palabras, ModoTextoCompleto modo) {
+        if (modo != ModoTextoCompleto.BOOLEANO) {
+            return String.join(" ", palabras);
+        }
+        StringBuilder sb = new StringBuilder();
+        for (String palabra : palabras) { // Los tokens solo tienen letras y digitos, asi que no traen operadores
+            if (sb.length() > 0) {
+                sb.append(' ');
+            }
+            if (palabra.length() >= LARGO_MINIMO_TOKEN_FULLTEXT) {
+                sb.append('+').append(palabra).append('*');
+            } else {
+                sb.append(palabra);
+            }
+        }
+        return sb.toString();
+    }
+
+    @Override
+    public void recorrerTodos(Consumer<Documento> consumidor) throws SQLException {
+        // Este metodo pasa todos los documentos al consumidor, leyendolos de uno en uno (streaming del driver de MySQL).
+        // No carga el TipoDocumento, y el consumidor no debe hacer consultas mientras se recorre.
+        Connection conn = null; // Variable para la conexion
+        PreparedStatement pstmt = null; // Variable para la consulta
+        ResultSet rs = null; // Variable para los resultados
+        try {
+            conn = ConexionBD.getConexion(); // Obtenemos la conexion
+            pstmt = conn.prepareStatement(SQL_SELECT_PARA_INDICE, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            pstmt.setFetchSize(Integer.MIN_VALUE); // Con MySQL, esto hace que las filas lleguen de una en una
+            LogsError.info(this.getClass(), "Ejecutando consulta para recorrer todos los documentos: " + SQL_SELECT_PARA_INDICE);
+            rs = pstmt.executeQuery(); // Ejecutamos la consulta
+            while (rs.next()) { // Mientras haya resultados
+                consumidor.accept(mapearResultSet(rs));
+            }
+        } catch (SQLException ex) {
+            LogsError.error(this.getClass(), "Error al recorrer los documentos: " + ex.getMessage(), ex);
+            throw ex; // Relanzamos la excepcion
+        } finally {
+            ConexionBD.close(rs); // Cerramos el ResultSet
+            ConexionBD.close(pstmt); // Cerramos el PreparedStatement
+            ConexionBD.close(conn); // Devolvemos la conexion al pool
+        }
+    }
+
     @Override
     public List<Documento> buscarPorTerminoGeneral(String termino) throws SQLException {
         Connection conn = null; // Variable para la conexion
@@ -240,12 +468,14 @@ public class DocumentoDAOImpl implements DocumentoDAO {
             while (rs.next()) { // Mientras haya resultados
                 documentos.add(mapearResultSet(rs)); // Agregamos el documento a la lista
             }
+            cargarTiposDocumento(documentos);
         } catch (SQLException ex) {
             LogsError.error(this.getClass(), "Error al buscar documentos por termino general: " + ex.getMessage(), ex);
             throw ex; // Relanzamos la excepcion
         } finally {
             ConexionBD.close(rs); // Cerramos el ResultSet
             ConexionBD.close(pstmt); // Cerramos el PreparedStatement
+            ConexionBD.close(conn); // Devolvemos la conexion al pool
         }
         return documentos; // Devolvemos la lista de documentos encontrados
     }
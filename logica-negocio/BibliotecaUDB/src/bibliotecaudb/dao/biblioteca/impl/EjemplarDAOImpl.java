@@ -2,10 +2,16 @@ package bibliotecaudb.dao.biblioteca.impl;
 
 import bibliotecaudb.modelo.biblioteca.Ejemplar;
 import bibliotecaudb.modelo.biblioteca.Documento;
+import bibliotecaudb.modelo.biblioteca.TipoDocumento;
 import bibliotecaudb.dao.biblioteca.EjemplarDAO;
 import bibliotecaudb.dao.biblioteca.DocumentoDAO;
 import bibliotecaudb.conexion.ConexionBD;
 import bibliotecaudb.conexion.LogsError;
+import bibliotecaudb.conexion.UnidadTrabajo;
+import bibliotecaudb.dao.CacheEntidades;
+import bibliotecaudb.dao.CargadorPorLotes;
+import bibliotecaudb.dao.InsertadorPorLotes;
+import bibliotecaudb.dao.Pagina;
 
 import java.sql.Connection;
 import java.sql.PreparedStatement;
@@ -13,22 +19,50 @@ import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 
 public class EjemplarDAOImpl implements EjemplarDAO {
 
     private static final String SQL_INSERT = "INSERT INTO ejemplares (id_documento, ubicacion, estado) VALUES (?, ?, ?)";
     private static final String SQL_UPDATE = "UPDATE ejemplares SET id_documento = ?, ubicacion = ?, estado = ? WHERE id = ?";
     private static final String SQL_UPDATE_ESTADO = "UPDATE ejemplares SET estado = ? WHERE id = ?";
+    // Lectura y cambio en una sola sentencia: si dos prestamos piden el mismo ejemplar, solo a uno le afecta una fila
+    private static final String SQL_RESERVAR = "UPDATE ejemplares SET estado = ? WHERE id = ? AND estado = ?";
+    // El ejemplar con su documento en una consulta, para armar el resultado de una reserva sin otra lectura
+    private static final String SQL_SELECT_CON_DOCUMENTO_BY_ID = "SELECT e.id, e.id_documento, e.ubicacion, e.estado, "
+            + "d.titulo AS d_titulo, d.autor AS d_autor, d.editorial AS d_editorial, d.anio_publicacion AS d_anio_publicacion, "
+            + "d.id_tipo_documento AS d_id_tipo_documento, td.tipo AS td_tipo "
+            + "FROM ejemplares e "
+            + "LEFT JOIN documentos d ON d.id = e.id_documento "
+            + "LEFT JOIN tipo_documento td ON td.id = d.id_tipo_documento "
+            + "WHERE e.id = ?";
     private static final String SQL_DELETE = "DELETE FROM ejemplares WHERE id = ?";
     private static final String SQL_SELECT_BY_ID = "SELECT id, id_documento, ubicacion, estado FROM ejemplares WHERE id = ?";
     private static final String SQL_SELECT_ALL = "SELECT id, id_documento, ubicacion, estado FROM ejemplares ORDER BY id_documento, id";
+    // Paginas por clave (id_documento, id); usan el indice id_documento
+    private static final String SQL_SELECT_PAGINA = "SELECT id, id_documento, ubicacion, estado FROM ejemplares ORDER BY id_documento, id LIMIT ?";
+    private static final String SQL_SELECT_PAGINA_DESDE = "SELECT id, id_documento, ubicacion, estado FROM ejemplares WHERE (id_documento, id) > (?, ?) ORDER BY id_documento, id LIMIT ?";
+    private static final String SQL_SELECT_BY_IDS = "SELECT id, id_documento, ubicacion, estado FROM ejemplares WHERE id IN";
+    // Se bloquean en orden de ID para que dos prestamos de varios ejemplares no se esperen en cruz (deadlock)
+    private static final String SQL_SELECT_BY_IDS_FOR_UPDATE = "SELECT id, id_documento, ubicacion, estado FROM ejemplares WHERE id IN (%s) ORDER BY id FOR UPDATE";
     private static final String SQL_SELECT_BY_ID_DOCUMENTO = "SELECT id, id_documento, ubicacion, estado FROM ejemplares WHERE id_documento = ? ORDER BY id";
     private static final String SQL_SELECT_DISPONIBLES_BY_ID_DOCUMENTO = "SELECT id, id_documento, ubicacion, estado FROM ejemplares WHERE id_documento = ? AND estado = ? ORDER BY id";
     private static final String SQL_COUNT_BY_ID_DOCUMENTO = "SELECT COUNT(*) FROM ejemplares WHERE id_documento = ?";
     private static final String SQL_COUNT_DISPONIBLES_BY_ID_DOCUMENTO = "SELECT COUNT(*) FROM ejemplares WHERE id_documento = ? AND estado = ?";
 
 
+    // Los ejemplares que se piden por ID (con su documento) se guardan en memoria. Los DAOs que cambian un
+    // ejemplar, o su estado al registrar prestamos y devoluciones, avisan al cache (ver getCache). Lo que cambie otra
+    // instancia de la aplicacion no se avisa, por eso cada ejemplar se vuelve a leer despues de cache.ejemplares.segundos.
+    private static final CacheEntidades<Ejemplar> CACHE = new CacheEntidades<>("ejemplares",
+            ConexionBD.getPropiedadEntera("cache.ejemplares.tamano", 1000),
+            ConexionBD.getPropiedadEntera("cache.ejemplares.segundos", 10), EjemplarDAOImpl::copiar);
+
     private DocumentoDAO documentoDAO; // Objeto para acceder a los datos del documento
 
     public EjemplarDAOImpl() {
@@ -39,6 +73,10 @@ public class EjemplarDAOImpl implements EjemplarDAO {
         this.documentoDAO = documentoDAO;
     }
 
+    public static CacheEntidades<Ejemplar> getCache() {
+        return CACHE;
+    }
+
 
     @Override
     public boolean insertar(Ejemplar ejemplar) throws SQLException {
@@ -70,10 +108,22 @@ public class EjemplarDAOImpl implements EjemplarDAO {
         } finally {
             ConexionBD.close(generatedKeys); // Cerramos el ResultSet
             ConexionBD.close(pstmt); // Cerramos el PreparedStatement
+            ConexionBD.close(conn); // Devolvemos la conexion al pool
         }
         return rowsAffected > 0; // Devolvemos true si se inserto algo
     }
 
+    @Override
+    public int[] insertarLote(List<Ejemplar> ejemplares) throws SQLException {
+        // Este metodo inserta varios ejemplares en lote (ver InsertadorPorLotes): los IDs generados se asignan a cada
+        // ejemplar y se devuelven en orden. Fuera de una UnidadTrabajo se insertan todos o ninguno.
+        return InsertadorPorLotes.insertar(this.getClass(), "ejemplares", SQL_INSERT, ejemplares, (pstmt, ejemplar) -> {
+            pstmt.setInt(1, ejemplar.getIdDocumento());
+            pstmt.setString(2, ejemplar.getUbicacion());
+            pstmt.setString(3, ejemplar.getEstado());
+        }, Ejemplar::setId, null);
+    }
+
     @Override
     public boolean actualizar(Ejemplar ejemplar) throws SQLException {
         Connection conn = null; // Variable para la conexion
@@ -91,6 +141,7 @@ public class EjemplarDAOImpl implements EjemplarDAO {
             rowsAffected = pstmt.executeUpdate(); // Ejecutamos la actualizacion
             if (rowsAffected > 0) {
                 LogsError.info(this.getClass(), "Ejemplar actualizado. Filas afectadas: " + rowsAffected);
+                CACHE.quitar(ejemplar.getId()); // Pudo cambiar de documento; se vuelve a leer la proxima vez
             } else {
                 LogsError.warn(this.getClass(), "No se encontro Ejemplar para actualizar con ID: " + ejemplar.getId() + " o los valores eran los mismos.");
             }
@@ -99,6 +150,7 @@ public class EjemplarDAOImpl implements EjemplarDAO {
             throw ex; // Dejamos que el error suba
         } finally {
             ConexionBD.close(pstmt); // Cerramos el PreparedStatement
+            ConexionBD.close(conn); // Devolvemos la conexion al pool
         }
         return rowsAffected > 0; // Devolvemos true si se actualizo algo
     }
@@ -125,6 +177,7 @@ public class EjemplarDAOImpl implements EjemplarDAO {
             rowsAffected = pstmt.executeUpdate(); // Ejecutamos la actualizacion
             if (rowsAffected > 0) {
                 LogsError.info(this.getClass(), "Estado de ejemplar actualizado. Filas afectadas: " + rowsAffected);
+                CACHE.modificar(idEjemplar, e -> e.setEstado(nuevoEstado));
             } else {
                 LogsError.warn(this.getClass(), "No se encontro Ejemplar para actualizar estado con ID: " + idEjemplar + " o el estado ya era " + nuevoEstado);
             }
@@ -133,11 +186,64 @@ public class EjemplarDAOImpl implements EjemplarDAO {
             throw ex; // Dejamos que el error suba
         } finally {
             ConexionBD.close(pstmt); // Cerramos el PreparedStatement
+            ConexionBD.close(conn); // Devolvemos la conexion al pool
         }
         return rowsAffected > 0; // Devolvemos true si se actualizo algo
     }
 
 
+    @Override
+    public Ejemplar reservarSiDisponible(int idEjemplar) throws SQLException {
+        // Este metodo toma el ejemplar para un prestamo sin leerlo antes: el UPDATE solo cambia la fila si sigue disponible.
+        // El otro prestamo que lo pida al mismo tiempo espera solo por esa fila y despues ve 0 filas afectadas.
+        // Dentro de una UnidadTrabajo la fila queda bloqueada hasta confirmar o revertir.
+        // Si se tomo, el ejemplar que se devuelve sale del cache; si no estaba, se lee con su documento en la misma conexion.
+        Ejemplar enCache = CACHE.buscar(idEjemplar); // Antes de avisar el cambio, que lo saca del cache
+        Ejemplar reservado = null; // El ejemplar ya como Prestado, si se tomo
+        Connection conn = null; // Variable para la conexion
+        PreparedStatement pstmt = null; // Variable para la consulta
+        ResultSet rs = null; // Para leer el ejemplar si no estaba en el cache
+        int rowsAffected = 0; // Filas afectadas
+        try {
+            conn = ConexionBD.getConexion(); // Obtenemos la conexion
+            pstmt = conn.prepareStatement(SQL_RESERVAR);
+            pstmt.setString(1, Ejemplar.ESTADO_PRESTADO);
+            pstmt.setInt(2, idEjemplar);
+            pstmt.setString(3, Ejemplar.ESTADO_DISPONIBLE);
+            LogsError.info(this.getClass(), "Ejecutando consulta para reservar ejemplar: " + SQL_RESERVAR + " para ID ejemplar: " + idEjemplar);
+            rowsAffected = pstmt.executeUpdate(); // Ejecutamos la actualizacion
+            if (rowsAffected == 0) {
+                LogsError.warn(this.getClass(), "El ejemplar ID " + idEjemplar + " no existe o no esta disponible.");
+            } else {
+                CACHE.modificar(idEjemplar, e -> e.setEstado(Ejemplar.ESTADO_PRESTADO));
+                if (enCache != null) {
+                    reservado = enCache;
+                } else {
+                    ConexionBD.close(pstmt);
+                    pstmt = conn.prepareStatement(SQL_SELECT_CON_DOCUMENTO_BY_ID);
+                    pstmt.setInt(1, idEjemplar);
+                    LogsError.info(this.getClass(), "Ejecutando consulta para leer el ejemplar reservado: " + SQL_SELECT_CON_DOCUMENTO_BY_ID + " con ID: " + idEjemplar);
+                    rs = pstmt.executeQuery(); // La fila ya es nuestra: no espera a nadie
+                    if (rs.next()) {
+                        reservado = mapearResultSet(rs);
+                        reservado.setDocumento(mapearDocumento(rs, reservado.getIdDocumento()));
+                    }
+                }
+                if (reservado != null) {
+                    reservado.setEstado(Ejemplar.ESTADO_PRESTADO); // Como quedo con el UPDATE
+                }
+            }
+        } catch (SQLException ex) {
+            LogsError.error(this.getClass(), "Error al reservar ejemplar: " + ex.getMessage(), ex);
+            throw ex; // Dejamos que el error suba
+        } finally {
+            ConexionBD.close(rs); // Cerramos el ResultSet
+            ConexionBD.close(pstmt); // Cerramos el PreparedStatement
+            ConexionBD.close(conn); // Devolvemos la conexion al pool
+        }
+        return reservado; // null si el ejemplar no es de este prestamo
+    }
+
     @Override
     public boolean eliminar(int id) throws SQLException {
         Connection conn = null; // Variable para la conexion
@@ -152,6 +258,7 @@ public class EjemplarDAOImpl implements EjemplarDAO {
             rowsAffected = pstmt.executeUpdate(); // Ejecutamos la eliminacion
              if (rowsAffected > 0) {
                 LogsError.info(this.getClass(), "Ejemplar eliminado. Filas afectadas: " + rowsAffected);
+                CACHE.quitar(id);
             } else {
                  LogsError.warn(this.getClass(), "No se encontro Ejemplar para eliminar con ID: " + id);
             }
@@ -161,6 +268,7 @@ public class EjemplarDAOImpl implements EjemplarDAO {
             throw ex; // Dejamos que el error suba
         } finally {
             ConexionBD.close(pstmt); // Cerramos el PreparedStatement
+            ConexionBD.close(conn); // Devolvemos la conexion al pool
         }
         return rowsAffected > 0; // Devolvemos true si se elimino algo
     }
@@ -172,16 +280,71 @@ public class EjemplarDAOImpl implements EjemplarDAO {
         ej.setIdDocumento(rs.getInt("id_documento"));
         ej.setUbicacion(rs.getString("ubicacion"));
         ej.setEstado(rs.getString("estado")); // El metodo setEstado ya valida el estado
+        return ej; // Devolvemos el ejemplar (el documento se carga aparte, por lote)
+    }
+
+    // Documento de las columnas d_* y td_tipo (LEFT JOIN: null si el ejemplar no tiene documento)
+    private Documento mapearDocumento(ResultSet rs, int idDocumento) throws SQLException {
+        String titulo = rs.getString("d_titulo");
+        if (titulo == null) {
+            return null;
+        }
+        Documento doc = new Documento();
+        doc.setId(idDocumento);
+        doc.setTitulo(titulo);
+        doc.setAutor(rs.getString("d_autor"));
+        doc.setEditorial(rs.getString("d_editorial"));
+        int anioPub = rs.getInt("d_anio_publicacion");
+        doc.setAnioPublicacion(rs.wasNull() ? null : anioPub); // El anio puede ser nulo en la BD
+        doc.setIdTipoDocumento(rs.getInt("d_id_tipo_documento"));
+        String tipo = rs.getString("td_tipo");
+        if (tipo != null) {
+            doc.setTipoDocumento(new TipoDocumento(doc.getIdTipoDocumento(), tipo));
+        }
+        return doc;
+    }
+
+    // Carga el Documento de todos los ejemplares de la lista con una sola consulta
+    private void cargarDocumentos(List<Ejemplar> ejemplares) throws SQLException {
+        if (this.documentoDAO == null || ejemplares.isEmpty()) {
+            return;
+        }
+        CargadorPorLotes<Documento> cargador = new CargadorPorLotes<>(documentoDAO::obtenerPorIds);
+        for (Ejemplar ej : ejemplares) {
+            cargador.solicitar(ej.getIdDocumento(), ej::setDocumento);
+        }
+        cargador.cargar();
+    }
 
-        if (this.documentoDAO != null) { // Si tenemos el objeto para manejar documentos
-            Documento doc = documentoDAO.obtenerPorId(ej.getIdDocumento()); // Buscamos el documento asociado
-            ej.setDocumento(doc); // Asignamos el objeto Documento completo al ejemplar
+    // Copia para el cache: el ejemplar y su documento (el TipoDocumento viene de su propio cache y se comparte)
+    private static Ejemplar copiar(Ejemplar original) {
+        Ejemplar ej = new Ejemplar();
+        ej.setId(original.getId());
+        ej.setIdDocumento(original.getIdDocumento());
+        ej.setUbicacion(original.getUbicacion());
+        ej.setEstado(original.getEstado());
+        Documento doc = original.getDocumento();
+        if (doc != null) {
+            Documento copia = new Documento();
+            copia.setId(doc.getId());
+            copia.setTitulo(doc.getTitulo());
+            copia.setAutor(doc.getAutor());
+            copia.setEditorial(doc.getEditorial());
+            copia.setAnioPublicacion(doc.getAnioPublicacion());
+            copia.setIdTipoDocumento(doc.getIdTipoDocumento());
+            copia.setTipoDocumento(doc.getTipoDocumento());
+            ej.setDocumento(copia);
         }
-        return ej; // Devolvemos el ejemplar
+        return ej;
     }
 
     @Override
     public Ejemplar obtenerPorId(int id) throws SQLException {
+        // Primero en el cache; si no esta, se lee de la BD
+        return CACHE.obtener(id, this::consultarPorId);
+    }
+
+    private Ejemplar consultarPorId(int id) throws SQLException {
         Connection conn = null; // Variable para la conexion
         PreparedStatement pstmt = null; // Variable para la consulta
         ResultSet rs = null; // Para guardar los resultados
@@ -194,6 +357,7 @@ public class EjemplarDAOImpl implements EjemplarDAO {
             rs = pstmt.executeQuery(); // Ejecutamos la consulta
             if (rs.next()) { // Si hay resultado
                 ejemplar = mapearResultSet(rs); // Convertimos el resultado a objeto Ejemplar
+                cargarDocumentos(Collections.singletonList(ejemplar));
             } else {
                 LogsError.warn(this.getClass(), "No se encontro Ejemplar con ID: " + id);
             }
@@ -203,10 +367,62 @@ public class EjemplarDAOImpl implements EjemplarDAO {
         } finally {
             ConexionBD.close(rs); // Cerramos el ResultSet
             ConexionBD.close(pstmt); // Cerramos el PreparedStatement
+            ConexionBD.close(conn); // Devolvemos la conexion al pool
         }
         return ejemplar; // Devolvemos el ejemplar o null si no se encontro
     }
 
+    @Override
+    public Map<Integer, Ejemplar> obtenerPorIds(Collection<Integer> ids) throws SQLException {
+        // Este metodo obtiene varios ejemplares (con su documento) usando consultas IN en vez de una por ID.
+        Map<Integer, Ejemplar> ejemplares = CargadorPorLotes.consultarPorIds(this.getClass(), SQL_SELECT_BY_IDS, ids, this::mapearResultSet, Ejemplar::getId);
+        cargarDocumentos(new ArrayList<>(ejemplares.values()));
+        return ejemplares;
+    }
+
+    @Override
+    public Map<Integer, Ejemplar> bloquearPorIds(Collection<Integer> ids) throws SQLException {
+        // Este metodo lee varios ejemplares y deja sus filas bloqueadas hasta que termine la transaccion,
+        // para validar su estado sin que otro prestamo los tome en medio. Sin UnidadTrabajo el bloqueo no dura nada.
+        Map<Integer, Ejemplar> ejemplares = new LinkedHashMap<>();
+        if (ids == null || ids.isEmpty()) {
+            return ejemplares;
+        }
+        List<Integer> unicos = new ArrayList<>(new LinkedHashSet<>(ids));
+        if (unicos.size() > CargadorPorLotes.TAMANO_BLOQUE) {
+            throw new IllegalArgumentException("No se pueden bloquear mas de " + CargadorPorLotes.TAMANO_BLOQUE + " ejemplares a la vez.");
+        }
+        if (UnidadTrabajo.actual() == null) {
+            LogsError.warn(this.getClass(), "bloquearPorIds llamado fuera de una UnidadTrabajo: los ejemplares no quedan bloqueados.");
+        }
+        String sql = String.format(SQL_SELECT_BY_IDS_FOR_UPDATE, String.join(", ", Collections.nCopies(unicos.size(), "?")));
+        Connection conn = null; // Variable para la conexion
+        PreparedStatement pstmt = null; // Variable para la consulta
+        ResultSet rs = null; // Para los resultados
+        try {
+            conn = ConexionBD.getConexion(); // Obtenemos la conexion (la de la transaccion abierta)
+            pstmt = conn.prepareStatement(sql);
+            for (int i = 0; i < unicos.size(); i++) {
+                pstmt.setInt(i + 1, unicos.get(i));
+            }
+            LogsError.info(this.getClass(), "Bloqueando " + unicos.size() + " ejemplares: " + SQL_SELECT_BY_IDS_FOR_UPDATE);
+            rs = pstmt.executeQuery(); // Ejecutamos la consulta
+            while (rs.next()) {
+                Ejemplar ejemplar = mapearResultSet(rs);
+                ejemplares.put(ejemplar.getId(), ejemplar);
+            }
+        } catch (SQLException ex) {
+            LogsError.error(this.getClass(), "Error al bloquear ejemplares: " + ex.getMessage(), ex);
+            throw ex; // Dejamos que el error suba
+        } finally {
+            ConexionBD.close(rs); // Cerramos el ResultSet
+            ConexionBD.close(pstmt); // Cerramos el PreparedStatement
+            ConexionBD.close(conn); // Devolvemos la conexion al pool
+        }
+        cargarDocumentos(new ArrayList<>(ejemplares.values()));
+        return ejemplares;
+    }
+
     @Override
     public List<Ejemplar> obtenerTodos() throws SQLException {
         Connection conn = null; // Variable para la conexion
@@ -221,16 +437,27 @@ public class EjemplarDAOImpl implements EjemplarDAO {
             while (rs.next()) { // Mientras haya resultados
                 ejemplares.add(mapearResultSet(rs)); // Agregamos el ejemplar a la lista
             }
+            cargarDocumentos(ejemplares);
         } catch (SQLException ex) {
             LogsError.error(this.getClass(), "Error al obtener todos los ejemplares: " + ex.getMessage(), ex);
             throw ex; // Dejamos que el error suba
         } finally {
             ConexionBD.close(rs); // Cerramos el ResultSet
             ConexionBD.close(pstmt); // Cerramos el PreparedStatement
+            ConexionBD.close(conn); // Devolvemos la conexion al pool
         }
         return ejemplares; // Devolvemos la lista de ejemplares
     }
 
+    @Override
+    public Pagina<Ejemplar> obtenerPagina(String token, int tamano) throws SQLException {
+        // Este metodo devuelve una pagina de ejemplares ordenados por documento, empezando despues del token.
+        Pagina<Ejemplar> pagina = Pagina.consultar(this.getClass(), SQL_SELECT_PAGINA, SQL_SELECT_PAGINA_DESDE, token, tamano,
+                v -> new Object[]{Integer.parseInt(v[0]), Integer.parseInt(v[1])}, this::mapearResultSet, ej -> new Object[]{ej.getIdDocumento(), ej.getId()});
+        cargarDocumentos(pagina.getElementos());
+        return pagina;
+    }
+
     @Override
     public List<Ejemplar> obtenerPorIdDocumento(int idDocumento) throws SQLException {
         Connection conn = null; // Variable para la conexion
@@ -246,12 +473,14 @@ public class EjemplarDAOImpl implements EjemplarDAO {
             while (rs.next()) { // Mientras haya resultados
                 ejemplares.add(mapearResultSet(rs)); // Agregamos el ejemplar a la lista
             }
+            cargarDocumentos(ejemplares);
         } catch (SQLException ex) {
             LogsError.error(this.getClass(), "Error al obtener ejemplares por idDocumento: " + ex.getMessage(), ex);
             throw ex; // Dejamos que el error suba
         } finally {
             ConexionBD.close(rs); // Cerramos el ResultSet
             ConexionBD.close(pstmt); // Cerramos el PreparedStatement
+            ConexionBD.close(conn); // Devolvemos la conexion al pool
         }
         return ejemplares; // Devolvemos la lista de ejemplares
     }
@@ -272,12 +501,14 @@ public class EjemplarDAOImpl implements EjemplarDAO {
             while (rs.next()) { // Mientras haya resultados
                 ejemplares.add(mapearResultSet(rs)); // Agregamos el ejemplar a la lista
             }
+            cargarDocumentos(ejemplares);
         } catch (SQLException ex) {
             LogsError.error(this.getClass(), "Error al obtener ejemplares disponibles por idDocumento: " + ex.getMessage(), ex);
             throw ex; // Dejamos que el error suba
         } finally {
             ConexionBD.close(rs); // Cerramos el ResultSet
             ConexionBD.close(pstmt); // Cerramos el PreparedStatement
+            ConexionBD.close(conn); // Devolvemos la conexion al pool
         }
         return ejemplares; // Devolvemos la lista de ejemplares disponibles
     }
@@ -306,6 +537,7 @@ public class EjemplarDAOImpl implements EjemplarDAO {
         } finally {
             ConexionBD.close(rs); // Cerramos el ResultSet
             ConexionBD.close(pstmt); // Cerramos el PreparedStatement
+            ConexionBD.close(conn); // Devolvemos la conexion al pool
         }
         return conteo; // Devolvemos el total contado
     }
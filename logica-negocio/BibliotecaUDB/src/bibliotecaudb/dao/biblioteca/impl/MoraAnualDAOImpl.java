@@ -41,6 +41,7 @@ public class MoraAnualDAOImpl implements MoraAnualDAO {
             throw ex; // Relanzamos el error
         } finally {
             ConexionBD.close(pstmt); // Cerramos el PreparedStatement
+            ConexionBD.close(conn); // Devolvemos la conexion al pool
         }
         return rowsAffected > 0; // Devolvemos true si se inserto algo
     }
@@ -69,6 +70,7 @@ public class MoraAnualDAOImpl implements MoraAnualDAO {
             throw ex; // Relanzamos el error
         } finally {
             ConexionBD.close(pstmt); // Cerramos el PreparedStatement
+            ConexionBD.close(conn); // Devolvemos la conexion al pool
         }
         return rowsAffected > 0; // Devolvemos true si se actualizo algo
     }
@@ -105,6 +107,7 @@ public class MoraAnualDAOImpl implements MoraAnualDAO {
         } finally {
             ConexionBD.close(rs); // Cerramos el ResultSet
             ConexionBD.close(pstmt); // Cerramos el PreparedStatement
+            ConexionBD.close(conn); // Devolvemos la conexion al pool
         }
         return moraAnual; // Devolvemos la mora (o null)
     }
@@ -130,6 +133,7 @@ public class MoraAnualDAOImpl implements MoraAnualDAO {
         } finally {
             ConexionBD.close(rs); // Cerramos el ResultSet
             ConexionBD.close(pstmt); // Cerramos el PreparedStatement
+            ConexionBD.close(conn); // Devolvemos la conexion al pool
         }
         return morasAnuales; // Devolvemos la lista de moras
     }
@@ -157,6 +161,7 @@ public class MoraAnualDAOImpl implements MoraAnualDAO {
             throw ex; // Relanzamos el error
         } finally {
             ConexionBD.close(pstmt); // Cerramos el PreparedStatement
+            ConexionBD.close(conn); // Devolvemos la conexion al pool
         }
         return rowsAffected > 0; // Devolvemos true si se elimino algo
     }
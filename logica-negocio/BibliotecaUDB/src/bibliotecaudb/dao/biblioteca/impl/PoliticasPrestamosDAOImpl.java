@@ -6,6 +6,7 @@ import bibliotecaudb.dao.biblioteca.PoliticasPrestamoDAO;
 import bibliotecaudb.dao.usuario.TipoUsuarioDAO;
 import bibliotecaudb.conexion.ConexionBD;
 import bibliotecaudb.conexion.LogsError;
+import bibliotecaudb.dao.CacheReferencia;
 import bibliotecaudb.dao.usuario.impl.TipoUsuarioDAOImpl;
 
 import java.sql.Connection;
@@ -20,10 +21,14 @@ public class PoliticasPrestamosDAOImpl implements PoliticasPrestamoDAO {
 
     private static final String SQL_INSERT = "INSERT INTO politicas_prestamo (id_tipo_usuario, max_ejemplares_prestamo, dias_prestamo_default) VALUES (?, ?, ?)";
     private static final String SQL_UPDATE_BY_ID_TIPO_USUARIO = "UPDATE politicas_prestamo SET max_ejemplares_prestamo = ?, dias_prestamo_default = ? WHERE id_tipo_usuario = ?";
-    private static final String SQL_SELECT_BY_ID_TIPO_USUARIO = "SELECT id_politica, id_tipo_usuario, max_ejemplares_prestamo, dias_prestamo_default FROM politicas_prestamo WHERE id_tipo_usuario = ?";
-    private static final String SQL_SELECT_BY_ID_POLITICA = "SELECT id_politica, id_tipo_usuario, max_ejemplares_prestamo, dias_prestamo_default FROM politicas_prestamo WHERE id_politica = ?";
     private static final String SQL_SELECT_ALL = "SELECT id_politica, id_tipo_usuario, max_ejemplares_prestamo, dias_prestamo_default FROM politicas_prestamo ORDER BY id_tipo_usuario";
 
+    // Hay una politica por tipo de usuario y casi nunca cambian: las tenemos en memoria, por id_tipo_usuario.
+    // Se entregan copias para que quien modifique una politica no cambie el cache antes de guardarla.
+    private static final CacheReferencia<PoliticasPrestamo> CACHE = new CacheReferencia<>("politicas_prestamo",
+            () -> new PoliticasPrestamosDAOImpl().consultarTodas(), PoliticasPrestamo::getIdTipoUsuario,
+            PoliticasPrestamosDAOImpl::copiar);
+
     private TipoUsuarioDAO tipoUsuarioDAO; // Objeto para manejar los tipos de usuario
 
     public PoliticasPrestamosDAOImpl() {
@@ -53,6 +58,7 @@ public class PoliticasPrestamosDAOImpl implements PoliticasPrestamoDAO {
 
             LogsError.info(this.getClass(), "Ejecutando consulta para insertar politica: " + SQL_INSERT); // Guardamos un mensaje en el log
             rowsAffected = pstmt.executeUpdate(); // Ejecutamos la insercion
+            CACHE.invalidar(); // La tabla cambio
             if (rowsAffected > 0) { 
                 generatedKeys = pstmt.getGeneratedKeys(); // Obtenemos la llave generada
                 if (generatedKeys.next()) {
@@ -66,6 +72,7 @@ public class PoliticasPrestamosDAOImpl implements PoliticasPrestamoDAO {
         } finally {
             ConexionBD.close(generatedKeys); // Cerramos el ResultSet
             ConexionBD.close(pstmt); // Cerramos el PreparedStatement
+            ConexionBD.close(conn); // Devolvemos la conexion al pool
         }
         return rowsAffected > 0; // Devolvemos true si se inserto la politica
     }
@@ -86,6 +93,7 @@ public class PoliticasPrestamosDAOImpl implements PoliticasPrestamoDAO {
 
             LogsError.info(this.getClass(), "Actualizando politica para tipo_usuario ID: " + politica.getIdTipoUsuario());
             rowsAffected = pstmt.executeUpdate(); // Ejecutamos la actualizacion
+            CACHE.invalidar(); // La tabla cambio
             if (rowsAffected > 0) {
                 LogsError.info(this.getClass(), "Politica de prestamo actualizada. Filas afectadas: " + rowsAffected);
             } else {
@@ -96,10 +104,26 @@ public class PoliticasPrestamosDAOImpl implements PoliticasPrestamoDAO {
             throw ex; // Relanzamos el error
         } finally {
             ConexionBD.close(pstmt); // Cerramos el PreparedStatement
+            ConexionBD.close(conn); // Devolvemos la conexion al pool
         }
         return rowsAffected > 0; // Devolvemos true si se actualizo algo
     }
 
+    public static CacheReferencia<PoliticasPrestamo> getCache() {
+        return CACHE;
+    }
+
+    private static PoliticasPrestamo copiar(PoliticasPrestamo original) {
+        PoliticasPrestamo pp = new PoliticasPrestamo();
+        pp.setIdPolitica(original.getIdPolitica());
+        pp.setIdTipoUsuario(original.getIdTipoUsuario());
+        TipoUsuario tipo = original.getTipoUsuario();
+        pp.setTipoUsuario(tipo != null ? new TipoUsuario(tipo.getId(), tipo.getTipo()) : null); // Tambien se puede modificar
+        pp.setMaxEjemplaresPrestamo(original.getMaxEjemplaresPrestamo());
+        pp.setDiasPrestamoDefault(original.getDiasPrestamoDefault());
+        return pp;
+    }
+
     // Este metodo ayuda a convertir los datos de la base de datos (ResultSet) a un objeto PoliticasPrestamo.
     private PoliticasPrestamo mapearResultSet(ResultSet rs) throws SQLException {
         PoliticasPrestamo pp = new PoliticasPrestamo(); // Creamos un objeto vacio de PoliticasPrestamo
@@ -117,67 +141,33 @@ public class PoliticasPrestamosDAOImpl implements PoliticasPrestamoDAO {
     }
 
     @Override
-     // Este metodo busca y devuelve una politica de prestamo usando el ID del tipo de usuario.
+     // Este metodo busca y devuelve una politica de prestamo usando el ID del tipo de usuario (desde el cache).
     public PoliticasPrestamo obtenerPorIdTipoUsuario(int idTipoUsuario) throws SQLException {
-       
-        Connection conn = null; // Variable para la conexion
-        PreparedStatement pstmt = null; // Variable para la consulta
-        ResultSet rs = null; // Para guardar el resultado de la consulta
-        PoliticasPrestamo politica = null; // Variable para la politica que encontraremos
-        try {
-            conn = ConexionBD.getConexion(); // Obtenemos la conexion
-            pstmt = conn.prepareStatement(SQL_SELECT_BY_ID_TIPO_USUARIO);
-            pstmt.setInt(1, idTipoUsuario); // El ID del tipo de usuario que buscamos
-            LogsError.info(this.getClass(), "Ejecutando consulta para obtener politica por ID tipo usuario: " + SQL_SELECT_BY_ID_TIPO_USUARIO + " con idTipoUsuario: " + idTipoUsuario);
-            rs = pstmt.executeQuery(); // Ejecutamos la consulta
-            if (rs.next()) { // Si encontramos una politica
-                politica = mapearResultSet(rs); // Convertimos los datos a un objeto PoliticasPrestamo
-            } else {
-                LogsError.warn(this.getClass(), "No se encontro politica de prestamo para idTipoUsuario: " + idTipoUsuario);
-            }
-        } catch (SQLException ex) {
-            LogsError.error(this.getClass(), "Error al obtener politica por idTipoUsuario: " + ex.getMessage(), ex);
-            throw ex; // Relanzamos el error
-        } finally {
-            ConexionBD.close(rs); // Cerramos el ResultSet
-            ConexionBD.close(pstmt); // Cerramos el PreparedStatement
+        PoliticasPrestamo politica = CACHE.obtener(idTipoUsuario);
+        if (politica == null) {
+            LogsError.warn(this.getClass(), "No se encontro politica de prestamo para idTipoUsuario: " + idTipoUsuario);
         }
         return politica; // Devolvemos la politica encontrada (o null si no se encontro)
     }
 
     @Override
-     // Este metodo busca y devuelve una politica de prestamo usando el ID de la politica.
+     // Este metodo busca y devuelve una politica de prestamo usando el ID de la politica (desde el cache).
     public PoliticasPrestamo obtenerPorIdPolitica(int idPolitica) throws SQLException {
-       
-        Connection conn = null; // Variable para la conexion
-        PreparedStatement pstmt = null; // Variable para la consulta
-        ResultSet rs = null; // Para guardar el resultado
-        PoliticasPrestamo politica = null; // Variable para la politica
-        try {
-            conn = ConexionBD.getConexion(); // Obtenemos la conexion
-            pstmt = conn.prepareStatement(SQL_SELECT_BY_ID_POLITICA);
-            pstmt.setInt(1, idPolitica); // El ID de la politica que buscamos
-            LogsError.info(this.getClass(), "Ejecutando consulta para obtener politica por ID politica: " + SQL_SELECT_BY_ID_POLITICA + " con idPolitica: " + idPolitica);
-            rs = pstmt.executeQuery(); // Ejecutamos la consulta
-            if (rs.next()) { // Si encontramos la politica
-                politica = mapearResultSet(rs); // Convertimos los datos a objeto
-            } else {
-                LogsError.warn(this.getClass(), "No se encontro politica de prestamo para idPolitica: " + idPolitica);
-            }
-        } catch (SQLException ex) {
-            LogsError.error(this.getClass(), "Error al obtener politica por idPolitica: " + ex.getMessage(), ex);
-            throw ex; // Relanzamos el error
-        } finally {
-            ConexionBD.close(rs); // Cerramos el ResultSet
-            ConexionBD.close(pstmt); // Cerramos el PreparedStatement
+        PoliticasPrestamo politica = CACHE.buscar(pp -> pp.getIdPolitica() == idPolitica);
+        if (politica == null) {
+            LogsError.warn(this.getClass(), "No se encontro politica de prestamo para idPolitica: " + idPolitica);
         }
         return politica; // Devolvemos la politica (o null)
     }
 
     @Override
-    // Este metodo devuelve una lista con todas las politicas de prestamo de la base de datos.
+    // Este metodo devuelve una lista con todas las politicas de prestamo (desde el cache).
     public List<PoliticasPrestamo> obtenerTodas() throws SQLException {
-        
+        return CACHE.todos();
+    }
+
+    // Lee todas las politicas de la base de datos (lo usa el cache para cargarse).
+    private List<PoliticasPrestamo> consultarTodas() throws SQLException {
         Connection conn = null; // Variable para la conexion
         PreparedStatement pstmt = null; // Variable para la consulta
         ResultSet rs = null; // Para los resultados
@@ -196,6 +186,7 @@ public class PoliticasPrestamosDAOImpl implements PoliticasPrestamoDAO {
         } finally {
             ConexionBD.close(rs); // Cerramos el ResultSet
             ConexionBD.close(pstmt); // Cerramos el PreparedStatement
+            ConexionBD.close(conn); // Devolvemos la conexion al pool
         }
         return politicas; // Devolvemos la lista de politicas
     }
@@ -1,14 +1,23 @@
 package bibliotecaudb.dao.biblioteca.impl;
 
+import bibliotecaudb.modelo.biblioteca.Devolucion;
+import bibliotecaudb.modelo.biblioteca.ElegibilidadPrestamo;
+import bibliotecaudb.modelo.biblioteca.PoliticasPrestamo;
+import bibliotecaudb.modelo.biblioteca.FilaHistorialPrestamo;
 import bibliotecaudb.modelo.biblioteca.Prestamo;
+import bibliotecaudb.modelo.biblioteca.ResumenMoraUsuario;
 import bibliotecaudb.modelo.usuario.Usuario;
-import bibliotecaudb.dao.usuario.impl.UsuarioDAOImpl;
+import bibliotecaudb.modelo.usuario.TipoUsuario;
 import bibliotecaudb.modelo.biblioteca.Ejemplar;
+import bibliotecaudb.modelo.biblioteca.Documento;
+import bibliotecaudb.modelo.biblioteca.TipoDocumento;
 import bibliotecaudb.dao.biblioteca.PrestamoDAO;
-import bibliotecaudb.dao.usuario.UsuarioDAO;
-import bibliotecaudb.dao.biblioteca.EjemplarDAO;
 import bibliotecaudb.conexion.ConexionBD;
 import bibliotecaudb.conexion.LogsError;
+import bibliotecaudb.conexion.UnidadTrabajo;
+import bibliotecaudb.dao.CargadorPorLotes;
+import bibliotecaudb.dao.InsertadorPorLotes;
+import bibliotecaudb.dao.Pagina;
 
 import java.sql.Connection;
 import java.sql.PreparedStatement;
@@ -20,36 +29,91 @@ import java.sql.Types; // Para usar valores nulos (null)
 import java.time.LocalDate;
 import java.math.BigDecimal;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
 
 public class PrestamoDAOImpl implements PrestamoDAO {
 
     private static final String SQL_INSERT = "INSERT INTO prestamos (id_usuario, id_ejemplar, fecha_prestamo, fecha_limite, mora) VALUES (?, ?, ?, ?, ?)";
     // Esta consulta de actualizar se usa mas que todo para poner la fecha de devolucion y la mora cuando se devuelve un libro.
     private static final String SQL_UPDATE = "UPDATE prestamos SET id_usuario = ?, id_ejemplar = ?, fecha_prestamo = ?, fecha_devolucion = ?, fecha_limite = ?, mora = ? WHERE id = ?";
+    private static final String SQL_SELECT_VENCIDOS_PARA_MORA = "SELECT id, id_usuario, fecha_limite, mora FROM prestamos WHERE fecha_devolucion IS NULL AND fecha_limite < ? ORDER BY id";
+    // La condicion fecha_devolucion IS NULL evita pisar la mora de un prestamo que se devolvio mientras corria el proceso
+    private static final String SQL_UPDATE_MORA_ACTIVO = "UPDATE prestamos SET mora = ? WHERE id = ? AND fecha_devolucion IS NULL";
+    private static final int TAMANO_LOTE_MORA = 1000; // Filas por executeBatch / commit
     private static final String SQL_REGISTRAR_DEVOLUCION = "UPDATE prestamos SET fecha_devolucion = ?, mora = ? WHERE id = ?";
-    private static final String SQL_SELECT_BY_ID = "SELECT id, id_usuario, id_ejemplar, fecha_prestamo, fecha_devolucion, fecha_limite, mora FROM prestamos WHERE id = ?";
-    private static final String SQL_SELECT_ALL = "SELECT id, id_usuario, id_ejemplar, fecha_prestamo, fecha_devolucion, fecha_limite, mora FROM prestamos ORDER BY fecha_prestamo DESC";
-    private static final String SQL_SELECT_BY_ID_USUARIO = "SELECT id, id_usuario, id_ejemplar, fecha_prestamo, fecha_devolucion, fecha_limite, mora FROM prestamos WHERE id_usuario = ? ORDER BY fecha_prestamo DESC";
-    private static final String SQL_SELECT_ACTIVOS_BY_ID_USUARIO = "SELECT id, id_usuario, id_ejemplar, fecha_prestamo, fecha_devolucion, fecha_limite, mora FROM prestamos WHERE id_usuario = ? AND fecha_devolucion IS NULL ORDER BY fecha_prestamo DESC";
+    // En lote se agrega fecha_devolucion IS NULL para que un prestamo nunca se devuelva dos veces
+    private static final String SQL_REGISTRAR_DEVOLUCION_ACTIVO = "UPDATE prestamos SET fecha_devolucion = ?, mora = ? WHERE id = ? AND fecha_devolucion IS NULL";
+    // Sin JOIN: para validar y devolver en lote solo hacen falta las columnas del prestamo. En orden de ID para no esperarse en cruz.
+    private static final String SQL_SELECT_BY_IDS_FOR_UPDATE = "SELECT id, id_usuario, id_ejemplar, fecha_prestamo, fecha_devolucion, fecha_limite, mora FROM prestamos WHERE id IN (%s) ORDER BY id FOR UPDATE";
+    // Columnas del prestamo con todo su grafo: Usuario -> TipoUsuario y Ejemplar -> Documento -> TipoDocumento.
+    // Asi una lista de prestamos se arma con una sola consulta en vez de varias consultas por fila.
+    private static final String SQL_SELECT_GRAFO = "SELECT p.id, p.id_usuario, p.id_ejemplar, p.fecha_prestamo, p.fecha_devolucion, p.fecha_limite, p.mora, "
+            + "u.nombre AS u_nombre, u.correo AS u_correo, u.contrasena AS u_contrasena, u.id_tipo_usuario AS u_id_tipo_usuario, u.estado AS u_estado, tu.tipo AS tu_tipo, "
+            + "e.id_documento AS e_id_documento, e.ubicacion AS e_ubicacion, e.estado AS e_estado, "
+            + "d.titulo AS d_titulo, d.autor AS d_autor, d.editorial AS d_editorial, d.anio_publicacion AS d_anio_publicacion, d.id_tipo_documento AS d_id_tipo_documento, td.tipo AS td_tipo "
+            + "FROM prestamos p "
+            + "INNER JOIN usuarios u ON u.id = p.id_usuario "
+            + "LEFT JOIN tipo_usuario tu ON tu.id = u.id_tipo_usuario "
+            + "INNER JOIN ejemplares e ON e.id = p.id_ejemplar "
+            + "INNER JOIN documentos d ON d.id = e.id_documento "
+            + "LEFT JOIN tipo_documento td ON td.id = d.id_tipo_documento ";
+    private static final String SQL_SELECT_BY_ID = SQL_SELECT_GRAFO + "WHERE p.id = ?";
+    private static final String SQL_SELECT_BY_IDS = SQL_SELECT_GRAFO + "WHERE p.id IN";
+    private static final String SQL_SELECT_ALL = SQL_SELECT_GRAFO + "ORDER BY p.fecha_prestamo DESC";
+    // Paginas por clave (fecha_prestamo, id) del mas reciente al mas antiguo; usan idx_pres_fecha
+    private static final String SQL_SELECT_PAGINA = SQL_SELECT_GRAFO + "ORDER BY p.fecha_prestamo DESC, p.id DESC LIMIT ?";
+    private static final String SQL_SELECT_PAGINA_DESDE = SQL_SELECT_GRAFO + "WHERE (p.fecha_prestamo, p.id) < (?, ?) ORDER BY p.fecha_prestamo DESC, p.id DESC LIMIT ?";
+    private static final String SQL_SELECT_BY_ID_USUARIO = SQL_SELECT_GRAFO + "WHERE p.id_usuario = ? ORDER BY p.fecha_prestamo DESC";
+    private static final String SQL_SELECT_ACTIVOS_BY_ID_USUARIO = SQL_SELECT_GRAFO + "WHERE p.id_usuario = ? AND p.fecha_devolucion IS NULL ORDER BY p.fecha_prestamo DESC";
     private static final String SQL_COUNT_ACTIVOS_BY_ID_USUARIO = "SELECT COUNT(*) FROM prestamos WHERE id_usuario = ? AND fecha_devolucion IS NULL";
-    private static final String SQL_SELECT_ACTIVOS = "SELECT p.id, p.id_usuario, p.id_ejemplar, p.fecha_prestamo, p.fecha_devolucion, p.fecha_limite, p.mora FROM prestamos p WHERE p.fecha_devolucion IS NULL ORDER BY p.fecha_prestamo DESC";
-    private static final String SQL_SELECT_CON_MORA_PENDIENTE = "SELECT id, id_usuario, id_ejemplar, fecha_prestamo, fecha_devolucion, fecha_limite, mora FROM prestamos WHERE fecha_devolucion IS NULL AND fecha_limite < CURDATE()";
-    private static final String SQL_SELECT_CON_MORA_PENDIENTE_POR_USUARIO = "SELECT id, id_usuario, id_ejemplar, fecha_prestamo, fecha_devolucion, fecha_limite, mora FROM prestamos WHERE id_usuario = ? AND fecha_devolucion IS NULL AND fecha_limite < CURDATE()";
+    private static final String SQL_COUNT_POR_DOCUMENTO = "SELECT e.id_documento, COUNT(*) AS total FROM prestamos p INNER JOIN ejemplares e ON e.id = p.id_ejemplar GROUP BY e.id_documento";
+    private static final String SQL_SELECT_ACTIVOS = SQL_SELECT_GRAFO + "WHERE p.fecha_devolucion IS NULL ORDER BY p.fecha_prestamo DESC";
+    private static final String SQL_SELECT_CON_MORA_PENDIENTE = SQL_SELECT_GRAFO + "WHERE p.fecha_devolucion IS NULL AND p.fecha_limite < CURDATE()";
+    private static final String SQL_SELECT_CON_MORA_PENDIENTE_POR_USUARIO = SQL_SELECT_GRAFO + "WHERE p.id_usuario = ? AND p.fecha_devolucion IS NULL AND p.fecha_limite < CURDATE()";
+    // Agrupa primero los prestamos vencidos por usuario y despues une cada grupo con su usuario: cada usuario sale una sola vez
+    private static final String SQL_SELECT_RESUMEN_MORA_POR_USUARIO = "SELECT u.id, u.nombre, u.correo, u.contrasena, u.id_tipo_usuario, u.estado, tu.tipo AS tu_tipo, "
+            + "v.prestamos_vencidos, v.fecha_limite_mas_antigua, v.mora_acumulada "
+            + "FROM (SELECT id_usuario, COUNT(*) AS prestamos_vencidos, MIN(fecha_limite) AS fecha_limite_mas_antigua, COALESCE(SUM(mora), 0) AS mora_acumulada "
+            + "FROM prestamos WHERE fecha_devolucion IS NULL AND fecha_limite < CURDATE() GROUP BY id_usuario) v "
+            + "INNER JOIN usuarios u ON u.id = v.id_usuario "
+            + "LEFT JOIN tipo_usuario tu ON tu.id = u.id_tipo_usuario "
+            + "ORDER BY v.fecha_limite_mas_antigua, u.id";
 
+    // Primero se bloquea solo la fila del usuario: otro prestamo del mismo usuario (aunque sea de otra instancia) espera aqui
+    private static final String SQL_BLOQUEAR_USUARIO = "SELECT id FROM usuarios WHERE id = ? FOR UPDATE";
+    // Todo lo que se revisa antes de un prestamo en una consulta: el usuario con su tipo y sus politicas, y sus prestamos
+    // activos agrupados (usa idx_pres_user_estado; con el LEFT JOIN sale una fila aunque no tenga prestamos).
+    // LOCK IN SHARE MODE hace que el conteo sea una lectura con bloqueo: ve los prestamos ya confirmados por otras
+    // transacciones y no la foto de REPEATABLE READ. Funciona igual en MariaDB 10.4 y en MySQL 8 (FOR UPDATE OF no existe en MariaDB).
+    private static final String SQL_SELECT_ELEGIBILIDAD = "SELECT u.id, u.nombre, u.correo, u.contrasena, u.id_tipo_usuario, u.estado, tu.tipo AS tu_tipo, "
+            + "pp.id_politica, pp.max_ejemplares_prestamo, pp.dias_prestamo_default, "
+            + "COUNT(p.id) AS prestamos_activos, COALESCE(SUM(p.fecha_limite < CURDATE()), 0) AS prestamos_vencidos "
+            + "FROM usuarios u "
+            + "LEFT JOIN tipo_usuario tu ON tu.id = u.id_tipo_usuario "
+            + "LEFT JOIN politicas_prestamo pp ON pp.id_tipo_usuario = u.id_tipo_usuario "
+            + "LEFT JOIN prestamos p ON p.id_usuario = u.id AND p.fecha_devolucion IS NULL "
+            + "WHERE u.id = ? "
+            + "GROUP BY u.id, u.nombre, u.correo, u.contrasena, u.id_tipo_usuario, u.estado, tu.tipo, "
+            + "pp.id_politica, pp.max_ejemplares_prestamo, pp.dias_prestamo_default "
+            + "LOCK IN SHARE MODE";
 
-    private UsuarioDAO usuarioDAO; // Objeto para manejar los datos de Usuarios
-    private EjemplarDAO ejemplarDAO; // Objeto para manejar los datos de Ejemplares
+    // Historial plano para exportar: solo las columnas que se muestran, en el orden de la llave primaria
+    private static final String SQL_SELECT_HISTORIAL = "SELECT p.id, p.id_usuario, u.nombre, u.correo, p.id_ejemplar, e.id_documento, d.titulo, "
+            + "p.fecha_prestamo, p.fecha_limite, p.fecha_devolucion, p.mora "
+            + "FROM prestamos p "
+            + "INNER JOIN usuarios u ON u.id = p.id_usuario "
+            + "INNER JOIN ejemplares e ON e.id = p.id_ejemplar "
+            + "INNER JOIN documentos d ON d.id = e.id_documento "
+            + "ORDER BY p.id";
 
     public PrestamoDAOImpl() {
-        this.usuarioDAO = new UsuarioDAOImpl(); // Creamos el objeto para usuarios
-        this.ejemplarDAO = new EjemplarDAOImpl(); // Creamos el objeto para ejemplares
-    }
-
-    // Constructor por los manejadores 
-    public PrestamoDAOImpl(UsuarioDAO usuarioDAO, EjemplarDAO ejemplarDAO) {
-        this.usuarioDAO = usuarioDAO;
-        this.ejemplarDAO = ejemplarDAO;
+        // Ya no necesita otros DAOs: el usuario y el ejemplar vienen en la misma consulta (JOIN)
     }
 
     @Override
@@ -77,6 +141,7 @@ public class PrestamoDAOImpl implements PrestamoDAO {
                     prestamo.setId(generatedKeys.getInt(1)); // Asignamos el ID al objeto prestamo
                 }
                 LogsError.info(this.getClass(), "Prestamo insertado con ID: " + prestamo.getId());
+                EjemplarDAOImpl.getCache().modificar(prestamo.getIdEjemplar(), e -> e.setEstado(Ejemplar.ESTADO_PRESTADO)); // Lo que hizo el trigger
             } else {
                  LogsError.warn(this.getClass(), "No se inserto el Prestamo.");
             }
@@ -86,10 +151,29 @@ public class PrestamoDAOImpl implements PrestamoDAO {
         } finally {
             ConexionBD.close(generatedKeys); // Cerramos el ResultSet
             ConexionBD.close(pstmt); // Cerramos el PreparedStatement
+            ConexionBD.close(conn); // Devolvemos la conexion al pool
         }
         return rowsAffected > 0; // Devolvemos true si se inserto algo
     }
 
+    @Override
+    public int[] insertarLote(List<Prestamo> prestamos) throws SQLException {
+        // Este metodo inserta varios prestamos en lote (ver InsertadorPorLotes): los IDs generados se asignan a cada
+        // prestamo y se devuelven en orden. Fuera de una UnidadTrabajo se insertan todos o ninguno.
+        // El trigger tg_update_ejemplar_estado_prestado se ejecuta por cada fila, igual que con insertar.
+        int[] ids = InsertadorPorLotes.insertar(this.getClass(), "prestamos", SQL_INSERT, prestamos, (pstmt, prestamo) -> {
+            pstmt.setInt(1, prestamo.getIdUsuario());
+            pstmt.setInt(2, prestamo.getIdEjemplar());
+            pstmt.setDate(3, Date.valueOf(prestamo.getFechaPrestamo()));
+            pstmt.setDate(4, Date.valueOf(prestamo.getFechaLimite()));
+            pstmt.setBigDecimal(5, prestamo.getMora() != null ? prestamo.getMora() : BigDecimal.ZERO);
+        }, Prestamo::setId, null);
+        for (Prestamo prestamo : prestamos) {
+            EjemplarDAOImpl.getCache().modificar(prestamo.getIdEjemplar(), e -> e.setEstado(Ejemplar.ESTADO_PRESTADO)); // Lo que hizo el trigger
+        }
+        return ids;
+    }
+
     @Override
     public boolean actualizar(Prestamo prestamo) throws SQLException {
         // Este metodo sirve para actualizar un prestamo existente.
@@ -123,6 +207,7 @@ public class PrestamoDAOImpl implements PrestamoDAO {
             throw ex; // Relanzamos el error
         } finally {
             ConexionBD.close(pstmt); // Cerramos el PreparedStatement
+            ConexionBD.close(conn); // Devolvemos la conexion al pool
         }
         return rowsAffected > 0; // Devolvemos true si se actualizo algo
     }
@@ -155,12 +240,74 @@ public class PrestamoDAOImpl implements PrestamoDAO {
             throw ex; // Relanzamos el error
         } finally {
             ConexionBD.close(pstmt); // Cerramos el PreparedStatement
+            ConexionBD.close(conn); // Devolvemos la conexion al pool
         }
         return rowsAffected > 0; // Devolvemos true si se actualizo algo
     }
 
-    // Este metodo convierte los datos de la base de datos (ResultSet) a un objeto Prestamo.
-    private Prestamo mapearResultSet(ResultSet rs) throws SQLException {
+    @Override
+    public boolean[] registrarDevolucionesEnLote(List<Devolucion> devoluciones) throws SQLException {
+        // Este metodo registra muchas devoluciones en la tabla 'prestamos' con addBatch/executeBatch.
+        // Fuera de una UnidadTrabajo se actualizan todas o ninguna.
+        boolean[] actualizados = new boolean[devoluciones.size()];
+        if (devoluciones.isEmpty()) {
+            return actualizados;
+        }
+        Connection conn = null; // Variable para la conexion
+        PreparedStatement pstmt = null; // Variable para la consulta
+        boolean transaccionPropia = false; // true si manejamos nosotros la transaccion
+        try {
+            conn = ConexionBD.getConexion(); // Obtenemos la conexion
+            if (UnidadTrabajo.actual() == null && conn.getAutoCommit()) {
+                conn.setAutoCommit(false);
+                transaccionPropia = true;
+            }
+            pstmt = conn.prepareStatement(SQL_REGISTRAR_DEVOLUCION_ACTIVO);
+            LogsError.info(this.getClass(), "Registrando " + devoluciones.size() + " devoluciones en prestamos en lotes de " + TAMANO_LOTE_MORA);
+            int procesados = 0; // Cuantos resultados de executeBatch ya se leyeron
+            for (int i = 0; i < devoluciones.size(); i++) {
+                Devolucion devolucion = devoluciones.get(i);
+                pstmt.setDate(1, Date.valueOf(devolucion.getFechaDevolucion()));
+                pstmt.setBigDecimal(2, devolucion.getMoraPagada() != null ? devolucion.getMoraPagada() : BigDecimal.ZERO);
+                pstmt.setInt(3, devolucion.getIdPrestamo());
+                pstmt.addBatch();
+                if ((i + 1) % TAMANO_LOTE_MORA == 0 || i == devoluciones.size() - 1) {
+                    for (int resultado : pstmt.executeBatch()) {
+                        actualizados[procesados++] = resultado > 0 || resultado == Statement.SUCCESS_NO_INFO;
+                    }
+                }
+            }
+            if (transaccionPropia) {
+                conn.commit();
+            }
+        } catch (SQLException ex) {
+            LogsError.error(this.getClass(), "Error al registrar devoluciones en lote: " + ex.getMessage(), ex);
+            if (transaccionPropia) {
+                try {
+                    conn.rollback(); // No queda ninguna devolucion a medias
+                } catch (SQLException exRollback) {
+                    LogsError.error(this.getClass(), "Error durante el rollback de las devoluciones en lote.", exRollback);
+                }
+            }
+            throw ex; // Relanzamos el error
+        } finally {
+            ConexionBD.close(pstmt); // Cerramos el PreparedStatement
+            if (transaccionPropia) {
+                try {
+                    conn.setAutoCommit(true); // Dejamos la conexion como estaba
+                } catch (SQLException ex) {
+                    LogsError.error(this.getClass(), "Error al restaurar auto-commit.", ex);
+                }
+            }
+            ConexionBD.close(conn); // Devolvemos la conexion al pool
+        }
+        return actualizados;
+    }
+
+    // Este metodo convierte una fila del ResultSet (con el JOIN completo) a un objeto Prestamo.
+    // El mapa de identidad hace que los usuarios, ejemplares, documentos y tipos que se repiten
+    // en varias filas se construyan una sola vez y se compartan entre los prestamos.
+    private Prestamo mapearResultSet(ResultSet rs, MapaIdentidad mapa) throws SQLException {
         Prestamo p = new Prestamo(); // Creamos un objeto Prestamo vacio
         p.setId(rs.getInt("id"));
         p.setIdUsuario(rs.getInt("id_usuario"));
@@ -177,16 +324,82 @@ public class PrestamoDAOImpl implements PrestamoDAO {
 
         p.setMora(rs.getBigDecimal("mora"));
 
-        // Cargamos los objetos Usuario y Ejemplar relacionados
-        if (this.usuarioDAO != null) { // Si tenemos el objeto para manejar usuarios
-            Usuario u = this.usuarioDAO.obtenerPorId(p.getIdUsuario()); // Buscamos el usuario
-            p.setUsuario(u); // Asignamos el objeto Usuario completo
+        p.setUsuario(mapearUsuario(rs, p.getIdUsuario(), mapa)); // Asignamos el objeto Usuario completo
+        p.setEjemplar(mapearEjemplar(rs, p.getIdEjemplar(), mapa)); // Asignamos el objeto Ejemplar completo
+        return p; // Devolvemos el prestamo con todos sus datos
+    }
+
+    private Usuario mapearUsuario(ResultSet rs, int idUsuario, MapaIdentidad mapa) throws SQLException {
+        Usuario u = mapa.usuarios.get(idUsuario);
+        if (u != null) {
+            return u; // Ya lo armamos en una fila anterior
         }
-        if (this.ejemplarDAO != null) { // Si tenemos el objeto para manejar ejemplares
-            Ejemplar e = this.ejemplarDAO.obtenerPorId(p.getIdEjemplar()); // Buscamos el ejemplar
-            p.setEjemplar(e); // Asignamos el objeto Ejemplar completo
+        u = new Usuario();
+        u.setId(idUsuario);
+        u.setNombre(rs.getString("u_nombre"));
+        u.setCorreo(rs.getString("u_correo"));
+        u.setContrasena(rs.getString("u_contrasena"));
+        u.setIdTipoUsuario(rs.getInt("u_id_tipo_usuario"));
+        u.setEstado(rs.getBoolean("u_estado"));
+
+        String tipo = rs.getString("tu_tipo");
+        if (tipo != null) { // LEFT JOIN: puede no existir el tipo
+            TipoUsuario tu = mapa.tiposUsuario.get(u.getIdTipoUsuario());
+            if (tu == null) {
+                tu = new TipoUsuario(u.getIdTipoUsuario(), tipo);
+                mapa.tiposUsuario.put(tu.getId(), tu);
+            }
+            u.setTipoUsuario(tu);
         }
-        return p; // Devolvemos el prestamo con todos sus datos
+        mapa.usuarios.put(idUsuario, u);
+        return u;
+    }
+
+    private Ejemplar mapearEjemplar(ResultSet rs, int idEjemplar, MapaIdentidad mapa) throws SQLException {
+        Ejemplar e = mapa.ejemplares.get(idEjemplar);
+        if (e != null) {
+            return e;
+        }
+        e = new Ejemplar();
+        e.setId(idEjemplar);
+        e.setIdDocumento(rs.getInt("e_id_documento"));
+        e.setUbicacion(rs.getString("e_ubicacion"));
+        e.setEstado(rs.getString("e_estado"));
+        e.setDocumento(mapearDocumento(rs, e.getIdDocumento(), mapa));
+        mapa.ejemplares.put(idEjemplar, e);
+        return e;
+    }
+
+    private Documento mapearDocumento(ResultSet rs, int idDocumento, MapaIdentidad mapa) throws SQLException {
+        Documento doc = mapa.documentos.get(idDocumento);
+        if (doc != null) {
+            return doc;
+        }
+        doc = new Documento();
+        doc.setId(idDocumento);
+        doc.setTitulo(rs.getString("d_titulo"));
+        doc.setAutor(rs.getString("d_autor"));
+        doc.setEditorial(rs.getString("d_editorial"));
+
+        int anioPub = rs.getInt("d_anio_publicacion"); // Obtenemos el anio
+        if (rs.wasNull()) { // Verificamos si el anio era nulo en la BD
+            doc.setAnioPublicacion(null);
+        } else {
+            doc.setAnioPublicacion(anioPub);
+        }
+        doc.setIdTipoDocumento(rs.getInt("d_id_tipo_documento"));
+
+        String tipo = rs.getString("td_tipo");
+        if (tipo != null) { // LEFT JOIN: puede no existir el tipo
+            TipoDocumento td = mapa.tiposDocumento.get(doc.getIdTipoDocumento());
+            if (td == null) {
+                td = new TipoDocumento(doc.getIdTipoDocumento(), tipo);
+                mapa.tiposDocumento.put(td.getId(), td);
+            }
+            doc.setTipoDocumento(td);
+        }
+        mapa.documentos.put(idDocumento, doc);
+        return doc;
     }
 
     @Override
@@ -203,7 +416,7 @@ public class PrestamoDAOImpl implements PrestamoDAO {
             LogsError.info(this.getClass(), "Ejecutando consulta para obtener prestamo por ID: " + SQL_SELECT_BY_ID + " con ID: " + id);
             rs = pstmt.executeQuery(); // Ejecutamos la consulta
             if (rs.next()) { // Si encontramos el prestamo
-                prestamo = mapearResultSet(rs); // Convertimos los datos a objeto
+                prestamo = mapearResultSet(rs, new MapaIdentidad()); // Convertimos los datos a objeto
             } else {
                  LogsError.warn(this.getClass(), "No se encontro Prestamo con ID: " + id);
             }
@@ -213,16 +426,82 @@ public class PrestamoDAOImpl implements PrestamoDAO {
         } finally {
             ConexionBD.close(rs); // Cerramos el ResultSet
             ConexionBD.close(pstmt); // Cerramos el PreparedStatement
+            ConexionBD.close(conn); // Devolvemos la conexion al pool
         }
         return prestamo; // Devolvemos el prestamo (o null)
     }
 
+    @Override
+    public Map<Integer, Prestamo> obtenerPorIds(Collection<Integer> ids) throws SQLException {
+        // Este metodo obtiene varios prestamos (con su grafo completo) usando consultas IN en vez de una por ID.
+        MapaIdentidad mapa = new MapaIdentidad(); // Compartido por todos los bloques
+        return CargadorPorLotes.consultarPorIds(this.getClass(), SQL_SELECT_BY_IDS, ids, rs -> mapearResultSet(rs, mapa), Prestamo::getId);
+    }
+
+    @Override
+    public Map<Integer, Prestamo> bloquearPorIds(Collection<Integer> ids) throws SQLException {
+        // Este metodo lee varios prestamos (sin Usuario ni Ejemplar) y deja sus filas bloqueadas hasta que termine
+        // la transaccion, para validarlos y devolverlos sin que otra devolucion los toque en medio.
+        Map<Integer, Prestamo> prestamos = new HashMap<>();
+        if (ids == null || ids.isEmpty()) {
+            return prestamos;
+        }
+        List<Integer> unicos = new ArrayList<>(new LinkedHashSet<>(ids));
+        if (unicos.size() > CargadorPorLotes.TAMANO_BLOQUE) {
+            throw new IllegalArgumentException("No se pueden bloquear mas de " + CargadorPorLotes.TAMANO_BLOQUE + " prestamos a la vez.");
+        }
+        if (UnidadTrabajo.actual() == null) {
+            LogsError.warn(this.getClass(), "bloquearPorIds llamado fuera de una UnidadTrabajo: los prestamos no quedan bloqueados.");
+        }
+        String sql = String.format(SQL_SELECT_BY_IDS_FOR_UPDATE, String.join(", ", Collections.nCopies(unicos.size(), "?")));
+        Connection conn = null; // Variable para la conexion
+        PreparedStatement pstmt = null; // Variable para la consulta
+        ResultSet rs = null; // Para los resultados
+        try {
+            conn = ConexionBD.getConexion(); // Obtenemos la conexion (la de la transaccion abierta)
+            pstmt = conn.prepareStatement(sql);
+            for (int i = 0; i < unicos.size(); i++) {
+                pstmt.setInt(i + 1, unicos.get(i));
+            }
+            LogsError.info(this.getClass(), "Bloqueando " + unicos.size() + " prestamos: " + SQL_SELECT_BY_IDS_FOR_UPDATE);
+            rs = pstmt.executeQuery(); // Ejecutamos la consulta
+            while (rs.next()) {
+                Prestamo p = new Prestamo();
+                p.setId(rs.getInt("id"));
+                p.setIdUsuario(rs.getInt("id_usuario"));
+                p.setIdEjemplar(rs.getInt("id_ejemplar"));
+                p.setFechaPrestamo(rs.getDate("fecha_prestamo").toLocalDate());
+                Date fechaDevolucion = rs.getDate("fecha_devolucion");
+                p.setFechaDevolucion(fechaDevolucion != null ? fechaDevolucion.toLocalDate() : null);
+                p.setFechaLimite(rs.getDate("fecha_limite").toLocalDate());
+                p.setMora(rs.getBigDecimal("mora"));
+                prestamos.put(p.getId(), p);
+            }
+        } catch (SQLException ex) {
+            LogsError.error(this.getClass(), "Error al bloquear prestamos: " + ex.getMessage(), ex);
+            throw ex; // Relanzamos el error
+        } finally {
+            ConexionBD.close(rs); // Cerramos el ResultSet
+            ConexionBD.close(pstmt); // Cerramos el PreparedStatement
+            ConexionBD.close(conn); // Devolvemos la conexion al pool
+        }
+        return prestamos;
+    }
+
     @Override
     public List<Prestamo> obtenerTodos() throws SQLException {
         // Este metodo devuelve una lista con todos los prestamos de la base de datos.
         return obtenerListaDePrestamos(SQL_SELECT_ALL, -1, "Error al obtener todos los prestamos");
     }
 
+    @Override
+    public Pagina<Prestamo> obtenerPagina(String token, int tamano) throws SQLException {
+        // Este metodo devuelve una pagina de prestamos (los mas recientes primero), empezando despues del token.
+        MapaIdentidad mapa = new MapaIdentidad(); // Un mapa por pagina
+        return Pagina.consultar(this.getClass(), SQL_SELECT_PAGINA, SQL_SELECT_PAGINA_DESDE, token, tamano,
+                v -> new Object[]{Date.valueOf(LocalDate.parse(v[0])), Integer.parseInt(v[1])}, rs -> mapearResultSet(rs, mapa), p -> new Object[]{p.getFechaPrestamo(), p.getId()});
+    }
+
     @Override
     public List<Prestamo> obtenerPorIdUsuario(int idUsuario) throws SQLException {
         // Este metodo devuelve una lista con todos los prestamos de un usuario especifico.
@@ -267,8 +546,9 @@ public class PrestamoDAOImpl implements PrestamoDAO {
             }
             LogsError.info(this.getClass(), "Ejecutando consulta: " + sql + (parametroId != -1 ? " con parametro: " + parametroId : ""));
             rs = pstmt.executeQuery(); // Ejecutamos la consulta
+            MapaIdentidad mapa = new MapaIdentidad(); // Un mapa por consulta
             while (rs.next()) { // Mientras haya prestamos
-                prestamos.add(mapearResultSet(rs)); // Agregamos el prestamo a la lista
+                prestamos.add(mapearResultSet(rs, mapa)); // Agregamos el prestamo a la lista
             }
         } catch (SQLException ex) {
             LogsError.error(this.getClass(), errorMsg + ": " + ex.getMessage(), ex);
@@ -276,10 +556,168 @@ public class PrestamoDAOImpl implements PrestamoDAO {
         } finally {
             ConexionBD.close(rs); // Cerramos el ResultSet
             ConexionBD.close(pstmt); // Cerramos el PreparedStatement
+            ConexionBD.close(conn); // Devolvemos la conexion al pool
         }
         return prestamos; // Devolvemos la lista de prestamos
     }
 
+    @Override
+    public void recorrerResumenMoraPorUsuario(Consumer<ResumenMoraUsuario> consumidor) throws SQLException {
+        // Este metodo entrega al consumidor cada usuario con mora, con los totales ya calculados por la BD.
+        // El ResultSet se lee fila por fila (streaming del driver de MySQL), asi que la memoria no crece con la
+        // cantidad de usuarios. Mientras se recorre, el consumidor no debe hacer otras consultas en este hilo.
+        Connection conn = null; // Variable para la conexion
+        PreparedStatement pstmt = null; // Variable para la consulta
+        ResultSet rs = null; // Para los resultados
+        try {
+            conn = ConexionBD.getConexion(); // Obtenemos la conexion
+            pstmt = conn.prepareStatement(SQL_SELECT_RESUMEN_MORA_POR_USUARIO, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            pstmt.setFetchSize(Integer.MIN_VALUE); // Con MySQL, esto hace que las filas lleguen de una en una
+            LogsError.info(this.getClass(), "Ejecutando consulta de resumen de mora por usuario: " + SQL_SELECT_RESUMEN_MORA_POR_USUARIO);
+            rs = pstmt.executeQuery(); // Ejecutamos la consulta
+            Map<Integer, TipoUsuario> tipos = new HashMap<>(); // Los tipos de usuario se repiten mucho; compartimos el objeto
+            while (rs.next()) {
+                Usuario u = new Usuario();
+                u.setId(rs.getInt("id"));
+                u.setNombre(rs.getString("nombre"));
+                u.setCorreo(rs.getString("correo"));
+                u.setContrasena(rs.getString("contrasena"));
+                u.setIdTipoUsuario(rs.getInt("id_tipo_usuario"));
+                u.setEstado(rs.getBoolean("estado"));
+                String tipo = rs.getString("tu_tipo");
+                if (tipo != null) { // LEFT JOIN: puede no existir el tipo
+                    u.setTipoUsuario(tipos.computeIfAbsent(u.getIdTipoUsuario(), id -> new TipoUsuario(id, tipo)));
+                }
+                consumidor.accept(new ResumenMoraUsuario(u, rs.getInt("prestamos_vencidos"),
+                        rs.getDate("fecha_limite_mas_antigua").toLocalDate(), rs.getBigDecimal("mora_acumulada")));
+            }
+        } catch (SQLException ex) {
+            LogsError.error(this.getClass(), "Error al obtener el resumen de mora por usuario: " + ex.getMessage(), ex);
+            throw ex; // Relanzamos el error
+        } finally {
+            ConexionBD.close(rs); // Cerramos el ResultSet
+            ConexionBD.close(pstmt); // Cerramos el PreparedStatement
+            ConexionBD.close(conn); // Devolvemos la conexion al pool
+        }
+    }
+
+    @Override
+    public void recorrerHistorial(Consumer<FilaHistorialPrestamo> consumidor) throws SQLException {
+        // Este metodo entrega cada prestamo como una fila plana, leyendo el ResultSet de uno en uno (streaming del driver de MySQL).
+        // No se arman Usuario, Ejemplar ni Documento, asi que la memoria no crece con la cantidad de prestamos.
+        // Mientras se recorre, el consumidor no debe hacer otras consultas en este hilo.
+        Connection conn = null; // Variable para la conexion
+        PreparedStatement pstmt = null; // Variable para la consulta
+        ResultSet rs = null; // Para los resultados
+        try {
+            conn = ConexionBD.getConexion(); // Obtenemos la conexion
+            pstmt = conn.prepareStatement(SQL_SELECT_HISTORIAL, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            pstmt.setFetchSize(Integer.MIN_VALUE); // Con MySQL, esto hace que las filas lleguen de una en una
+            LogsError.info(this.getClass(), "Ejecutando consulta para recorrer el historial de prestamos: " + SQL_SELECT_HISTORIAL);
+            rs = pstmt.executeQuery(); // Ejecutamos la consulta
+            while (rs.next()) {
+                Date sqlFechaDevolucion = rs.getDate("fecha_devolucion"); // Nula si no se ha devuelto
+                consumidor.accept(new FilaHistorialPrestamo(rs.getInt("id"), rs.getInt("id_usuario"), rs.getString("nombre"), rs.getString("correo"),
+                        rs.getInt("id_ejemplar"), rs.getInt("id_documento"), rs.getString("titulo"),
+                        rs.getDate("fecha_prestamo").toLocalDate(), rs.getDate("fecha_limite").toLocalDate(),
+                        sqlFechaDevolucion != null ? sqlFechaDevolucion.toLocalDate() : null, rs.getBigDecimal("mora")));
+            }
+        } catch (SQLException ex) {
+            LogsError.error(this.getClass(), "Error al recorrer el historial de prestamos: " + ex.getMessage(), ex);
+            throw ex; // Relanzamos el error
+        } finally {
+            ConexionBD.close(rs); // Cerramos el ResultSet
+            ConexionBD.close(pstmt); // Cerramos el PreparedStatement
+            ConexionBD.close(conn); // Devolvemos la conexion al pool
+        }
+    }
+
+    @Override
+    public void recorrerPrestamosVencidos(LocalDate fechaCorte, VisitantePrestamoVencido visitante) throws SQLException {
+        // Este metodo pasa cada prestamo vencido al visitante (solo id, usuario, fecha limite y mora actual), leyendo las filas de una en una.
+        // Mientras se recorre, el visitante no debe hacer otras consultas en este hilo.
+        Connection conn = null; // Variable para la conexion
+        PreparedStatement pstmt = null; // Variable para la consulta
+        ResultSet rs = null; // Para los resultados
+        try {
+            conn = ConexionBD.getConexion(); // Obtenemos la conexion
+            pstmt = conn.prepareStatement(SQL_SELECT_VENCIDOS_PARA_MORA, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            pstmt.setDate(1, Date.valueOf(fechaCorte));
+            pstmt.setFetchSize(Integer.MIN_VALUE); // Con MySQL, esto hace que las filas lleguen de una en una (sin useCursorFetch, otro tamano se ignora)
+            LogsError.info(this.getClass(), "Ejecutando consulta de prestamos vencidos para mora con corte: " + fechaCorte);
+            rs = pstmt.executeQuery(); // Ejecutamos la consulta
+            while (rs.next()) {
+                BigDecimal mora = rs.getBigDecimal("mora");
+                long moraCentavos = mora != null ? mora.movePointRight(2).longValue() : 0;
+                visitante.visitar(rs.getInt("id"), rs.getInt("id_usuario"), rs.getDate("fecha_limite").toLocalDate().toEpochDay(), moraCentavos);
+            }
+        } catch (SQLException ex) {
+            LogsError.error(this.getClass(), "Error al recorrer prestamos vencidos: " + ex.getMessage(), ex);
+            throw ex; // Relanzamos el error
+        } finally {
+            ConexionBD.close(rs); // Cerramos el ResultSet
+            ConexionBD.close(pstmt); // Cerramos el PreparedStatement
+            ConexionBD.close(conn); // Devolvemos la conexion al pool
+        }
+    }
+
+    @Override
+    public int actualizarMoraEnLote(int[] idsPrestamo, long[] moraCentavos, int cantidad) throws SQLException {
+        // Este metodo actualiza la mora de muchos prestamos enviando las sentencias en lotes.
+        // Fuera de una UnidadTrabajo se hace commit por cada lote, para no tener una transaccion enorme;
+        // si se corta a la mitad, volver a correrlo deja todo igual porque la mora se calcula completa, no se suma.
+        Connection conn = null; // Variable para la conexion
+        PreparedStatement pstmt = null; // Variable para la consulta
+        int filasActualizadas = 0; // Total de filas que cambiaron
+        boolean commitPorLote = false; // true si manejamos nosotros la transaccion
+        try {
+            conn = ConexionBD.getConexion(); // Obtenemos la conexion
+            if (UnidadTrabajo.actual() == null && conn.getAutoCommit()) {
+                conn.setAutoCommit(false);
+                commitPorLote = true;
+            }
+            pstmt = conn.prepareStatement(SQL_UPDATE_MORA_ACTIVO);
+            LogsError.info(this.getClass(), "Actualizando mora de " + cantidad + " prestamos en lotes de " + TAMANO_LOTE_MORA);
+            for (int i = 0; i < cantidad; i++) {
+                pstmt.setBigDecimal(1, BigDecimal.valueOf(moraCentavos[i], 2));
+                pstmt.setInt(2, idsPrestamo[i]);
+                pstmt.addBatch();
+                if ((i + 1) % TAMANO_LOTE_MORA == 0 || i == cantidad - 1) {
+                    for (int resultado : pstmt.executeBatch()) {
+                        if (resultado > 0 || resultado == Statement.SUCCESS_NO_INFO) {
+                            filasActualizadas++;
+                        }
+                    }
+                    if (commitPorLote) {
+                        conn.commit();
+                    }
+                }
+            }
+            LogsError.info(this.getClass(), "Mora actualizada en lote. Filas afectadas: " + filasActualizadas);
+        } catch (SQLException ex) {
+            LogsError.error(this.getClass(), "Error al actualizar mora en lote: " + ex.getMessage(), ex);
+            if (commitPorLote) {
+                try {
+                    conn.rollback(); // Solo se pierde el lote actual; los anteriores ya quedaron guardados
+                } catch (SQLException exRollback) {
+                    LogsError.error(this.getClass(), "Error durante el rollback del lote de mora.", exRollback);
+                }
+            }
+            throw ex; // Relanzamos el error
+        } finally {
+            ConexionBD.close(pstmt); // Cerramos el PreparedStatement
+            if (commitPorLote) {
+                try {
+                    conn.setAutoCommit(true); // Dejamos la conexion como estaba
+                } catch (SQLException ex) {
+                    LogsError.error(this.getClass(), "Error al restaurar auto-commit.", ex);
+                }
+            }
+            ConexionBD.close(conn); // Devolvemos la conexion al pool
+        }
+        return filasActualizadas;
+    }
+
     @Override
     public int contarPrestamosActivosPorUsuario(int idUsuario) throws SQLException {
         // Este metodo cuenta cuantos prestamos activos (no devueltos) tiene un usuario.
@@ -302,14 +740,108 @@ public class PrestamoDAOImpl implements PrestamoDAO {
         } finally {
             ConexionBD.close(rs); // Cerramos el ResultSet
             ConexionBD.close(pstmt); // Cerramos el PreparedStatement
+            ConexionBD.close(conn); // Devolvemos la conexion al pool
         }
         return conteo; // Devolvemos el numero de prestamos activos
     }
 
+    @Override
+    public Map<Integer, Integer> contarPrestamosPorDocumento() throws SQLException {
+        // Este metodo cuenta cuantas veces se ha prestado cada documento (sumando todos sus ejemplares).
+        Connection conn = null; // Variable para la conexion
+        PreparedStatement pstmt = null; // Variable para la consulta
+        ResultSet rs = null; // Para los resultados
+        Map<Integer, Integer> conteos = new HashMap<>(); // ID documento -> prestamos
+        try {
+            conn = ConexionBD.getConexion(); // Obtenemos la conexion
+            pstmt = conn.prepareStatement(SQL_COUNT_POR_DOCUMENTO);
+            LogsError.info(this.getClass(), "Ejecutando consulta para contar prestamos por documento: " + SQL_COUNT_POR_DOCUMENTO);
+            rs = pstmt.executeQuery(); // Ejecutamos la consulta
+            while (rs.next()) {
+                conteos.put(rs.getInt("id_documento"), rs.getInt("total"));
+            }
+        } catch (SQLException ex) {
+            LogsError.error(this.getClass(), "Error al contar prestamos por documento: " + ex.getMessage(), ex);
+            throw ex; // Relanzamos el error
+        } finally {
+            ConexionBD.close(rs); // Cerramos el ResultSet
+            ConexionBD.close(pstmt); // Cerramos el PreparedStatement
+            ConexionBD.close(conn); // Devolvemos la conexion al pool
+        }
+        return conteos; // Devolvemos los conteos
+    }
+
     @Override
     public boolean verificarUsuarioTieneMora(int idUsuario) throws SQLException {
         // Este metodo verifica si un usuario tiene algun prestamo con mora pendiente.
         List<Prestamo> prestamosConMora = obtenerPrestamosConMoraPendientePorUsuario(idUsuario); // Obtenemos sus prestamos con mora
         return !prestamosConMora.isEmpty(); // Si la lista no esta vacia, entonces tiene mora
     }
-}
\ No newline at end of file
+
+    @Override
+    public ElegibilidadPrestamo obtenerElegibilidad(int idUsuario) throws SQLException {
+        // Este metodo reemplaza a obtener el usuario, verificarUsuarioTieneMora y contarPrestamosActivosPorUsuario
+        // (tres consultas o mas) por dos: el bloqueo del usuario y la consulta de elegibilidad.
+        Connection conn = null; // Variable para la conexion
+        PreparedStatement pstmt = null; // Variable para la consulta
+        ResultSet rs = null; // Para el resultado
+        ElegibilidadPrestamo elegibilidad = null; // Lo que vamos a devolver
+        try {
+            conn = ConexionBD.getConexion(); // Obtenemos la conexion
+            pstmt = conn.prepareStatement(SQL_BLOQUEAR_USUARIO);
+            pstmt.setInt(1, idUsuario);
+            LogsError.info(this.getClass(), "Bloqueando usuario para revisar su elegibilidad, idUsuario: " + idUsuario);
+            rs = pstmt.executeQuery();
+            if (!rs.next()) {
+                return null; // No existe el usuario
+            }
+            ConexionBD.close(rs);
+            ConexionBD.close(pstmt);
+            pstmt = conn.prepareStatement(SQL_SELECT_ELEGIBILIDAD);
+            pstmt.setInt(1, idUsuario);
+            LogsError.info(this.getClass(), "Ejecutando consulta de elegibilidad de prestamo para idUsuario: " + idUsuario);
+            rs = pstmt.executeQuery(); // Ejecutamos la consulta
+            if (rs.next()) { // Si el usuario existe
+                Usuario u = new Usuario();
+                u.setId(rs.getInt("id"));
+                u.setNombre(rs.getString("nombre"));
+                u.setCorreo(rs.getString("correo"));
+                u.setContrasena(rs.getString("contrasena"));
+                u.setIdTipoUsuario(rs.getInt("id_tipo_usuario"));
+                u.setEstado(rs.getBoolean("estado"));
+                String tipo = rs.getString("tu_tipo");
+                if (tipo != null) { // LEFT JOIN: puede no existir el tipo
+                    u.setTipoUsuario(new TipoUsuario(u.getIdTipoUsuario(), tipo));
+                }
+                PoliticasPrestamo politicas = null;
+                rs.getInt("id_politica");
+                if (!rs.wasNull()) { // LEFT JOIN: puede no tener politicas
+                    politicas = new PoliticasPrestamo();
+                    politicas.setIdPolitica(rs.getInt("id_politica"));
+                    politicas.setIdTipoUsuario(u.getIdTipoUsuario());
+                    politicas.setTipoUsuario(u.getTipoUsuario());
+                    politicas.setMaxEjemplaresPrestamo(rs.getInt("max_ejemplares_prestamo"));
+                    politicas.setDiasPrestamoDefault(rs.getInt("dias_prestamo_default"));
+                }
+                elegibilidad = new ElegibilidadPrestamo(u, politicas, rs.getInt("prestamos_activos"), rs.getInt("prestamos_vencidos") > 0);
+            }
+        } catch (SQLException ex) {
+            LogsError.error(this.getClass(), "Error al obtener la elegibilidad de prestamo: " + ex.getMessage(), ex);
+            throw ex; // Relanzamos el error
+        } finally {
+            ConexionBD.close(rs); // Cerramos el ResultSet
+            ConexionBD.close(pstmt); // Cerramos el PreparedStatement
+            ConexionBD.close(conn); // Devolvemos la conexion al pool
+        }
+        return elegibilidad;
+    }
+
+    // Objetos ya construidos durante el recorrido de un ResultSet, por ID.
+    private static class MapaIdentidad {
+        final Map<Integer, Usuario> usuarios = new HashMap<>();
+        final Map<Integer, TipoUsuario> tiposUsuario = new HashMap<>();
+        final Map<Integer, Ejemplar> ejemplares = new HashMap<>();
+        final Map<Integer, Documento> documentos = new HashMap<>();
+        final Map<Integer, TipoDocumento> tiposDocumento = new HashMap<>();
+    }
+}
@@ -4,6 +4,8 @@ import bibliotecaudb.modelo.biblioteca.TipoDocumento;
 import bibliotecaudb.dao.biblioteca.TipoDocumentoDAO;
 import bibliotecaudb.conexion.ConexionBD;
 import bibliotecaudb.conexion.LogsError;
+import bibliotecaudb.dao.CacheReferencia;
+import bibliotecaudb.busqueda.Tokenizador;
 
 import java.sql.Connection;
 import java.sql.PreparedStatement;
@@ -11,17 +13,28 @@ import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 public class TipoDocumentoDAOImpl implements TipoDocumentoDAO {
 
     private static final String SQL_INSERT = "INSERT INTO tipo_documento (tipo) VALUES (?)";
     private static final String SQL_UPDATE = "UPDATE tipo_documento SET tipo = ? WHERE id = ?";
     private static final String SQL_DELETE = "DELETE FROM tipo_documento WHERE id = ?";
-    private static final String SQL_SELECT_BY_ID = "SELECT id, tipo FROM tipo_documento WHERE id = ?";
-    private static final String SQL_SELECT_BY_NAME = "SELECT id, tipo FROM tipo_documento WHERE tipo = ?";
     private static final String SQL_SELECT_ALL = "SELECT id, tipo FROM tipo_documento ORDER BY tipo";
 
+    // Tabla pequena que casi no cambia: la tenemos completa en memoria (compartida por todas las instancias).
+    // Se entregan copias porque las pantallas de administracion modifican el objeto antes de actualizar.
+    private static final CacheReferencia<TipoDocumento> CACHE = new CacheReferencia<>("tipo_documento",
+            () -> new TipoDocumentoDAOImpl().consultarTodos(), TipoDocumento::getId,
+            td -> new TipoDocumento(td.getId(), td.getTipo()));
+
+    public static CacheReferencia<TipoDocumento> getCache() {
+        return CACHE;
+    }
+
     @Override
     public boolean insertar(TipoDocumento tipoDocumento) throws SQLException {
         Connection conn = null;
@@ -35,6 +48,7 @@ public class TipoDocumentoDAOImpl implements TipoDocumentoDAO {
 
             LogsError.info(this.getClass(), "Ejecutando query: " + SQL_INSERT + " con tipo: " + tipoDocumento.getTipo());
             rowsAffected = pstmt.executeUpdate();
+            CACHE.invalidar(); // La tabla cambio
             if (rowsAffected > 0) {
                 generatedKeys = pstmt.getGeneratedKeys();
                 if (generatedKeys.next()) {
@@ -51,6 +65,7 @@ public class TipoDocumentoDAOImpl implements TipoDocumentoDAO {
         } finally {
             ConexionBD.close(generatedKeys);
             ConexionBD.close(pstmt);
+            ConexionBD.close(conn);
         }
         return rowsAffected > 0;
     }
@@ -68,6 +83,7 @@ public class TipoDocumentoDAOImpl implements TipoDocumentoDAO {
 
             LogsError.info(this.getClass(), "Ejecutando query: " + SQL_UPDATE + " para ID: " + tipoDocumento.getId());
             rowsAffected = pstmt.executeUpdate();
+            CACHE.invalidar(); // La tabla cambio
             if (rowsAffected > 0) {
                  LogsError.info(this.getClass(), "TipoDocumento actualizado. Filas afectadas: " + rowsAffected);
             } else {
@@ -78,6 +94,7 @@ public class TipoDocumentoDAOImpl implements TipoDocumentoDAO {
             throw ex;
         } finally {
             ConexionBD.close(pstmt);
+            ConexionBD.close(conn);
         }
         return rowsAffected > 0;
     }
@@ -94,6 +111,7 @@ public class TipoDocumentoDAOImpl implements TipoDocumentoDAO {
 
             LogsError.info(this.getClass(), "Ejecutando query: " + SQL_DELETE + " para ID: " + id);
             rowsAffected = pstmt.executeUpdate();
+            CACHE.invalidar(); // La tabla cambio
              if (rowsAffected > 0) {
                 LogsError.info(this.getClass(), "TipoDocumento eliminado. Filas afectadas: " + rowsAffected);
             } else {
@@ -106,6 +124,7 @@ public class TipoDocumentoDAOImpl implements TipoDocumentoDAO {
             throw ex;
         } finally {
             ConexionBD.close(pstmt);
+            ConexionBD.close(conn);
         }
         return rowsAffected > 0;
     }
@@ -119,60 +138,38 @@ public class TipoDocumentoDAOImpl implements TipoDocumentoDAO {
 
     @Override
     public TipoDocumento obtenerPorId(int id) throws SQLException {
-        Connection conn = null;
-        PreparedStatement pstmt = null;
-        ResultSet rs = null;
-        TipoDocumento tipoDocumento = null;
-        try {
-            conn = ConexionBD.getConexion();
-            pstmt = conn.prepareStatement(SQL_SELECT_BY_ID);
-            pstmt.setInt(1, id);
-            LogsError.info(this.getClass(), "Ejecutando query: " + SQL_SELECT_BY_ID + " con ID: " + id);
-            rs = pstmt.executeQuery();
-            if (rs.next()) {
-                tipoDocumento = mapearResultSet(rs);
-            } else {
-                LogsError.warn(this.getClass(), "No se encontró TipoDocumento con ID: " + id);
+        return CACHE.obtener(id); // Desde el cache, sin ir a la BD
+    }
+
+    @Override
+    public Map<Integer, TipoDocumento> obtenerPorIds(Collection<Integer> ids) throws SQLException {
+        Map<Integer, TipoDocumento> tipos = new HashMap<>();
+        for (Integer id : ids) {
+            TipoDocumento tipo = CACHE.obtener(id);
+            if (tipo != null) {
+                tipos.put(id, tipo);
             }
-        } catch (SQLException ex) {
-            LogsError.error(this.getClass(), "Error al obtener tipo de documento por ID: " + ex.getMessage(), ex);
-            throw ex;
-        } finally {
-            ConexionBD.close(rs);
-            ConexionBD.close(pstmt);
         }
-        return tipoDocumento;
+        return tipos;
     }
-    
+
     @Override
     public TipoDocumento obtenerPorNombre(String nombreTipo) throws SQLException {
-        Connection conn = null;
-        PreparedStatement pstmt = null;
-        ResultSet rs = null;
-        TipoDocumento tipoDocumento = null;
-        try {
-            conn = ConexionBD.getConexion();
-            pstmt = conn.prepareStatement(SQL_SELECT_BY_NAME);
-            pstmt.setString(1, nombreTipo);
-            LogsError.info(this.getClass(), "Ejecutando query: " + SQL_SELECT_BY_NAME + " con nombre: " + nombreTipo);
-            rs = pstmt.executeQuery();
-            if (rs.next()) {
-                tipoDocumento = mapearResultSet(rs);
-            } else {
-                LogsError.warn(this.getClass(), "No se encontró TipoDocumento con nombre: " + nombreTipo);
-            }
-        } catch (SQLException ex) {
-            LogsError.error(this.getClass(), "Error al obtener tipo de documento por nombre: " + ex.getMessage(), ex);
-            throw ex;
-        } finally {
-            ConexionBD.close(rs);
-            ConexionBD.close(pstmt);
+        // Igual que el WHERE tipo = ? de antes (utf8mb4_general_ci): sin importar mayusculas, tildes ni espacios al final
+        if (nombreTipo == null) {
+            return null;
         }
-        return tipoDocumento;
+        String buscado = Tokenizador.normalizar(nombreTipo).stripTrailing();
+        return CACHE.buscar(td -> td.getTipo() != null && Tokenizador.normalizar(td.getTipo()).stripTrailing().equals(buscado));
     }
 
     @Override
     public List<TipoDocumento> obtenerTodos() throws SQLException {
+        return CACHE.todos();
+    }
+
+    // Lee todos los tipos de documento de la BD (lo usa el cache para cargarse)
+    private List<TipoDocumento> consultarTodos() throws SQLException {
         Connection conn = null;
         PreparedStatement pstmt = null;
         ResultSet rs = null;
@@ -191,7 +188,8 @@ public class TipoDocumentoDAOImpl implements TipoDocumentoDAO {
         } finally {
             ConexionBD.close(rs);
             ConexionBD.close(pstmt);
+            ConexionBD.close(conn);
         }
         return tiposDocumento;
     }
-}
\ No newline at end of file
+}
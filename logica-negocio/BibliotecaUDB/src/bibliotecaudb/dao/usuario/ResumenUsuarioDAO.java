@@ -0,0 +1,13 @@
+package bibliotecaudb.dao.usuario;
+
+import bibliotecaudb.modelo.usuario.ResumenUsuario;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.Collection;
+
+public interface ResumenUsuarioDAO {
+    ResumenUsuario bloquearPorIdUsuario(int idUsuario) throws SQLException; // Usuario y su resumen en una consulta, con FOR UPDATE; null si no existe el usuario
+    void sumarPrestamos(int idUsuario, int cantidad, LocalDate fechaLimiteMasCercana) throws SQLException; // Despues de insertar prestamos
+    int recalcular(Collection<Integer> idsUsuario) throws SQLException; // Desde la tabla prestamos (despues de devoluciones)
+    int recalcularTodos() throws SQLException; // Todos los usuarios (acumulacion nocturna de mora)
+}
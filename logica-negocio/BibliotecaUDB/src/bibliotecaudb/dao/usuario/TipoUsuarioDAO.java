@@ -3,10 +3,13 @@ package bibliotecaudb.dao.usuario;
 import bibliotecaudb.modelo.usuario.TipoUsuario;
 
 import java.sql.SQLException;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 
 public interface TipoUsuarioDAO {
     TipoUsuario obtenerPorId(int id) throws SQLException;
+    Map<Integer, TipoUsuario> obtenerPorIds(Collection<Integer> ids) throws SQLException; // Varios a la vez con una consulta IN
     List<TipoUsuario> obtenerTodos() throws SQLException;
     TipoUsuario obtenerPorNombre(String nombreTipo) throws SQLException;
 }
\ No newline at end of file
@@ -1,8 +1,11 @@
 package bibliotecaudb.dao.usuario;
 
+import bibliotecaudb.dao.Pagina;
 import bibliotecaudb.modelo.usuario.Usuario;
 import java.sql.SQLException;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 
 public interface UsuarioDAO {
     boolean insertar(Usuario usuario) throws SQLException;
@@ -10,7 +13,10 @@ public interface UsuarioDAO {
     boolean actualizarContrasena(String correo, String nuevaContrasena) throws SQLException;
     boolean eliminar(int idUsuario) throws SQLException; // O cambiar estado a inactivo
     Usuario obtenerPorId(int idUsuario) throws SQLException;
+    Usuario bloquearPorId(int idUsuario) throws SQLException; // Igual, con SELECT ... FOR UPDATE (dentro de una UnidadTrabajo)
+    Map<Integer, Usuario> obtenerPorIds(Collection<Integer> ids) throws SQLException; // Varios a la vez con una consulta IN
     Usuario obtenerPorCorreo(String correo) throws SQLException;
     List<Usuario> obtenerTodos() throws SQLException;
+    Pagina<Usuario> obtenerPagina(String token, int tamano) throws SQLException; // Por nombre, paginado por clave (token null = primera pagina)
     Usuario validarLogin(String correo, String contrasena) throws SQLException;
 }
\ No newline at end of file
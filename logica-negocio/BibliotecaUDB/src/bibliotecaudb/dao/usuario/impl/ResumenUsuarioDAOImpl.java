@@ -0,0 +1,177 @@
+package bibliotecaudb.dao.usuario.impl;
+
+import bibliotecaudb.modelo.usuario.ResumenUsuario;
+import bibliotecaudb.modelo.usuario.Usuario;
+import bibliotecaudb.dao.usuario.ResumenUsuarioDAO;
+import bibliotecaudb.dao.usuario.TipoUsuarioDAO;
+import bibliotecaudb.conexion.ConexionBD;
+import bibliotecaudb.conexion.LogsError;
+import bibliotecaudb.conexion.UnidadTrabajo;
+import bibliotecaudb.dao.CargadorPorLotes;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+
+/**
+ * Maneja la tabla resumen_usuario: cuantos prestamos activos y vencidos tiene cada usuario,
+ * su mora acumulada y la fecha limite mas cercana. Se actualiza en la misma transaccion que
+ * el prestamo o la devolucion, asi revisar si un usuario puede llevarse un prestamo es una
+ * sola lectura por llave primaria en vez de contar sus prestamos.
+ *
+ * Un usuario sin fila en el resumen no tiene prestamos activos (la fila se crea con el primero).
+ */
+public class ResumenUsuarioDAOImpl implements ResumenUsuarioDAO {
+
+    // El usuario y su resumen en una lectura; FOR UPDATE bloquea las dos filas hasta el fin de la transaccion
+    private static final String SQL_SELECT_CON_USUARIO_FOR_UPDATE = "SELECT u.id, u.nombre, u.correo, u.contrasena, u.id_tipo_usuario, u.estado, "
+            + "r.prestamos_activos, r.prestamos_vencidos, r.mora_acumulada, r.proximo_vencimiento "
+            + "FROM usuarios u LEFT JOIN resumen_usuario r ON r.id_usuario = u.id WHERE u.id = ? FOR UPDATE";
+    // Suma prestamos nuevos sin leer la tabla prestamos; crea la fila si el usuario no tenia
+    private static final String SQL_SUMAR_PRESTAMOS = "INSERT INTO resumen_usuario (id_usuario, prestamos_activos, proximo_vencimiento) VALUES (?, ?, ?) "
+            + "ON DUPLICATE KEY UPDATE prestamos_activos = prestamos_activos + VALUES(prestamos_activos), "
+            + "proximo_vencimiento = LEAST(COALESCE(proximo_vencimiento, VALUES(proximo_vencimiento)), VALUES(proximo_vencimiento))";
+    // Vuelve a calcular el resumen desde los prestamos sin devolver (usa idx_pres_user_estado); %s es el filtro de usuarios
+    private static final String SQL_RECALCULAR = "INSERT INTO resumen_usuario (id_usuario, prestamos_activos, prestamos_vencidos, mora_acumulada, proximo_vencimiento) "
+            + "SELECT u.id, COUNT(p.id), COALESCE(SUM(p.fecha_limite < CURDATE()), 0), COALESCE(SUM(p.mora), 0), MIN(p.fecha_limite) "
+            + "FROM usuarios u LEFT JOIN prestamos p ON p.id_usuario = u.id AND p.fecha_devolucion IS NULL %s GROUP BY u.id "
+            + "ON DUPLICATE KEY UPDATE prestamos_activos = VALUES(prestamos_activos), prestamos_vencidos = VALUES(prestamos_vencidos), "
+            + "mora_acumulada = VALUES(mora_acumulada), proximo_vencimiento = VALUES(proximo_vencimiento)";
+
+    private TipoUsuarioDAO tipoUsuarioDAO; // Para el TipoUsuario del usuario (viene del cache)
+
+    public ResumenUsuarioDAOImpl() {
+        this.tipoUsuarioDAO = new TipoUsuarioDAOImpl();
+    }
+
+    // Constructor para pasarle el manejador de TipoUsuario
+    public ResumenUsuarioDAOImpl(TipoUsuarioDAO tipoUsuarioDAO) {
+        this.tipoUsuarioDAO = tipoUsuarioDAO;
+    }
+
+    @Override
+    public ResumenUsuario bloquearPorIdUsuario(int idUsuario) throws SQLException {
+        // Este metodo lee el usuario junto con su resumen y deja las dos filas bloqueadas hasta que termine la transaccion.
+        Connection conn = null; // Variable para la conexion
+        PreparedStatement pstmt = null; // Variable para la consulta
+        ResultSet rs = null; // Para el resultado
+        ResumenUsuario resumen = null; // El resumen que vamos a devolver
+
+        if (UnidadTrabajo.actual() == null) {
+            LogsError.warn(this.getClass(), "bloquearPorIdUsuario llamado fuera de una UnidadTrabajo: el usuario no queda bloqueado.");
+        }
+        try {
+            conn = ConexionBD.getConexion(); // Obtenemos la conexion (la de la transaccion abierta)
+            pstmt = conn.prepareStatement(SQL_SELECT_CON_USUARIO_FOR_UPDATE);
+            pstmt.setInt(1, idUsuario);
+            LogsError.info(this.getClass(), "Ejecutando consulta para bloquear usuario y resumen: " + SQL_SELECT_CON_USUARIO_FOR_UPDATE + " para ID: " + idUsuario);
+            rs = pstmt.executeQuery(); // Ejecutamos la consulta
+            if (rs.next()) {
+                Usuario usuario = new Usuario();
+                usuario.setId(rs.getInt("id"));
+                usuario.setNombre(rs.getString("nombre"));
+                usuario.setCorreo(rs.getString("correo"));
+                usuario.setContrasena(rs.getString("contrasena"));
+                usuario.setIdTipoUsuario(rs.getInt("id_tipo_usuario"));
+                usuario.setEstado(rs.getBoolean("estado"));
+
+                resumen = new ResumenUsuario();
+                resumen.setIdUsuario(usuario.getId());
+                resumen.setUsuario(usuario);
+                resumen.setPrestamosActivos(rs.getInt("prestamos_activos")); // 0 si no tiene fila en el resumen
+                resumen.setPrestamosVencidos(rs.getInt("prestamos_vencidos"));
+                BigDecimal mora = rs.getBigDecimal("mora_acumulada");
+                resumen.setMoraAcumulada(mora != null ? mora : BigDecimal.ZERO);
+                Date proximo = rs.getDate("proximo_vencimiento");
+                resumen.setProximoVencimiento(proximo != null ? proximo.toLocalDate() : null);
+            }
+        } catch (SQLException ex) {
+            LogsError.error(this.getClass(), "Error al bloquear el resumen del usuario: " + ex.getMessage(), ex);
+            throw ex; // Relanzamos el error
+        } finally {
+            ConexionBD.close(rs); // Cerramos el ResultSet
+            ConexionBD.close(pstmt); // Cerramos el PreparedStatement
+            ConexionBD.close(conn); // Devolvemos la conexion al pool
+        }
+        if (resumen != null && tipoUsuarioDAO != null) {
+            resumen.getUsuario().setTipoUsuario(tipoUsuarioDAO.obtenerPorId(resumen.getUsuario().getIdTipoUsuario())); // Desde el cache
+        }
+        return resumen;
+    }
+
+    @Override
+    public void sumarPrestamos(int idUsuario, int cantidad, LocalDate fechaLimiteMasCercana) throws SQLException {
+        // Este metodo suma prestamos nuevos al resumen del usuario (debe ir en la transaccion que los inserta).
+        if (cantidad <= 0) {
+            return;
+        }
+        Connection conn = null; // Variable para la conexion
+        PreparedStatement pstmt = null; // Variable para la consulta
+        try {
+            conn = ConexionBD.getConexion(); // Obtenemos la conexion
+            pstmt = conn.prepareStatement(SQL_SUMAR_PRESTAMOS);
+            pstmt.setInt(1, idUsuario);
+            pstmt.setInt(2, cantidad);
+            pstmt.setDate(3, Date.valueOf(fechaLimiteMasCercana));
+            LogsError.info(this.getClass(), "Sumando " + cantidad + " prestamos al resumen del usuario ID: " + idUsuario);
+            pstmt.executeUpdate(); // Ejecutamos el INSERT ... ON DUPLICATE KEY UPDATE
+        } catch (SQLException ex) {
+            LogsError.error(this.getClass(), "Error al sumar prestamos al resumen del usuario: " + ex.getMessage(), ex);
+            throw ex; // Relanzamos el error
+        } finally {
+            ConexionBD.close(pstmt); // Cerramos el PreparedStatement
+            ConexionBD.close(conn); // Devolvemos la conexion al pool
+        }
+    }
+
+    @Override
+    public int recalcular(Collection<Integer> idsUsuario) throws SQLException {
+        // Este metodo recalcula el resumen de algunos usuarios desde sus prestamos sin devolver,
+        // en bloques de CargadorPorLotes.TAMANO_BLOQUE usuarios por sentencia.
+        List<Integer> unicos = new ArrayList<>(new LinkedHashSet<>(idsUsuario));
+        int filas = 0;
+        for (int desde = 0; desde < unicos.size(); desde += CargadorPorLotes.TAMANO_BLOQUE) {
+            List<Integer> bloque = unicos.subList(desde, Math.min(desde + CargadorPorLotes.TAMANO_BLOQUE, unicos.size()));
+            String filtro = "WHERE u.id IN (" + String.join(", ", Collections.nCopies(bloque.size(), "?")) + ")";
+            filas += ejecutarRecalculo(String.format(SQL_RECALCULAR, filtro), bloque);
+        }
+        return filas;
+    }
+
+    @Override
+    public int recalcularTodos() throws SQLException {
+        // Este metodo recalcula el resumen de todos los usuarios; tambien sirve para repararlo si quedo desfasado.
+        return ejecutarRecalculo(String.format(SQL_RECALCULAR, ""), Collections.emptyList());
+    }
+
+    private int ejecutarRecalculo(String sql, List<Integer> idsUsuario) throws SQLException {
+        Connection conn = null; // Variable para la conexion
+        PreparedStatement pstmt = null; // Variable para la consulta
+        int filas = 0;
+        try {
+            conn = ConexionBD.getConexion(); // Obtenemos la conexion
+            pstmt = conn.prepareStatement(sql);
+            for (int i = 0; i < idsUsuario.size(); i++) {
+                pstmt.setInt(i + 1, idsUsuario.get(i));
+            }
+            LogsError.info(this.getClass(), "Recalculando resumen de " + (idsUsuario.isEmpty() ? "todos los usuarios" : idsUsuario.size() + " usuarios"));
+            filas = pstmt.executeUpdate(); // Ejecutamos el INSERT ... SELECT ... ON DUPLICATE KEY UPDATE
+        } catch (SQLException ex) {
+            LogsError.error(this.getClass(), "Error al recalcular el resumen de usuarios: " + ex.getMessage(), ex);
+            throw ex; // Relanzamos el error
+        } finally {
+            ConexionBD.close(pstmt); // Cerramos el PreparedStatement
+            ConexionBD.close(conn); // Devolvemos la conexion al pool
+        }
+        return filas;
+    }
+}
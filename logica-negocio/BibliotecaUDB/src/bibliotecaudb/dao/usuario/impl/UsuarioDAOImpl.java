@@ -5,6 +5,9 @@ import bibliotecaudb.modelo.usuario.Usuario;
 import bibliotecaudb.dao.usuario.UsuarioDAO;
 import bibliotecaudb.conexion.ConexionBD;
 import bibliotecaudb.conexion.LogsError;
+import bibliotecaudb.conexion.UnidadTrabajo;
+import bibliotecaudb.dao.CargadorPorLotes;
+import bibliotecaudb.dao.Pagina;
 import bibliotecaudb.dao.usuario.TipoUsuarioDAO; // Para obtener el objeto TipoUsuario
 
 import java.sql.Connection;
@@ -13,7 +16,10 @@ import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 
 public class UsuarioDAOImpl implements UsuarioDAO {
 
@@ -24,8 +30,14 @@ public class UsuarioDAOImpl implements UsuarioDAO {
 
     private static final String SQL_DELETE = "DELETE FROM usuarios WHERE id = ?";
     private static final String SQL_SELECT_BY_ID = "SELECT id, nombre, correo, contrasena, id_tipo_usuario, estado FROM usuarios WHERE id = ?";
+    // Bloquea la fila del usuario hasta el fin de la transaccion: los prestamos del mismo usuario se hacen uno a la vez
+    private static final String SQL_SELECT_BY_ID_FOR_UPDATE = SQL_SELECT_BY_ID + " FOR UPDATE";
     private static final String SQL_SELECT_BY_CORREO = "SELECT id, nombre, correo, contrasena, id_tipo_usuario, estado FROM usuarios WHERE correo = ?";
     private static final String SQL_SELECT_ALL = "SELECT id, nombre, correo, contrasena, id_tipo_usuario, estado FROM usuarios ORDER BY nombre";
+    // Paginas por clave (nombre, id); usan idx_usu_nombre
+    private static final String SQL_SELECT_PAGINA = "SELECT id, nombre, correo, contrasena, id_tipo_usuario, estado FROM usuarios ORDER BY nombre, id LIMIT ?";
+    private static final String SQL_SELECT_PAGINA_DESDE = "SELECT id, nombre, correo, contrasena, id_tipo_usuario, estado FROM usuarios WHERE (nombre, id) > (?, ?) ORDER BY nombre, id LIMIT ?";
+    private static final String SQL_SELECT_BY_IDS = "SELECT id, nombre, correo, contrasena, id_tipo_usuario, estado FROM usuarios WHERE id IN";
     // Consulta para el login, tambien trae el id_tipo_usuario para construir el objeto TipoUsuario completo
     private static final String SQL_LOGIN = "SELECT u.id, u.nombre, u.correo, u.contrasena, u.id_tipo_usuario, u.estado, tu.tipo AS tipo_nombre FROM usuarios u INNER JOIN tipo_usuario tu ON u.id_tipo_usuario = tu.id WHERE u.correo = ? AND u.contrasena = ? AND u.estado = 1";
 
@@ -76,7 +88,7 @@ public class UsuarioDAOImpl implements UsuarioDAO {
         } finally {
             ConexionBD.close(generatedKeys); // Cerramos el ResultSet
             ConexionBD.close(pstmt); // Cerramos el PreparedStatement
-            // La conexion se cierra usualmente al final de toda la operacion, no aqui.
+            ConexionBD.close(conn); // Devolvemos la conexion al pool
         }
         return rowsAffected > 0; // Devolvemos true si se inserto el usuario
     }
@@ -107,6 +119,7 @@ public class UsuarioDAOImpl implements UsuarioDAO {
             throw ex; // Relanzamos el error
         } finally {
             ConexionBD.close(pstmt); // Cerramos el PreparedStatement
+            ConexionBD.close(conn); // Devolvemos la conexion al pool
         }
         return rowsAffected > 0; // Devolvemos true si se actualizo el usuario
     }
@@ -133,6 +146,7 @@ public class UsuarioDAOImpl implements UsuarioDAO {
             throw ex; // Relanzamos el error
         } finally {
             ConexionBD.close(pstmt); // Cerramos el PreparedStatement
+            ConexionBD.close(conn); // Devolvemos la conexion al pool
         }
         return rowsAffected > 0; // Devolvemos true si se actualizo la contrasena
     }
@@ -159,6 +173,7 @@ public class UsuarioDAOImpl implements UsuarioDAO {
             throw ex; // Relanzamos el error
         } finally {
             ConexionBD.close(pstmt); // Cerramos el PreparedStatement
+            ConexionBD.close(conn); // Devolvemos la conexion al pool
         }
         return rowsAffected > 0; // Devolvemos true si se elimino el usuario
     }
@@ -172,11 +187,19 @@ public class UsuarioDAOImpl implements UsuarioDAO {
         usuario.setContrasena(rs.getString("contrasena"));
         usuario.setIdTipoUsuario(rs.getInt("id_tipo_usuario"));
         usuario.setEstado(rs.getBoolean("estado"));
+        return usuario; // Devolvemos el usuario (el TipoUsuario se carga aparte, por lote)
+    }
 
-        // Obtenemos el objeto TipoUsuario completo para tener mas detalles
-        TipoUsuario tipo = tipoUsuarioDAO.obtenerPorId(usuario.getIdTipoUsuario()); // Usamos el DAO de TipoUsuario
-        usuario.setTipoUsuario(tipo); // Asignamos el TipoUsuario al Usuario
-        return usuario; // Devolvemos el usuario con todos sus datos
+    // Carga el TipoUsuario de todos los usuarios de la lista con una sola consulta
+    private void cargarTiposUsuario(List<Usuario> usuarios) throws SQLException {
+        if (this.tipoUsuarioDAO == null || usuarios.isEmpty()) {
+            return;
+        }
+        CargadorPorLotes<TipoUsuario> cargador = new CargadorPorLotes<>(tipoUsuarioDAO::obtenerPorIds);
+        for (Usuario u : usuarios) {
+            cargador.solicitar(u.getIdTipoUsuario(), u::setTipoUsuario);
+        }
+        cargador.cargar();
     }
 
     // Este metodo es similar al anterior, pero especifico para los datos que vienen de la consulta de login.
@@ -214,6 +237,7 @@ public class UsuarioDAOImpl implements UsuarioDAO {
 
             if (rs.next()) { // Si encontramos un usuario
                 usuario = mapearResultSetAUsuario(rs); // Convertimos los datos a un objeto Usuario
+                cargarTiposUsuario(Collections.singletonList(usuario));
             }
         } catch (SQLException ex) {
             LogsError.error(this.getClass(), "Error al obtener usuario por ID: " + ex.getMessage(), ex);
@@ -221,6 +245,41 @@ public class UsuarioDAOImpl implements UsuarioDAO {
         } finally {
             ConexionBD.close(rs); // Cerramos el ResultSet
             ConexionBD.close(pstmt); // Cerramos el PreparedStatement
+            ConexionBD.close(conn); // Devolvemos la conexion al pool
+        }
+        return usuario; // Devolvemos el usuario encontrado (o null si no se encontro)
+    }
+
+    @Override
+    public Usuario bloquearPorId(int idUsuario) throws SQLException {
+        // Este metodo busca al usuario y deja su fila bloqueada hasta que termine la transaccion.
+        // Lo usan los prestamos: asi dos prestamos del mismo usuario no cuentan sus prestamos activos al mismo tiempo.
+        Connection conn = null; // Variable para la conexion
+        PreparedStatement pstmt = null; // Variable para la consulta
+        ResultSet rs = null; // Para guardar el resultado de la consulta
+        Usuario usuario = null; // Variable para el usuario que encontraremos
+
+        if (UnidadTrabajo.actual() == null) {
+            LogsError.warn(this.getClass(), "bloquearPorId llamado fuera de una UnidadTrabajo: el usuario no queda bloqueado.");
+        }
+        try {
+            conn = ConexionBD.getConexion(); // Obtenemos la conexion (la de la transaccion abierta)
+            pstmt = conn.prepareStatement(SQL_SELECT_BY_ID_FOR_UPDATE);
+            pstmt.setInt(1, idUsuario); // El ID del usuario que buscamos
+            LogsError.info(this.getClass(), "Ejecutando consulta para bloquear usuario por ID: " + SQL_SELECT_BY_ID_FOR_UPDATE + " para ID: " + idUsuario);
+            rs = pstmt.executeQuery(); // Ejecutamos la consulta
+
+            if (rs.next()) { // Si encontramos un usuario
+                usuario = mapearResultSetAUsuario(rs); // Convertimos los datos a un objeto Usuario
+                cargarTiposUsuario(Collections.singletonList(usuario));
+            }
+        } catch (SQLException ex) {
+            LogsError.error(this.getClass(), "Error al bloquear usuario por ID: " + ex.getMessage(), ex);
+            throw ex; // Relanzamos el error
+        } finally {
+            ConexionBD.close(rs); // Cerramos el ResultSet
+            ConexionBD.close(pstmt); // Cerramos el PreparedStatement
+            ConexionBD.close(conn); // Devolvemos la conexion al pool
         }
         return usuario; // Devolvemos el usuario encontrado (o null si no se encontro)
     }
@@ -242,6 +301,7 @@ public class UsuarioDAOImpl implements UsuarioDAO {
 
             if (rs.next()) { // Si encontramos el usuario
                  usuario = mapearResultSetAUsuario(rs); // Convertimos los datos a objeto
+                 cargarTiposUsuario(Collections.singletonList(usuario));
             }
         } catch (SQLException ex) {
             LogsError.error(this.getClass(), "Error al obtener usuario por correo: " + ex.getMessage(), ex);
@@ -249,10 +309,19 @@ public class UsuarioDAOImpl implements UsuarioDAO {
         } finally {
             ConexionBD.close(rs); // Cerramos el ResultSet
             ConexionBD.close(pstmt); // Cerramos el PreparedStatement
+            ConexionBD.close(conn); // Devolvemos la conexion al pool
         }
         return usuario; // Devolvemos el usuario (o null)
     }
 
+    @Override
+    public Map<Integer, Usuario> obtenerPorIds(Collection<Integer> ids) throws SQLException {
+        // Este metodo obtiene varios usuarios (con su tipo) usando consultas IN en vez de una por ID.
+        Map<Integer, Usuario> usuarios = CargadorPorLotes.consultarPorIds(this.getClass(), SQL_SELECT_BY_IDS, ids, this::mapearResultSetAUsuario, Usuario::getId);
+        cargarTiposUsuario(new ArrayList<>(usuarios.values()));
+        return usuarios;
+    }
+
     @Override
     public List<Usuario> obtenerTodos() throws SQLException {
         // Este metodo devuelve una lista con todos los usuarios de la base de datos.
@@ -270,16 +339,27 @@ public class UsuarioDAOImpl implements UsuarioDAO {
             while (rs.next()) { // Mientras haya usuarios en el resultado
                 usuarios.add(mapearResultSetAUsuario(rs)); // Agregamos el usuario a la lista
             }
+            cargarTiposUsuario(usuarios);
         } catch (SQLException ex) {
             LogsError.error(this.getClass(), "Error al obtener todos los usuarios: " + ex.getMessage(), ex);
             throw ex; // Relanzamos el error
         } finally {
             ConexionBD.close(rs); // Cerramos el ResultSet
             ConexionBD.close(pstmt); // Cerramos el PreparedStatement
+            ConexionBD.close(conn); // Devolvemos la conexion al pool
         }
         return usuarios; // Devolvemos la lista de usuarios
     }
 
+    @Override
+    public Pagina<Usuario> obtenerPagina(String token, int tamano) throws SQLException {
+        // Este metodo devuelve una pagina de usuarios ordenados por nombre, empezando despues del token.
+        Pagina<Usuario> pagina = Pagina.consultar(this.getClass(), SQL_SELECT_PAGINA, SQL_SELECT_PAGINA_DESDE, token, tamano,
+                v -> new Object[]{v[0], Integer.parseInt(v[1])}, this::mapearResultSetAUsuario, u -> new Object[]{u.getNombre(), u.getId()});
+        cargarTiposUsuario(pagina.getElementos());
+        return pagina;
+    }
+
     @Override
     public Usuario validarLogin(String correo, String contrasena) throws SQLException {
         // Este metodo verifica si el correo y contrasena son correctos para iniciar sesion.
@@ -308,6 +388,7 @@ public class UsuarioDAOImpl implements UsuarioDAO {
         } finally {
             ConexionBD.close(rs); // Cerramos el ResultSet
             ConexionBD.close(pstmt); // Cerramos el PreparedStatement
+            ConexionBD.close(conn); // Devolvemos la conexion al pool
         }
         return usuario; // Devolvemos el usuario (o null si el login fallo)
     }
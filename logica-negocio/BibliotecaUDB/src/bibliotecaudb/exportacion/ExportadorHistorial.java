@@ -0,0 +1,228 @@
+package bibliotecaudb.exportacion;
+
+import bibliotecaudb.conexion.LogsError;
+import bibliotecaudb.dao.biblioteca.DevolucionDAO;
+import bibliotecaudb.dao.biblioteca.PrestamoDAO;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.sql.SQLException;
+
+/**
+ * Exporta el historial completo de prestamos o devoluciones a un archivo CSV o JSON.
+ *
+ * Las filas llegan de la BD una por una (recorrerHistorial de cada DAO) y se escriben en el
+ * archivo en cuanto llegan, asi que la memoria usada no depende de cuantas filas haya.
+ * Se escribe primero en un archivo temporal junto al destino y al terminar se renombra:
+ * si algo falla a medias, el archivo de destino no queda cortado.
+ */
+public class ExportadorHistorial {
+
+    private static final String[] COLUMNAS_PRESTAMOS = {"id_prestamo", "id_usuario", "usuario", "correo", "id_ejemplar",
+        "id_documento", "titulo", "fecha_prestamo", "fecha_limite", "fecha_devolucion", "mora"};
+    private static final String[] COLUMNAS_DEVOLUCIONES = {"id_devolucion", "id_prestamo", "id_usuario", "usuario", "id_ejemplar",
+        "titulo", "fecha_prestamo", "fecha_limite", "fecha_devolucion", "mora_pagada"};
+
+    private final PrestamoDAO prestamoDAO;
+    private final DevolucionDAO devolucionDAO;
+
+    public ExportadorHistorial(PrestamoDAO prestamoDAO, DevolucionDAO devolucionDAO) {
+        this.prestamoDAO = prestamoDAO;
+        this.devolucionDAO = devolucionDAO;
+    }
+
+    /**
+     * @param archivo Archivo de destino (se reemplaza si existe).
+     * @param formato CSV o JSON.
+     * @return Cuantos prestamos se exportaron.
+     * @throws SQLException Si falla la lectura de la BD.
+     * @throws IOException Si no se puede escribir el archivo.
+     */
+    public long exportarPrestamos(Path archivo, FormatoExportacion formato) throws SQLException, IOException {
+        return exportar(archivo, formato, COLUMNAS_PRESTAMOS, escritor -> prestamoDAO.recorrerHistorial(f -> escritor.fila(
+                f.getIdPrestamo(), f.getIdUsuario(), f.getNombreUsuario(), f.getCorreoUsuario(), f.getIdEjemplar(),
+                f.getIdDocumento(), f.getTituloDocumento(), f.getFechaPrestamo(), f.getFechaLimite(), f.getFechaDevolucion(), f.getMora())));
+    }
+
+    /**
+     * @param archivo Archivo de destino (se reemplaza si existe).
+     * @param formato CSV o JSON.
+     * @return Cuantas devoluciones se exportaron.
+     * @throws SQLException Si falla la lectura de la BD.
+     * @throws IOException Si no se puede escribir el archivo.
+     */
+    public long exportarDevoluciones(Path archivo, FormatoExportacion formato) throws SQLException, IOException {
+        return exportar(archivo, formato, COLUMNAS_DEVOLUCIONES, escritor -> devolucionDAO.recorrerHistorial(f -> escritor.fila(
+                f.getIdDevolucion(), f.getIdPrestamo(), f.getIdUsuario(), f.getNombreUsuario(), f.getIdEjemplar(),
+                f.getTituloDocumento(), f.getFechaPrestamo(), f.getFechaLimite(), f.getFechaDevolucion(), f.getMoraPagada())));
+    }
+
+    /** Lo que lee la BD y le pasa cada fila al escritor. */
+    @FunctionalInterface
+    private interface Recorrido {
+        void recorrer(EscritorFilas escritor) throws SQLException;
+    }
+
+    private long exportar(Path archivo, FormatoExportacion formato, String[] columnas, Recorrido recorrido) throws SQLException, IOException {
+        long inicio = System.currentTimeMillis();
+        Path carpeta = archivo.toAbsolutePath().getParent();
+        Path temporal = Files.createTempFile(carpeta, archivo.getFileName().toString(), ".tmp");
+        long filas;
+        try {
+            try (BufferedWriter salida = Files.newBufferedWriter(temporal, StandardCharsets.UTF_8)) {
+                EscritorFilas escritor = formato == FormatoExportacion.JSON ? new EscritorJson(salida, columnas) : new EscritorCsv(salida, columnas);
+                try {
+                    recorrido.recorrer(escritor);
+                } catch (UncheckedIOException ex) {
+                    throw ex.getCause(); // Error de escritura dentro del consumidor
+                }
+                escritor.terminar();
+                filas = escritor.filas;
+            }
+            try {
+                Files.move(temporal, archivo, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException ex) {
+                Files.move(temporal, archivo, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (SQLException | IOException | RuntimeException ex) {
+            Files.deleteIfExists(temporal); // No dejamos el temporal a medias
+            throw ex;
+        }
+        LogsError.info(this.getClass(), "Exportadas " + filas + " filas a " + archivo + " (" + formato + ") en " + (System.currentTimeMillis() - inicio) + " ms.");
+        return filas;
+    }
+
+    // Escribe filas de valores simples (numeros, textos, fechas o null) en un formato
+    private abstract static class EscritorFilas {
+        protected final Writer salida;
+        protected final String[] columnas;
+        long filas = 0;
+
+        EscritorFilas(Writer salida, String[] columnas) {
+            this.salida = salida;
+            this.columnas = columnas;
+        }
+
+        // Llamado desde el Consumer del DAO, que no puede lanzar IOException
+        final void fila(Object... valores) {
+            try {
+                escribirFila(valores);
+                filas++;
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+        }
+
+        abstract void escribirFila(Object[] valores) throws IOException;
+
+        abstract void terminar() throws IOException;
+    }
+
+    private static final class EscritorCsv extends EscritorFilas {
+
+        EscritorCsv(Writer salida, String[] columnas) throws IOException {
+            super(salida, columnas);
+            salida.write('\uFEFF'); // BOM: asi Excel reconoce el UTF-8 y muestra bien las tildes
+            escribirFila(columnas);
+        }
+
+        @Override
+        void escribirFila(Object[] valores) throws IOException {
+            for (int i = 0; i < valores.length; i++) {
+                if (i > 0) {
+                    salida.write(',');
+                }
+                Object valor = valores[i];
+                if (valor == null) {
+                    continue; // Campo vacio
+                }
+                String texto = valor instanceof BigDecimal ? ((BigDecimal) valor).toPlainString() : valor.toString();
+                if (texto.indexOf(',') >= 0 || texto.indexOf('"') >= 0 || texto.indexOf('\n') >= 0 || texto.indexOf('\r') >= 0) {
+                    salida.write('"');
+                    salida.write(texto.replace("\"", "\"\""));
+                    salida.write('"');
+                } else {
+                    salida.write(texto);
+                }
+            }
+            salida.write("\r\n"); // Fin de linea de RFC 4180
+        }
+
+        @Override
+        void terminar() {
+        }
+    }
+
+    private static final class EscritorJson extends EscritorFilas {
+
+        EscritorJson(Writer salida, String[] columnas) throws IOException {
+            super(salida, columnas);
+            salida.write('[');
+        }
+
+        @Override
+        void escribirFila(Object[] valores) throws IOException {
+            salida.write(filas == 0 ? "\n  {" : ",\n  {");
+            for (int i = 0; i < valores.length; i++) {
+                if (i > 0) {
+                    salida.write(", ");
+                }
+                escribirTexto(columnas[i]);
+                salida.write(": ");
+                Object valor = valores[i];
+                if (valor == null) {
+                    salida.write("null");
+                } else if (valor instanceof Number) {
+                    salida.write(valor instanceof BigDecimal ? ((BigDecimal) valor).toPlainString() : valor.toString());
+                } else {
+                    escribirTexto(valor.toString()); // Textos y fechas (yyyy-MM-dd)
+                }
+            }
+            salida.write('}');
+        }
+
+        @Override
+        void terminar() throws IOException {
+            salida.write(filas == 0 ? "]\n" : "\n]\n");
+        }
+
+        private void escribirTexto(String texto) throws IOException {
+            salida.write('"');
+            for (int i = 0; i < texto.length(); i++) {
+                char c = texto.charAt(i);
+                switch (c) {
+                    case '"':
+                        salida.write("\\\"");
+                        break;
+                    case '\\':
+                        salida.write("\\\\");
+                        break;
+                    case '\n':
+                        salida.write("\\n");
+                        break;
+                    case '\r':
+                        salida.write("\\r");
+                        break;
+                    case '\t':
+                        salida.write("\\t");
+                        break;
+                    default:
+                        if (c < 0x20) {
+                            salida.write(String.format("\\u%04x", (int) c));
+                        } else {
+                            salida.write(c);
+                        }
+                }
+            }
+            salida.write('"');
+        }
+    }
+}
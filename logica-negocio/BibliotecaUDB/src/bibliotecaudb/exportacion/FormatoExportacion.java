@@ -0,0 +1,11 @@
+package bibliotecaudb.exportacion;
+
+/**
+ * Formatos en los que se puede exportar el historial.
+ */
+public enum FormatoExportacion {
+    /** Valores separados por comas, con encabezado; se abre directo en Excel. */
+    CSV,
+    /** Un arreglo JSON con un objeto por fila. */
+    JSON
+}
@@ -0,0 +1,566 @@
+package bibliotecaudb.importacion;
+
+import bibliotecaudb.busqueda.Tokenizador;
+import bibliotecaudb.conexion.ConexionBD;
+import bibliotecaudb.conexion.LogsError;
+import bibliotecaudb.conexion.UnidadTrabajo;
+import bibliotecaudb.dao.biblioteca.DocumentoDAO;
+import bibliotecaudb.dao.biblioteca.EjemplarDAO;
+import bibliotecaudb.dao.biblioteca.TipoDocumentoDAO;
+import bibliotecaudb.excepciones.BibliotecaException;
+import bibliotecaudb.modelo.biblioteca.Documento;
+import bibliotecaudb.modelo.biblioteca.Ejemplar;
+import bibliotecaudb.modelo.biblioteca.ResultadoImportacion;
+import bibliotecaudb.modelo.biblioteca.TipoDocumento;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Importacion masiva del catalogo (documentos y sus ejemplares) desde un archivo CSV o MARC21.
+ *
+ * El archivo se lee registro por registro y las filas validas se guardan por lotes de
+ * importacion.filas.transaccion filas (por defecto 500), cada lote en su propia transaccion
+ * y con inserts en lote. Si un lote falla, se repite fila por fila para que solo las filas
+ * con problemas queden fuera. Las filas rechazadas se escriben en un reporte CSV con la linea
+ * y el motivo, para corregirlas y volver a importarlas.
+ *
+ * Columnas del CSV (el encabezado es obligatorio; el orden y las mayusculas no importan; separador ',' o ';'):
+ * titulo y tipo_documento son obligatorias; autor, editorial, anio_publicacion,
+ * ejemplares (cantidad, por defecto 1) y ubicacion son opcionales.
+ *
+ * Un documento se considera duplicado si ya existe (o ya vino antes en el archivo) otro con el
+ * mismo titulo, autor y anio, sin importar mayusculas, tildes ni signos. Para eso, al empezar se lee
+ * la clave de todos los documentos de la BD (una sola consulta recorrida en streaming). Por defecto el duplicado
+ * se rechaza; con setAgregarEjemplaresADuplicados(true) sus ejemplares se agregan al documento existente.
+ */
+public class ImportadorCatalogo {
+
+    public static final String COLUMNA_TITULO = "titulo";
+    public static final String COLUMNA_AUTOR = "autor";
+    public static final String COLUMNA_EDITORIAL = "editorial";
+    public static final String COLUMNA_ANIO = "anio_publicacion";
+    public static final String COLUMNA_TIPO = "tipo_documento";
+    public static final String COLUMNA_EJEMPLARES = "ejemplares";
+    public static final String COLUMNA_UBICACION = "ubicacion";
+
+    private static final int MAXIMO_EJEMPLARES_POR_FILA = 1000; // Evita que un error de digitacion cree miles de ejemplares
+    private static final int LARGO_MAXIMO_TITULO = 200;         // Largos de las columnas en la BD
+    private static final int LARGO_MAXIMO_AUTOR = 150;
+    private static final int LARGO_MAXIMO_EDITORIAL = 100;
+    private static final int LARGO_MAXIMO_UBICACION = 100;
+
+    private final DocumentoDAO documentoDAO;
+    private final EjemplarDAO ejemplarDAO;
+    private final TipoDocumentoDAO tipoDocumentoDAO;
+
+    private int filasPorTransaccion = ConexionBD.getPropiedadEntera("importacion.filas.transaccion", 500);
+    private int filasPorAvance = ConexionBD.getPropiedadEntera("importacion.avance.filas", 1000);
+    private boolean agregarEjemplaresADuplicados = false;
+    private Consumer<ResultadoImportacion> avance; // Opcional: recibe el avance cada filasPorAvance filas
+
+    // Estado de una corrida
+    private Map<String, TipoDocumento> tiposPorNombre;
+    private Map<String, Integer> documentosConocidos; // Clave de duplicado -> ID, de los que ya estaban en la BD y los que entraron en esta corrida
+    private Writer reporte;
+    private long filasLeidas;
+    private long documentosInsertados;
+    private long ejemplaresInsertados;
+    private long duplicados;
+    private long rechazados;
+    private long inicio;
+
+    public ImportadorCatalogo(DocumentoDAO documentoDAO, EjemplarDAO ejemplarDAO, TipoDocumentoDAO tipoDocumentoDAO) {
+        this.documentoDAO = documentoDAO;
+        this.ejemplarDAO = ejemplarDAO;
+        this.tipoDocumentoDAO = tipoDocumentoDAO;
+    }
+
+    // Configuracion (los valores por defecto salen de config.properties)
+    public void setFilasPorTransaccion(int filasPorTransaccion) {
+        if (filasPorTransaccion <= 0) {
+            throw new IllegalArgumentException("Las filas por transaccion deben ser mayores que cero.");
+        }
+        this.filasPorTransaccion = filasPorTransaccion;
+    }
+
+    public void setFilasPorAvance(int filasPorAvance) {
+        if (filasPorAvance <= 0) {
+            throw new IllegalArgumentException("Las filas por avance deben ser mayores que cero.");
+        }
+        this.filasPorAvance = filasPorAvance;
+    }
+
+    public void setAgregarEjemplaresADuplicados(boolean agregarEjemplaresADuplicados) {
+        this.agregarEjemplaresADuplicados = agregarEjemplaresADuplicados;
+    }
+
+    public void setAvance(Consumer<ResultadoImportacion> avance) {
+        this.avance = avance;
+    }
+
+    /**
+     * Importa un archivo CSV completo.
+     * @param archivo CSV en UTF-8 (con o sin BOM).
+     * @param reporteRechazos Donde escribir las filas rechazadas (se reemplaza si existe).
+     * @return Totales de la importacion.
+     * @throws IOException Si no se puede leer el archivo o escribir el reporte.
+     * @throws SQLException Si falla la conexion con la BD (los errores de una fila solo la rechazan a ella).
+     * @throws BibliotecaException Si al archivo le falta el encabezado o una columna obligatoria.
+     */
+    public synchronized ResultadoImportacion importarCsv(Path archivo, Path reporteRechazos) throws IOException, SQLException, BibliotecaException {
+        iniciarCorrida();
+        try (BufferedReader entrada = Files.newBufferedReader(archivo, StandardCharsets.UTF_8);
+             BufferedWriter salidaReporte = Files.newBufferedWriter(reporteRechazos, StandardCharsets.UTF_8)) {
+            reporte = salidaReporte;
+            entrada.mark(64 * 1024); // LectorCsv salta el BOM; para detectar el separador no molesta
+            String primeraLinea = entrada.readLine();
+            if (primeraLinea == null) {
+                throw new BibliotecaException("El archivo " + archivo + " esta vacio.");
+            }
+            entrada.reset();
+            char separador = LectorCsv.detectarSeparador(primeraLinea);
+            LectorCsv lector = new LectorCsv(entrada, separador);
+            String[] encabezado = lector.siguiente();
+            Map<String, Integer> columnas = leerEncabezado(encabezado);
+            escribirReporte("linea", "motivo", encabezado);
+
+            LogsError.info(this.getClass(), "Importando catalogo CSV desde " + archivo + " en transacciones de " + filasPorTransaccion + " filas.");
+            List<FilaImportacion> lote = new ArrayList<>(filasPorTransaccion);
+            String[] campos;
+            while ((campos = lector.siguiente()) != null) {
+                agregar(validarCsv(lector.getLineaRegistro(), campos, columnas), lote);
+            }
+            guardarLote(lote);
+        } finally {
+            terminarCorrida();
+        }
+        ResultadoImportacion resultado = resultadoActual();
+        LogsError.info(this.getClass(), "Importacion terminada: " + resultado);
+        return resultado;
+    }
+
+    /**
+     * Importa un archivo MARC21 binario (ISO 2709), como los que exportan otros sistemas de biblioteca.
+     * De cada registro se toma: 245 $a $b (titulo), 100/110/700 $a (autor), 260/264 $b (editorial),
+     * 260/264 $c o 008/07-10 (anio) y el tipo de documento segun el Leader. Cada campo de ejemplar
+     * (952 de Koha, o 852 si no hay 952) es un ejemplar, con su ubicacion; sin ninguno se crea uno sin ubicacion.
+     * @param archivo Archivo .mrc.
+     * @param reporteRechazos Donde escribir los registros rechazados (se reemplaza si existe).
+     * @return Totales de la importacion (filasLeidas cuenta registros).
+     * @throws IOException Si no se puede leer el archivo o escribir el reporte.
+     * @throws SQLException Si falla la conexion con la BD (los errores de un registro solo lo rechazan a el).
+     */
+    public synchronized ResultadoImportacion importarMarc21(Path archivo, Path reporteRechazos) throws IOException, SQLException {
+        iniciarCorrida();
+        try (InputStream entrada = new BufferedInputStream(Files.newInputStream(archivo), 64 * 1024);
+             BufferedWriter salidaReporte = Files.newBufferedWriter(reporteRechazos, StandardCharsets.UTF_8)) {
+            reporte = salidaReporte;
+            escribirReporte("registro", "motivo", new String[]{COLUMNA_TITULO, COLUMNA_AUTOR, COLUMNA_EDITORIAL, COLUMNA_ANIO, COLUMNA_TIPO, COLUMNA_UBICACION});
+
+            LogsError.info(this.getClass(), "Importando catalogo MARC21 desde " + archivo + " en transacciones de " + filasPorTransaccion + " registros.");
+            LectorMarc21 lector = new LectorMarc21(entrada);
+            List<FilaImportacion> lote = new ArrayList<>(filasPorTransaccion);
+            RegistroMarc registro;
+            while ((registro = lector.siguiente()) != null) {
+                agregar(validarMarc21(registro), lote);
+            }
+            guardarLote(lote);
+        } finally {
+            terminarCorrida();
+        }
+        ResultadoImportacion resultado = resultadoActual();
+        LogsError.info(this.getClass(), "Importacion terminada: " + resultado);
+        return resultado;
+    }
+
+    private void iniciarCorrida() throws SQLException {
+        inicio = System.currentTimeMillis();
+        filasLeidas = documentosInsertados = ejemplaresInsertados = duplicados = rechazados = 0;
+        documentosConocidos = new HashMap<>();
+        // La clave ignora signos, asi que no sirve un WHERE titulo IN (...): se comparan las claves de todos en memoria
+        documentoDAO.recorrerTodos(doc -> documentosConocidos.putIfAbsent(claveDe(doc.getTitulo(), doc.getAutor(), doc.getAnioPublicacion()), doc.getId()));
+        tiposPorNombre = new HashMap<>();
+        for (TipoDocumento tipo : tipoDocumentoDAO.obtenerTodos()) { // Sale del cache de tipo_documento
+            tiposPorNombre.put(Tokenizador.normalizarFrase(tipo.getTipo()), tipo);
+        }
+    }
+
+    private void terminarCorrida() {
+        reporte = null;
+        tiposPorNombre = null;
+        documentosConocidos = null;
+    }
+
+    // Cuenta la fila leida y la agrega al lote (null = rechazada); cuando el lote se llena, se guarda
+    private void agregar(FilaImportacion fila, List<FilaImportacion> lote) throws IOException, SQLException {
+        filasLeidas++;
+        if (fila != null) {
+            lote.add(fila);
+            if (lote.size() == filasPorTransaccion) {
+                guardarLote(lote);
+                lote.clear();
+            }
+        }
+        if (filasLeidas % filasPorAvance == 0) {
+            informarAvance();
+        }
+    }
+
+    // Una fila valida del archivo, lista para guardar
+    private static final class FilaImportacion {
+        final long linea;
+        final String[] campos;
+        final Documento documento;
+        final List<String> ubicaciones; // Una por ejemplar (puede ser null)
+        final String clave;            // Para detectar duplicados
+        int idDocumentoExistente = 0;  // Si es duplicado y se le agregan ejemplares: a que documento
+        FilaImportacion original;      // Si es duplicado de una fila del mismo lote que todavia no tiene ID
+
+        FilaImportacion(long linea, String[] campos, Documento documento, List<String> ubicaciones, String clave) {
+            this.linea = linea;
+            this.campos = campos;
+            this.documento = documento;
+            this.ubicaciones = ubicaciones;
+            this.clave = clave;
+        }
+
+        boolean esNueva() {
+            return idDocumentoExistente == 0 && original == null;
+        }
+
+        int idDocumentoDestino() {
+            if (idDocumentoExistente != 0) {
+                return idDocumentoExistente;
+            }
+            return original != null ? original.documento.getId() : documento.getId();
+        }
+    }
+
+    private Map<String, Integer> leerEncabezado(String[] encabezado) throws BibliotecaException {
+        if (encabezado == null) {
+            throw new BibliotecaException("El archivo no tiene encabezado.");
+        }
+        Map<String, Integer> columnas = new HashMap<>();
+        for (int i = 0; i < encabezado.length; i++) {
+            columnas.putIfAbsent(Tokenizador.normalizarFrase(encabezado[i]).replace(' ', '_'), i);
+        }
+        for (String obligatoria : new String[]{COLUMNA_TITULO, COLUMNA_TIPO}) {
+            if (!columnas.containsKey(obligatoria)) {
+                throw new BibliotecaException("Falta la columna obligatoria '" + obligatoria + "' en el encabezado.");
+            }
+        }
+        return columnas;
+    }
+
+    // Devuelve la fila lista para guardar, o null si se rechazo
+    private FilaImportacion validarCsv(long linea, String[] campos, Map<String, Integer> columnas) throws IOException {
+        Integer anio = null;
+        String textoAnio = campo(campos, columnas, COLUMNA_ANIO);
+        if (textoAnio != null) {
+            try {
+                anio = Integer.valueOf(textoAnio);
+            } catch (NumberFormatException ex) {
+                return rechazar(linea, "Anio de publicacion invalido: " + textoAnio, campos);
+            }
+        }
+        int cantidad = 1;
+        String textoCantidad = campo(campos, columnas, COLUMNA_EJEMPLARES);
+        if (textoCantidad != null) {
+            try {
+                cantidad = Integer.parseInt(textoCantidad);
+            } catch (NumberFormatException ex) {
+                return rechazar(linea, "Cantidad de ejemplares invalida: " + textoCantidad, campos);
+            }
+            if (cantidad < 0 || cantidad > MAXIMO_EJEMPLARES_POR_FILA) {
+                return rechazar(linea, "La cantidad de ejemplares debe estar entre 0 y " + MAXIMO_EJEMPLARES_POR_FILA + ".", campos);
+            }
+        }
+        return crearFila(linea, campos, campo(campos, columnas, COLUMNA_TITULO), campo(campos, columnas, COLUMNA_AUTOR),
+                campo(campos, columnas, COLUMNA_EDITORIAL), anio, campo(campos, columnas, COLUMNA_TIPO),
+                Collections.nCopies(cantidad, campo(campos, columnas, COLUMNA_UBICACION)));
+    }
+
+    // Igual que validarCsv, para un registro MARC21
+    private FilaImportacion validarMarc21(RegistroMarc registro) throws IOException {
+        if (registro.getError() != null) {
+            return rechazar(registro.getNumero(), registro.getError(), new String[]{"", "", "", "", "", ""});
+        }
+        String titulo = primero(registro.apariciones("245", "ab", " "));
+        String autor = registro.subcampo("100", 'a');
+        if (autor == null) {
+            autor = registro.subcampo("110", 'a');
+        }
+        if (autor == null) {
+            autor = registro.subcampo("700", 'a');
+        }
+        String editorial = registro.subcampo("260", 'b');
+        if (editorial == null) {
+            editorial = registro.subcampo("264", 'b');
+        }
+        Integer anio = extraerAnio(registro.subcampo("260", 'c'));
+        if (anio == null) {
+            anio = extraerAnio(registro.subcampo("264", 'c'));
+        }
+        if (anio == null) {
+            String fijos = registro.campoControl("008"); // 008/07-10: primera fecha
+            anio = fijos != null && fijos.length() >= 11 ? extraerAnio(fijos.substring(7, 11)) : null;
+        }
+        List<String> ubicaciones = registro.apariciones("952", "co", " - "); // Koha: ubicacion y signatura
+        if (ubicaciones.isEmpty()) {
+            ubicaciones = registro.apariciones("852", "bch", " - "); // Fondos MARC: sede, ubicacion y clasificacion
+        }
+        titulo = quitarPuntuacionIsbd(titulo);
+        autor = quitarPuntuacionIsbd(autor);
+        editorial = quitarPuntuacionIsbd(editorial);
+        String tipo = tipoSegunCabecera(registro);
+        String[] campos = {vacioSiNulo(titulo), vacioSiNulo(autor), vacioSiNulo(editorial), anio != null ? anio.toString() : "", tipo,
+            String.join(" | ", ubicaciones)};
+        if (ubicaciones.isEmpty()) {
+            ubicaciones = Collections.singletonList(null); // Sin campos de ejemplar: un ejemplar sin ubicacion
+        }
+        return crearFila(registro.getNumero(), campos, titulo, autor, editorial, anio, tipo, ubicaciones);
+    }
+
+    // Reglas comunes a todos los formatos; devuelve null si la fila se rechaza
+    private FilaImportacion crearFila(long linea, String[] campos, String titulo, String autor, String editorial, Integer anio,
+            String nombreTipo, List<String> ubicaciones) throws IOException {
+        if (titulo == null) {
+            return rechazar(linea, "Falta el titulo.", campos);
+        }
+        if (titulo.length() > LARGO_MAXIMO_TITULO) {
+            return rechazar(linea, "El titulo tiene mas de " + LARGO_MAXIMO_TITULO + " caracteres.", campos);
+        }
+        if (autor != null && autor.length() > LARGO_MAXIMO_AUTOR) {
+            return rechazar(linea, "El autor tiene mas de " + LARGO_MAXIMO_AUTOR + " caracteres.", campos);
+        }
+        if (editorial != null && editorial.length() > LARGO_MAXIMO_EDITORIAL) {
+            return rechazar(linea, "La editorial tiene mas de " + LARGO_MAXIMO_EDITORIAL + " caracteres.", campos);
+        }
+        for (String ubicacion : ubicaciones) {
+            if (ubicacion != null && ubicacion.length() > LARGO_MAXIMO_UBICACION) {
+                return rechazar(linea, "La ubicacion tiene mas de " + LARGO_MAXIMO_UBICACION + " caracteres.", campos);
+            }
+        }
+        TipoDocumento tipo = nombreTipo != null ? tiposPorNombre.get(Tokenizador.normalizarFrase(nombreTipo)) : null;
+        if (tipo == null) {
+            return rechazar(linea, nombreTipo == null ? "Falta el tipo de documento." : "Tipo de documento desconocido: " + nombreTipo, campos);
+        }
+        if (anio != null && (anio < 1 || anio > 9999)) {
+            return rechazar(linea, "Anio de publicacion fuera de rango: " + anio, campos);
+        }
+
+        Documento doc = new Documento();
+        doc.setTitulo(titulo);
+        doc.setAutor(autor);
+        doc.setEditorial(editorial);
+        doc.setAnioPublicacion(anio);
+        doc.setIdTipoDocumento(tipo.getId());
+        doc.setTipoDocumento(tipo);
+        return new FilaImportacion(linea, campos, doc, ubicaciones, claveDe(titulo, autor, anio));
+    }
+
+    // Guarda un lote: separa los duplicados (contra la BD y contra el mismo archivo) y despues inserta todo en una transaccion
+    private void guardarLote(List<FilaImportacion> lote) throws IOException, SQLException {
+        if (lote.isEmpty()) {
+            return;
+        }
+        List<FilaImportacion> aGuardar = new ArrayList<>(lote.size());
+        Map<String, FilaImportacion> nuevasDelLote = new HashMap<>();
+        for (FilaImportacion fila : lote) {
+            Integer idExistente = documentosConocidos.get(fila.clave);
+            FilaImportacion original = nuevasDelLote.get(fila.clave);
+            if (idExistente == null && original == null) {
+                nuevasDelLote.put(fila.clave, fila);
+                aGuardar.add(fila);
+                continue;
+            }
+            duplicados++;
+            if (!agregarEjemplaresADuplicados) {
+                rechazar(fila.linea, "Documento duplicado" + (idExistente != null ? " (ID " + idExistente + ")." : " (linea " + original.linea + ")."), fila.campos);
+            } else if (!fila.ubicaciones.isEmpty()) {
+                if (idExistente != null) {
+                    fila.idDocumentoExistente = idExistente;
+                } else {
+                    fila.original = original;
+                }
+                aGuardar.add(fila);
+            }
+        }
+
+        try {
+            insertar(aGuardar);
+        } catch (SQLException ex) {
+            // El lote completo se deshizo; repetimos fila por fila para rechazar solo las que fallan
+            LogsError.warn(this.getClass(), "Fallo el lote de " + aGuardar.size() + " filas (" + ex.getMessage() + "); se reintenta fila por fila.");
+            for (FilaImportacion fila : aGuardar) {
+                fila.documento.setId(0);
+            }
+            for (FilaImportacion fila : aGuardar) {
+                if (fila.original != null && fila.original.documento.getId() == 0) {
+                    rechazar(fila.linea, "El documento de la linea " + fila.original.linea + " no se pudo importar.", fila.campos);
+                    continue;
+                }
+                try {
+                    insertar(List.of(fila));
+                } catch (SQLException exFila) {
+                    fila.documento.setId(0);
+                    rechazar(fila.linea, "Error de base de datos: " + exFila.getMessage(), fila.campos);
+                }
+            }
+        }
+    }
+
+    // Inserta en una transaccion los documentos nuevos y todos los ejemplares de las filas
+    private void insertar(List<FilaImportacion> filas) throws SQLException {
+        if (filas.isEmpty()) {
+            return;
+        }
+        List<Documento> documentos = new ArrayList<>();
+        for (FilaImportacion fila : filas) {
+            if (fila.esNueva()) {
+                documentos.add(fila.documento);
+            }
+        }
+        try (UnidadTrabajo uow = UnidadTrabajo.iniciar()) {
+            documentoDAO.insertarLote(documentos); // Asigna el ID a cada documento
+            List<Ejemplar> ejemplares = new ArrayList<>();
+            for (FilaImportacion fila : filas) {
+                for (String ubicacion : fila.ubicaciones) {
+                    Ejemplar ej = new Ejemplar();
+                    ej.setIdDocumento(fila.idDocumentoDestino());
+                    ej.setUbicacion(ubicacion);
+                    ej.setEstado(Ejemplar.ESTADO_DISPONIBLE);
+                    ejemplares.add(ej);
+                }
+            }
+            ejemplarDAO.insertarLote(ejemplares);
+            uow.confirmar();
+            documentosInsertados += documentos.size();
+            ejemplaresInsertados += ejemplares.size();
+        }
+        for (Documento doc : documentos) {
+            documentosConocidos.put(claveDe(doc.getTitulo(), doc.getAutor(), doc.getAnioPublicacion()), doc.getId());
+        }
+    }
+
+    private FilaImportacion rechazar(long linea, String motivo, String[] campos) throws IOException {
+        rechazados++;
+        escribirReporte(String.valueOf(linea), motivo, campos);
+        return null;
+    }
+
+    private void escribirReporte(String linea, String motivo, String[] campos) throws IOException {
+        reporte.write(linea);
+        reporte.write(',');
+        reporte.write(escaparCsv(motivo));
+        for (String campo : campos) {
+            reporte.write(',');
+            reporte.write(escaparCsv(campo));
+        }
+        reporte.write("\r\n");
+    }
+
+    private void informarAvance() {
+        ResultadoImportacion actual = resultadoActual();
+        LogsError.info(this.getClass(), "Avance de importacion: " + actual.getFilasLeidas() + " filas, " + actual.getDocumentosInsertados()
+                + " documentos, " + actual.getRechazados() + " rechazos (" + String.format("%.0f", actual.getFilasPorSegundo()) + " filas/s).");
+        if (avance != null) {
+            avance.accept(actual);
+        }
+    }
+
+    private ResultadoImportacion resultadoActual() {
+        return new ResultadoImportacion(filasLeidas, documentosInsertados, ejemplaresInsertados, duplicados, rechazados, System.currentTimeMillis() - inicio);
+    }
+
+    // Valor de la columna sin espacios a los lados, o null si la columna no existe o esta vacia
+    private static String campo(String[] campos, Map<String, Integer> columnas, String nombre) {
+        Integer i = columnas.get(nombre);
+        if (i == null || i >= campos.length) {
+            return null;
+        }
+        String valor = campos[i].trim();
+        return valor.isEmpty() ? null : valor;
+    }
+
+    // Leader/06-07 -> nombre en tipo_documento
+    private static String tipoSegunCabecera(RegistroMarc registro) {
+        if (registro.getNivelBibliografico() == 's') {
+            return "Revista";
+        }
+        switch (registro.getTipoRegistro()) {
+            case 'a':
+            case 't':
+                return registro.tieneCampo("502") ? "Tesis" : "Libro"; // 502 = nota de tesis
+            case 'i':
+            case 'j':
+                return "CD";
+            default:
+                return "Otro";
+        }
+    }
+
+    // Primeros cuatro digitos seguidos ("c1998." -> 1998, "[19--]" -> null)
+    private static Integer extraerAnio(String texto) {
+        if (texto == null) {
+            return null;
+        }
+        int seguidos = 0;
+        for (int i = 0; i < texto.length(); i++) {
+            if (Character.isDigit(texto.charAt(i))) {
+                if (++seguidos == 4) {
+                    return Integer.valueOf(texto.substring(i - 3, i + 1));
+                }
+            } else {
+                seguidos = 0;
+            }
+        }
+        return null;
+    }
+
+    // MARC guarda la puntuacion ISBD al final de cada subcampo ("Cien anos de soledad /", "Sudamericana,")
+    private static String quitarPuntuacionIsbd(String texto) {
+        if (texto == null) {
+            return null;
+        }
+        int fin = texto.length();
+        while (fin > 0 && " /:;,.=".indexOf(texto.charAt(fin - 1)) >= 0) {
+            fin--;
+        }
+        return fin == 0 ? null : texto.substring(0, fin);
+    }
+
+    private static String primero(List<String> valores) {
+        return valores.isEmpty() ? null : valores.get(0);
+    }
+
+    private static String vacioSiNulo(String texto) {
+        return texto != null ? texto : "";
+    }
+
+    private static String claveDe(String titulo, String autor, Integer anio) {
+        return Tokenizador.normalizarFrase(titulo) + '|' + Tokenizador.normalizarFrase(autor) + '|' + (anio != null ? anio : "");
+    }
+
+    private static String escaparCsv(String texto) {
+        if (texto.indexOf(',') < 0 && texto.indexOf('"') < 0 && texto.indexOf('\n') < 0 && texto.indexOf('\r') < 0) {
+            return texto;
+        }
+        return '"' + texto.replace("\"", "\"\"") + '"';
+    }
+}
@@ -0,0 +1,136 @@
+package bibliotecaudb.importacion;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Lee un archivo CSV registro por registro, sin cargarlo completo en memoria.
+ * Sigue RFC 4180: los campos pueden ir entre comillas, y dentro de las comillas
+ * se permiten separadores, saltos de linea y comillas dobles (""). Si el archivo empieza con
+ * el BOM de UTF-8 (lo agrega Excel), se salta: no es parte del primer campo.
+ */
+public class LectorCsv {
+
+    private final Reader entrada;
+    private final char separador;
+    private final char[] bufer = new char[8192];
+    private int posicion = 0;
+    private int cantidad = 0;
+    private long linea = 1;          // Linea del archivo donde va la lectura
+    private long lineaRegistro = 0;  // Linea donde empezo el ultimo registro devuelto
+    private boolean alInicio = true; // Todavia no se leyo nada (para saltar el BOM)
+
+    /**
+     * @param entrada Lector del archivo (conviene que tenga su propio bufer, por ejemplo un BufferedReader).
+     * @param separador ',' o ';' (Excel en espanol guarda con ';').
+     */
+    public LectorCsv(Reader entrada, char separador) {
+        this.entrada = entrada;
+        this.separador = separador;
+    }
+
+    /**
+     * @return El separador que mas aparece fuera de comillas en la linea de encabezado: ';' o ','.
+     */
+    public static char detectarSeparador(String encabezado) {
+        int comas = 0;
+        int puntoYComa = 0;
+        boolean enComillas = false;
+        for (int i = 0; i < encabezado.length(); i++) {
+            char c = encabezado.charAt(i);
+            if (c == '"') {
+                enComillas = !enComillas;
+            } else if (!enComillas && c == ',') {
+                comas++;
+            } else if (!enComillas && c == ';') {
+                puntoYComa++;
+            }
+        }
+        return puntoYComa > comas ? ';' : ',';
+    }
+
+    /**
+     * @return Los campos del siguiente registro, o null si se llego al final del archivo.
+     * @throws IOException Si falla la lectura o hay comillas sin cerrar al final del archivo.
+     */
+    public String[] siguiente() throws IOException {
+        int c = leer();
+        if (alInicio) {
+            alInicio = false;
+            if (c == '\uFEFF') {
+                c = leer();
+            }
+        }
+        while (c == '\n' || c == '\r') { // Las lineas vacias no son registros
+            c = leer();
+        }
+        if (c == -1) {
+            return null;
+        }
+        lineaRegistro = linea;
+        List<String> campos = new ArrayList<>();
+        StringBuilder campo = new StringBuilder();
+        boolean enComillas = false;
+        while (true) {
+            if (enComillas) {
+                if (c == -1) {
+                    throw new IOException("Comillas sin cerrar en el registro que empieza en la linea " + lineaRegistro + ".");
+                }
+                if (c == '"') {
+                    int sig = leer();
+                    if (sig == '"') {
+                        campo.append('"'); // "" dentro de comillas es una comilla
+                    } else {
+                        enComillas = false;
+                        c = sig;
+                        continue;
+                    }
+                } else {
+                    campo.append((char) c);
+                }
+            } else if (c == '"' && campo.length() == 0) {
+                enComillas = true;
+            } else if (c == separador) {
+                campos.add(campo.toString());
+                campo.setLength(0);
+            } else if (c == '\r' || c == '\n' || c == -1) {
+                if (c == '\r') {
+                    int sig = leer();
+                    if (sig != '\n' && sig != -1) {
+                        posicion--; // No era \r\n: devolvemos el caracter
+                    }
+                }
+                campos.add(campo.toString());
+                return campos.toArray(new String[0]);
+            } else {
+                campo.append((char) c);
+            }
+            c = leer();
+        }
+    }
+
+    /**
+     * @return La linea del archivo donde empieza el ultimo registro devuelto por siguiente().
+     */
+    public long getLineaRegistro() {
+        return lineaRegistro;
+    }
+
+    private int leer() throws IOException {
+        if (posicion == cantidad) {
+            cantidad = entrada.read(bufer, 0, bufer.length);
+            posicion = 0;
+            if (cantidad <= 0) {
+                cantidad = 0;
+                return -1;
+            }
+        }
+        char c = bufer[posicion++];
+        if (c == '\n') {
+            linea++;
+        }
+        return c;
+    }
+}
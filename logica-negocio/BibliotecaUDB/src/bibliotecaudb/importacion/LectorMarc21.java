@@ -0,0 +1,125 @@
+package bibliotecaudb.importacion;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Lee un archivo MARC21 binario (ISO 2709) registro por registro, sin cargarlo completo en memoria.
+ *
+ * Cada registro trae su largo en los primeros 5 bytes, asi que se lee exactamente un registro
+ * a la vez. Si un registro esta danado (largo invalido o sin terminador) se devuelve con su error
+ * y la lectura vuelve al inicio del registro y sigue despues de su primer terminador, para no
+ * perder los registros que el largo equivocado se hubiera comido.
+ *
+ * Juego de caracteres: si Leader/09 es 'a' el registro viene en UTF-8. Si no, es MARC-8, que no se
+ * convierte: se lee como ISO-8859-1 (las letras sin tilde quedan bien; las tildes de MARC-8 no).
+ */
+public class LectorMarc21 {
+
+    static final byte TERMINADOR_SUBCAMPO = 0x1F;
+    static final byte TERMINADOR_CAMPO = 0x1E;
+    static final byte TERMINADOR_REGISTRO = 0x1D;
+
+    private static final int LARGO_CABECERA = 24;
+    private static final int LARGO_ENTRADA_DIRECTORIO = 12;
+    private static final int LARGO_MAXIMO_REGISTRO = 99999; // El largo se escribe con 5 digitos
+
+    private final InputStream entrada;
+    private long numero = 0; // Cuantos registros se han leido
+
+    /**
+     * @param entrada Bytes del archivo; si no permite mark/reset se envuelve en un BufferedInputStream.
+     */
+    public LectorMarc21(InputStream entrada) {
+        this.entrada = entrada.markSupported() ? entrada : new BufferedInputStream(entrada, 64 * 1024);
+    }
+
+    /**
+     * @return El siguiente registro (si esta danado, con getError() distinto de null), o null al final del archivo.
+     * @throws IOException Si falla la lectura.
+     */
+    public RegistroMarc siguiente() throws IOException {
+        entrada.mark(LARGO_MAXIMO_REGISTRO + 1);
+        int b = entrada.read();
+        while (b == '\n' || b == '\r' || b == ' ') { // Algunos sistemas separan los registros con saltos de linea
+            entrada.mark(LARGO_MAXIMO_REGISTRO + 1);
+            b = entrada.read();
+        }
+        if (b == -1) {
+            return null;
+        }
+        numero++;
+        byte[] inicio = new byte[5];
+        inicio[0] = (byte) b;
+        if (entrada.readNBytes(inicio, 1, 4) < 4) {
+            return new RegistroMarc(numero, "El archivo termina a mitad del registro.");
+        }
+        int largo = leerNumero(inicio, 0, 5);
+        if (largo < LARGO_CABECERA + 2) {
+            volverYSaltarRegistro();
+            return new RegistroMarc(numero, "Largo de registro invalido: " + new String(inicio, StandardCharsets.ISO_8859_1));
+        }
+
+        byte[] datos = new byte[largo];
+        System.arraycopy(inicio, 0, datos, 0, 5);
+        if (entrada.readNBytes(datos, 5, largo - 5) < largo - 5) {
+            volverYSaltarRegistro(); // Puede ser un largo equivocado y no el final real del archivo
+            return new RegistroMarc(numero, "El registro no termina donde indica su largo.");
+        }
+        if (datos[largo - 1] != TERMINADOR_REGISTRO) {
+            volverYSaltarRegistro();
+            return new RegistroMarc(numero, "El registro no termina donde indica su largo.");
+        }
+        return separarCampos(datos);
+    }
+
+    // Lee el directorio: cada entrada trae la etiqueta (3), el largo (4) y el inicio (5) de un campo
+    private RegistroMarc separarCampos(byte[] datos) {
+        String cabecera = new String(datos, 0, LARGO_CABECERA, StandardCharsets.ISO_8859_1);
+        int baseDatos = leerNumero(datos, 12, 5);
+        if (baseDatos <= LARGO_CABECERA || baseDatos > datos.length || datos[baseDatos - 1] != TERMINADOR_CAMPO) {
+            return new RegistroMarc(numero, "Direccion base de los datos invalida.");
+        }
+        int cantidadCampos = (baseDatos - 1 - LARGO_CABECERA) / LARGO_ENTRADA_DIRECTORIO;
+        String[] etiquetas = new String[cantidadCampos];
+        int[] inicios = new int[cantidadCampos];
+        int[] largos = new int[cantidadCampos];
+        for (int i = 0; i < cantidadCampos; i++) {
+            int p = LARGO_CABECERA + i * LARGO_ENTRADA_DIRECTORIO;
+            int largoCampo = leerNumero(datos, p + 3, 4);
+            int inicioCampo = leerNumero(datos, p + 7, 5);
+            if (largoCampo < 1 || inicioCampo < 0 || baseDatos + inicioCampo + largoCampo > datos.length - 1) {
+                return new RegistroMarc(numero, "Entrada de directorio invalida en la posicion " + p + ".");
+            }
+            etiquetas[i] = new String(datos, p, 3, StandardCharsets.ISO_8859_1);
+            inicios[i] = baseDatos + inicioCampo;
+            largos[i] = datos[inicios[i] + largoCampo - 1] == TERMINADOR_CAMPO ? largoCampo - 1 : largoCampo;
+        }
+        Charset juego = cabecera.charAt(9) == 'a' ? StandardCharsets.UTF_8 : StandardCharsets.ISO_8859_1;
+        return new RegistroMarc(numero, cabecera, datos, etiquetas, inicios, largos, juego);
+    }
+
+    // Vuelve al inicio del registro danado y se para despues de su primer terminador
+    private void volverYSaltarRegistro() throws IOException {
+        entrada.reset();
+        int b;
+        do {
+            b = entrada.read();
+        } while (b != -1 && b != TERMINADOR_REGISTRO);
+    }
+
+    // Numero en ASCII de largo fijo; -1 si tiene algo que no es digito
+    private static int leerNumero(byte[] datos, int desde, int cuantos) {
+        int valor = 0;
+        for (int i = desde; i < desde + cuantos; i++) {
+            if (datos[i] < '0' || datos[i] > '9') {
+                return -1;
+            }
+            valor = valor * 10 + (datos[i] - '0');
+        }
+        return valor;
+    }
+}
@@ -0,0 +1,153 @@
+package bibliotecaudb.importacion;
+
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Un registro MARC21 ya separado en campos (lo devuelve LectorMarc21).
+ * Los valores se decodifican solo cuando se piden, asi leer un registro cuesta poco
+ * aunque se usen unos pocos campos.
+ */
+public class RegistroMarc {
+
+    private final long numero;       // Posicion del registro en el archivo (1, 2, ...)
+    private final String cabecera;   // Los 24 caracteres del leader
+    private final byte[] datos;      // El registro completo, tal como viene en el archivo
+    private final String[] etiquetas; // Etiqueta de cada campo del directorio, en orden
+    private final int[] inicios;     // Donde empieza cada campo dentro de datos
+    private final int[] largos;      // Largo de cada campo, sin el terminador
+    private final Charset juegoCaracteres;
+    private final String error;      // null si el registro esta bien formado
+
+    RegistroMarc(long numero, String cabecera, byte[] datos, String[] etiquetas, int[] inicios, int[] largos, Charset juegoCaracteres) {
+        this.numero = numero;
+        this.cabecera = cabecera;
+        this.datos = datos;
+        this.etiquetas = etiquetas;
+        this.inicios = inicios;
+        this.largos = largos;
+        this.juegoCaracteres = juegoCaracteres;
+        this.error = null;
+    }
+
+    // Registro que no se pudo separar en campos; se devuelve para rechazarlo y seguir con el siguiente
+    RegistroMarc(long numero, String error) {
+        this.numero = numero;
+        this.cabecera = null;
+        this.datos = null;
+        this.etiquetas = new String[0];
+        this.inicios = new int[0];
+        this.largos = new int[0];
+        this.juegoCaracteres = null;
+        this.error = error;
+    }
+
+    // Getters
+    public long getNumero() {
+        return numero;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    /**
+     * @return Leader/06, el tipo de registro ('a' texto, 'j' grabacion musical, 'g' video, ...).
+     */
+    public char getTipoRegistro() {
+        return cabecera != null ? cabecera.charAt(6) : ' ';
+    }
+
+    /**
+     * @return Leader/07, el nivel bibliografico ('m' monografia, 's' publicacion seriada, ...).
+     */
+    public char getNivelBibliografico() {
+        return cabecera != null ? cabecera.charAt(7) : ' ';
+    }
+
+    public boolean tieneCampo(String etiqueta) {
+        for (String e : etiquetas) {
+            if (e.equals(etiqueta)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return El contenido del primer campo de control con esa etiqueta (001 a 009), o null.
+     */
+    public String campoControl(String etiqueta) {
+        for (int i = 0; i < etiquetas.length; i++) {
+            if (etiquetas[i].equals(etiqueta)) {
+                return new String(datos, inicios[i], largos[i], juegoCaracteres);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return El primer subcampo con ese codigo en la primera aparicion del campo, o null.
+     */
+    public String subcampo(String etiqueta, char codigo) {
+        for (int i = 0; i < etiquetas.length; i++) {
+            if (etiquetas[i].equals(etiqueta)) {
+                List<String> valores = new ArrayList<>(1);
+                leerSubcampos(i, String.valueOf(codigo), valores, true);
+                if (!valores.isEmpty()) {
+                    return valores.get(0);
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Une los subcampos pedidos de cada aparicion del campo, en el orden en que vienen en el registro.
+     * Ejemplo: apariciones("245", "ab", " ") da el titulo con el subtitulo.
+     * @param etiqueta Campo de datos (010 a 999).
+     * @param codigos Codigos de los subcampos que interesan.
+     * @param separador Texto entre un subcampo y el siguiente.
+     * @return Un texto por cada aparicion que tenga al menos uno de esos subcampos.
+     */
+    public List<String> apariciones(String etiqueta, String codigos, String separador) {
+        List<String> resultado = new ArrayList<>();
+        for (int i = 0; i < etiquetas.length; i++) {
+            if (etiquetas[i].equals(etiqueta)) {
+                List<String> valores = new ArrayList<>();
+                leerSubcampos(i, codigos, valores, false);
+                if (!valores.isEmpty()) {
+                    resultado.add(String.join(separador, valores));
+                }
+            }
+        }
+        return resultado;
+    }
+
+    // Recorre los subcampos del campo i (despues de los dos indicadores) y agrega los que interesan
+    private void leerSubcampos(int i, String codigos, List<String> valores, boolean soloPrimero) {
+        int fin = inicios[i] + largos[i];
+        int p = inicios[i];
+        while (p < fin && datos[p] != LectorMarc21.TERMINADOR_SUBCAMPO) { // Salta los indicadores
+            p++;
+        }
+        while (p < fin) {
+            int inicioValor = p + 2; // Despues del delimitador y el codigo
+            int q = inicioValor;
+            while (q < fin && datos[q] != LectorMarc21.TERMINADOR_SUBCAMPO) {
+                q++;
+            }
+            if (p + 1 < fin && codigos.indexOf((char) datos[p + 1]) >= 0 && q > inicioValor) {
+                String valor = new String(datos, inicioValor, q - inicioValor, juegoCaracteres).trim();
+                if (!valor.isEmpty()) {
+                    valores.add(valor);
+                    if (soloPrimero) {
+                        return;
+                    }
+                }
+            }
+            p = q;
+        }
+    }
+}
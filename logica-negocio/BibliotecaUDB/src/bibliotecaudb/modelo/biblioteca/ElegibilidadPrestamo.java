@@ -0,0 +1,67 @@
+package bibliotecaudb.modelo.biblioteca;
+
+import bibliotecaudb.modelo.usuario.Usuario;
+
+/**
+ * Lo que se revisa antes de prestarle a un usuario: el usuario, las politicas de su tipo,
+ * cuantos prestamos activos tiene y si alguno esta vencido.
+ */
+public class ElegibilidadPrestamo {
+    private Usuario usuario;              // El usuario (con su TipoUsuario)
+    private PoliticasPrestamo politicas;  // null si su tipo de usuario no tiene politicas
+    private int prestamosActivos;         // Prestamos sin devolver
+    private boolean moraPendiente;        // true si alguno de esos prestamos ya paso su fecha limite
+
+    public ElegibilidadPrestamo() {
+    }
+
+    public ElegibilidadPrestamo(Usuario usuario, PoliticasPrestamo politicas, int prestamosActivos, boolean moraPendiente) {
+        this.usuario = usuario;
+        this.politicas = politicas;
+        this.prestamosActivos = prestamosActivos;
+        this.moraPendiente = moraPendiente;
+    }
+
+    // Getters y Setters
+    public Usuario getUsuario() {
+        return usuario;
+    }
+
+    public void setUsuario(Usuario usuario) {
+        this.usuario = usuario;
+    }
+
+    public PoliticasPrestamo getPoliticas() {
+        return politicas;
+    }
+
+    public void setPoliticas(PoliticasPrestamo politicas) {
+        this.politicas = politicas;
+    }
+
+    public int getPrestamosActivos() {
+        return prestamosActivos;
+    }
+
+    public void setPrestamosActivos(int prestamosActivos) {
+        this.prestamosActivos = prestamosActivos;
+    }
+
+    public boolean isMoraPendiente() {
+        return moraPendiente;
+    }
+
+    public void setMoraPendiente(boolean moraPendiente) {
+        this.moraPendiente = moraPendiente;
+    }
+
+    @Override
+    public String toString() {
+        return "ElegibilidadPrestamo{" +
+               "idUsuario=" + (usuario != null ? usuario.getId() : null) +
+               ", prestamosActivos=" + prestamosActivos +
+               ", moraPendiente=" + moraPendiente +
+               ", maxEjemplaresPrestamo=" + (politicas != null ? politicas.getMaxEjemplaresPrestamo() : null) +
+               '}';
+    }
+}
@@ -0,0 +1,87 @@
+package bibliotecaudb.modelo.biblioteca;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * Una fila plana del historial de devoluciones, para exportar.
+ * Trae los datos del prestamo que se muestran, sin armar el Prestamo completo.
+ */
+public class FilaHistorialDevolucion {
+    private final int idDevolucion;
+    private final int idPrestamo;
+    private final int idUsuario;
+    private final String nombreUsuario;
+    private final int idEjemplar;
+    private final String tituloDocumento;
+    private final LocalDate fechaPrestamo;
+    private final LocalDate fechaLimite;
+    private final LocalDate fechaDevolucion;
+    private final BigDecimal moraPagada;
+
+    public FilaHistorialDevolucion(int idDevolucion, int idPrestamo, int idUsuario, String nombreUsuario, int idEjemplar,
+            String tituloDocumento, LocalDate fechaPrestamo, LocalDate fechaLimite, LocalDate fechaDevolucion, BigDecimal moraPagada) {
+        this.idDevolucion = idDevolucion;
+        this.idPrestamo = idPrestamo;
+        this.idUsuario = idUsuario;
+        this.nombreUsuario = nombreUsuario;
+        this.idEjemplar = idEjemplar;
+        this.tituloDocumento = tituloDocumento;
+        this.fechaPrestamo = fechaPrestamo;
+        this.fechaLimite = fechaLimite;
+        this.fechaDevolucion = fechaDevolucion;
+        this.moraPagada = moraPagada;
+    }
+
+    // Getters
+    public int getIdDevolucion() {
+        return idDevolucion;
+    }
+
+    public int getIdPrestamo() {
+        return idPrestamo;
+    }
+
+    public int getIdUsuario() {
+        return idUsuario;
+    }
+
+    public String getNombreUsuario() {
+        return nombreUsuario;
+    }
+
+    public int getIdEjemplar() {
+        return idEjemplar;
+    }
+
+    public String getTituloDocumento() {
+        return tituloDocumento;
+    }
+
+    public LocalDate getFechaPrestamo() {
+        return fechaPrestamo;
+    }
+
+    public LocalDate getFechaLimite() {
+        return fechaLimite;
+    }
+
+    public LocalDate getFechaDevolucion() {
+        return fechaDevolucion;
+    }
+
+    public BigDecimal getMoraPagada() {
+        return moraPagada;
+    }
+
+    @Override
+    public String toString() {
+        return "FilaHistorialDevolucion{" +
+               "idDevolucion=" + idDevolucion +
+               ", idPrestamo=" + idPrestamo +
+               ", usuario=" + nombreUsuario +
+               ", fechaDevolucion=" + fechaDevolucion +
+               ", moraPagada=" + moraPagada +
+               '}';
+    }
+}
@@ -0,0 +1,94 @@
+package bibliotecaudb.modelo.biblioteca;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * Una fila plana del historial de prestamos, para exportar.
+ * A diferencia de Prestamo no arma Usuario, Ejemplar ni Documento: solo trae las columnas que se muestran.
+ */
+public class FilaHistorialPrestamo {
+    private final int idPrestamo;
+    private final int idUsuario;
+    private final String nombreUsuario;
+    private final String correoUsuario;
+    private final int idEjemplar;
+    private final int idDocumento;
+    private final String tituloDocumento;
+    private final LocalDate fechaPrestamo;
+    private final LocalDate fechaLimite;
+    private final LocalDate fechaDevolucion; // null si todavia no se devuelve
+    private final BigDecimal mora;
+
+    public FilaHistorialPrestamo(int idPrestamo, int idUsuario, String nombreUsuario, String correoUsuario, int idEjemplar,
+            int idDocumento, String tituloDocumento, LocalDate fechaPrestamo, LocalDate fechaLimite, LocalDate fechaDevolucion, BigDecimal mora) {
+        this.idPrestamo = idPrestamo;
+        this.idUsuario = idUsuario;
+        this.nombreUsuario = nombreUsuario;
+        this.correoUsuario = correoUsuario;
+        this.idEjemplar = idEjemplar;
+        this.idDocumento = idDocumento;
+        this.tituloDocumento = tituloDocumento;
+        this.fechaPrestamo = fechaPrestamo;
+        this.fechaLimite = fechaLimite;
+        this.fechaDevolucion = fechaDevolucion;
+        this.mora = mora;
+    }
+
+    // Getters
+    public int getIdPrestamo() {
+        return idPrestamo;
+    }
+
+    public int getIdUsuario() {
+        return idUsuario;
+    }
+
+    public String getNombreUsuario() {
+        return nombreUsuario;
+    }
+
+    public String getCorreoUsuario() {
+        return correoUsuario;
+    }
+
+    public int getIdEjemplar() {
+        return idEjemplar;
+    }
+
+    public int getIdDocumento() {
+        return idDocumento;
+    }
+
+    public String getTituloDocumento() {
+        return tituloDocumento;
+    }
+
+    public LocalDate getFechaPrestamo() {
+        return fechaPrestamo;
+    }
+
+    public LocalDate getFechaLimite() {
+        return fechaLimite;
+    }
+
+    public LocalDate getFechaDevolucion() {
+        return fechaDevolucion;
+    }
+
+    public BigDecimal getMora() {
+        return mora;
+    }
+
+    @Override
+    public String toString() {
+        return "FilaHistorialPrestamo{" +
+               "idPrestamo=" + idPrestamo +
+               ", usuario=" + nombreUsuario +
+               ", titulo=" + tituloDocumento +
+               ", fechaPrestamo=" + fechaPrestamo +
+               ", fechaDevolucion=" + fechaDevolucion +
+               ", mora=" + mora +
+               '}';
+    }
+}
@@ -0,0 +1,66 @@
+package bibliotecaudb.modelo.biblioteca;
+
+import java.time.LocalDate;
+
+/**
+ * Resultado de una corrida de la acumulacion de mora sobre los prestamos vencidos.
+ */
+public class ResultadoAcumulacionMora {
+    private LocalDate fechaCorte;       // Fecha hasta la que se calculo la mora
+    private int prestamosRevisados;     // Prestamos vencidos encontrados
+    private int prestamosActualizados;  // Prestamos cuya mora cambio
+    private long duracionMs;            // Cuanto tardo la corrida
+
+    public ResultadoAcumulacionMora() {
+    }
+
+    public ResultadoAcumulacionMora(LocalDate fechaCorte, int prestamosRevisados, int prestamosActualizados, long duracionMs) {
+        this.fechaCorte = fechaCorte;
+        this.prestamosRevisados = prestamosRevisados;
+        this.prestamosActualizados = prestamosActualizados;
+        this.duracionMs = duracionMs;
+    }
+
+    // Getters y Setters
+    public LocalDate getFechaCorte() {
+        return fechaCorte;
+    }
+
+    public void setFechaCorte(LocalDate fechaCorte) {
+        this.fechaCorte = fechaCorte;
+    }
+
+    public int getPrestamosRevisados() {
+        return prestamosRevisados;
+    }
+
+    public void setPrestamosRevisados(int prestamosRevisados) {
+        this.prestamosRevisados = prestamosRevisados;
+    }
+
+    public int getPrestamosActualizados() {
+        return prestamosActualizados;
+    }
+
+    public void setPrestamosActualizados(int prestamosActualizados) {
+        this.prestamosActualizados = prestamosActualizados;
+    }
+
+    public long getDuracionMs() {
+        return duracionMs;
+    }
+
+    public void setDuracionMs(long duracionMs) {
+        this.duracionMs = duracionMs;
+    }
+
+    @Override
+    public String toString() {
+        return "ResultadoAcumulacionMora{" +
+               "fechaCorte=" + fechaCorte +
+               ", prestamosRevisados=" + prestamosRevisados +
+               ", prestamosActualizados=" + prestamosActualizados +
+               ", duracionMs=" + duracionMs +
+               '}';
+    }
+}
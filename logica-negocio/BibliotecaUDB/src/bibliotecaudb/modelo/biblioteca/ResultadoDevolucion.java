@@ -0,0 +1,60 @@
+package bibliotecaudb.modelo.biblioteca;
+
+/**
+ * Resultado de un prestamo dentro de una devolucion en lote:
+ * la devolucion registrada, o el motivo por el que no se registro.
+ */
+public class ResultadoDevolucion {
+    private int idPrestamo;
+    private Devolucion devolucion; // null si no se registro
+    private String motivo;         // null si se registro
+
+    public ResultadoDevolucion() {
+    }
+
+    public ResultadoDevolucion(int idPrestamo, Devolucion devolucion, String motivo) {
+        this.idPrestamo = idPrestamo;
+        this.devolucion = devolucion;
+        this.motivo = motivo;
+    }
+
+    /**
+     * @return true si la devolucion se registro.
+     */
+    public boolean isExitoso() {
+        return devolucion != null;
+    }
+
+    // Getters y Setters
+    public int getIdPrestamo() {
+        return idPrestamo;
+    }
+
+    public void setIdPrestamo(int idPrestamo) {
+        this.idPrestamo = idPrestamo;
+    }
+
+    public Devolucion getDevolucion() {
+        return devolucion;
+    }
+
+    public void setDevolucion(Devolucion devolucion) {
+        this.devolucion = devolucion;
+    }
+
+    public String getMotivo() {
+        return motivo;
+    }
+
+    public void setMotivo(String motivo) {
+        this.motivo = motivo;
+    }
+
+    @Override
+    public String toString() {
+        return "ResultadoDevolucion{" +
+               "idPrestamo=" + idPrestamo +
+               (devolucion != null ? ", idDevolucion=" + devolucion.getId() + ", moraPagada=" + devolucion.getMoraPagada() : ", motivo='" + motivo + '\'') +
+               '}';
+    }
+}
@@ -0,0 +1,94 @@
+package bibliotecaudb.modelo.biblioteca;
+
+/**
+ * Avance o resultado final de una importacion masiva del catalogo.
+ */
+public class ResultadoImportacion {
+    private long filasLeidas;            // Filas de datos leidas del archivo (sin el encabezado)
+    private long documentosInsertados;   // Documentos nuevos
+    private long ejemplaresInsertados;   // Ejemplares nuevos (de documentos nuevos o existentes)
+    private long duplicados;             // Filas de documentos que ya existian
+    private long rechazados;             // Filas que no se importaron (estan en el reporte de rechazos)
+    private long duracionMs;             // Tiempo transcurrido
+
+    public ResultadoImportacion() {
+    }
+
+    public ResultadoImportacion(long filasLeidas, long documentosInsertados, long ejemplaresInsertados, long duplicados, long rechazados, long duracionMs) {
+        this.filasLeidas = filasLeidas;
+        this.documentosInsertados = documentosInsertados;
+        this.ejemplaresInsertados = ejemplaresInsertados;
+        this.duplicados = duplicados;
+        this.rechazados = rechazados;
+        this.duracionMs = duracionMs;
+    }
+
+    /**
+     * @return Filas procesadas por segundo.
+     */
+    public double getFilasPorSegundo() {
+        return duracionMs > 0 ? filasLeidas * 1000.0 / duracionMs : 0;
+    }
+
+    // Getters y Setters
+    public long getFilasLeidas() {
+        return filasLeidas;
+    }
+
+    public void setFilasLeidas(long filasLeidas) {
+        this.filasLeidas = filasLeidas;
+    }
+
+    public long getDocumentosInsertados() {
+        return documentosInsertados;
+    }
+
+    public void setDocumentosInsertados(long documentosInsertados) {
+        this.documentosInsertados = documentosInsertados;
+    }
+
+    public long getEjemplaresInsertados() {
+        return ejemplaresInsertados;
+    }
+
+    public void setEjemplaresInsertados(long ejemplaresInsertados) {
+        this.ejemplaresInsertados = ejemplaresInsertados;
+    }
+
+    public long getDuplicados() {
+        return duplicados;
+    }
+
+    public void setDuplicados(long duplicados) {
+        this.duplicados = duplicados;
+    }
+
+    public long getRechazados() {
+        return rechazados;
+    }
+
+    public void setRechazados(long rechazados) {
+        this.rechazados = rechazados;
+    }
+
+    public long getDuracionMs() {
+        return duracionMs;
+    }
+
+    public void setDuracionMs(long duracionMs) {
+        this.duracionMs = duracionMs;
+    }
+
+    @Override
+    public String toString() {
+        return "ResultadoImportacion{" +
+               "filasLeidas=" + filasLeidas +
+               ", documentosInsertados=" + documentosInsertados +
+               ", ejemplaresInsertados=" + ejemplaresInsertados +
+               ", duplicados=" + duplicados +
+               ", rechazados=" + rechazados +
+               ", duracionMs=" + duracionMs +
+               ", filasPorSegundo=" + String.format("%.1f", getFilasPorSegundo()) +
+               '}';
+    }
+}
@@ -0,0 +1,73 @@
+package bibliotecaudb.modelo.biblioteca;
+
+import java.util.List;
+
+/**
+ * Resultado de una devolucion en lote: lo que paso con cada prestamo (en el orden pedido) y los totales.
+ */
+public class ResultadoLoteDevoluciones {
+    private List<ResultadoDevolucion> resultados;
+    private int registradas;   // Devoluciones que se guardaron
+    private int rechazadas;    // Prestamos que no se devolvieron (ver el motivo de cada uno)
+    private long duracionMs;   // Cuanto tardo todo el lote
+
+    public ResultadoLoteDevoluciones() {
+    }
+
+    public ResultadoLoteDevoluciones(List<ResultadoDevolucion> resultados, int registradas, int rechazadas, long duracionMs) {
+        this.resultados = resultados;
+        this.registradas = registradas;
+        this.rechazadas = rechazadas;
+        this.duracionMs = duracionMs;
+    }
+
+    /**
+     * @return Prestamos procesados por segundo.
+     */
+    public double getDevolucionesPorSegundo() {
+        return duracionMs > 0 ? (registradas + rechazadas) * 1000.0 / duracionMs : 0;
+    }
+
+    // Getters y Setters
+    public List<ResultadoDevolucion> getResultados() {
+        return resultados;
+    }
+
+    public void setResultados(List<ResultadoDevolucion> resultados) {
+        this.resultados = resultados;
+    }
+
+    public int getRegistradas() {
+        return registradas;
+    }
+
+    public void setRegistradas(int registradas) {
+        this.registradas = registradas;
+    }
+
+    public int getRechazadas() {
+        return rechazadas;
+    }
+
+    public void setRechazadas(int rechazadas) {
+        this.rechazadas = rechazadas;
+    }
+
+    public long getDuracionMs() {
+        return duracionMs;
+    }
+
+    public void setDuracionMs(long duracionMs) {
+        this.duracionMs = duracionMs;
+    }
+
+    @Override
+    public String toString() {
+        return "ResultadoLoteDevoluciones{" +
+               "registradas=" + registradas +
+               ", rechazadas=" + rechazadas +
+               ", duracionMs=" + duracionMs +
+               ", devolucionesPorSegundo=" + String.format("%.1f", getDevolucionesPorSegundo()) +
+               '}';
+    }
+}
@@ -0,0 +1,60 @@
+package bibliotecaudb.modelo.biblioteca;
+
+/**
+ * Resultado de un ejemplar dentro de un prestamo de varios ejemplares:
+ * el prestamo creado, o el motivo por el que ese ejemplar no se presto.
+ */
+public class ResultadoPrestamo {
+    private int idEjemplar;
+    private Prestamo prestamo; // null si no se presto
+    private String motivo;     // null si se presto
+
+    public ResultadoPrestamo() {
+    }
+
+    public ResultadoPrestamo(int idEjemplar, Prestamo prestamo, String motivo) {
+        this.idEjemplar = idEjemplar;
+        this.prestamo = prestamo;
+        this.motivo = motivo;
+    }
+
+    /**
+     * @return true si el ejemplar se presto.
+     */
+    public boolean isExitoso() {
+        return prestamo != null;
+    }
+
+    // Getters y Setters
+    public int getIdEjemplar() {
+        return idEjemplar;
+    }
+
+    public void setIdEjemplar(int idEjemplar) {
+        this.idEjemplar = idEjemplar;
+    }
+
+    public Prestamo getPrestamo() {
+        return prestamo;
+    }
+
+    public void setPrestamo(Prestamo prestamo) {
+        this.prestamo = prestamo;
+    }
+
+    public String getMotivo() {
+        return motivo;
+    }
+
+    public void setMotivo(String motivo) {
+        this.motivo = motivo;
+    }
+
+    @Override
+    public String toString() {
+        return "ResultadoPrestamo{" +
+               "idEjemplar=" + idEjemplar +
+               (prestamo != null ? ", idPrestamo=" + prestamo.getId() : ", motivo='" + motivo + '\'') +
+               '}';
+    }
+}
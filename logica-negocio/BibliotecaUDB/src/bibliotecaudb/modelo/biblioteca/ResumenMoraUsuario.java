@@ -0,0 +1,69 @@
+package bibliotecaudb.modelo.biblioteca;
+
+import bibliotecaudb.modelo.usuario.Usuario;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * Un usuario con prestamos vencidos y los totales de esos prestamos.
+ */
+public class ResumenMoraUsuario {
+    private Usuario usuario;                   // El usuario (con su TipoUsuario)
+    private int prestamosVencidos;             // Prestamos activos con fecha_limite pasada
+    private LocalDate fechaLimiteMasAntigua;   // La fecha limite mas vieja de esos prestamos
+    private BigDecimal moraAcumulada;          // Suma de la mora guardada en esos prestamos
+
+    public ResumenMoraUsuario() {
+    }
+
+    public ResumenMoraUsuario(Usuario usuario, int prestamosVencidos, LocalDate fechaLimiteMasAntigua, BigDecimal moraAcumulada) {
+        this.usuario = usuario;
+        this.prestamosVencidos = prestamosVencidos;
+        this.fechaLimiteMasAntigua = fechaLimiteMasAntigua;
+        this.moraAcumulada = moraAcumulada;
+    }
+
+    // Getters y Setters
+    public Usuario getUsuario() {
+        return usuario;
+    }
+
+    public void setUsuario(Usuario usuario) {
+        this.usuario = usuario;
+    }
+
+    public int getPrestamosVencidos() {
+        return prestamosVencidos;
+    }
+
+    public void setPrestamosVencidos(int prestamosVencidos) {
+        this.prestamosVencidos = prestamosVencidos;
+    }
+
+    public LocalDate getFechaLimiteMasAntigua() {
+        return fechaLimiteMasAntigua;
+    }
+
+    public void setFechaLimiteMasAntigua(LocalDate fechaLimiteMasAntigua) {
+        this.fechaLimiteMasAntigua = fechaLimiteMasAntigua;
+    }
+
+    public BigDecimal getMoraAcumulada() {
+        return moraAcumulada;
+    }
+
+    public void setMoraAcumulada(BigDecimal moraAcumulada) {
+        this.moraAcumulada = moraAcumulada;
+    }
+
+    @Override
+    public String toString() {
+        return "ResumenMoraUsuario{" +
+               "usuario=" + (usuario != null ? usuario.getNombre() : "null") +
+               ", prestamosVencidos=" + prestamosVencidos +
+               ", fechaLimiteMasAntigua=" + fechaLimiteMasAntigua +
+               ", moraAcumulada=" + moraAcumulada +
+               '}';
+    }
+}
@@ -0,0 +1,44 @@
+package bibliotecaudb.modelo.biblioteca;
+
+import java.time.LocalDate;
+
+/**
+ * Un prestamo por devolver dentro de una devolucion en lote (por ejemplo, lo que se escaneo del buzon).
+ */
+public class SolicitudDevolucion {
+    private int idPrestamo;
+    private LocalDate fechaDevolucion; // null = hoy
+
+    public SolicitudDevolucion() {
+    }
+
+    public SolicitudDevolucion(int idPrestamo, LocalDate fechaDevolucion) {
+        this.idPrestamo = idPrestamo;
+        this.fechaDevolucion = fechaDevolucion;
+    }
+
+    // Getters y Setters
+    public int getIdPrestamo() {
+        return idPrestamo;
+    }
+
+    public void setIdPrestamo(int idPrestamo) {
+        this.idPrestamo = idPrestamo;
+    }
+
+    public LocalDate getFechaDevolucion() {
+        return fechaDevolucion;
+    }
+
+    public void setFechaDevolucion(LocalDate fechaDevolucion) {
+        this.fechaDevolucion = fechaDevolucion;
+    }
+
+    @Override
+    public String toString() {
+        return "SolicitudDevolucion{" +
+               "idPrestamo=" + idPrestamo +
+               ", fechaDevolucion=" + fechaDevolucion +
+               '}';
+    }
+}
@@ -0,0 +1,50 @@
+package bibliotecaudb.modelo.biblioteca;
+
+/**
+ * Una sugerencia del autocompletado del buscador: un titulo o un autor.
+ * Es inmutable porque la misma instancia se devuelve a todos los que consultan.
+ */
+public class SugerenciaBusqueda {
+
+    public static final String TIPO_TITULO = "Titulo";
+    public static final String TIPO_AUTOR = "Autor";
+
+    private final String texto;       // Lo que se muestra (titulo o nombre del autor, tal como esta en la BD)
+    private final String tipo;        // TIPO_TITULO o TIPO_AUTOR
+    private final int idDocumento;    // Documento del titulo; 0 para los autores
+    private final int prestamos;      // Veces que se ha prestado (para un autor, la suma de sus documentos)
+
+    public SugerenciaBusqueda(String texto, String tipo, int idDocumento, int prestamos) {
+        this.texto = texto;
+        this.tipo = tipo;
+        this.idDocumento = idDocumento;
+        this.prestamos = prestamos;
+    }
+
+    // Getters
+    public String getTexto() {
+        return texto;
+    }
+
+    public String getTipo() {
+        return tipo;
+    }
+
+    public int getIdDocumento() {
+        return idDocumento;
+    }
+
+    public int getPrestamos() {
+        return prestamos;
+    }
+
+    @Override
+    public String toString() {
+        return "SugerenciaBusqueda{" +
+               "texto='" + texto + '\'' +
+               ", tipo='" + tipo + '\'' +
+               ", idDocumento=" + idDocumento +
+               ", prestamos=" + prestamos +
+               '}';
+    }
+}
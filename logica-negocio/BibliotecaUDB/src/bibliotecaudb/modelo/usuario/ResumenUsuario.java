@@ -0,0 +1,91 @@
+package bibliotecaudb.modelo.usuario;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * Resumen de circulacion de un usuario (tabla resumen_usuario): lo necesario para decidir si
+ * puede llevarse un prestamo sin contar sus prestamos cada vez.
+ */
+public class ResumenUsuario {
+    private int idUsuario;
+    private Usuario usuario;                 // El usuario (con su TipoUsuario)
+    private int prestamosActivos;            // Prestamos sin devolver
+    private int prestamosVencidos;           // De esos, con fecha_limite pasada (al ultimo recalculo)
+    private BigDecimal moraAcumulada;        // Mora guardada en los prestamos sin devolver
+    private LocalDate proximoVencimiento;    // La fecha limite mas cercana de los prestamos sin devolver; null si no tiene
+
+    public ResumenUsuario() {
+        this.moraAcumulada = BigDecimal.ZERO;
+    }
+
+    /**
+     * @param hoy Fecha con la que se compara.
+     * @return true si tiene algun prestamo sin devolver con la fecha limite ya pasada.
+     * Se mira la fecha limite mas cercana y no solo prestamosVencidos, que se actualiza
+     * con la acumulacion nocturna y podria no incluir lo que vencio ayer.
+     */
+    public boolean tieneMoraPendiente(LocalDate hoy) {
+        return prestamosVencidos > 0 || (proximoVencimiento != null && proximoVencimiento.isBefore(hoy));
+    }
+
+    // Getters y Setters
+    public int getIdUsuario() {
+        return idUsuario;
+    }
+
+    public void setIdUsuario(int idUsuario) {
+        this.idUsuario = idUsuario;
+    }
+
+    public Usuario getUsuario() {
+        return usuario;
+    }
+
+    public void setUsuario(Usuario usuario) {
+        this.usuario = usuario;
+    }
+
+    public int getPrestamosActivos() {
+        return prestamosActivos;
+    }
+
+    public void setPrestamosActivos(int prestamosActivos) {
+        this.prestamosActivos = prestamosActivos;
+    }
+
+    public int getPrestamosVencidos() {
+        return prestamosVencidos;
+    }
+
+    public void setPrestamosVencidos(int prestamosVencidos) {
+        this.prestamosVencidos = prestamosVencidos;
+    }
+
+    public BigDecimal getMoraAcumulada() {
+        return moraAcumulada;
+    }
+
+    public void setMoraAcumulada(BigDecimal moraAcumulada) {
+        this.moraAcumulada = moraAcumulada;
+    }
+
+    public LocalDate getProximoVencimiento() {
+        return proximoVencimiento;
+    }
+
+    public void setProximoVencimiento(LocalDate proximoVencimiento) {
+        this.proximoVencimiento = proximoVencimiento;
+    }
+
+    @Override
+    public String toString() {
+        return "ResumenUsuario{" +
+               "idUsuario=" + idUsuario +
+               ", prestamosActivos=" + prestamosActivos +
+               ", prestamosVencidos=" + prestamosVencidos +
+               ", moraAcumulada=" + moraAcumulada +
+               ", proximoVencimiento=" + proximoVencimiento +
+               '}';
+    }
+}
@@ -0,0 +1,121 @@
+package bibliotecaudb.pruebas;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.function.ToIntFunction;
+
+/**
+ * Lo que comparten las pruebas de los indices en memoria (PruebaIndicesBusqueda y PruebaAutocompletado):
+ * un catalogo generado con palabras con tildes, autores y editoriales, y el recorrido verificar y despues medir.
+ *
+ * Uso de esas pruebas: [cantidad] [cantidadVerificacion] [consultas] (por defecto 500000, 20000 y 2000).
+ * La verificacion usa siempre la semilla 42 y la medicion la 7, asi dos corridas generan lo mismo.
+ */
+final class CatalogoGenerado {
+
+    static final int FALLOS_A_MOSTRAR = 10;
+
+    static final String[] PALABRAS = {"programación", "fundamentos", "introducción", "análisis", "algoritmos",
+        "estructuras", "datos", "redes", "computadoras", "bases", "sistemas", "operativos", "ingeniería", "software",
+        "matemáticas", "discretas", "cálculo", "física", "química", "historia", "economía", "teoría", "práctica",
+        "diseño", "compiladores", "seguridad", "información", "inteligencia", "artificial", "aprendizaje", "automático",
+        "java", "python", "web", "móvil", "gestión", "proyectos", "estadística", "probabilidad", "álgebra", "lineal",
+        "electrónica", "digital", "señales", "arquitectura", "paralela", "distribuida", "niño", "año", "de", "la", "y", "el"};
+    static final String[] NOMBRES = {"José", "María", "Ana", "Luis", "Carmen", "Jorge", "Sofía", "Andrés", "Lucía", "Raúl"};
+    static final String[] APELLIDOS = {"Pérez", "Gómez", "Martínez", "Hernández", "López", "Ramírez", "Núñez",
+        "Castillo", "Orwell", "Knuth", "Sedgewick", "Tanenbaum"};
+    static final String[] EDITORIALES = {"Pearson", "McGraw-Hill", "Alfaomega", "Reverté", "O'Reilly", "UCA Editores"};
+
+    private static final long SEMILLA_VERIFICACION = 42;
+    private static final long SEMILLA_MEDICION = 7;
+
+    /** Compara el indice con la fuerza bruta; devuelve cuantas diferencias hubo. */
+    interface Verificacion {
+        int verificar(Random azar, int cantidad, int consultas);
+    }
+
+    /** Arma el indice con el catalogo completo y mide. */
+    interface Medicion {
+        void medir(Random azar, int cantidad, int consultas);
+    }
+
+    private CatalogoGenerado() {
+    }
+
+    // Lee los argumentos, verifica con un catalogo chico y mide con el completo
+    static void correr(String[] args, Verificacion verificacion, Medicion medicion) {
+        int cantidad = args.length > 0 ? Integer.parseInt(args[0]) : 500_000;
+        int cantidadVerificacion = args.length > 1 ? Integer.parseInt(args[1]) : 20_000;
+        int consultas = args.length > 2 ? Integer.parseInt(args[2]) : 2000;
+
+        int fallos = verificacion.verificar(new Random(SEMILLA_VERIFICACION), cantidadVerificacion, consultas);
+        System.out.println(fallos == 0 ? "Verificacion OK" : "Verificacion con " + fallos + " diferencias");
+
+        medicion.medir(new Random(SEMILLA_MEDICION), cantidad, consultas);
+    }
+
+    // Solo se muestran los primeros fallos; el total sale al final de la verificacion
+    static void mostrarFallo(int fallos, String detalle) {
+        if (fallos <= FALLOS_A_MOSTRAR) {
+            System.out.println(detalle);
+        }
+    }
+
+    // Titulo de 2 a 6 palabras con la primera en mayuscula
+    static String generarTitulo(Random azar) {
+        StringBuilder titulo = new StringBuilder();
+        int palabras = 2 + azar.nextInt(5);
+        for (int i = 0; i < palabras; i++) {
+            if (i > 0) {
+                titulo.append(' ');
+            }
+            String palabra = PALABRAS[azar.nextInt(PALABRAS.length)];
+            titulo.append(i == 0 ? Character.toUpperCase(palabra.charAt(0)) + palabra.substring(1) : palabra);
+        }
+        return titulo.toString();
+    }
+
+    static String generarAutor(Random azar) {
+        return NOMBRES[azar.nextInt(NOMBRES.length)] + " " + APELLIDOS[azar.nextInt(APELLIDOS.length)];
+    }
+
+    // Titulo, autor, editorial y anio, como los indexa IndiceDocumentos
+    static String[] generarDocumento(Random azar) {
+        String titulo = generarTitulo(azar);
+        String autor = generarAutor(azar);
+        String editorial = azar.nextInt(10) == 0 ? null : EDITORIALES[azar.nextInt(EDITORIALES.length)];
+        return new String[]{titulo, autor, editorial, String.valueOf(1950 + azar.nextInt(75))};
+    }
+
+    // Memoria ocupada despues de un gc, en bytes
+    static long memoriaUsada() {
+        Runtime rt = Runtime.getRuntime();
+        System.gc();
+        return rt.totalMemory() - rt.freeMemory();
+    }
+
+    /**
+     * Calienta el JIT y mide cada consulta por separado.
+     * @param consulta Ejecuta una consulta y devuelve cuantos resultados dio.
+     * @return "consultas=.. totalMs=.. p50Us=.. p99Us=.. resultadosPromedio=..", para agregar a la linea de la medicion.
+     */
+    static String medirConsultas(List<String> consultas, ToIntFunction<String> consulta) {
+        for (int i = 0; i < Math.min(200, consultas.size()); i++) {
+            consulta.applyAsInt(consultas.get(i));
+        }
+        long[] micros = new long[consultas.size()];
+        long resultados = 0;
+        long inicio = System.nanoTime();
+        for (int i = 0; i < consultas.size(); i++) {
+            long t = System.nanoTime();
+            resultados += consulta.applyAsInt(consultas.get(i));
+            micros[i] = (System.nanoTime() - t) / 1000;
+        }
+        long totalMs = (System.nanoTime() - inicio) / 1_000_000;
+        Arrays.sort(micros);
+        int n = micros.length;
+        return String.format("consultas=%d totalMs=%d p50Us=%d p99Us=%d resultadosPromedio=%d",
+                n, totalMs, micros[n / 2], micros[Math.min(n - 1, n * 99 / 100)], resultados / Math.max(1, n));
+    }
+}
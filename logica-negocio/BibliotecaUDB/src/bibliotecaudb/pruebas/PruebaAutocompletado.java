@@ -0,0 +1,168 @@
+package bibliotecaudb.pruebas;
+
+import bibliotecaudb.busqueda.IndiceAutocompletado;
+import bibliotecaudb.busqueda.Tokenizador;
+import bibliotecaudb.modelo.biblioteca.SugerenciaBusqueda;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Revisa y mide IndiceAutocompletado con sugerencias generadas (no necesita la BD):
+ * - verificacion: compara cada consulta con la fuerza bruta sobre las mismas sugerencias: que salgan
+ *   las k mas prestadas de las que coinciden, sin repetir, ordenadas por prestamos y sin pasar de
+ *   IndiceAutocompletado.LIMITE_MAXIMO. Entre empatadas en el ultimo lugar cualquiera es valida.
+ * - medicion: arma el indice con todas las sugerencias y mide la construccion y cada consulta.
+ *
+ * Uso: PruebaAutocompletado [sugerencias] [sugerenciasVerificacion] [consultas] (ver CatalogoGenerado).
+ */
+public class PruebaAutocompletado {
+
+    private static final int[] LIMITES = {1, 5, 10, 50, 1000};
+
+    public static void main(String[] args) {
+        CatalogoGenerado.correr(args, PruebaAutocompletado::verificar, PruebaAutocompletado::medir);
+    }
+
+    private static int verificar(Random azar, int cantidad, int consultas) {
+        List<SugerenciaBusqueda> sugerencias = generarSugerencias(azar, cantidad);
+        IndiceAutocompletado indice = new IndiceAutocompletado(sugerencias);
+        String[] textos = new String[sugerencias.size()];
+        for (int s = 0; s < textos.length; s++) {
+            textos[s] = Tokenizador.normalizarFrase(sugerencias.get(s).getTexto());
+        }
+
+        int fallos = 0;
+        List<String> listaConsultas = generarConsultas(azar, sugerencias, consultas);
+        for (String consulta : listaConsultas) {
+            int limite = LIMITES[azar.nextInt(LIMITES.length)];
+            String motivo = revisar(sugerencias, textos, consulta, limite, indice.sugerir(consulta, limite));
+            if (motivo != null) {
+                fallos++;
+                CatalogoGenerado.mostrarFallo(fallos, "'" + consulta + "' limite=" + limite + ": " + motivo);
+            }
+        }
+        if (indice.sugerir("a", Integer.MAX_VALUE).size() > IndiceAutocompletado.LIMITE_MAXIMO) { // Antes de recortarlo se desbordaba
+            fallos++;
+            System.out.println("Un limite de Integer.MAX_VALUE no se recorto a " + IndiceAutocompletado.LIMITE_MAXIMO);
+        }
+        System.out.println(String.format("verificacion sugerencias=%d consultas=%d fallos=%d", cantidad, listaConsultas.size(), fallos));
+        return fallos;
+    }
+
+    // null si el resultado es valido; si no, por que
+    private static String revisar(List<SugerenciaBusqueda> sugerencias, String[] textos, String consulta, int limite,
+            List<SugerenciaBusqueda> obtenidas) {
+        String p = Tokenizador.normalizarFrase(consulta);
+        List<Integer> coinciden = new ArrayList<>();
+        if (!p.isEmpty()) {
+            for (int s = 0; s < textos.length; s++) {
+                if (coincide(textos[s], p)) {
+                    coinciden.add(s);
+                }
+            }
+        }
+        coinciden.sort((a, b) -> Integer.compare(sugerencias.get(b).getPrestamos(), sugerencias.get(a).getPrestamos()));
+        int esperadas = Math.min(coinciden.size(), Math.min(limite, IndiceAutocompletado.LIMITE_MAXIMO));
+        if (obtenidas.size() != esperadas) {
+            return "se esperaban " + esperadas + " sugerencias y salieron " + obtenidas.size();
+        }
+        if (esperadas == 0) {
+            return null;
+        }
+        Set<SugerenciaBusqueda> vistas = new HashSet<>(); // Misma instancia que la lista original
+        for (int i = 0; i < obtenidas.size(); i++) {
+            SugerenciaBusqueda sugerencia = obtenidas.get(i);
+            if (!vistas.add(sugerencia)) {
+                return "'" + sugerencia.getTexto() + "' sale repetida";
+            }
+            if (!coincide(Tokenizador.normalizarFrase(sugerencia.getTexto()), p)) {
+                return "'" + sugerencia.getTexto() + "' no coincide con el prefijo";
+            }
+            if (i > 0 && obtenidas.get(i - 1).getPrestamos() < sugerencia.getPrestamos()) {
+                return "no estan ordenadas por prestamos en la posicion " + i;
+            }
+        }
+        // Las que tienen mas prestamos que la ultima deben salir todas; las empatadas con la ultima pueden variar
+        int corte = obtenidas.get(esperadas - 1).getPrestamos();
+        if (sugerencias.get(coinciden.get(esperadas - 1)).getPrestamos() != corte) {
+            return "la ultima tiene " + corte + " prestamos y la fuerza bruta da " + sugerencias.get(coinciden.get(esperadas - 1)).getPrestamos();
+        }
+        for (int s : coinciden) {
+            if (sugerencias.get(s).getPrestamos() > corte && !vistas.contains(sugerencias.get(s))) {
+                return "falta '" + sugerencias.get(s).getTexto() + "' con " + sugerencias.get(s).getPrestamos() + " prestamos";
+            }
+        }
+        return null;
+    }
+
+    // El texto empieza con el prefijo, o alguna de sus palabras de 3 letras o mas
+    private static boolean coincide(String texto, String prefijo) {
+        if (texto.isEmpty()) {
+            return false;
+        }
+        if (texto.startsWith(prefijo)) {
+            return true;
+        }
+        for (int i = 1; i < texto.length(); i++) {
+            if (texto.charAt(i - 1) == ' ' && largoPalabra(texto, i) >= IndiceAutocompletado.LARGO_MINIMO_PALABRA && texto.startsWith(prefijo, i)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static int largoPalabra(String texto, int inicio) {
+        int fin = texto.indexOf(' ', inicio);
+        return (fin < 0 ? texto.length() : fin) - inicio;
+    }
+
+    private static void medir(Random azar, int cantidad, int consultas) {
+        List<SugerenciaBusqueda> sugerencias = generarSugerencias(azar, cantidad);
+        List<String> listaConsultas = generarConsultas(azar, sugerencias, consultas);
+
+        long memoriaAntes = CatalogoGenerado.memoriaUsada();
+        long inicio = System.nanoTime();
+        IndiceAutocompletado indice = new IndiceAutocompletado(sugerencias);
+        long construccionMs = (System.nanoTime() - inicio) / 1_000_000;
+        long memoriaMb = (CatalogoGenerado.memoriaUsada() - memoriaAntes) / (1024 * 1024);
+
+        String tiempos = CatalogoGenerado.medirConsultas(listaConsultas, consulta -> indice.sugerir(consulta, 10).size());
+        System.out.println(String.format("autocompletado sugerencias=%d construccionMs=%d memoriaMb=%d %s",
+                indice.getCantidadSugerencias(), construccionMs, memoriaMb, tiempos));
+    }
+
+    // Titulos de 2 a 6 palabras y algunos autores; los prestamos se reparten para que haya empates
+    private static List<SugerenciaBusqueda> generarSugerencias(Random azar, int cantidad) {
+        List<SugerenciaBusqueda> sugerencias = new ArrayList<>(cantidad);
+        for (int i = 0; i < cantidad; i++) {
+            int prestamos = azar.nextInt(4) == 0 ? azar.nextInt(1000) : azar.nextInt(10);
+            if (i % 10 == 0) {
+                sugerencias.add(new SugerenciaBusqueda(CatalogoGenerado.generarAutor(azar), SugerenciaBusqueda.TIPO_AUTOR, 0, prestamos));
+            } else {
+                sugerencias.add(new SugerenciaBusqueda(CatalogoGenerado.generarTitulo(azar), SugerenciaBusqueda.TIPO_TITULO, i + 1, prestamos));
+            }
+        }
+        return sugerencias;
+    }
+
+    // Prefijos de distinto largo, del inicio o de una palabra, varias palabras, mayusculas y cosas que no existen
+    private static List<String> generarConsultas(Random azar, List<SugerenciaBusqueda> sugerencias, int cantidad) {
+        List<String> consultas = new ArrayList<>(cantidad);
+        consultas.add("");
+        consultas.add("de");
+        consultas.add("zzzz");
+        consultas.add("PROGRAMACIÓN");
+        while (consultas.size() < cantidad) {
+            String texto = Tokenizador.normalizarFrase(sugerencias.get(azar.nextInt(sugerencias.size())).getTexto());
+            int desde = azar.nextBoolean() ? 0 : Math.max(0, texto.indexOf(' ') + 1);
+            int largo = 1 + azar.nextInt(Math.max(1, texto.length() - desde));
+            String consulta = texto.substring(desde, Math.min(texto.length(), desde + largo));
+            consultas.add(azar.nextInt(5) == 0 ? consulta.toUpperCase() : consulta);
+        }
+        return consultas;
+    }
+}
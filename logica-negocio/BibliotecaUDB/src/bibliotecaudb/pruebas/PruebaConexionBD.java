@@ -28,13 +28,8 @@ public class PruebaConexionBD {
             LogsError.fatal(PruebaConexionBD.class, "Error inesperado durante la prueba de conexión: " + e.getMessage(), e);
             e.printStackTrace();
         } finally {
-            // La clase ConexionBD maneja una conexión estática.
-            // Si quisieras cerrarla explícitamente después de esta prueba, podrías llamar a:
-            // ConexionBD.cerrarConexion();
-            // LogsError.info(PruebaConexionBD.class, "Intento de cierre de conexión (si es gestionada globalmente).");
-            // Pero para una prueba simple de "si conecta", no es estrictamente necesario cerrarla aquí,
-            // especialmente si otras pruebas la van a usar inmediatamente.
-            // Considera el ciclo de vida de tu conexión estática.
+            ConexionBD.close(conn); // Devolvemos la conexion al pool
+            ConexionBD.cerrarConexion(); // Cerramos el pool al terminar la prueba
         }
     }
 }
\ No newline at end of file
@@ -0,0 +1,104 @@
+package bibliotecaudb.pruebas;
+
+import bibliotecaudb.conexion.ConexionBD;
+import bibliotecaudb.conexion.LogsError;
+import bibliotecaudb.conexion.UnidadTrabajo;
+import bibliotecaudb.dao.biblioteca.PoliticasPrestamoDAO;
+import bibliotecaudb.dao.biblioteca.PrestamoDAO;
+import bibliotecaudb.dao.biblioteca.impl.PoliticasPrestamosDAOImpl;
+import bibliotecaudb.dao.biblioteca.impl.PrestamoDAOImpl;
+import bibliotecaudb.dao.usuario.ResumenUsuarioDAO;
+import bibliotecaudb.dao.usuario.UsuarioDAO;
+import bibliotecaudb.dao.usuario.impl.ResumenUsuarioDAOImpl;
+import bibliotecaudb.dao.usuario.impl.UsuarioDAOImpl;
+import bibliotecaudb.modelo.usuario.ResumenUsuario;
+import bibliotecaudb.modelo.usuario.Usuario;
+
+import java.sql.SQLException;
+import java.util.Arrays;
+
+/**
+ * Compara cuanto tarda revisar si un usuario puede llevarse un prestamo (necesita la BD de pruebas):
+ * - separadas: obtenerPorId + verificarUsuarioTieneMora + politicas + contarPrestamosActivosPorUsuario (como antes)
+ * - consulta: PrestamoDAO.obtenerElegibilidad dentro de una transaccion (prestamos.elegibilidad=consulta)
+ * - resumen: ResumenUsuarioDAO.bloquearPorIdUsuario dentro de una transaccion (prestamos.elegibilidad=resumen)
+ *
+ * Idas a la BD por revision, contando las sentencias que ejecuta cada variante (con las politicas ya en el cache):
+ * separadas 3 (4 con el cache vacio), consulta 2 (bloqueo del usuario + conteo), resumen 1.
+ * Los tiempos dependen del servidor, por eso no se anotan aqui: se toman corriendo esta clase contra la BD de pruebas.
+ *
+ * Uso: PruebaElegibilidadPrestamo [idUsuario] [repeticiones]. Conviene subir el nivel del log a WARN
+ * para medir la BD y no la escritura del log.
+ */
+public class PruebaElegibilidadPrestamo {
+
+    interface Revision {
+        void ejecutar() throws SQLException;
+    }
+
+    public static void main(String[] args) {
+        int idUsuario = args.length > 0 ? Integer.parseInt(args[0]) : 3; // Alumno1 en los datos de ejemplo
+        int repeticiones = args.length > 1 ? Integer.parseInt(args[1]) : 2000;
+
+        UsuarioDAO usuarioDAO = new UsuarioDAOImpl();
+        PrestamoDAO prestamoDAO = new PrestamoDAOImpl();
+        PoliticasPrestamoDAO politicasDAO = new PoliticasPrestamosDAOImpl();
+        ResumenUsuarioDAO resumenDAO = new ResumenUsuarioDAOImpl();
+
+        Revision separadas = () -> {
+            Usuario u = usuarioDAO.obtenerPorId(idUsuario);
+            prestamoDAO.verificarUsuarioTieneMora(idUsuario);
+            politicasDAO.obtenerPorIdTipoUsuario(u.getIdTipoUsuario());
+            prestamoDAO.contarPrestamosActivosPorUsuario(idUsuario);
+        };
+        // Las dos revisiones con bloqueo se hacen dentro de una transaccion que se cierra sin confirmar (rollback),
+        // igual que un prestamo rechazado
+        Revision consulta = () -> {
+            UnidadTrabajo uow = UnidadTrabajo.iniciar();
+            try {
+                prestamoDAO.obtenerElegibilidad(idUsuario);
+            } finally {
+                uow.close();
+            }
+        };
+        Revision resumen = () -> {
+            UnidadTrabajo uow = UnidadTrabajo.iniciar();
+            try {
+                ResumenUsuario r = resumenDAO.bloquearPorIdUsuario(idUsuario);
+                politicasDAO.obtenerPorIdTipoUsuario(r.getUsuario().getIdTipoUsuario());
+            } finally {
+                uow.close();
+            }
+        };
+
+        try {
+            LogsError.info(PruebaElegibilidadPrestamo.class, "Elegibilidad del usuario " + idUsuario + ": " + prestamoDAO.obtenerElegibilidad(idUsuario));
+            medir("separadas", separadas, repeticiones);
+            medir("consulta", consulta, repeticiones);
+            medir("resumen", resumen, repeticiones);
+        } catch (SQLException e) {
+            LogsError.error(PruebaElegibilidadPrestamo.class, "Error de SQL en la prueba de elegibilidad: " + e.getMessage(), e);
+        } finally {
+            ConexionBD.cerrarConexion(); // Cerramos el pool al terminar la prueba
+        }
+    }
+
+    // Calienta el pool y el JIT, y despues mide cada repeticion por separado
+    private static void medir(String nombre, Revision revision, int repeticiones) throws SQLException {
+        for (int i = 0; i < Math.min(200, repeticiones); i++) {
+            revision.ejecutar();
+        }
+        long[] micros = new long[repeticiones];
+        long inicio = System.nanoTime();
+        for (int i = 0; i < repeticiones; i++) {
+            long t = System.nanoTime();
+            revision.ejecutar();
+            micros[i] = (System.nanoTime() - t) / 1000;
+        }
+        long totalMs = (System.nanoTime() - inicio) / 1_000_000;
+        Arrays.sort(micros);
+        System.out.println(String.format("%-10s repeticiones=%d totalMs=%d promedioUs=%d p50Us=%d p99Us=%d",
+                nombre, repeticiones, totalMs, totalMs * 1000 / repeticiones,
+                micros[repeticiones / 2], micros[Math.min(repeticiones - 1, repeticiones * 99 / 100)]));
+    }
+}
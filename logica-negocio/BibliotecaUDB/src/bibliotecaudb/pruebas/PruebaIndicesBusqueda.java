@@ -0,0 +1,289 @@
+package bibliotecaudb.pruebas;
+
+import bibliotecaudb.busqueda.IndiceInvertidoDocumentos;
+import bibliotecaudb.busqueda.IndiceTexto;
+import bibliotecaudb.busqueda.IndiceTrigramas;
+import bibliotecaudb.busqueda.Tokenizador;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Revisa y mide los indices de busqueda en memoria con un catalogo generado (no necesita la BD):
+ * - verificacion: arma IndiceInvertidoDocumentos e IndiceTrigramas en desorden, reindexa y quita documentos,
+ *   y compara cada consulta con una busqueda por fuerza bruta sobre los mismos textos. Como las listas de IDs
+ *   de los dos indices son ListaIds, tambien revisa sus altas y bajas fuera de orden.
+ * - medicion: arma los dos indices con el catalogo completo y mide la construccion y las consultas.
+ *
+ * Uso: PruebaIndicesBusqueda [documentos] [documentosVerificacion] [consultas] (ver CatalogoGenerado).
+ * Conviene correrlo con -Xmx2g o mas para el catalogo completo.
+ */
+public class PruebaIndicesBusqueda {
+
+    public static void main(String[] args) {
+        CatalogoGenerado.correr(args, PruebaIndicesBusqueda::verificar, PruebaIndicesBusqueda::medir);
+    }
+
+    // Compara los dos indices con la fuerza bruta despues de altas en desorden, reindexaciones y bajas
+    private static int verificar(Random azar, int cantidad, int consultas) {
+        String[][] textos = new String[cantidad + 1][]; // Por ID; null = no esta en el indice
+        IndiceInvertidoDocumentos invertido = new IndiceInvertidoDocumentos();
+        IndiceTrigramas trigramas = new IndiceTrigramas();
+
+        int[] orden = new int[cantidad]; // IDs 1..cantidad en desorden, para que ListaIds no solo agregue al final
+        for (int i = 0; i < cantidad; i++) {
+            orden[i] = i + 1;
+        }
+        for (int i = cantidad - 1; i > 0; i--) {
+            int j = azar.nextInt(i + 1);
+            int tmp = orden[i];
+            orden[i] = orden[j];
+            orden[j] = tmp;
+        }
+        for (int id : orden) {
+            textos[id] = CatalogoGenerado.generarDocumento(azar);
+            invertido.indexar(id, textos[id]);
+            trigramas.indexar(id, textos[id]);
+        }
+        for (int i = 0; i < cantidad / 10; i++) { // Una decima parte se reindexa con otro texto
+            int id = 1 + azar.nextInt(cantidad);
+            textos[id] = CatalogoGenerado.generarDocumento(azar);
+            invertido.indexar(id, textos[id]);
+            trigramas.indexar(id, textos[id]);
+        }
+        for (int i = 0; i < cantidad / 20; i++) { // Y una vigesima parte se quita
+            int id = 1 + azar.nextInt(cantidad);
+            textos[id] = null;
+            invertido.quitar(id);
+            trigramas.quitar(id);
+        }
+
+        int presentes = 0;
+        for (String[] t : textos) {
+            if (t != null) {
+                presentes++;
+            }
+        }
+        int fallos = 0;
+        if (invertido.getCantidadDocumentos() != presentes || trigramas.getCantidadDocumentos() != presentes) {
+            System.out.println("Cantidad de documentos distinta: esperados=" + presentes + " invertido="
+                    + invertido.getCantidadDocumentos() + " trigramas=" + trigramas.getCantidadDocumentos());
+            fallos++;
+        }
+
+        // Lo que usa la fuerza bruta, calculado una vez por documento
+        String[][] tokens = new String[textos.length][];
+        String[] textoNormalizado = new String[textos.length];
+        Set<Long>[] trigramasDocumento = nuevosConjuntos(textos.length);
+        for (int id = 1; id < textos.length; id++) {
+            if (textos[id] != null) {
+                tokens[id] = Tokenizador.tokens(textos[id]);
+                textoNormalizado[id] = normalizarCampos(textos[id]);
+                trigramasDocumento[id] = trigramasDeDocumento(textos[id]);
+            }
+        }
+
+        List<String> listaConsultas = generarConsultas(azar, textos, consultas);
+        for (String consulta : listaConsultas) {
+            int[] esperado = buscarInvertidoFuerzaBruta(tokens, consulta);
+            int[] obtenido = invertido.buscar(consulta);
+            if (!Arrays.equals(esperado, obtenido)) {
+                fallos++;
+                mostrarFallo(fallos, "invertido", consulta, esperado, obtenido);
+            }
+            esperado = buscarTrigramasFuerzaBruta(textoNormalizado, trigramasDocumento, consulta);
+            obtenido = trigramas.buscar(consulta);
+            if (!Arrays.equals(esperado, obtenido)) {
+                fallos++;
+                mostrarFallo(fallos, "trigramas", consulta, esperado, obtenido);
+            }
+        }
+        System.out.println(String.format("verificacion documentos=%d presentes=%d consultas=%d fallos=%d",
+                cantidad, presentes, listaConsultas.size(), fallos));
+        return fallos;
+    }
+
+    // Arma los dos indices con todo el catalogo y mide cada consulta por separado
+    private static void medir(Random azar, int cantidad, int consultas) {
+        String[][] textos = new String[cantidad + 1][];
+        for (int id = 1; id <= cantidad; id++) {
+            textos[id] = CatalogoGenerado.generarDocumento(azar);
+        }
+        List<String> listaConsultas = generarConsultas(azar, textos, consultas);
+        medirIndice("invertido", new IndiceInvertidoDocumentos(), textos, listaConsultas);
+        medirIndice("trigramas", new IndiceTrigramas(), textos, listaConsultas);
+    }
+
+    private static void medirIndice(String nombre, IndiceTexto indice, String[][] textos, List<String> consultas) {
+        long memoriaAntes = CatalogoGenerado.memoriaUsada();
+        long inicio = System.nanoTime();
+        for (int id = 1; id < textos.length; id++) {
+            indice.indexar(id, textos[id]);
+        }
+        long construccionMs = (System.nanoTime() - inicio) / 1_000_000;
+        long memoriaMb = (CatalogoGenerado.memoriaUsada() - memoriaAntes) / (1024 * 1024);
+
+        String tiempos = CatalogoGenerado.medirConsultas(consultas, consulta -> indice.buscar(consulta).length);
+        System.out.println(String.format("%-10s documentos=%d construccionMs=%d memoriaMb=%d %s",
+                nombre, indice.getCantidadDocumentos(), construccionMs, memoriaMb, tiempos));
+    }
+
+    // Palabras completas, prefijos, varias palabras, sin tildes, con errores de una letra y cosas que no existen
+    private static List<String> generarConsultas(Random azar, String[][] textos, int cantidad) {
+        List<String> consultas = new ArrayList<>(cantidad);
+        consultas.add("");
+        consultas.add("IA");
+        consultas.add("zzzz");
+        consultas.add("Programación, 2da ed.");
+        while (consultas.size() < cantidad) {
+            String[] doc = textos[1 + azar.nextInt(textos.length - 1)];
+            if (doc == null) {
+                continue;
+            }
+            String palabra = Tokenizador.normalizarFrase(doc[azar.nextInt(2)]).split(" ")[0];
+            switch (azar.nextInt(6)) {
+                case 0:
+                    consultas.add(palabra);
+                    break;
+                case 1:
+                    consultas.add(palabra.substring(0, Math.max(1, palabra.length() / 2)));
+                    break;
+                case 2:
+                    consultas.add(doc[0].toUpperCase());
+                    break;
+                case 3:
+                    consultas.add(palabra + " " + doc[3]);
+                    break;
+                case 4:
+                    consultas.add(palabra.length() > 3 ? palabra.substring(0, 2) + palabra.substring(3) : palabra); // Falta una letra
+                    break;
+                default:
+                    consultas.add(CatalogoGenerado.PALABRAS[azar.nextInt(CatalogoGenerado.PALABRAS.length)] + " "
+                            + CatalogoGenerado.APELLIDOS[azar.nextInt(CatalogoGenerado.APELLIDOS.length)]);
+                    break;
+            }
+        }
+        return consultas;
+    }
+
+    // Todos los terminos de la consulta deben ser prefijo de algun token del documento; IDs de menor a mayor
+    private static int[] buscarInvertidoFuerzaBruta(String[][] tokens, String consulta) {
+        String[] terminos = Tokenizador.tokens(consulta);
+        if (terminos.length == 0) {
+            return new int[0];
+        }
+        List<Integer> ids = new ArrayList<>();
+        for (int id = 1; id < tokens.length; id++) {
+            if (tokens[id] == null) {
+                continue;
+            }
+            boolean todos = true;
+            for (String termino : terminos) {
+                boolean alguno = false;
+                for (String token : tokens[id]) {
+                    if (token.startsWith(termino)) {
+                        alguno = true;
+                        break;
+                    }
+                }
+                if (!alguno) {
+                    todos = false;
+                    break;
+                }
+            }
+            if (todos) {
+                ids.add(id);
+            }
+        }
+        return aArreglo(ids);
+    }
+
+    // Trigramas en comun (o todos y ademas la consulta como subcadena) ordenados por puntaje y luego por ID
+    private static int[] buscarTrigramasFuerzaBruta(String[] textoNormalizado, Set<Long>[] trigramasDocumento, String consulta) {
+        String q = Tokenizador.normalizarFrase(consulta);
+        if (q.isEmpty()) {
+            return new int[0];
+        }
+        Set<Long> deConsulta = new HashSet<>();
+        agregarTrigramas(q.length() < 3 ? " " + q + " " : q, deConsulta);
+        int n = deConsulta.size();
+        int minimo = Math.max(1, (int) Math.ceil(n * IndiceTrigramas.COINCIDENCIA_MINIMA));
+        List<int[]> encontrados = new ArrayList<>(); // {id, puntaje}
+        for (int id = 1; id < textoNormalizado.length; id++) {
+            if (textoNormalizado[id] == null) {
+                continue;
+            }
+            int cuenta = 0;
+            for (Long trigrama : deConsulta) {
+                if (trigramasDocumento[id].contains(trigrama)) {
+                    cuenta++;
+                }
+            }
+            if (cuenta >= minimo) {
+                int puntaje = cuenta == n && textoNormalizado[id].contains(q) ? cuenta + n + 1 : cuenta;
+                encontrados.add(new int[]{id, puntaje});
+            }
+        }
+        encontrados.sort((a, b) -> a[1] != b[1] ? Integer.compare(b[1], a[1]) : Integer.compare(a[0], b[0]));
+        int[] ids = new int[encontrados.size()];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = encontrados.get(i)[0];
+        }
+        return ids;
+    }
+
+    // Los campos normalizados, separados igual que en IndiceTrigramas para que una consulta no junte dos campos
+    private static String normalizarCampos(String[] campos) {
+        StringBuilder sb = new StringBuilder();
+        for (String campo : campos) {
+            String normalizado = Tokenizador.normalizarFrase(campo);
+            if (!normalizado.isEmpty()) {
+                if (sb.length() > 0) {
+                    sb.append('\u0001');
+                }
+                sb.append(normalizado);
+            }
+        }
+        return sb.toString();
+    }
+
+    private static Set<Long> trigramasDeDocumento(String[] campos) {
+        Set<Long> trigramas = new HashSet<>();
+        for (String campo : campos) {
+            String normalizado = Tokenizador.normalizarFrase(campo);
+            if (!normalizado.isEmpty()) {
+                agregarTrigramas(" " + normalizado + " ", trigramas);
+            }
+        }
+        return trigramas;
+    }
+
+    private static void agregarTrigramas(String texto, Set<Long> destino) {
+        for (int i = 0; i + 3 <= texto.length(); i++) {
+            destino.add(((long) texto.charAt(i) << 32) | ((long) texto.charAt(i + 1) << 16) | texto.charAt(i + 2));
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Set<Long>[] nuevosConjuntos(int cantidad) {
+        return (Set<Long>[]) new Set<?>[cantidad];
+    }
+
+    private static int[] aArreglo(List<Integer> valores) {
+        int[] arreglo = new int[valores.size()];
+        for (int i = 0; i < arreglo.length; i++) {
+            arreglo[i] = valores.get(i);
+        }
+        return arreglo;
+    }
+
+    private static void mostrarFallo(int fallos, String indice, String consulta, int[] esperado, int[] obtenido) {
+        CatalogoGenerado.mostrarFallo(fallos, indice + " '" + consulta + "': esperados=" + esperado.length + " obtenidos=" + obtenido.length
+                + " primeros esperados=" + Arrays.toString(Arrays.copyOf(esperado, Math.min(10, esperado.length)))
+                + " primeros obtenidos=" + Arrays.toString(Arrays.copyOf(obtenido, Math.min(10, obtenido.length))));
+    }
+}
@@ -0,0 +1,208 @@
+package bibliotecaudb.pruebas;
+
+import bibliotecaudb.importacion.LectorCsv;
+import bibliotecaudb.importacion.LectorMarc21;
+import bibliotecaudb.importacion.RegistroMarc;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * Revisa los lectores de la importacion de catalogo con archivos armados en memoria (no necesita la BD):
+ * - LectorCsv: campos entre comillas, separadores y comillas dentro de ellas, saltos de linea dentro de un campo,
+ *   BOM, lineas vacias, \r solo, un \r justo al final del bufer interno y comillas sin cerrar.
+ * - LectorMarc21: un registro bien formado (UTF-8), cabecera con largo invalido, largo mas corto o mas largo que
+ *   el registro, directorio y direccion base invalidos, y que despues de un registro danado siga con el siguiente.
+ *
+ * Uso: PruebaLectoresImportacion (sin argumentos). Termina con "Verificacion OK" o con cuantas revisiones fallaron.
+ */
+public class PruebaLectoresImportacion {
+
+    private static final byte FIN_SUBCAMPO = 0x1F;
+    private static final byte FIN_CAMPO = 0x1E;
+    private static final byte FIN_REGISTRO = 0x1D;
+
+    private static int fallos = 0;
+
+    public static void main(String[] args) throws IOException {
+        revisarCsv();
+        revisarMarc21();
+        System.out.println(fallos == 0 ? "Verificacion OK" : "Verificacion con " + fallos + " fallos");
+    }
+
+    private static void revisarCsv() throws IOException {
+        LectorCsv lector = csv("titulo,\"Uno, dos\",\"Dijo \"\"hola\"\"\",\n", ',');
+        revisar("csv comillas", Arrays.asList(lector.siguiente()), Arrays.asList("titulo", "Uno, dos", "Dijo \"hola\"", ""));
+
+        lector = csv("\"primera\nsegunda\";x\r\n\r\n\nfin;y", ';');
+        revisar("csv salto de linea dentro de comillas", Arrays.asList(lector.siguiente()), Arrays.asList("primera\nsegunda", "x"));
+        revisar("csv lineas vacias y ultimo registro sin salto", Arrays.asList(lector.siguiente()), Arrays.asList("fin", "y"));
+        revisar("csv linea del registro despues del salto", lector.getLineaRegistro(), 5L);
+        revisar("csv fin del archivo", lector.siguiente(), null);
+
+        lector = csv("\uFEFFtitulo;autor\r\nA;B\r\n", ';');
+        revisar("csv BOM", Arrays.asList(lector.siguiente()), Arrays.asList("titulo", "autor"));
+        revisar("csv despues del BOM", Arrays.asList(lector.siguiente()), Arrays.asList("A", "B"));
+
+        lector = csv("titulo\uFEFF,x\n", ',');
+        revisar("csv BOM fuera del inicio se conserva", lector.siguiente()[0], "titulo\uFEFF");
+
+        lector = csv("a,b\rc,d\r", ',');
+        revisar("csv \\r solo como fin de linea", Arrays.asList(lector.siguiente()), Arrays.asList("a", "b"));
+        revisar("csv \\r solo, segundo registro", Arrays.asList(lector.siguiente()), Arrays.asList("c", "d"));
+
+        // El bufer de LectorCsv es de 8192 caracteres: el \r queda en la ultima posicion y lo que sigue en la siguiente lectura
+        String largo = "x".repeat(8191);
+        lector = csv(largo + "\rz,w\n", ',');
+        revisar("csv \\r al final del bufer", lector.siguiente()[0].length(), 8191);
+        revisar("csv registro despues del bufer", Arrays.asList(lector.siguiente()), Arrays.asList("z", "w"));
+
+        revisar("csv separador ;", LectorCsv.detectarSeparador("titulo;\"autor, editor\";anio"), ';');
+        revisar("csv separador ,", LectorCsv.detectarSeparador("titulo,autor;x,anio"), ',');
+
+        lector = csv("a,\"sin cerrar\nb,c\n", ',');
+        try {
+            lector.siguiente();
+            revisar("csv comillas sin cerrar", "sin error", "IOException");
+        } catch (IOException ex) {
+            revisar("csv comillas sin cerrar", ex.getMessage().contains("linea 1"), true);
+        }
+    }
+
+    private static void revisarMarc21() throws IOException {
+        byte[] bueno = registro("a", new String[][]{{"008", "850101s1967    ck            000 1 spa d"},
+            {"100", subcampos("a", "García Márquez, Gabriel,")}, {"245", subcampos("a", "Cien años de soledad /", "c", "G.G.M.")}});
+        LectorMarc21 lector = marc(bueno);
+        RegistroMarc r = lector.siguiente();
+        revisar("marc registro bien formado", r.getError(), null);
+        revisar("marc titulo en UTF-8", r.subcampo("245", 'a'), "Cien años de soledad /");
+        revisar("marc campo de control", r.campoControl("008").substring(7, 11), "1967");
+        revisar("marc fin del archivo", lector.siguiente(), null);
+
+        // Cabecera con letras donde va el largo: se salta hasta su terminador y sigue con el siguiente
+        lector = marc(bytes("abcde", "resto del registro danado"), new byte[]{FIN_REGISTRO}, bueno);
+        revisar("marc cabecera con largo invalido", empieza(lector.siguiente(), "Largo de registro invalido"), true);
+        revisar("marc sigue despues de la cabecera invalida", titulo(lector.siguiente()), "Cien años de soledad /");
+
+        // Largo mas corto que el registro: no termina con 0x1D donde dice
+        byte[] corto = registro(" ", new String[][]{{"245", subcampos("a", "Corto")}});
+        byte[] largoMenor = corto.clone();
+        escribirNumero(largoMenor, 0, 5, corto.length - 3);
+        lector = marc(largoMenor, bueno);
+        revisar("marc largo menor que el registro", empieza(lector.siguiente(), "El registro no termina donde indica su largo"), true);
+        revisar("marc sigue despues del largo menor", titulo(lector.siguiente()), "Cien años de soledad /");
+
+        // Largo mayor: se comeria el registro siguiente; debe volver y recuperarlo
+        byte[] largoMayor = corto.clone();
+        escribirNumero(largoMayor, 0, 5, corto.length + bueno.length - 10);
+        lector = marc(largoMayor, bueno, bueno);
+        revisar("marc largo mayor que el registro", empieza(lector.siguiente(), "El registro no termina donde indica su largo"), true);
+        revisar("marc recupera el registro que el largo se comia", titulo(lector.siguiente()), "Cien años de soledad /");
+        revisar("marc y el que sigue", titulo(lector.siguiente()), "Cien años de soledad /");
+        revisar("marc fin despues de recuperar", lector.siguiente(), null);
+
+        // Entrada de directorio con un largo de campo que se sale del registro
+        byte[] directorio = corto.clone();
+        escribirNumero(directorio, 24 + 3, 4, 9999);
+        lector = marc(directorio, bueno);
+        revisar("marc largo de campo invalido en el directorio", empieza(lector.siguiente(), "Entrada de directorio invalida"), true);
+        revisar("marc sigue despues del directorio invalido", titulo(lector.siguiente()), "Cien años de soledad /");
+
+        // Largo de campo con letras
+        byte[] directorioLetras = corto.clone();
+        directorioLetras[24 + 4] = 'x';
+        revisar("marc largo de campo con letras", empieza(marc(directorioLetras).siguiente(), "Entrada de directorio invalida"), true);
+
+        // Direccion base que no apunta al fin del directorio
+        byte[] base = corto.clone();
+        escribirNumero(base, 12, 5, 30);
+        lector = marc(base, bueno);
+        revisar("marc direccion base invalida", empieza(lector.siguiente(), "Direccion base de los datos invalida"), true);
+        revisar("marc sigue despues de la direccion base invalida", titulo(lector.siguiente()), "Cien años de soledad /");
+
+        // Registros separados por saltos de linea y un archivo cortado a mitad del siguiente
+        lector = marc(bueno, bytes("\r\n", ""), bueno, bytes("01", ""));
+        revisar("marc con salto de linea entre registros", titulo(lector.siguiente()), "Cien años de soledad /");
+        revisar("marc despues del salto de linea", titulo(lector.siguiente()), "Cien años de soledad /");
+        RegistroMarc cortado = lector.siguiente();
+        revisar("marc archivo cortado", empieza(cortado, "El archivo termina a mitad del registro"), true);
+        revisar("marc numero del registro cortado", cortado.getNumero(), 3L);
+        revisar("marc fin despues del registro cortado", lector.siguiente(), null);
+    }
+
+    private static void revisar(String nombre, Object obtenido, Object esperado) {
+        if (!Objects.equals(obtenido, esperado)) {
+            fallos++;
+            System.out.println("FALLO " + nombre + ": se esperaba " + esperado + " y salio " + obtenido);
+        }
+    }
+
+    private static LectorCsv csv(String texto, char separador) {
+        return new LectorCsv(new StringReader(texto), separador);
+    }
+
+    private static LectorMarc21 marc(byte[]... partes) {
+        ByteArrayOutputStream archivo = new ByteArrayOutputStream();
+        for (byte[] parte : partes) {
+            archivo.writeBytes(parte);
+        }
+        return new LectorMarc21(new ByteArrayInputStream(archivo.toByteArray()));
+    }
+
+    private static boolean empieza(RegistroMarc registro, String error) {
+        return registro != null && registro.getError() != null && registro.getError().startsWith(error);
+    }
+
+    private static String titulo(RegistroMarc registro) {
+        if (registro == null) {
+            return "(fin del archivo)";
+        }
+        return registro.getError() != null ? "(error: " + registro.getError() + ")" : registro.subcampo("245", 'a');
+    }
+
+    // Un registro ISO 2709: cabecera de 24, directorio (etiqueta, largo, inicio), campos y terminador.
+    // juego es Leader/09: "a" para UTF-8, " " para MARC-8
+    private static byte[] registro(String juego, String[][] campos) {
+        ByteArrayOutputStream directorio = new ByteArrayOutputStream();
+        ByteArrayOutputStream datos = new ByteArrayOutputStream();
+        for (String[] campo : campos) {
+            byte[] valor = campo[1].getBytes(StandardCharsets.UTF_8);
+            directorio.writeBytes(String.format("%s%04d%05d", campo[0], valor.length + 1, datos.size()).getBytes(StandardCharsets.US_ASCII));
+            datos.writeBytes(valor);
+            datos.write(FIN_CAMPO);
+        }
+        directorio.write(FIN_CAMPO);
+        int base = 24 + directorio.size();
+        int largo = base + datos.size() + 1;
+        String cabecera = String.format("%05dnam %s22%05d   4500", largo, juego, base);
+        ByteArrayOutputStream registro = new ByteArrayOutputStream();
+        registro.writeBytes(cabecera.getBytes(StandardCharsets.US_ASCII));
+        registro.writeBytes(directorio.toByteArray());
+        registro.writeBytes(datos.toByteArray());
+        registro.write(FIN_REGISTRO);
+        return registro.toByteArray();
+    }
+
+    // Indicadores en blanco y los subcampos (codigo, valor, codigo, valor...)
+    private static String subcampos(String... codigosYValores) {
+        StringBuilder sb = new StringBuilder("  ");
+        for (int i = 0; i < codigosYValores.length; i += 2) {
+            sb.append((char) FIN_SUBCAMPO).append(codigosYValores[i]).append(codigosYValores[i + 1]);
+        }
+        return sb.toString();
+    }
+
+    private static byte[] bytes(String a, String b) {
+        return (a + b).getBytes(StandardCharsets.ISO_8859_1);
+    }
+
+    private static void escribirNumero(byte[] datos, int desde, int cuantos, int valor) {
+        byte[] digitos = String.format("%0" + cuantos + "d", valor).getBytes(StandardCharsets.US_ASCII);
+        System.arraycopy(digitos, 0, datos, desde, cuantos);
+    }
+}
@@ -3,9 +3,13 @@ package bibliotecaudb.servicios;
 import bibliotecaudb.modelo.biblioteca. *;
 import bibliotecaudb.modelo.usuario. *;
 import bibliotecaudb.excepciones.BibliotecaException; 
+import bibliotecaudb.dao.Pagina;
+import bibliotecaudb.exportacion.FormatoExportacion;
+import java.nio.file.Path;
 import java.time.LocalDate;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Consumer;
 import java.sql.SQLException;
 
 
@@ -15,19 +19,34 @@ public interface BibliotecaService {
     boolean registrarNuevoDocumentoConEjemplares(Documento documento, List<Ejemplar> ejemplares) throws SQLException, BibliotecaException; 
     boolean agregarEjemplarADocumentoExistente(int idDocumento, Ejemplar ejemplar) throws SQLException, BibliotecaException; 
     List<Documento> buscarDocumentos(String termino) throws SQLException;
+    List<Documento> buscarDocumentos(String termino, int desplazamiento, int limite) throws SQLException; // Una pagina, con el motor de busqueda.motor
+    List<SugerenciaBusqueda> autocompletar(String texto, int limite); // Titulos y autores para el buscador, los mas prestados primero (a lo mas IndiceAutocompletado.LIMITE_MAXIMO)
     Map<String, Object> consultarDetalleDocumento(int idDocumento) throws SQLException, BibliotecaException; 
+    Pagina<Documento> listarDocumentos(String token, int tamano) throws SQLException; // Por titulo; token null = primera pagina
+    Pagina<Ejemplar> listarEjemplares(String token, int tamano) throws SQLException; // Por documento
+    ResultadoImportacion importarCatalogoCsv(Path archivo, Path reporteRechazos) throws SQLException, BibliotecaException; // Carga masiva; las filas con error van al reporte
+    ResultadoImportacion importarCatalogoMarc21(Path archivo, Path reporteRechazos) throws SQLException, BibliotecaException; // Igual, desde un archivo MARC21 (ISO 2709)
 
     // --- Gestion de Prestamos ---
     Prestamo realizarPrestamo(int idUsuario, int idEjemplar) throws SQLException, BibliotecaException; 
+    List<ResultadoPrestamo> realizarPrestamos(int idUsuario, List<Integer> idsEjemplares) throws SQLException, BibliotecaException; // Varios en una transaccion; un resultado por ejemplar
+    String obtenerEstadisticasEsperaPrestamos(); // Cuanto esperan los prestamos por el candado de su usuario (histograma resumido)
 
     // --- Gestion de Devoluciones ---
     Devolucion registrarDevolucion(int idPrestamo, LocalDate fechaDevolucionActual) throws SQLException, BibliotecaException; 
+    ResultadoLoteDevoluciones registrarDevoluciones(List<SolicitudDevolucion> solicitudes) throws SQLException; // En lote (buzon); un resultado por prestamo
 
     // --- Consultas ---
     List<Prestamo> obtenerPrestamosActivosUsuario(int idUsuario) throws SQLException;
     List<Prestamo> obtenerHistorialPrestamosUsuario(int idUsuario) throws SQLException;
     List<Prestamo> obtenerTodosLosPrestamosActivos() throws SQLException;
+    Pagina<Prestamo> listarPrestamos(String token, int tamano) throws SQLException; // Todos, los mas recientes primero
+    Pagina<Devolucion> listarDevoluciones(String token, int tamano) throws SQLException; // Todas, las mas recientes primero
+    long exportarHistorialPrestamos(Path archivo, FormatoExportacion formato) throws SQLException, BibliotecaException; // Devuelve cuantas filas se escribieron
+    long exportarHistorialDevoluciones(Path archivo, FormatoExportacion formato) throws SQLException, BibliotecaException;
     List<Usuario> obtenerUsuariosConMora() throws SQLException;
+    List<ResumenMoraUsuario> obtenerResumenUsuariosConMora() throws SQLException; // Cada usuario con mora una vez, con sus totales
+    void recorrerUsuariosConMora(Consumer<ResumenMoraUsuario> consumidor) throws SQLException; // Igual, pero sin armar la lista (para muchos usuarios)
 
     // --- Administracion de Configuracion ---
     List<PoliticasPrestamo> obtenerTodasLasPoliticasPrestamo() throws SQLException;
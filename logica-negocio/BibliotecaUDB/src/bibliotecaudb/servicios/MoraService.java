@@ -3,6 +3,7 @@ package bibliotecaudb.servicios;
 import bibliotecaudb.modelo.biblioteca.Prestamo;
 import bibliotecaudb.modelo.biblioteca.MoraAnual;
 import bibliotecaudb.modelo.biblioteca.ConfiguracionSistema;
+import bibliotecaudb.modelo.biblioteca.ResultadoAcumulacionMora;
 import bibliotecaudb.excepciones.BibliotecaException; 
 
 import java.math.BigDecimal;
@@ -24,6 +25,8 @@ public interface MoraService {
 
     /**
      * Calcula la mora acumulada para un prestamo hasta una fecha de devolucion especifica.
+     * Cada dia de retraso se cobra con la tasa de su propio año (mora_anual, o la global si ese año no tiene).
+     * Las tasas se leen de una tabla en memoria, asi que normalmente no se consulta la BD.
      * @param prestamo El objeto Prestamo.
      * @param fechaDevolucionActual La fecha en que se esta realizando/simulando la devolución.
      * @return La mora calculada. Si no hay mora, devuelve BigDecimal.ZERO.
@@ -32,6 +35,17 @@ public interface MoraService {
      */
     BigDecimal calcularMoraParaPrestamo(Prestamo prestamo, LocalDate fechaDevolucionActual) throws SQLException, BibliotecaException;
 
+    /**
+     * Recalcula y guarda en la BD la mora de todos los prestamos activos vencidos hasta la fecha de corte.
+     * La mora se calcula completa desde la fecha limite (no se suma a la anterior), asi que se puede
+     * correr varias veces el mismo dia sin cobrar de mas. Solo se escriben los prestamos cuya mora cambio.
+     * @param fechaCorte Ultimo dia que se cobra (normalmente hoy).
+     * @return Cuantos prestamos se revisaron y actualizaron, y cuanto tardo.
+     * @throws SQLException Si hay un error de BD.
+     * @throws BibliotecaException Si no se puede determinar la tasa de mora.
+     */
+    ResultadoAcumulacionMora acumularMoraPendiente(LocalDate fechaCorte) throws SQLException, BibliotecaException;
+
     // --- Gestion de Configuracion de Mora ---
     List<MoraAnual> obtenerTodasLasMorasAnuales() throws SQLException;
     MoraAnual obtenerMoraPorAnio(int anio) throws SQLException;
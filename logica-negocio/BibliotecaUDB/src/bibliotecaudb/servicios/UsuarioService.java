@@ -2,6 +2,7 @@ package bibliotecaudb.servicios;
 
 import bibliotecaudb.modelo.usuario.Usuario;
 import bibliotecaudb.excepciones.UsuarioException;
+import bibliotecaudb.dao.Pagina;
 import java.sql.SQLException;
 import java.util.List;
 
@@ -16,6 +17,7 @@ public interface UsuarioService {
     boolean cambiarContrasena(String correoUsuarioAModificar, String nuevaContrasena, Usuario actorQueModifica) throws SQLException, UsuarioException; // CAMBIO AQUÍ
 
     List<Usuario> obtenerTodosLosUsuarios(Usuario actor) throws SQLException, UsuarioException; 
+    Pagina<Usuario> listarUsuarios(Usuario actor, String token, int tamano) throws SQLException, UsuarioException; // Por nombre; token null = primera pagina
     Usuario obtenerUsuarioPorCorreo(String correo) throws SQLException;
     
     Usuario obtenerUsuarioPorId(int idUsuario) throws SQLException;
@@ -9,28 +9,54 @@ import bibliotecaudb.dao.usuario.impl.*;
 import bibliotecaudb.servicios.BibliotecaService;
 import bibliotecaudb.servicios.MoraService;
 import bibliotecaudb.excepciones.BibliotecaException;
-import bibliotecaudb.conexion.ConexionBD;
+import bibliotecaudb.conexion.UnidadTrabajo;
 import bibliotecaudb.conexion.LogsError;
+import bibliotecaudb.busqueda.Autocompletado;
+import bibliotecaudb.busqueda.IndiceAutocompletado;
+import bibliotecaudb.busqueda.IndiceDocumentos;
+import bibliotecaudb.busqueda.MotorBusqueda;
+import bibliotecaudb.conexion.ConexionBD;
+import bibliotecaudb.dao.Pagina;
+import bibliotecaudb.exportacion.ExportadorHistorial;
+import bibliotecaudb.exportacion.FormatoExportacion;
+import bibliotecaudb.importacion.ImportadorCatalogo;
 
-import java.sql.Connection;
+import java.io.IOException;
+import java.nio.file.Path;
 import java.sql.SQLException;
 import java.time.LocalDate;
 import java.time.temporal.ChronoUnit;
 import java.util.List;
 import java.util.Map;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.function.Consumer;
 import java.math.BigDecimal;
 
 public class BibliotecaServiceImpl implements BibliotecaService {
 
+    // Un prestamo a la vez por usuario en este proceso (compartido por todas las instancias del servicio).
+    // Evita que dos mostradores cuenten los mismos prestamos activos y se pasen del limite;
+    // entre procesos distintos lo cubre el bloqueo de la fila del usuario (resumenUsuarioDAO.bloquearPorIdUsuario).
+    private static final CandadosUsuario CANDADOS_PRESTAMO = new CandadosUsuario(ConexionBD.getPropiedadEntera("prestamos.candados.franjas", 64));
+
     private final UsuarioDAO usuarioDAO; // Objeto para manejar usuarios
     private final DocumentoDAO documentoDAO; // Objeto para manejar documentos
     private final EjemplarDAO ejemplarDAO; // Objeto para manejar ejemplares
     private final PrestamoDAO prestamoDAO; // Objeto para manejar prestamos
     private final DevolucionDAO devolucionDAO; // Objeto para manejar devoluciones
     private final PoliticasPrestamoDAO politicasPrestamoDAO; // Objeto para manejar las politicas de prestamo
+    private final ResumenUsuarioDAO resumenUsuarioDAO; // Objeto para el resumen de prestamos de cada usuario
     private final MoraService moraService; // Servicio para la logica de calculo de mora
+    private final MotorBusqueda motorBusqueda = MotorBusqueda.configurado(); // Como se busca en el catalogo
+    private final DocumentoDAO.ModoTextoCompleto modoTextoCompleto = "natural".equalsIgnoreCase(ConexionBD.getPropiedad("busqueda.texto_completo.modo", "booleano"))
+            ? DocumentoDAO.ModoTextoCompleto.NATURAL : DocumentoDAO.ModoTextoCompleto.BOOLEANO;
+    // Como se revisa si un usuario puede llevarse un prestamo: "resumen" (tabla resumen_usuario) o "consulta" (una consulta sobre prestamos)
+    private final boolean elegibilidadPorConsulta = "consulta".equalsIgnoreCase(ConexionBD.getPropiedad("prestamos.elegibilidad", "resumen"));
+    private final int devolucionesPorTransaccion = ConexionBD.getPropiedadEntera("devoluciones.lote.tamano", 100); // Devoluciones en lote: cuantas por transaccion
 
     public BibliotecaServiceImpl() {
         // Creamos los objetos DAO y Servicios que necesitamos.
@@ -40,20 +66,32 @@ public class BibliotecaServiceImpl implements BibliotecaService {
         this.prestamoDAO = new PrestamoDAOImpl();
         this.devolucionDAO = new DevolucionDAOImpl();
         this.politicasPrestamoDAO = new PoliticasPrestamosDAOImpl();
+        this.resumenUsuarioDAO = new ResumenUsuarioDAOImpl();
         this.moraService = new MoraServiceImpl();
+        IndiceDocumentos.iniciarCarga(this.documentoDAO, motorBusqueda); // Si el motor usa un indice en memoria, se arma en segundo plano
+        Autocompletado.iniciar(this.documentoDAO, this.prestamoDAO); // Sugerencias del buscador, en segundo plano
     }
 
     // Constructor para pasarle los DAOs y Servicios 
     public BibliotecaServiceImpl(UsuarioDAO usuarioDAO, DocumentoDAO documentoDAO,
                                EjemplarDAO ejemplarDAO, PrestamoDAO prestamoDAO, DevolucionDAO devolucionDAO,
                                PoliticasPrestamoDAO politicasPrestamoDAO, MoraService moraService) {
+        this(usuarioDAO, documentoDAO, ejemplarDAO, prestamoDAO, devolucionDAO, politicasPrestamoDAO, new ResumenUsuarioDAOImpl(), moraService);
+    }
+
+    public BibliotecaServiceImpl(UsuarioDAO usuarioDAO, DocumentoDAO documentoDAO,
+                               EjemplarDAO ejemplarDAO, PrestamoDAO prestamoDAO, DevolucionDAO devolucionDAO,
+                               PoliticasPrestamoDAO politicasPrestamoDAO, ResumenUsuarioDAO resumenUsuarioDAO, MoraService moraService) {
         this.usuarioDAO = usuarioDAO;
         this.documentoDAO = documentoDAO;
         this.ejemplarDAO = ejemplarDAO;
         this.prestamoDAO = prestamoDAO;
         this.devolucionDAO = devolucionDAO;
         this.politicasPrestamoDAO = politicasPrestamoDAO;
+        this.resumenUsuarioDAO = resumenUsuarioDAO;
         this.moraService = moraService;
+        IndiceDocumentos.iniciarCarga(this.documentoDAO, motorBusqueda); // Si el motor usa un indice en memoria, se arma en segundo plano
+        Autocompletado.iniciar(this.documentoDAO, this.prestamoDAO); // Sugerencias del buscador, en segundo plano
     }
 
 
@@ -62,8 +100,6 @@ public class BibliotecaServiceImpl implements BibliotecaService {
     @Override
     public boolean registrarNuevoDocumentoConEjemplares(Documento documento, List<Ejemplar> ejemplares) throws SQLException, BibliotecaException {
         // Este metodo registra un nuevo documento y, opcionalmente, una lista de sus ejemplares.
-        Connection conn = null; // Variable para la conexion a la BD
-        boolean exito = false; // Para saber si todo salio bien
         if (documento == null || documento.getTitulo() == null || documento.getTitulo().trim().isEmpty()) {
             throw new BibliotecaException("El titulo del documento es obligatorio.");
         }
@@ -71,53 +107,32 @@ public class BibliotecaServiceImpl implements BibliotecaService {
             throw new BibliotecaException("El tipo de documento es obligatorio.");
         }
 
-        try {
-            conn = ConexionBD.getConexion(); // Obtenemos la conexion
-            conn.setAutoCommit(false); // Desactivamos el auto-commit para manejar la transaccion nosotros
-
+        // Todos los DAOs que se llamen dentro de la unidad usan la misma conexion y transaccion
+        try (UnidadTrabajo uow = UnidadTrabajo.iniciar()) {
             boolean docInsertado = documentoDAO.insertar(documento); // Insertamos el documento principal
             if (!docInsertado || documento.getId() == 0) { // Verificamos si se inserto y si se genero un ID
                 throw new BibliotecaException("No se pudo insertar el documento principal.");
             }
 
-            if (ejemplares != null) { // Si nos pasaron una lista de ejemplares
+            if (ejemplares != null && !ejemplares.isEmpty()) { // Si nos pasaron una lista de ejemplares
                 for (Ejemplar ej : ejemplares) { // Recorremos cada ejemplar
                     ej.setIdDocumento(documento.getId()); // Le asignamos el ID del documento que acabamos de insertar
                     if (ej.getEstado() == null) ej.setEstado(Ejemplar.ESTADO_DISPONIBLE); // Si no tiene estado, lo ponemos como Disponible
-                    if (!ejemplarDAO.insertar(ej)) { // Insertamos el ejemplar
-                        throw new BibliotecaException("No se pudo insertar el ejemplar con ubicacion: " + ej.getUbicacion());
-                    }
+                }
+                int[] ids = ejemplarDAO.insertarLote(ejemplares); // Todos en lote, dentro de la misma transaccion
+                if (ids.length != ejemplares.size()) {
+                    throw new BibliotecaException("No se pudieron insertar todos los ejemplares del documento.");
                 }
             }
 
-            conn.commit(); // Si todo salio bien, confirmamos los cambios en la BD
-            exito = true;
+            uow.confirmar(); // Si todo salio bien, confirmamos los cambios en la BD
             LogsError.info(this.getClass(), "Documento y " + (ejemplares != null ? ejemplares.size() : 0) + " ejemplares registrados exitosamente. ID Documento: " + documento.getId());
 
-        } catch (SQLException | BibliotecaException e) { // Si ocurre algun error (de SQL o de nuestra logica)
-            if (conn != null) {
-                try {
-                    conn.rollback(); // Revertimos todos los cambios hechos en esta transaccion
-                    LogsError.error(this.getClass(), "Rollback realizado debido a error al registrar documento con ejemplares.", e);
-                } catch (SQLException exRollback) {
-                    LogsError.error(this.getClass(), "Error durante el rollback.", exRollback);
-                }
-            }
-            // Relanzamos la excepcion original para que la maneje quien llamo al metodo
-            if (e instanceof SQLException) throw (SQLException) e;
-            if (e instanceof BibliotecaException) throw (BibliotecaException) e;
-            throw new BibliotecaException("Error inesperado al registrar documento: " + e.getMessage(), e);
-        } finally {
-            if (conn != null) {
-                try {
-                    conn.setAutoCommit(true); // Siempre restauramos el auto-commit
-                } catch (SQLException ex) {
-                    LogsError.error(this.getClass(), "Error al restaurar auto-commit.", ex);
-                }
-                // La conexion generalmente se cierra en una capa superior o al final de la solicitud web.
-            }
+        } catch (SQLException | BibliotecaException e) { // Si ocurre algun error, la unidad de trabajo hace rollback al cerrarse
+            LogsError.error(this.getClass(), "Rollback realizado debido a error al registrar documento con ejemplares.", e);
+            throw e; // Relanzamos la excepcion original para que la maneje quien llamo al metodo
         }
-        return exito; // Devolvemos true si todo fue exitoso
+        return true; // Si llego hasta aqui, todo fue exitoso
     }
 
     @Override
@@ -144,11 +159,68 @@ public class BibliotecaServiceImpl implements BibliotecaService {
 
     @Override
     public List<Documento> buscarDocumentos(String termino) throws SQLException {
-        // Este metodo busca documentos segun un termino de busqueda.
+        // Este metodo busca documentos segun un termino de busqueda (todos los resultados).
+        return buscarDocumentos(termino, 0, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public List<Documento> buscarDocumentos(String termino, int desplazamiento, int limite) throws SQLException {
+        // Este metodo busca una pagina de documentos con el motor configurado en busqueda.motor.
+        if (desplazamiento < 0 || limite <= 0) {
+            throw new IllegalArgumentException("El desplazamiento no puede ser negativo y el limite debe ser mayor que cero.");
+        }
         if (termino == null || termino.trim().isEmpty()) { // Si el termino esta vacio
-            return documentoDAO.obtenerTodos(); // Devolvemos todos los documentos (o podria ser una lista vacia)
+            return documentoDAO.obtenerRango(desplazamiento, limite); // Solo la pagina pedida, por titulo (usa idx_doc_titulo)
+        }
+        if (motorBusqueda == MotorBusqueda.TEXTO_COMPLETO) {
+            return documentoDAO.buscarPorTextoCompleto(termino, modoTextoCompleto, desplazamiento, limite); // Paginado y por relevancia en la BD
+        }
+        if (motorBusqueda.isEnMemoria()) {
+            int[] ids = IndiceDocumentos.buscar(termino); // Primero el indice en memoria
+            if (ids != null) {
+                return documentosPorIds(ids, desplazamiento, limite);
+            }
+            LogsError.debug(this.getClass(), "Indice de documentos no listo, buscando por SQL: " + termino); // El indice todavia se esta construyendo
+        }
+        return recortar(documentoDAO.buscarPorTerminoGeneral(termino), desplazamiento, limite); // Usamos el DAO para buscar
+    }
+
+    // Trae con consultas IN solo los documentos de la pagina pedida, en el orden del indice
+    private List<Documento> documentosPorIds(int[] ids, int desplazamiento, int limite) throws SQLException {
+        int desde = Math.min(desplazamiento, ids.length);
+        int hasta = (int) Math.min((long) desde + limite, ids.length);
+        List<Integer> listaIds = new ArrayList<>(hasta - desde);
+        for (int i = desde; i < hasta; i++) {
+            listaIds.add(ids[i]);
+        }
+        Map<Integer, Documento> encontrados = documentoDAO.obtenerPorIds(listaIds);
+        List<Documento> documentos = new ArrayList<>(encontrados.size());
+        for (Integer id : listaIds) { // Mantenemos el orden del indice
+            Documento doc = encontrados.get(id);
+            if (doc != null) {
+                documentos.add(doc);
+            }
         }
-        return documentoDAO.buscarPorTerminoGeneral(termino); // Usamos el DAO para buscar
+        return documentos; // Devolvemos los documentos encontrados
+    }
+
+    private static <T> List<T> recortar(List<T> lista, int desplazamiento, int limite) {
+        if (desplazamiento == 0 && limite >= lista.size()) {
+            return lista;
+        }
+        int desde = Math.min(desplazamiento, lista.size());
+        int hasta = (int) Math.min((long) desde + limite, lista.size());
+        return new ArrayList<>(lista.subList(desde, hasta));
+    }
+
+    @Override
+    public List<SugerenciaBusqueda> autocompletar(String texto, int limite) {
+        // Este metodo sugiere titulos y autores mientras el usuario escribe; no toca la BD.
+        if (limite <= 0) {
+            throw new IllegalArgumentException("El limite debe ser mayor que cero.");
+        }
+        limite = Math.min(limite, IndiceAutocompletado.LIMITE_MAXIMO); // Mas no caben en la lista de sugerencias
+        return Autocompletado.sugerir(texto, limite); // Lista vacia si el indice todavia se esta construyendo
     }
 
     @Override
@@ -174,50 +246,65 @@ public class BibliotecaServiceImpl implements BibliotecaService {
         return resultado; // Devolvemos el mapa con toda la informacion
     }
 
+    @Override
+    public Pagina<Documento> listarDocumentos(String token, int tamano) throws SQLException {
+        // Este metodo devuelve una pagina del catalogo; la siguiente se pide con el token de esta.
+        return documentoDAO.obtenerPagina(token, tamano);
+    }
+
+    @Override
+    public Pagina<Ejemplar> listarEjemplares(String token, int tamano) throws SQLException {
+        // Este metodo devuelve una pagina de ejemplares, agrupados por documento.
+        return ejemplarDAO.obtenerPagina(token, tamano);
+    }
+
 
     // --- Gestion de Prestamos ---
     @Override
     public Prestamo realizarPrestamo(int idUsuario, int idEjemplar) throws SQLException, BibliotecaException {
         // Este metodo se encarga de toda la logica para realizar un prestamo.
-        Connection conn = null; // Variable para la conexion
         Prestamo nuevoPrestamo = null; // El prestamo que vamos a crear
-        try {
-            conn = ConexionBD.getConexion(); // Obtenemos la conexion
-            conn.setAutoCommit(false); // Desactivamos auto-commit para manejar la transaccion
-
-            Usuario usuario = usuarioDAO.obtenerPorId(idUsuario); // Obtenemos los datos del usuario
-            if (usuario == null) throw new BibliotecaException("Usuario con ID " + idUsuario + " no encontrado.");
+        // El candado del usuario se toma antes de la transaccion y se suelta despues de confirmarla o revertirla
+        CandadosUsuario.Candado candado = CANDADOS_PRESTAMO.bloquear(idUsuario);
+        try (candado; UnidadTrabajo uow = UnidadTrabajo.iniciar()) { // Abrimos la transaccion del prestamo
+
+            // Usuario, politicas, prestamos activos y mora en una sola lectura (ver leerElegibilidad)
+            ElegibilidadPrestamo elegibilidad = leerElegibilidad(idUsuario);
+            if (elegibilidad == null) throw new BibliotecaException("Usuario con ID " + idUsuario + " no encontrado.");
+            Usuario usuario = elegibilidad.getUsuario();
             if (!usuario.isEstado()) throw new BibliotecaException("El usuario " + usuario.getNombre() + " no esta activo."); // El usuario debe estar activo
             if (usuario.getTipoUsuario() == null) throw new BibliotecaException("El tipo de usuario para " + usuario.getNombre() + " no esta definido.");
 
-
-            Ejemplar ejemplar = ejemplarDAO.obtenerPorId(idEjemplar); // Obtenemos los datos del ejemplar
-            if (ejemplar == null) throw new BibliotecaException("Ejemplar con ID " + idEjemplar + " no encontrado.");
-            if (ejemplar.getDocumento() == null) throw new BibliotecaException("El ejemplar ID " + idEjemplar + " no tiene un documento asociado (error de datos).");
-
-
-            if (!Ejemplar.ESTADO_DISPONIBLE.equals(ejemplar.getEstado())) { // El ejemplar debe estar disponible
-                throw new BibliotecaException("El ejemplar '" + ejemplar.getDocumento().getTitulo() + "' (ID: " + idEjemplar + ") no esta disponible.");
-            }
-
-            if (prestamoDAO.verificarUsuarioTieneMora(idUsuario)) { // Verificamos si el usuario tiene moras pendientes
+            if (elegibilidad.isMoraPendiente()) { // Verificamos si el usuario tiene moras pendientes
                 throw new BibliotecaException("El usuario " + usuario.getNombre() + " tiene prestamos con mora pendiente.");
             }
 
-            PoliticasPrestamo politicas = politicasPrestamoDAO.obtenerPorIdTipoUsuario(usuario.getIdTipoUsuario()); // Obtenemos las politicas para ese tipo de usuario
+            PoliticasPrestamo politicas = elegibilidad.getPoliticas(); // Politicas de su tipo de usuario
             if (politicas == null) {
                 throw new BibliotecaException("No se encontraron politicas de prestamo para el tipo de usuario: " + usuario.getTipoUsuario().getTipo());
             }
 
-            int prestamosActivosUsuario = prestamoDAO.contarPrestamosActivosPorUsuario(idUsuario); // Contamos cuantos prestamos activos ya tiene el usuario
-            if (prestamosActivosUsuario >= politicas.getMaxEjemplaresPrestamo()) { // Verificamos si alcanzo el limite
+            if (elegibilidad.getPrestamosActivos() >= politicas.getMaxEjemplaresPrestamo()) { // Verificamos si alcanzo el limite
                 throw new BibliotecaException("El usuario " + usuario.getNombre() + " ha alcanzado el limite de " + politicas.getMaxEjemplaresPrestamo() + " prestamos activos.");
             }
 
+            // Tomamos el ejemplar con un UPDATE condicional en vez de leer su estado y luego insertar:
+            // si otro mostrador lo presto en medio, aqui se afectan 0 filas y este prestamo falla de inmediato.
+            // Se hace al final de las validaciones para tener la fila bloqueada el menor tiempo posible.
+            Ejemplar ejemplarReservado = ejemplarDAO.reservarSiDisponible(idEjemplar); // Ya viene con su documento
+            if (ejemplarReservado == null) {
+                Ejemplar ejemplar = ejemplarDAO.obtenerPorId(idEjemplar); // Solo para explicar por que no se pudo
+                if (ejemplar == null) throw new BibliotecaException("Ejemplar con ID " + idEjemplar + " no encontrado.");
+                String titulo = ejemplar.getDocumento() != null ? ejemplar.getDocumento().getTitulo() : "sin documento";
+                throw new BibliotecaException("El ejemplar '" + titulo + "' (ID: " + idEjemplar + ") no esta disponible.");
+            }
+
             // Si todas las validaciones pasan, creamos el objeto Prestamo
             nuevoPrestamo = new Prestamo();
             nuevoPrestamo.setIdUsuario(idUsuario);
+            nuevoPrestamo.setUsuario(usuario); // Ya lo tenemos de la revision
             nuevoPrestamo.setIdEjemplar(idEjemplar);
+            nuevoPrestamo.setEjemplar(ejemplarReservado); // Como quedo con la reserva
             nuevoPrestamo.setFechaPrestamo(LocalDate.now()); // La fecha de hoy
             nuevoPrestamo.setFechaLimite(LocalDate.now().plusDays(politicas.getDiasPrestamoDefault())); // Sumamos los dias de prestamo permitidos
             nuevoPrestamo.setMora(BigDecimal.ZERO); // La mora inicial es cero
@@ -227,28 +314,120 @@ public class BibliotecaServiceImpl implements BibliotecaService {
             if (!prestamoInsertado) { // Si no se pudo insertar
                 throw new BibliotecaException("No se pudo registrar el prestamo en la base de datos.");
             }
-            // Nota: El cambio de estado del ejemplar a 'PRESTADO' deberia hacerse por un trigger en la BD al insertar en 'prestamos'.
+            resumenUsuarioDAO.sumarPrestamos(idUsuario, 1, nuevoPrestamo.getFechaLimite()); // En la misma transaccion que el prestamo
+            // El ejemplar ya quedo 'Prestado' con la reserva; el trigger tg_update_ejemplar_estado_prestado lo vuelve a poner igual.
 
-            conn.commit(); // Confirmamos la transaccion
+            uow.confirmar(); // Confirmamos la transaccion
             LogsError.info(this.getClass(), "Prestamo realizado exitosamente ID: " + nuevoPrestamo.getId() + " para usuario ID: " + idUsuario + ", ejemplar ID: " + idEjemplar);
-            nuevoPrestamo = prestamoDAO.obtenerPorId(nuevoPrestamo.getId()); // Volvemos a cargar el prestamo para tener todos los objetos relacionados (Usuario, Ejemplar)
 
-        } catch (SQLException | BibliotecaException e) { // Si hay algun error
-            if (conn != null) {
-                try { conn.rollback(); LogsError.error(this.getClass(), "Rollback realizado (prestamo).", e); } // Revertimos
-                catch (SQLException exRollback) { LogsError.error(this.getClass(), "Error en rollback (prestamo).", exRollback); }
+        } catch (SQLException | BibliotecaException e) { // Si hay algun error, la unidad de trabajo revierte al cerrarse
+            LogsError.error(this.getClass(), "Rollback realizado (prestamo).", e);
+            throw e; // Relanzamos la excepcion
+        }
+        return nuevoPrestamo; // Ya tiene Usuario y Ejemplar de la transaccion; no hace falta volver a leerlo
+    }
+
+    @Override
+    public List<ResultadoPrestamo> realizarPrestamos(int idUsuario, List<Integer> idsEjemplares) throws SQLException, BibliotecaException {
+        // Este metodo presta varios ejemplares al mismo usuario en una sola transaccion.
+        // Lo que depende del usuario (estado, mora, politicas, prestamos activos) se revisa una vez y, si falla, no se presta nada.
+        // Lo que depende de cada ejemplar se revisa con los ejemplares bloqueados, y el que no cumple solo queda fuera con su motivo.
+        if (idsEjemplares == null || idsEjemplares.isEmpty()) {
+            throw new BibliotecaException("No se indicaron ejemplares para prestar.");
+        }
+        List<ResultadoPrestamo> resultados = new ArrayList<>(idsEjemplares.size()); // Un resultado por ejemplar, en el orden pedido
+        List<Prestamo> nuevosPrestamos = new ArrayList<>();
+        CandadosUsuario.Candado candado = CANDADOS_PRESTAMO.bloquear(idUsuario); // Igual que en realizarPrestamo
+        try (candado; UnidadTrabajo uow = UnidadTrabajo.iniciar()) { // Abrimos la transaccion de todos los prestamos
+
+            ElegibilidadPrestamo elegibilidad = leerElegibilidad(idUsuario); // Usuario, politicas, prestamos activos y mora
+            if (elegibilidad == null) throw new BibliotecaException("Usuario con ID " + idUsuario + " no encontrado.");
+            Usuario usuario = elegibilidad.getUsuario();
+            if (!usuario.isEstado()) throw new BibliotecaException("El usuario " + usuario.getNombre() + " no esta activo.");
+            if (usuario.getTipoUsuario() == null) throw new BibliotecaException("El tipo de usuario para " + usuario.getNombre() + " no esta definido.");
+
+            if (elegibilidad.isMoraPendiente()) { // Verificamos si el usuario tiene moras pendientes
+                throw new BibliotecaException("El usuario " + usuario.getNombre() + " tiene prestamos con mora pendiente.");
+            }
+
+            PoliticasPrestamo politicas = elegibilidad.getPoliticas(); // Politicas de su tipo de usuario
+            if (politicas == null) {
+                throw new BibliotecaException("No se encontraron politicas de prestamo para el tipo de usuario: " + usuario.getTipoUsuario().getTipo());
+            }
+
+            int cupo = politicas.getMaxEjemplaresPrestamo() - elegibilidad.getPrestamosActivos(); // Cuantos prestamos mas puede tener
+            if (cupo <= 0) {
+                throw new BibliotecaException("El usuario " + usuario.getNombre() + " ha alcanzado el limite de " + politicas.getMaxEjemplaresPrestamo() + " prestamos activos.");
             }
-            // Relanzamos la excepcion
-            if (e instanceof SQLException) throw (SQLException) e;
-            if (e instanceof BibliotecaException) throw (BibliotecaException) e;
-            throw new BibliotecaException("Error inesperado al realizar prestamo: " + e.getMessage(), e);
-        } finally {
-            if (conn != null) {
-                try { conn.setAutoCommit(true); } // Restauramos el auto-commit
-                catch (SQLException ex) { LogsError.error(this.getClass(), "Error restaurando auto-commit (prestamo).", ex); }
+
+            Map<Integer, Ejemplar> ejemplares = ejemplarDAO.bloquearPorIds(idsEjemplares); // Una consulta; quedan bloqueados hasta confirmar
+            Set<Integer> pedidos = new HashSet<>();
+            LocalDate hoy = LocalDate.now();
+            for (Integer idEjemplar : idsEjemplares) {
+                Ejemplar ejemplar = ejemplares.get(idEjemplar);
+                String motivo = null; // Por que no se presta este ejemplar
+                if (!pedidos.add(idEjemplar)) {
+                    motivo = "El ejemplar ID " + idEjemplar + " viene repetido en la solicitud.";
+                } else if (ejemplar == null) {
+                    motivo = "Ejemplar con ID " + idEjemplar + " no encontrado.";
+                } else if (ejemplar.getDocumento() == null) {
+                    motivo = "El ejemplar ID " + idEjemplar + " no tiene un documento asociado (error de datos).";
+                } else if (!Ejemplar.ESTADO_DISPONIBLE.equals(ejemplar.getEstado())) {
+                    motivo = "El ejemplar '" + ejemplar.getDocumento().getTitulo() + "' (ID: " + idEjemplar + ") no esta disponible.";
+                } else if (nuevosPrestamos.size() >= cupo) {
+                    motivo = "El usuario " + usuario.getNombre() + " alcanzaria el limite de " + politicas.getMaxEjemplaresPrestamo() + " prestamos activos.";
+                }
+                if (motivo != null) {
+                    resultados.add(new ResultadoPrestamo(idEjemplar, null, motivo));
+                    continue;
+                }
+                Prestamo prestamo = new Prestamo();
+                prestamo.setIdUsuario(idUsuario);
+                prestamo.setUsuario(usuario);
+                prestamo.setIdEjemplar(idEjemplar);
+                prestamo.setEjemplar(ejemplar);
+                prestamo.setFechaPrestamo(hoy);
+                prestamo.setFechaLimite(hoy.plusDays(politicas.getDiasPrestamoDefault()));
+                prestamo.setMora(BigDecimal.ZERO);
+                nuevosPrestamos.add(prestamo);
+                resultados.add(new ResultadoPrestamo(idEjemplar, prestamo, null));
             }
+
+            prestamoDAO.insertarLote(nuevosPrestamos); // Todos en un lote; el trigger marca cada ejemplar como prestado
+            resumenUsuarioDAO.sumarPrestamos(idUsuario, nuevosPrestamos.size(), hoy.plusDays(politicas.getDiasPrestamoDefault()));
+            uow.confirmar(); // Confirmamos la transaccion
+        } catch (SQLException | BibliotecaException e) { // Si hay algun error, la unidad de trabajo revierte al cerrarse
+            LogsError.error(this.getClass(), "Rollback realizado (prestamo de varios ejemplares).", e);
+            throw e; // Relanzamos la excepcion
         }
-        return nuevoPrestamo; // Devolvemos el prestamo creado
+        for (Prestamo prestamo : nuevosPrestamos) {
+            prestamo.getEjemplar().setEstado(Ejemplar.ESTADO_PRESTADO); // Igual que quedo en la BD por el trigger
+        }
+        LogsError.info(this.getClass(), nuevosPrestamos.size() + " de " + idsEjemplares.size() + " ejemplares prestados al usuario ID: " + idUsuario);
+        return resultados; // Ya tienen Usuario y Ejemplar, no hace falta volver a leerlos
+    }
+
+    // Lo que se revisa antes de prestar, en una ida a la BD, segun prestamos.elegibilidad:
+    // - "resumen": lee el usuario junto con su fila de resumen_usuario, con FOR UPDATE (las politicas vienen del cache).
+    // - "consulta": bloquea la fila del usuario y despues cuenta sus prestamos activos con LOCK IN SHARE MODE
+    //   (PrestamoDAO.obtenerElegibilidad). El segundo prestamo del mismo usuario, aunque venga de otra instancia, espera
+    //   el bloqueo y luego cuenta los prestamos que el primero ya confirmo, asi que no pueden pasar los dos el limite.
+    private ElegibilidadPrestamo leerElegibilidad(int idUsuario) throws SQLException {
+        if (elegibilidadPorConsulta) {
+            return prestamoDAO.obtenerElegibilidad(idUsuario);
+        }
+        ResumenUsuario resumen = resumenUsuarioDAO.bloquearPorIdUsuario(idUsuario);
+        if (resumen == null) {
+            return null;
+        }
+        Usuario usuario = resumen.getUsuario();
+        return new ElegibilidadPrestamo(usuario, politicasPrestamoDAO.obtenerPorIdTipoUsuario(usuario.getIdTipoUsuario()),
+                resumen.getPrestamosActivos(), resumen.tieneMoraPendiente(LocalDate.now()));
+    }
+
+    @Override
+    public String obtenerEstadisticasEsperaPrestamos() {
+        return CANDADOS_PRESTAMO.getEstadisticas();
     }
 
 
@@ -256,14 +435,11 @@ public class BibliotecaServiceImpl implements BibliotecaService {
     @Override
     public Devolucion registrarDevolucion(int idPrestamo, LocalDate fechaDevolucionActual) throws SQLException, BibliotecaException {
         // Este metodo registra la devolucion de un prestamo.
-        Connection conn = null; // Variable para la conexion
         Devolucion nuevaDevolucion = null; // La devolucion que vamos a crear
         if (fechaDevolucionActual == null) {
             fechaDevolucionActual = LocalDate.now(); // Si no nos dan fecha, usamos la de hoy
         }
-        try {
-            conn = ConexionBD.getConexion(); // Obtenemos la conexion
-            conn.setAutoCommit(false); // Manejamos la transaccion
+        try (UnidadTrabajo uow = UnidadTrabajo.iniciar()) { // Manejamos la transaccion
 
             Prestamo prestamoADevolver = prestamoDAO.obtenerPorId(idPrestamo); // Obtenemos el prestamo que se va a devolver
             if (prestamoADevolver == null) {
@@ -272,50 +448,162 @@ public class BibliotecaServiceImpl implements BibliotecaService {
             if (prestamoADevolver.getFechaDevolucion() != null) { // Verificamos si ya fue devuelto antes
                 throw new BibliotecaException("El prestamo ID " + idPrestamo + " ya fue devuelto el " + prestamoADevolver.getFechaDevolucion());
             }
+            if (fechaDevolucionActual.isBefore(prestamoADevolver.getFechaPrestamo())) { // Igual que en registrarDevoluciones
+                throw new BibliotecaException("La fecha de devolucion " + fechaDevolucionActual + " es anterior a la del prestamo ID " + idPrestamo + ".");
+            }
 
             // Usamos el MoraService para calcular la mora (si la hay)
             BigDecimal moraCalculada = moraService.calcularMoraParaPrestamo(prestamoADevolver, fechaDevolucionActual);
 
-            // Actualizamos el prestamo en la tabla 'prestamos' con la fecha de devolucion y la mora
-            boolean prestamoActualizado = prestamoDAO.registrarDevolucion(idPrestamo, fechaDevolucionActual, moraCalculada);
-            if (!prestamoActualizado) {
-                throw new BibliotecaException("No se pudo actualizar el prestamo ID: " + idPrestamo + " con la informacion de devolucion.");
-            }
-
-            // Creamos el objeto Devolucion para guardarlo en la tabla 'devoluciones'
+            // Creamos el objeto Devolucion
             nuevaDevolucion = new Devolucion();
             nuevaDevolucion.setIdPrestamo(idPrestamo);
+            nuevaDevolucion.setPrestamo(prestamoADevolver); // Ya tiene Usuario y Ejemplar; tambien le dice al DAO cual ejemplar queda disponible
             nuevaDevolucion.setFechaDevolucion(fechaDevolucionActual);
             nuevaDevolucion.setMoraPagada(moraCalculada); // Asumimos que la mora calculada es la que se paga
 
-            boolean devolucionInsertada = devolucionDAO.insertar(nuevaDevolucion); // Insertamos en 'devoluciones'
+            // Una sola llamada: actualiza 'prestamos', inserta en 'devoluciones' y deja el ejemplar 'Disponible'.
+            // Solo cambia el prestamo si sigue sin devolver, asi dos devoluciones al mismo tiempo no lo registran dos veces.
+            boolean devolucionRegistrada = devolucionDAO.registrar(nuevaDevolucion);
+            if (!devolucionRegistrada) {
+                throw new BibliotecaException("No se pudo registrar la devolucion del prestamo ID: " + idPrestamo + " (ya fue devuelto o no existe).");
+            }
+            resumenUsuarioDAO.recalcular(Collections.singletonList(prestamoADevolver.getIdUsuario())); // El resumen del usuario, en la misma transaccion
 
-            if (!devolucionInsertada) { // Si no se pudo insertar
-                 throw new BibliotecaException("No se pudo registrar la devolucion en la tabla devoluciones para prestamo ID: " + idPrestamo);
+            // Dejamos el prestamo en memoria como quedo en la BD, para no tener que volver a leerlo
+            prestamoADevolver.setFechaDevolucion(fechaDevolucionActual);
+            prestamoADevolver.setMora(moraCalculada);
+            if (prestamoADevolver.getEjemplar() != null) {
+                prestamoADevolver.getEjemplar().setEstado(Ejemplar.ESTADO_DISPONIBLE);
             }
-            // Nota: El cambio de estado del ejemplar a 'DISPONIBLE' deberia ocurrir por un trigger en la BD al insertar en 'devoluciones'.
 
-            conn.commit(); // Confirmamos la transaccion
+            uow.confirmar(); // Confirmamos la transaccion
             LogsError.info(this.getClass(), "Devolucion registrada exitosamente ID: " + nuevaDevolucion.getId() + " para prestamo ID: " + idPrestamo);
-            // Volvemos a cargar la devolucion para tener todos sus datos y objetos relacionados
-            nuevaDevolucion = devolucionDAO.obtenerPorId(nuevaDevolucion.getId());
 
-        } catch (SQLException | BibliotecaException e) { // Si hay algun error
-             if (conn != null) {
-                try { conn.rollback(); LogsError.error(this.getClass(), "Rollback realizado (devolucion).", e); } // Revertimos
-                catch (SQLException exRollback) { LogsError.error(this.getClass(), "Error en rollback (devolucion).", exRollback); }
+        } catch (SQLException | BibliotecaException e) { // Si hay algun error, la unidad de trabajo revierte al cerrarse
+            LogsError.error(this.getClass(), "Rollback realizado (devolucion).", e);
+            throw e; // Relanzamos la excepcion
+        }
+        return nuevaDevolucion; // Ya tiene su prestamo completo; no hace falta volver a leerla
+    }
+
+    @Override
+    public ResultadoLoteDevoluciones registrarDevoluciones(List<SolicitudDevolucion> solicitudes) throws SQLException {
+        // Este metodo registra muchas devoluciones (por ejemplo, todo lo del buzon) por bloques de devoluciones.lote.tamano.
+        // Cada bloque es una transaccion: se bloquean sus prestamos con una consulta, la mora se calcula en memoria con la
+        // tabla de tasas, y los UPDATE de prestamos y los INSERT de devoluciones van en lote. Si un bloque falla, se repite
+        // uno por uno con registrarDevolucion para que solo queden fuera los que tienen problemas.
+        long inicio = System.currentTimeMillis();
+        List<ResultadoDevolucion> resultados = new ArrayList<>(solicitudes.size());
+        Set<Integer> pedidos = new HashSet<>(); // Para detectar prestamos repetidos en la lista
+        for (int desde = 0; desde < solicitudes.size(); desde += devolucionesPorTransaccion) {
+            List<SolicitudDevolucion> bloque = solicitudes.subList(desde, Math.min(desde + devolucionesPorTransaccion, solicitudes.size()));
+            List<ResultadoDevolucion> resultadosBloque = new ArrayList<>(bloque.size());
+            String fallo = null; // Por que no se confirmo el bloque
+            try {
+                if (!registrarBloqueDevoluciones(bloque, pedidos, resultadosBloque)) {
+                    fallo = "algun prestamo no se pudo actualizar";
+                }
+            } catch (SQLException ex) {
+                fallo = ex.getMessage();
+            }
+            if (fallo != null) {
+                LogsError.warn(this.getClass(), "Fallo el bloque de " + bloque.size() + " devoluciones (" + fallo + "); se repite una por una.");
+                resultadosBloque.clear();
+                for (SolicitudDevolucion solicitud : bloque) {
+                    resultadosBloque.add(registrarDevolucionSola(solicitud, pedidos));
+                }
+            }
+            resultados.addAll(resultadosBloque);
+        }
+        int registradas = 0;
+        for (ResultadoDevolucion resultado : resultados) {
+            if (resultado.isExitoso()) {
+                registradas++;
+            }
+        }
+        ResultadoLoteDevoluciones total = new ResultadoLoteDevoluciones(resultados, registradas, resultados.size() - registradas, System.currentTimeMillis() - inicio);
+        LogsError.info(this.getClass(), "Devoluciones en lote terminadas: " + total);
+        return total;
+    }
+
+    // Un bloque de devoluciones en una transaccion; si algo de la BD falla, no queda nada del bloque.
+    // Devuelve false (sin confirmar, asi que tambien se revierte) si algun prestamo no se pudo actualizar.
+    private boolean registrarBloqueDevoluciones(List<SolicitudDevolucion> bloque, Set<Integer> pedidos, List<ResultadoDevolucion> resultados) throws SQLException {
+        Set<Integer> pedidosBloque = new HashSet<>(); // Se suman a 'pedidos' solo si el bloque se confirma
+        List<Devolucion> nuevas = new ArrayList<>();
+        try (UnidadTrabajo uow = UnidadTrabajo.iniciar()) {
+            List<Integer> ids = new ArrayList<>(bloque.size());
+            for (SolicitudDevolucion solicitud : bloque) {
+                ids.add(solicitud.getIdPrestamo());
+            }
+            Map<Integer, Prestamo> prestamos = prestamoDAO.bloquearPorIds(ids); // Una consulta; quedan bloqueados hasta confirmar
+            for (SolicitudDevolucion solicitud : bloque) {
+                int idPrestamo = solicitud.getIdPrestamo();
+                LocalDate fecha = solicitud.getFechaDevolucion() != null ? solicitud.getFechaDevolucion() : LocalDate.now();
+                Prestamo prestamo = prestamos.get(idPrestamo);
+                String motivo = null; // Por que no se devuelve este prestamo
+                BigDecimal mora = null;
+                if (pedidos.contains(idPrestamo) || !pedidosBloque.add(idPrestamo)) {
+                    motivo = "El prestamo ID " + idPrestamo + " viene repetido en la solicitud.";
+                } else if (prestamo == null) {
+                    motivo = "Prestamo con ID " + idPrestamo + " no encontrado.";
+                } else if (prestamo.getFechaDevolucion() != null) {
+                    motivo = "El prestamo ID " + idPrestamo + " ya fue devuelto el " + prestamo.getFechaDevolucion();
+                } else if (fecha.isBefore(prestamo.getFechaPrestamo())) {
+                    motivo = "La fecha de devolucion " + fecha + " es anterior a la del prestamo ID " + idPrestamo + ".";
+                } else {
+                    try {
+                        mora = moraService.calcularMoraParaPrestamo(prestamo, fecha); // Tabla de tasas en memoria
+                    } catch (BibliotecaException ex) {
+                        motivo = ex.getMessage();
+                    }
+                }
+                if (motivo != null) {
+                    resultados.add(new ResultadoDevolucion(idPrestamo, null, motivo));
+                    continue;
+                }
+                prestamo.setFechaDevolucion(fecha);
+                prestamo.setMora(mora);
+                Devolucion devolucion = new Devolucion();
+                devolucion.setIdPrestamo(idPrestamo);
+                devolucion.setPrestamo(prestamo);
+                devolucion.setFechaDevolucion(fecha);
+                devolucion.setMoraPagada(mora); // Asumimos que la mora calculada es la que se paga
+                nuevas.add(devolucion);
+                resultados.add(new ResultadoDevolucion(idPrestamo, devolucion, null));
+            }
+
+            boolean[] actualizados = prestamoDAO.registrarDevolucionesEnLote(nuevas);
+            for (int i = 0; i < actualizados.length; i++) {
+                if (!actualizados[i]) { // No deberia pasar con el prestamo bloqueado; si pasa, se repite todo uno por uno
+                    LogsError.warn(this.getClass(), "No se pudo actualizar el prestamo ID " + nuevas.get(i).getIdPrestamo() + " con la informacion de devolucion.");
+                    return false; // La unidad de trabajo revierte el bloque al cerrarse
+                }
             }
-            // Relanzamos la excepcion
-            if (e instanceof SQLException) throw (SQLException) e;
-            if (e instanceof BibliotecaException) throw (BibliotecaException) e;
-            throw new BibliotecaException("Error inesperado durante el registro de devolucion: " + e.getMessage(), e);
-        } finally {
-            if (conn != null) {
-                try { conn.setAutoCommit(true); } // Restauramos auto-commit
-                catch (SQLException ex) { LogsError.error(this.getClass(), "Error restaurando auto-commit (devolucion).", ex); }
+            devolucionDAO.insertarLote(nuevas); // Tambien marca cada ejemplar como disponible
+            Set<Integer> usuarios = new HashSet<>();
+            for (Devolucion devolucion : nuevas) {
+                usuarios.add(devolucion.getPrestamo().getIdUsuario());
             }
+            resumenUsuarioDAO.recalcular(usuarios); // Una sentencia por cada 500 usuarios
+            uow.confirmar();
+        }
+        pedidos.addAll(pedidosBloque);
+        return true;
+    }
+
+    // Una devolucion sola (cuando fallo su bloque), con el motivo si no se pudo
+    private ResultadoDevolucion registrarDevolucionSola(SolicitudDevolucion solicitud, Set<Integer> pedidos) {
+        int idPrestamo = solicitud.getIdPrestamo();
+        if (!pedidos.add(idPrestamo)) {
+            return new ResultadoDevolucion(idPrestamo, null, "El prestamo ID " + idPrestamo + " viene repetido en la solicitud.");
+        }
+        try {
+            return new ResultadoDevolucion(idPrestamo, registrarDevolucion(idPrestamo, solicitud.getFechaDevolucion()), null);
+        } catch (SQLException | BibliotecaException ex) {
+            return new ResultadoDevolucion(idPrestamo, null, ex.getMessage());
         }
-        return nuevaDevolucion; // Devolvemos el objeto Devolucion creado
     }
 
     // --- Consultas ---
@@ -338,27 +626,84 @@ public class BibliotecaServiceImpl implements BibliotecaService {
     }
 
     @Override
-    public List<Usuario> obtenerUsuariosConMora() throws SQLException {
-        // Este metodo busca todos los prestamos con mora y devuelve una lista de los usuarios que tienen mora.
-        List<Prestamo> prestamosConMora = prestamoDAO.obtenerPrestamosConMoraPendiente(); // Obtenemos los prestamos con mora
-        List<Usuario> usuariosConMora = new ArrayList<>(); // Lista para los usuarios
-        List<Integer> idsUsuariosYaAgregados = new ArrayList<>(); // Para no agregar usuarios repetidos
+    public ResultadoImportacion importarCatalogoCsv(Path archivo, Path reporteRechazos) throws SQLException, BibliotecaException {
+        // Este metodo carga documentos y ejemplares desde un CSV, por lotes; las filas que no se pueden importar quedan en el reporte.
+        try {
+            return new ImportadorCatalogo(documentoDAO, ejemplarDAO, new TipoDocumentoDAOImpl()).importarCsv(archivo, reporteRechazos);
+        } catch (IOException ex) {
+            LogsError.error(this.getClass(), "No se pudo leer " + archivo + " o escribir el reporte " + reporteRechazos, ex);
+            throw new BibliotecaException("Error de lectura/escritura en la importacion: " + ex.getMessage(), ex);
+        }
+    }
 
-        for (Prestamo p : prestamosConMora) { // Recorremos los prestamos con mora
-            if (!idsUsuariosYaAgregados.contains(p.getIdUsuario())) { // Si no hemos agregado a este usuario aun
-                Usuario u = p.getUsuario(); // El DAO de prestamo ya deberia haber cargado el usuario
-                if (u == null) { // Si por alguna razon no lo cargo, lo buscamos nosotros
-                    u = usuarioDAO.obtenerPorId(p.getIdUsuario());
-                }
-                if (u != null) { // Si tenemos el usuario
-                     usuariosConMora.add(u); // Lo agregamos a la lista
-                     idsUsuariosYaAgregados.add(p.getIdUsuario()); // Marcamos que ya lo agregamos
-                }
-            }
+    @Override
+    public ResultadoImportacion importarCatalogoMarc21(Path archivo, Path reporteRechazos) throws SQLException, BibliotecaException {
+        // Este metodo carga el catalogo que exporta otra biblioteca en formato MARC21, registro por registro y por lotes.
+        try {
+            return new ImportadorCatalogo(documentoDAO, ejemplarDAO, new TipoDocumentoDAOImpl()).importarMarc21(archivo, reporteRechazos);
+        } catch (IOException ex) {
+            LogsError.error(this.getClass(), "No se pudo leer " + archivo + " o escribir el reporte " + reporteRechazos, ex);
+            throw new BibliotecaException("Error de lectura/escritura en la importacion: " + ex.getMessage(), ex);
         }
+    }
+
+    @Override
+    public Pagina<Prestamo> listarPrestamos(String token, int tamano) throws SQLException {
+        // Este metodo devuelve una pagina con todos los prestamos (activos y devueltos), los mas recientes primero.
+        return prestamoDAO.obtenerPagina(token, tamano);
+    }
+
+    @Override
+    public Pagina<Devolucion> listarDevoluciones(String token, int tamano) throws SQLException {
+        // Este metodo devuelve una pagina de devoluciones, las mas recientes primero.
+        return devolucionDAO.obtenerPagina(token, tamano);
+    }
+
+    @Override
+    public long exportarHistorialPrestamos(Path archivo, FormatoExportacion formato) throws SQLException, BibliotecaException {
+        // Este metodo escribe todos los prestamos en un archivo, fila por fila, sin cargarlos en memoria.
+        try {
+            return new ExportadorHistorial(prestamoDAO, devolucionDAO).exportarPrestamos(archivo, formato);
+        } catch (IOException ex) {
+            LogsError.error(this.getClass(), "No se pudo escribir la exportacion de prestamos en " + archivo, ex);
+            throw new BibliotecaException("No se pudo escribir el archivo " + archivo + ": " + ex.getMessage(), ex);
+        }
+    }
+
+    @Override
+    public long exportarHistorialDevoluciones(Path archivo, FormatoExportacion formato) throws SQLException, BibliotecaException {
+        // Este metodo escribe todas las devoluciones en un archivo, fila por fila, sin cargarlas en memoria.
+        try {
+            return new ExportadorHistorial(prestamoDAO, devolucionDAO).exportarDevoluciones(archivo, formato);
+        } catch (IOException ex) {
+            LogsError.error(this.getClass(), "No se pudo escribir la exportacion de devoluciones en " + archivo, ex);
+            throw new BibliotecaException("No se pudo escribir el archivo " + archivo + ": " + ex.getMessage(), ex);
+        }
+    }
+
+    @Override
+    public List<Usuario> obtenerUsuariosConMora() throws SQLException {
+        // Este metodo devuelve los usuarios que tienen prestamos vencidos; la BD ya los agrupa, asi que no hay repetidos.
+        List<Usuario> usuariosConMora = new ArrayList<>(); // Lista para los usuarios
+        prestamoDAO.recorrerResumenMoraPorUsuario(resumen -> usuariosConMora.add(resumen.getUsuario()));
         return usuariosConMora; // Devolvemos la lista de usuarios con mora
     }
 
+    @Override
+    public List<ResumenMoraUsuario> obtenerResumenUsuariosConMora() throws SQLException {
+        // Este metodo devuelve cada usuario con mora junto con cuantos prestamos vencidos tiene, el mas antiguo y la mora.
+        List<ResumenMoraUsuario> resumenes = new ArrayList<>();
+        prestamoDAO.recorrerResumenMoraPorUsuario(resumenes::add);
+        return resumenes;
+    }
+
+    @Override
+    public void recorrerUsuariosConMora(Consumer<ResumenMoraUsuario> consumidor) throws SQLException {
+        // Este metodo pasa los usuarios con mora uno por uno, para pantallas con muchos usuarios.
+        // El consumidor no debe hacer consultas a la BD mientras se recorre.
+        prestamoDAO.recorrerResumenMoraPorUsuario(consumidor);
+    }
+
 
     // --- Administracion de Configuracion (se delega en parte a MoraService) ---
     @Override
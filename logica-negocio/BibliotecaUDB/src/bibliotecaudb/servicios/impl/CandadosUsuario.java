@@ -0,0 +1,125 @@
+package bibliotecaudb.servicios.impl;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Candados por usuario dentro de la aplicacion, repartidos en franjas: cada usuario cae siempre en
+ * la misma franja, asi dos operaciones del mismo usuario van una detras de otra y las de usuarios
+ * distintos casi nunca se esperan (solo si comparten franja). No crece con la cantidad de usuarios.
+ *
+ * Lleva un histograma del tiempo que se espera por cada candado, para ver si hay contencion.
+ * Solo protege dentro de este proceso; entre varias instancias de la aplicacion hace falta
+ * ademas el bloqueo de la fila del usuario en la BD (SELECT ... FOR UPDATE).
+ */
+public final class CandadosUsuario {
+
+    private static final int CUBETAS = 32; // Cubeta 0: menos de 1 us; cubeta k: de 2^(k-1) a 2^k us
+
+    /** Candado tomado; se suelta con close() (pensado para try-with-resources). */
+    public interface Candado extends AutoCloseable {
+        @Override
+        void close();
+    }
+
+    private final ReentrantLock[] franjas;
+    private final int desplazamiento; // Para quedarse con los bits altos del hash
+    private final AtomicLongArray histograma = new AtomicLongArray(CUBETAS);
+    private final AtomicLong esperaTotalNanos = new AtomicLong();
+    private final AtomicLong esperaMaximaNanos = new AtomicLong();
+
+    /**
+     * @param cantidadFranjas Cuantos candados hay (se redondea a la siguiente potencia de 2).
+     */
+    public CandadosUsuario(int cantidadFranjas) {
+        int bits = 32 - Integer.numberOfLeadingZeros(Math.max(1, cantidadFranjas) - 1);
+        this.franjas = new ReentrantLock[1 << bits];
+        for (int i = 0; i < franjas.length; i++) {
+            franjas[i] = new ReentrantLock();
+        }
+        this.desplazamiento = 32 - bits;
+    }
+
+    /**
+     * Espera hasta tener el candado del usuario.
+     * @param idUsuario El usuario.
+     * @return El candado tomado; hay que cerrarlo al terminar.
+     */
+    public Candado bloquear(int idUsuario) {
+        ReentrantLock candado = franjas[franja(idUsuario)];
+        long inicio = System.nanoTime();
+        candado.lock();
+        registrarEspera(System.nanoTime() - inicio);
+        return candado::unlock;
+    }
+
+    // Hash de Fibonacci: IDs seguidos quedan en franjas distintas
+    private int franja(int idUsuario) {
+        return desplazamiento == 32 ? 0 : (idUsuario * 0x9E3779B9) >>> desplazamiento;
+    }
+
+    private void registrarEspera(long nanos) {
+        long micros = nanos / 1000;
+        int cubeta = micros == 0 ? 0 : Math.min(CUBETAS - 1, 64 - Long.numberOfLeadingZeros(micros));
+        histograma.incrementAndGet(cubeta);
+        esperaTotalNanos.addAndGet(nanos);
+        esperaMaximaNanos.accumulateAndGet(nanos, Math::max);
+    }
+
+    /**
+     * @return Cuantas veces se tomo un candado por cada rango de espera: la posicion 0 es menos de 1 us
+     * y la posicion k es de 2^(k-1) a 2^k us.
+     */
+    public long[] getHistogramaMicros() {
+        long[] copia = new long[CUBETAS];
+        for (int i = 0; i < CUBETAS; i++) {
+            copia[i] = histograma.get(i);
+        }
+        return copia;
+    }
+
+    /**
+     * @return Resumen de las esperas (percentiles aproximados por el limite superior de su cubeta).
+     */
+    public String getEstadisticas() {
+        long[] cubetas = getHistogramaMicros();
+        long total = 0;
+        for (long c : cubetas) {
+            total += c;
+        }
+        if (total == 0) {
+            return "franjas=" + franjas.length + ", adquisiciones=0";
+        }
+        return "franjas=" + franjas.length
+                + ", adquisiciones=" + total
+                + ", esperaPromedioUs=" + esperaTotalNanos.get() / 1000 / total
+                + ", p50Us<=" + percentil(cubetas, total, 0.50)
+                + ", p90Us<=" + percentil(cubetas, total, 0.90)
+                + ", p99Us<=" + percentil(cubetas, total, 0.99)
+                + ", esperaMaximaUs=" + esperaMaximaNanos.get() / 1000;
+    }
+
+    /**
+     * Pone en cero el histograma (por ejemplo, antes de medir un periodo concreto).
+     */
+    public void reiniciarEstadisticas() {
+        for (int i = 0; i < CUBETAS; i++) {
+            histograma.set(i, 0);
+        }
+        esperaTotalNanos.set(0);
+        esperaMaximaNanos.set(0);
+    }
+
+    private static long percentil(long[] cubetas, long total, double fraccion) {
+        long objetivo = (long) Math.ceil(total * fraccion);
+        long acumulado = 0;
+        for (int i = 0; i < cubetas.length; i++) {
+            acumulado += cubetas[i];
+            if (acumulado >= objetivo) {
+                return i == 0 ? 1 : 1L << i;
+            }
+        }
+        return 1L << (cubetas.length - 1);
+    }
+}
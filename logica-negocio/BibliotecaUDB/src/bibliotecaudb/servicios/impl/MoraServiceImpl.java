@@ -3,34 +3,65 @@ package bibliotecaudb.servicios.impl;
 import bibliotecaudb.modelo.biblioteca.Prestamo;
 import bibliotecaudb.modelo.biblioteca.MoraAnual;
 import bibliotecaudb.modelo.biblioteca.ConfiguracionSistema;
+import bibliotecaudb.modelo.biblioteca.ResultadoAcumulacionMora;
 import bibliotecaudb.dao.biblioteca.MoraAnualDAO;
 import bibliotecaudb.dao.biblioteca.ConfiguracionSistemaDAO;
+import bibliotecaudb.dao.biblioteca.PrestamoDAO;
 import bibliotecaudb.dao.biblioteca.impl.MoraAnualDAOImpl;
 import bibliotecaudb.dao.biblioteca.impl.ConfiguracionSistemaDAOImpl;
+import bibliotecaudb.dao.biblioteca.impl.PrestamoDAOImpl;
+import bibliotecaudb.dao.usuario.ResumenUsuarioDAO;
+import bibliotecaudb.dao.usuario.impl.ResumenUsuarioDAOImpl;
 import bibliotecaudb.servicios.MoraService;
 import bibliotecaudb.excepciones.BibliotecaException;
 import bibliotecaudb.conexion.LogsError;
+import bibliotecaudb.conexion.UnidadTrabajo;
 
 import java.math.BigDecimal;
 import java.sql.SQLException;
 import java.time.LocalDate;
-import java.time.temporal.ChronoUnit;
+import java.util.Arrays;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
 
 public class MoraServiceImpl implements MoraService {
 
+    // Prestamos por transaccion al acumular la mora: cada bloque actualiza su mora y el resumen de sus usuarios juntos
+    private static final int PRESTAMOS_POR_TRANSACCION = 1000;
+
+    // Tabla de tasas compartida por todas las instancias del servicio (se arma la primera vez que se usa)
+    private static final AtomicReference<TablaMora> TABLA = new AtomicReference<>();
+    private static final AtomicLong VERSION_TABLA = new AtomicLong();
+
     private final MoraAnualDAO moraAnualDAO; // Objeto para acceder a las moras anuales
     private final ConfiguracionSistemaDAO configuracionSistemaDAO; // Objeto para acceder a la configuracion del sistema
+    private final PrestamoDAO prestamoDAO; // Objeto para acceder a los prestamos (acumulacion de mora)
+    private final ResumenUsuarioDAO resumenUsuarioDAO; // Resumen por usuario (se recalcula junto con la mora acumulada)
 
     public MoraServiceImpl() {
         this.moraAnualDAO = new MoraAnualDAOImpl(); // Creamos el objeto para mora anual
         this.configuracionSistemaDAO = new ConfiguracionSistemaDAOImpl(); // Creamos el objeto para configuracion
+        this.prestamoDAO = new PrestamoDAOImpl(); // Creamos el objeto para prestamos
+        this.resumenUsuarioDAO = new ResumenUsuarioDAOImpl(); // Creamos el objeto para el resumen de usuarios
     }
 
     // Constructor para pasarle los manejadores 
     public MoraServiceImpl(MoraAnualDAO moraAnualDAO, ConfiguracionSistemaDAO configuracionSistemaDAO) {
+        this(moraAnualDAO, configuracionSistemaDAO, new PrestamoDAOImpl());
+    }
+
+    public MoraServiceImpl(MoraAnualDAO moraAnualDAO, ConfiguracionSistemaDAO configuracionSistemaDAO, PrestamoDAO prestamoDAO) {
+        this(moraAnualDAO, configuracionSistemaDAO, prestamoDAO, new ResumenUsuarioDAOImpl());
+    }
+
+    public MoraServiceImpl(MoraAnualDAO moraAnualDAO, ConfiguracionSistemaDAO configuracionSistemaDAO, PrestamoDAO prestamoDAO, ResumenUsuarioDAO resumenUsuarioDAO) {
         this.moraAnualDAO = moraAnualDAO;
         this.configuracionSistemaDAO = configuracionSistemaDAO;
+        this.prestamoDAO = prestamoDAO;
+        this.resumenUsuarioDAO = resumenUsuarioDAO;
     }
 
     @Override
@@ -39,23 +70,10 @@ public class MoraServiceImpl implements MoraService {
         if (fechaParaCalculo == null) {
             throw new IllegalArgumentException("La fecha para calculo de mora no puede ser nula.");
         }
-        int anio = fechaParaCalculo.getYear(); // Obtenemos el anio de la fecha
-        MoraAnual configMoraAnual = moraAnualDAO.obtenerPorAnio(anio); // Buscamos la mora para ese anio
-        BigDecimal moraDiariaAplicable; // Variable para guardar la mora que se aplicara
-
-        if (configMoraAnual != null && configMoraAnual.getMoraDiaria() != null) {
-            moraDiariaAplicable = configMoraAnual.getMoraDiaria(); // Usamos la mora de ese anio
-            LogsError.info(this.getClass(), "Tasa de mora anual (" + anio + ") encontrada: " + moraDiariaAplicable);
-        } else {
-            // Si no hay mora para ese anio, usamos la mora global del sistema
-            ConfiguracionSistema configGlobal = configuracionSistemaDAO.obtenerConfiguracion();
-            if (configGlobal != null && configGlobal.getMoraDiariaGlobal() != null) {
-                moraDiariaAplicable = configGlobal.getMoraDiariaGlobal();
-                LogsError.warn(this.getClass(), "Usando tasa de mora diaria global: " + moraDiariaAplicable + " (no encontrada para el anio " + anio + ")");
-            } else {
-                LogsError.error(this.getClass(), "No se encontro configuracion de mora diaria para el anio " + anio + " ni configuracion global.");
-                throw new BibliotecaException("No hay configuracion de mora diaria disponible para calcular.");
-            }
+        TablaMora tabla = obtenerTabla();
+        BigDecimal moraDiariaAplicable = tabla.tasaDiaria(fechaParaCalculo); // Tasa del anio, o la global si no hay
+        if (!tabla.tieneTasaAnual(fechaParaCalculo.getYear())) {
+            LogsError.debug(this.getClass(), "Usando tasa de mora diaria global: " + moraDiariaAplicable + " (no encontrada para el anio " + fechaParaCalculo.getYear() + ")");
         }
         return moraDiariaAplicable; // Devolvemos la mora diaria a aplicar
     }
@@ -66,19 +84,107 @@ public class MoraServiceImpl implements MoraService {
         if (prestamo == null || prestamo.getFechaLimite() == null || fechaDevolucionActual == null) {
             throw new IllegalArgumentException("Datos de prestamo o fecha de devolucion invalidos para calcular mora.");
         }
+        // Cada dia de retraso se cobra con la tasa de su propio anio (importa si el retraso cruza de un anio a otro)
+        BigDecimal moraCalculada = obtenerTabla().moraEntre(prestamo.getFechaLimite(), fechaDevolucionActual);
+        if (moraCalculada.signum() > 0) {
+            LogsError.debug(this.getClass(), "Calculo de mora para Prestamo ID " + prestamo.getId() + " hasta " + fechaDevolucionActual + " = " + moraCalculada);
+        }
+        return moraCalculada; // Devolvemos la mora total calculada
+    }
+
+    @Override
+    public ResultadoAcumulacionMora acumularMoraPendiente(LocalDate fechaCorte) throws SQLException, BibliotecaException {
+        // Este metodo recalcula la mora de todos los prestamos vencidos en una sola pasada.
+        // Se leen solo id, usuario, fecha limite y mora (sin armar objetos Prestamo), se calcula en memoria con la
+        // tabla de tasas y se escriben en lote solo los que cambiaron, por bloques de PRESTAMOS_POR_TRANSACCION:
+        // cada bloque actualiza la mora y el resumen de los usuarios de esos prestamos en la misma transaccion.
+        if (fechaCorte == null) {
+            throw new IllegalArgumentException("La fecha de corte no puede ser nula.");
+        }
+        long inicio = System.nanoTime();
+        TablaMora tabla = obtenerTabla();
+        long ultimoDia = fechaCorte.toEpochDay();
+
+        int[][] ids = {new int[1024]}; // Arreglos que crecen segun se necesite (en un arreglo para usarlos en la lambda)
+        long[][] moras = {new long[1024]};
+        int[][] usuarios = {new int[1024]};
+        int[] contadores = new int[2]; // [0] = revisados, [1] = por actualizar
+        BibliotecaException[] errorTasa = new BibliotecaException[1];
+        prestamoDAO.recorrerPrestamosVencidos(fechaCorte, (idPrestamo, idUsuario, fechaLimite, moraActual) -> {
+            contadores[0]++;
+            if (errorTasa[0] != null) {
+                return;
+            }
+            long moraNueva;
+            try {
+                moraNueva = tabla.centavosEntre(fechaLimite + 1, ultimoDia); // Los dias despues de la fecha limite
+            } catch (BibliotecaException ex) {
+                errorTasa[0] = ex; // No se puede lanzar desde el visitante; se lanza al terminar el recorrido
+                return;
+            }
+            if (moraNueva == moraActual) {
+                return; // Ya esta al dia (por ejemplo, si el proceso ya corrio hoy)
+            }
+            int n = contadores[1];
+            if (n == ids[0].length) {
+                ids[0] = Arrays.copyOf(ids[0], n * 2);
+                moras[0] = Arrays.copyOf(moras[0], n * 2);
+                usuarios[0] = Arrays.copyOf(usuarios[0], n * 2);
+            }
+            ids[0][n] = idPrestamo;
+            moras[0][n] = moraNueva;
+            usuarios[0][n] = idUsuario;
+            contadores[1]++;
+        });
+        if (errorTasa[0] != null) {
+            throw errorTasa[0];
+        }
 
-        BigDecimal moraCalculada = BigDecimal.ZERO; // Empezamos con cero mora
+        int actualizados = 0;
+        for (int desde = 0; desde < contadores[1]; desde += PRESTAMOS_POR_TRANSACCION) {
+            int hasta = Math.min(desde + PRESTAMOS_POR_TRANSACCION, contadores[1]);
+            Set<Integer> usuariosBloque = new HashSet<>();
+            for (int i = desde; i < hasta; i++) {
+                usuariosBloque.add(usuarios[0][i]);
+            }
+            try (UnidadTrabajo uow = UnidadTrabajo.iniciar()) {
+                actualizados += prestamoDAO.actualizarMoraEnLote(Arrays.copyOfRange(ids[0], desde, hasta), Arrays.copyOfRange(moras[0], desde, hasta), hasta - desde);
+                // Cuentas de vencidos y mora acumulada de esos usuarios; se recalculan completas, asi que repetirlo deja lo mismo
+                resumenUsuarioDAO.recalcular(usuariosBloque);
+                uow.confirmar(); // Si algo falla, el bloque queda como estaba y los anteriores ya estan guardados
+            }
+        }
+        long duracionMs = (System.nanoTime() - inicio) / 1_000_000;
+        ResultadoAcumulacionMora resultado = new ResultadoAcumulacionMora(fechaCorte, contadores[0], actualizados, duracionMs);
+        LogsError.info(this.getClass(), "Acumulacion de mora terminada: " + resultado);
+        return resultado;
+    }
 
-        if (fechaDevolucionActual.isAfter(prestamo.getFechaLimite())) { // Si la devolucion es despues de la fecha limite
-            long diasDeMora = ChronoUnit.DAYS.between(prestamo.getFechaLimite(), fechaDevolucionActual); // Calculamos los dias de retraso
-            if (diasDeMora > 0) {
-                // La tasa de mora se toma segun la fecha limite del prestamo
-                BigDecimal tasaMoraDiaria = obtenerTasaMoraDiariaAplicable(prestamo.getFechaLimite());
-                moraCalculada = tasaMoraDiaria.multiply(new BigDecimal(diasDeMora)); // Multiplicamos la tasa por los dias
-                LogsError.info(this.getClass(), "Calculo de mora para Prestamo ID " + prestamo.getId() + ": " + diasDeMora + " dias * " + tasaMoraDiaria + "/dia = " + moraCalculada);
+    // Devuelve la tabla de tasas; si no esta armada (o se invalido), la arma con una lectura de la BD
+    TablaMora obtenerTabla() throws SQLException {
+        TablaMora tabla = TABLA.get();
+        if (tabla != null) {
+            return tabla;
+        }
+        synchronized (TABLA) {
+            tabla = TABLA.get();
+            if (tabla == null) {
+                long version = VERSION_TABLA.get();
+                ConfiguracionSistema configGlobal = configuracionSistemaDAO.obtenerConfiguracion();
+                tabla = new TablaMora(moraAnualDAO.obtenerTodas(), configGlobal != null ? configGlobal.getMoraDiariaGlobal() : null);
+                if (VERSION_TABLA.get() == version) { // No la guardamos si alguien la invalido mientras la armabamos
+                    TABLA.set(tabla);
+                }
+                LogsError.info(this.getClass(), "Tabla de tasas de mora armada.");
             }
+            return tabla;
         }
-        return moraCalculada; // Devolvemos la mora total calculada
+    }
+
+    // Descarta la tabla de tasas; se vuelve a armar en el siguiente calculo
+    private static void invalidarTabla() {
+        VERSION_TABLA.incrementAndGet();
+        TABLA.set(null);
     }
 
     // --- Gestion de Configuracion de Mora ---
@@ -105,20 +211,25 @@ public class MoraServiceImpl implements MoraService {
         }
 
         MoraAnual existente = moraAnualDAO.obtenerPorAnio(moraAnual.getAnio()); // Vemos si ya existe una mora para ese anio
+        boolean guardado;
         if (existente != null) {
             // Si ya existe, la actualizamos
             existente.setMoraDiaria(moraAnual.getMoraDiaria());
-            return moraAnualDAO.actualizar(existente);
+            guardado = moraAnualDAO.actualizar(existente);
         } else {
             // Si no existe, la insertamos como nueva
-            return moraAnualDAO.insertar(moraAnual);
+            guardado = moraAnualDAO.insertar(moraAnual);
         }
+        invalidarTabla(); // Las tasas cambiaron
+        return guardado;
     }
 
     @Override
     public boolean eliminarMoraAnual(int anio) throws SQLException {
         // Este metodo elimina la configuracion de mora para un anio.
-        return moraAnualDAO.eliminar(anio);
+        boolean eliminado = moraAnualDAO.eliminar(anio);
+        invalidarTabla(); // Las tasas cambiaron
+        return eliminado;
     }
 
     @Override
@@ -136,6 +247,8 @@ public class MoraServiceImpl implements MoraService {
         if (config.getMoraDiariaGlobal() != null && config.getMoraDiariaGlobal().compareTo(BigDecimal.ZERO) < 0) { // La mora global no puede ser negativa
             throw new BibliotecaException("La mora diaria global debe ser un valor no negativo.");
         }
-        return configuracionSistemaDAO.actualizarConfiguracion(config);
+        boolean actualizado = configuracionSistemaDAO.actualizarConfiguracion(config);
+        invalidarTabla(); // La tasa global cambio
+        return actualizado;
     }
 }
\ No newline at end of file
@@ -0,0 +1,162 @@
+package bibliotecaudb.servicios.impl;
+
+import bibliotecaudb.excepciones.BibliotecaException;
+import bibliotecaudb.modelo.biblioteca.MoraAnual;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Tabla inmutable de tasas de mora diaria, armada una sola vez a partir de mora_anual
+ * y de la mora global de configuracion_sistema.
+ * Guarda, para cada dia entre el primer y el ultimo anio configurado, la suma acumulada
+ * de las tasas en centavos (long). Asi la mora de cualquier rango de dias es una resta
+ * de dos posiciones, sin ir a la base de datos, y cada dia se cobra con la tasa de su anio.
+ * Los dias fuera del rango (o de anios sin fila en mora_anual) usan la tasa global.
+ */
+final class TablaMora {
+
+    private final long globalCentavos; // -1 si no hay mora global configurada
+    private final int primerAnio;
+    private final int ultimoAnio;
+    private final long[] tasaPorAnio; // Centavos por dia de cada anio del rango, -1 si el anio no tiene tasa
+    private final boolean[] tasaAnualConfigurada; // true si el anio tiene fila en mora_anual
+    private final long primerDia; // epochDay del 1 de enero de primerAnio
+    private final long[] acumulado; // acumulado[i] = suma de las tasas de los dias primerDia .. primerDia+i-1
+    private final int[] diasSinTasa; // Igual que acumulado, pero cuenta los dias sin tasa (solo si no hay global)
+
+    TablaMora(List<MoraAnual> morasAnuales, BigDecimal moraGlobal) {
+        this.globalCentavos = moraGlobal != null ? aCentavos(moraGlobal) : -1;
+
+        int min = Integer.MAX_VALUE;
+        int max = Integer.MIN_VALUE;
+        for (MoraAnual ma : morasAnuales) {
+            if (ma.getMoraDiaria() != null) {
+                min = Math.min(min, ma.getAnio());
+                max = Math.max(max, ma.getAnio());
+            }
+        }
+        if (min > max) { // No hay tasas por anio: todo se cobra con la global
+            this.primerAnio = 0;
+            this.ultimoAnio = -1;
+            this.tasaPorAnio = new long[0];
+            this.tasaAnualConfigurada = new boolean[0];
+            this.primerDia = 0;
+            this.acumulado = new long[]{0};
+            this.diasSinTasa = new int[]{0};
+            return;
+        }
+        this.primerAnio = min;
+        this.ultimoAnio = max;
+        this.tasaPorAnio = new long[max - min + 1];
+        this.tasaAnualConfigurada = new boolean[max - min + 1];
+        Arrays.fill(tasaPorAnio, globalCentavos); // Los anios sin fila usan la global
+        for (MoraAnual ma : morasAnuales) {
+            if (ma.getMoraDiaria() != null) {
+                tasaPorAnio[ma.getAnio() - min] = aCentavos(ma.getMoraDiaria());
+                tasaAnualConfigurada[ma.getAnio() - min] = true;
+            }
+        }
+
+        this.primerDia = LocalDate.of(min, 1, 1).toEpochDay();
+        int totalDias = (int) (LocalDate.of(max + 1, 1, 1).toEpochDay() - primerDia);
+        this.acumulado = new long[totalDias + 1];
+        this.diasSinTasa = new int[totalDias + 1];
+        int i = 0;
+        for (int anio = min; anio <= max; anio++) {
+            long tasa = tasaPorAnio[anio - min];
+            int diasDelAnio = LocalDate.of(anio, 1, 1).lengthOfYear();
+            for (int d = 0; d < diasDelAnio; d++, i++) {
+                acumulado[i + 1] = acumulado[i] + Math.max(tasa, 0);
+                diasSinTasa[i + 1] = diasSinTasa[i] + (tasa < 0 ? 1 : 0);
+            }
+        }
+    }
+
+    /**
+     * @return La tasa diaria que corresponde al anio de la fecha.
+     * @throws BibliotecaException Si ni el anio ni la configuracion global tienen tasa.
+     */
+    BigDecimal tasaDiaria(LocalDate fecha) throws BibliotecaException {
+        long centavos = tasaCentavos(fecha.getYear());
+        if (centavos < 0) {
+            throw new BibliotecaException("No hay configuracion de mora diaria disponible para calcular.");
+        }
+        return BigDecimal.valueOf(centavos, 2);
+    }
+
+    /**
+     * @return true si la tasa de ese anio viene de mora_anual y no de la configuracion global.
+     */
+    boolean tieneTasaAnual(int anio) {
+        return anio >= primerAnio && anio <= ultimoAnio && tasaAnualConfigurada[anio - primerAnio];
+    }
+
+    /**
+     * Mora de los dias que van despues de la fecha limite hasta la fecha de devolucion (inclusive).
+     * Cada dia se cobra con la tasa de su propio anio.
+     * @throws BibliotecaException Si algun dia cae en un anio sin tasa y no hay tasa global.
+     */
+    BigDecimal moraEntre(LocalDate fechaLimite, LocalDate fechaDevolucion) throws BibliotecaException {
+        if (!fechaDevolucion.isAfter(fechaLimite)) {
+            return BigDecimal.ZERO;
+        }
+        return BigDecimal.valueOf(centavosEntre(fechaLimite.toEpochDay() + 1, fechaDevolucion.toEpochDay()), 2);
+    }
+
+    /**
+     * Igual que moraEntre pero con dias epoch y en centavos, para calculos masivos sin crear objetos.
+     * @param desde Primer dia cobrado (epochDay, inclusive).
+     * @param hasta Ultimo dia cobrado (epochDay, inclusive).
+     */
+    long centavosEntre(long desde, long hasta) throws BibliotecaException {
+        if (hasta < desde) {
+            return 0;
+        }
+        long total = 0;
+        long finTabla = primerDia + acumulado.length - 1; // Primer dia despues de la tabla
+        // Parte antes de la tabla
+        if (desde < primerDia) {
+            long fin = Math.min(hasta, primerDia - 1);
+            total += diasConGlobal(fin - desde + 1);
+        }
+        // Parte dentro de la tabla
+        long ini = Math.max(desde, primerDia);
+        long fin = Math.min(hasta, finTabla - 1);
+        if (ini <= fin) {
+            int a = (int) (ini - primerDia);
+            int b = (int) (fin - primerDia) + 1;
+            if (diasSinTasa[b] - diasSinTasa[a] > 0) {
+                throw new BibliotecaException("No hay configuracion de mora diaria disponible para calcular.");
+            }
+            total += acumulado[b] - acumulado[a];
+        }
+        // Parte despues de la tabla
+        if (hasta >= finTabla) {
+            long inicio = Math.max(desde, finTabla);
+            total += diasConGlobal(hasta - inicio + 1);
+        }
+        return total;
+    }
+
+    private long diasConGlobal(long dias) throws BibliotecaException {
+        if (globalCentavos < 0) {
+            throw new BibliotecaException("No hay configuracion de mora diaria disponible para calcular.");
+        }
+        return dias * globalCentavos;
+    }
+
+    private long tasaCentavos(int anio) {
+        if (anio >= primerAnio && anio <= ultimoAnio) {
+            return tasaPorAnio[anio - primerAnio];
+        }
+        return globalCentavos;
+    }
+
+    private static long aCentavos(BigDecimal valor) {
+        return valor.setScale(2, RoundingMode.HALF_UP).movePointRight(2).longValueExact();
+    }
+}
@@ -0,0 +1,127 @@
+package bibliotecaudb.servicios.impl;
+
+import bibliotecaudb.conexion.ConexionBD;
+import bibliotecaudb.conexion.LogsError;
+import bibliotecaudb.excepciones.BibliotecaException;
+import bibliotecaudb.modelo.biblioteca.ResultadoAcumulacionMora;
+import bibliotecaudb.servicios.MoraService;
+
+import java.sql.SQLException;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Programa la acumulacion de mora de los prestamos vencidos una vez al dia,
+ * a la hora configurada en config.properties (mora.acumulacion.hora, formato HH:mm).
+ * Corre en un hilo daemon, asi que no impide que la aplicacion termine.
+ * Cada corrida programa la siguiente con la hora local de ese momento, asi los cambios de
+ * horario (o de la hora del sistema) no la van corriendo de a poco.
+ *
+ * Uso: TareaMoraNocturna.iniciar() al arrancar y TareaMoraNocturna.detener() al cerrar.
+ */
+public final class TareaMoraNocturna {
+
+    private static final String HORA_POR_DEFECTO = "02:00";
+
+    private static ScheduledExecutorService planificador; // null si la tarea no esta programada
+    private static LocalTime hora; // Hora local de cada corrida
+
+    private TareaMoraNocturna() {
+    }
+
+    /**
+     * Programa la tarea diaria. Si ya estaba programada no hace nada.
+     */
+    public static synchronized void iniciar() {
+        if (planificador != null) {
+            return;
+        }
+        hora = leerHora();
+        planificador = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread hilo = new Thread(r, "acumulacion-mora");
+            hilo.setDaemon(true);
+            return hilo;
+        });
+        long retrasoMs = programarSiguiente();
+        LogsError.info(TareaMoraNocturna.class, "Acumulacion de mora programada todos los dias a las " + hora + " (primera corrida en " + (retrasoMs / 60000) + " minutos).");
+    }
+
+    // Programa una sola corrida para la proxima vez que el reloj local marque la hora; devuelve cuanto falta en ms
+    private static synchronized long programarSiguiente() {
+        if (planificador == null) {
+            return -1; // Se detuvo mientras corria la tarea
+        }
+        long retrasoMs = calcularRetraso(ZonedDateTime.now(), hora);
+        planificador.schedule(TareaMoraNocturna::ejecutarProgramada, retrasoMs, TimeUnit.MILLISECONDS);
+        return retrasoMs;
+    }
+
+    /**
+     * Cancela la tarea programada (la corrida en curso, si hay, termina normalmente).
+     */
+    public static synchronized void detener() {
+        if (planificador != null) {
+            planificador.shutdown();
+            planificador = null;
+            LogsError.info(TareaMoraNocturna.class, "Acumulacion de mora detenida.");
+        }
+    }
+
+    /**
+     * Ejecuta la acumulacion de mora en el hilo actual, con corte al dia de hoy (por ejemplo desde un menu de administracion).
+     * @return El resultado de la corrida.
+     * @throws SQLException Si hay un error de BD.
+     * @throws BibliotecaException Si no se puede determinar la tasa de mora.
+     */
+    public static ResultadoAcumulacionMora ejecutarAhora() throws SQLException, BibliotecaException {
+        MoraService moraService = new MoraServiceImpl();
+        return moraService.acumularMoraPendiente(LocalDate.now());
+    }
+
+    // Lo que corre el planificador: los errores se registran y no cancelan las siguientes corridas
+    private static void ejecutarProgramada() {
+        try {
+            ejecutarYRegistrar();
+        } finally {
+            programarSiguiente(); // La hora de la siguiente se calcula ahora, con el horario vigente
+        }
+    }
+
+    private static void ejecutarYRegistrar() {
+        try {
+            ResultadoAcumulacionMora resultado = ejecutarAhora();
+            LogsError.info(TareaMoraNocturna.class, "Acumulacion nocturna de mora: " + resultado.getPrestamosRevisados()
+                    + " prestamos revisados, " + resultado.getPrestamosActualizados() + " actualizados en " + resultado.getDuracionMs() + " ms.");
+        } catch (SQLException | BibliotecaException ex) {
+            LogsError.error(TareaMoraNocturna.class, "Error en la acumulacion nocturna de mora: " + ex.getMessage(), ex);
+        } catch (RuntimeException ex) {
+            LogsError.fatal(TareaMoraNocturna.class, "Error inesperado en la acumulacion nocturna de mora.", ex);
+        }
+    }
+
+    private static LocalTime leerHora() {
+        String valor = ConexionBD.getPropiedad("mora.acumulacion.hora", HORA_POR_DEFECTO);
+        try {
+            return LocalTime.parse(valor);
+        } catch (DateTimeParseException ex) {
+            LogsError.warn(TareaMoraNocturna.class, "Hora de acumulacion de mora invalida '" + valor + "', se usa " + HORA_POR_DEFECTO);
+            return LocalTime.parse(HORA_POR_DEFECTO);
+        }
+    }
+
+    // Milisegundos desde ahora hasta la proxima vez que el reloj local marque esa hora. Con ZonedDateTime
+    // el dia del cambio de horario dura 23 o 25 horas; si la hora no existe ese dia, se corre justo despues del salto.
+    static long calcularRetraso(ZonedDateTime ahora, LocalTime hora) {
+        ZonedDateTime siguiente = ahora.toLocalDate().atTime(hora).atZone(ahora.getZone());
+        if (!siguiente.isAfter(ahora)) {
+            siguiente = ahora.toLocalDate().plusDays(1).atTime(hora).atZone(ahora.getZone());
+        }
+        return Duration.between(ahora, siguiente).toMillis();
+    }
+}
@@ -7,6 +7,7 @@ import bibliotecaudb.dao.usuario.impl.UsuarioDAOImpl;
 import bibliotecaudb.dao.usuario.impl.TipoUsuarioDAOImpl;
 import bibliotecaudb.servicios.UsuarioService;
 import bibliotecaudb.excepciones.UsuarioException;
+import bibliotecaudb.dao.Pagina;
 import bibliotecaudb.conexion.LogsError; // Para escribir en el log
 
 import java.sql.SQLException;
@@ -148,6 +149,15 @@ public class UsuarioServiceImpl implements UsuarioService {
         return usuarioDAO.obtenerTodos(); // El DAO se encarga de traerlos
     }
 
+    @Override
+    public Pagina<Usuario> listarUsuarios(Usuario actor, String token, int tamano) throws SQLException, UsuarioException {
+        // Este metodo devuelve una pagina de usuarios, con el mismo permiso que obtenerTodosLosUsuarios.
+        if (actor == null || actor.getTipoUsuario() == null || !"Administrador".equals(actor.getTipoUsuario().getTipo())) {
+            throw new UsuarioException("No tiene permisos para ver todos los usuarios.");
+        }
+        return usuarioDAO.obtenerPagina(token, tamano); // La siguiente pagina se pide con getTokenSiguiente()
+    }
+
     @Override
     public Usuario obtenerUsuarioPorCorreo(String correo) throws SQLException {
         // Este metodo busca un usuario por su correo.